@@ -1,25 +1,37 @@
 package io.yosina.codegen;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
 import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
 import javax.tools.StandardLocation;
 
 /**
  * Annotation processor that collects classes annotated with {@code RegisteredTransliterator} and
- * writes a manifest resource listing their names and qualified class names.
+ * writes a manifest resource listing their names and qualified class names, along with a factory
+ * class that creates each of them by name by calling its constructors directly.
  */
 @SupportedAnnotationTypes("io.yosina.annotations.RegisteredTransliterator")
 @SupportedSourceVersion(javax.lang.model.SourceVersion.RELEASE_17)
@@ -31,6 +43,8 @@ public class AnnotationProcessor extends AbstractProcessor {
             "io.yosina.annotations.RegisteredTransliterator";
     private static final String TRANSLITERATORS_PACKAGE = "io.yosina.transliterators";
     private static final String TRANSLITERATORS_MANIFEST_NAME = "TRANSLITERATORS";
+    private static final String TRANSLITERATOR_INTERFACE = "io.yosina.Transliterator";
+    private static final String FACTORY_CLASS_NAME = "TransliteratorFactory";
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
@@ -104,9 +118,184 @@ public class AnnotationProcessor extends AbstractProcessor {
                                     entry.getKey(), entry.getValue().getQualifiedName()));
                 }
             }
+            writeFactory(targets);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
         return true;
     }
+
+    /** The public constructors of a transliterator that the factory can call. */
+    private static final class Constructors {
+        private final TypeElement target;
+        private boolean noArgs = false;
+        // The erased types of the options taken by single-parameter constructors
+        private final List<String> optionsTypes = new ArrayList<>();
+
+        Constructors(TypeElement target) {
+            this.target = target;
+        }
+    }
+
+    private Constructors constructorsOf(TypeElement target) {
+        final Types types = processingEnv.getTypeUtils();
+        final Constructors result = new Constructors(target);
+        for (ExecutableElement ctor : ElementFilter.constructorsIn(target.getEnclosedElements())) {
+            if (!ctor.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            final List<? extends VariableElement> params = ctor.getParameters();
+            if (params.isEmpty()) {
+                result.noArgs = true;
+            } else if (params.size() == 1
+                    && params.get(0).asType().getKind() == TypeKind.DECLARED) {
+                result.optionsTypes.add(
+                        simpleName(types.erasure(params.get(0).asType()).toString()));
+            }
+        }
+        return result;
+    }
+
+    // Strips the package of the factory from a name, as the generated code is in that package
+    private static String simpleName(String qualifiedName) {
+        final String prefix = TRANSLITERATORS_PACKAGE + ".";
+        return qualifiedName.startsWith(prefix)
+                        && Character.isUpperCase(qualifiedName.charAt(prefix.length()))
+                ? qualifiedName.substring(prefix.length())
+                : qualifiedName;
+    }
+
+    private void writeFactory(Map<String, TypeElement> targets) throws IOException {
+        final Types types = processingEnv.getTypeUtils();
+        final TypeElement transliterator =
+                processingEnv.getElementUtils().getTypeElement(TRANSLITERATOR_INTERFACE);
+        final Map<String, Constructors> constructors = new TreeMap<>();
+        for (Map.Entry<String, TypeElement> entry : targets.entrySet()) {
+            final TypeElement target = entry.getValue();
+            if (target.getModifiers().contains(Modifier.ABSTRACT)
+                    || (transliterator != null
+                            && !types.isAssignable(target.asType(), transliterator.asType()))) {
+                continue;
+            }
+            constructors.put(entry.getKey(), constructorsOf(target));
+        }
+
+        final JavaFileObject out =
+                processingEnv
+                        .getFiler()
+                        .createSourceFile(
+                                TRANSLITERATORS_PACKAGE + "." + FACTORY_CLASS_NAME,
+                                targets.values().stream().toArray(TypeElement[]::new));
+        try (final PrintWriter w = new PrintWriter(out.openWriter())) {
+            w.println("package " + TRANSLITERATORS_PACKAGE + ";");
+            w.println();
+            w.println("import io.yosina.Transliterator;");
+            w.println("import java.util.List;");
+            w.println("import java.util.Map;");
+            w.println();
+            w.println("/**");
+            w.println(
+                    " * Creates the registered transliterators by name by calling their"
+                            + " constructors");
+            w.println(
+                    " * directly. Generated by {@code io.yosina.codegen.AnnotationProcessor} from"
+                            + " the");
+            w.println(" * classes annotated with {@code RegisteredTransliterator}.");
+            w.println(" */");
+            w.println("public final class " + FACTORY_CLASS_NAME + " {");
+            w.println(
+                    "    private static final Map<String, Class<? extends Transliterator>> CLASSES"
+                            + " =");
+            w.println(
+                    constructors.isEmpty()
+                            ? "            Map.of();"
+                            : "            Map.ofEntries(");
+            int i = 0;
+            for (Map.Entry<String, Constructors> entry : constructors.entrySet()) {
+                w.printf(
+                        "                    Map.entry(\"%s\", %s.class)%s%n",
+                        entry.getKey(),
+                        simpleName(entry.getValue().target.getQualifiedName().toString()),
+                        ++i < constructors.size() ? "," : ");");
+            }
+            w.println();
+            w.println("    private static final Map<String, List<Class<?>>> OPTIONS_CLASSES =");
+            w.println(
+                    constructors.isEmpty()
+                            ? "            Map.of();"
+                            : "            Map.ofEntries(");
+            i = 0;
+            for (Map.Entry<String, Constructors> entry : constructors.entrySet()) {
+                w.printf(
+                        "                    Map.entry(\"%s\", List.of(%s))%s%n",
+                        entry.getKey(),
+                        entry.getValue().optionsTypes.stream()
+                                .map(type -> type + ".class")
+                                .collect(Collectors.joining(", ")),
+                        ++i < constructors.size() ? "," : ");");
+            }
+            w.println();
+            w.println("    private " + FACTORY_CLASS_NAME + "() {}");
+            w.println();
+            w.println("    /**");
+            w.println("     * Returns the classes of the registered transliterators.");
+            w.println("     *");
+            w.println("     * @return an unmodifiable map from names to classes");
+            w.println("     */");
+            w.println(
+                    "    public static Map<String, Class<? extends Transliterator>> getClasses()"
+                            + " {");
+            w.println("        return CLASSES;");
+            w.println("    }");
+            w.println();
+            w.println("    /**");
+            w.println(
+                    "     * Returns the types of the options that the registered transliterators"
+                            + " take.");
+            w.println("     *");
+            w.println(
+                    "     * @return an unmodifiable map from names to the parameter types of the");
+            w.println("     *     constructors that take options");
+            w.println("     */");
+            w.println("    public static Map<String, List<Class<?>>> getOptionsClasses() {");
+            w.println("        return OPTIONS_CLASSES;");
+            w.println("    }");
+            w.println();
+            w.println("    /**");
+            w.println("     * Creates a registered transliterator.");
+            w.println("     *");
+            w.println("     * @param name the name of the transliterator");
+            w.println(
+                    "     * @param options the options, or null to call the constructor without"
+                            + " parameters");
+            w.println(
+                    "     * @return the transliterator, or null if there is no transliterator of"
+                            + " that name or");
+            w.println("     *     it has no constructor that takes the options");
+            w.println("     */");
+            w.println("    public static Transliterator create(String name, Object options) {");
+            w.println("        switch (name) {");
+            for (Map.Entry<String, Constructors> entry : constructors.entrySet()) {
+                final Constructors c = entry.getValue();
+                final String className = simpleName(c.target.getQualifiedName().toString());
+                w.printf("            case \"%s\":%n", entry.getKey());
+                if (c.noArgs) {
+                    w.println("                if (options == null) {");
+                    w.printf("                    return new %s();%n", className);
+                    w.println("                }");
+                }
+                for (String type : c.optionsTypes) {
+                    w.printf("                if (options instanceof %s) {%n", type);
+                    w.printf("                    return new %s((%s) options);%n", className, type);
+                    w.println("                }");
+                }
+                w.println("                return null;");
+            }
+            w.println("            default:");
+            w.println("                return null;");
+            w.println("        }");
+            w.println("    }");
+            w.println("}");
+        }
+    }
 }
@@ -18,22 +18,18 @@ public class CircledOrSquaredTransliteratorGenerator implements TransliteratorGe
 package io.yosina.transliterators;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.UncheckedIOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
-import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.ContextFreeTransliterator;
+import io.yosina.ResourceTable;
 import io.yosina.annotations.RegisteredTransliterator;
 
 /**
@@ -41,7 +37,7 @@ import io.yosina.annotations.RegisteredTransliterator;
  * Replace circled or squared characters with templated forms.
  */
 @RegisteredTransliterator(name = "circled-or-squared")
-public class %1$s implements Transliterator {
+public class %1$s implements ContextFreeTransliterator {
     /** Configuration options for the circled-or-squared transliterator. */
     public static class Options {
         private final String templateForCircled;
@@ -124,53 +120,46 @@ public class %1$s implements Transliterator {
                 includeEmojis
             );
         }
-    }
-
-    private static enum CharType {
-        CIRCLE,
-        SQUARE
-    }
 
-    private static class Record {
-        private final String rendering;
-        private final CharType type;
-        private final boolean emoji;
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Options options = (Options) obj;
+            return includeEmojis == options.includeEmojis
+                    && templateForCircled.equals(options.templateForCircled)
+                    && templateForSquared.equals(options.templateForSquared);
+        }
 
-        Record(String rendering, CharType type, boolean emoji) {
-            this.rendering = rendering;
-            this.type = type;
-            this.emoji = emoji;
+        @Override
+        public int hashCode() {
+            return Objects.hash(templateForCircled, templateForSquared, includeEmojis);
         }
     }
 
-    private static final Map<CodePointTuple, Record> mappings;
+    // The records of the resource: two ints for the key, the number of code points of the
+    // rendering and the code points, 0 for a circled or 1 for a squared character, and 1 for an
+    // emoji or 0 otherwise
+    private static final ByteBuffer data;
+    private static final CodePointSet affectedCodePoints;
 
     static {
-        final Map<CodePointTuple, Record> mappings_ = new TreeMap<>();
-        final ByteBuffer b;
-        try {
-            try (final InputStream s = %1$s.class.getResourceAsStream("circled_or_squared.data")) {
-                b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        data = ResourceTable.load(%1$s.class, "circled_or_squared.data");
+        final CodePointSet.Builder keys = new CodePointSet.Builder();
+        final ByteBuffer b = data.duplicate();
         while (b.hasRemaining()) {
-            final int key1 = b.getInt(), key2 = b.getInt();
+            keys.addKey(b.getInt(), b.getInt());
             final int renderingLength = b.getInt();
-            final StringBuilder rendering = new StringBuilder();
-            for (int i = 0; i < renderingLength; i++) {
-                rendering.appendCodePoint(b.getInt());
-            }
-            final int typeValue = b.getInt();
-            final CharType type = typeValue == 0 ? CharType.CIRCLE : CharType.SQUARE;
-            final boolean emoji = b.getInt() != 0;
-            mappings_.put(CodePointTuple.of(key1, key2), new Record(rendering.toString(), type, emoji));
+            b.position(b.position() + (renderingLength + 2) * 4);
         }
-        mappings = Collections.unmodifiableMap(mappings_);
+        affectedCodePoints = keys.build();
     }
 
-    private final Options options;
+    // Expanded once per distinct set of options and shared by all the instances that use it
+    private static final ConcurrentMap<Options, ExpansionTable> expansionTables =
+            new ConcurrentHashMap<>();
+
+    private final ExpansionTable expansions;
 
     /** Creates a new %1$sTransliterator with default options. */
     public %1$s() {
@@ -183,81 +172,58 @@ public class %1$s implements Transliterator {
      * @param options the configuration options
      */
     public %1$s(Options options) {
-        this.options = options;
+        this.expansions = expansionTables.computeIfAbsent(options, %1$s::expand);
+    }
+
+    private static ExpansionTable expand(Options options) {
+        final ExpansionTable.Builder builder = new ExpansionTable.Builder();
+        final ByteBuffer b = data.duplicate();
+        final StringBuilder rendering = new StringBuilder();
+        while (b.hasRemaining()) {
+            final int key1 = b.getInt(), key2 = b.getInt();
+            final int renderingLength = b.getInt();
+            rendering.setLength(0);
+            for (int i = 0; i < renderingLength; i++) {
+                rendering.appendCodePoint(b.getInt());
+            }
+            final String template =
+                    b.getInt() == 0
+                            ? options.getTemplateForCircled()
+                            : options.getTemplateForSquared();
+            final boolean emoji = b.getInt() != 0;
+            // Emojis that are not included are left as they are, and so are characters whose
+            // template is empty
+            if (!emoji || options.isIncludeEmojis()) {
+                builder.put(key1, key2, template.replace("?", rendering));
+            }
+        }
+        return builder.build();
     }
 
     @Override
     public CharIterator transliterate(CharIterator input) {
-        return new %1$sCharIterator(input, mappings, options);
+        return expansions.transliterate(input);
     }
 
-    private static class %1$sCharIterator implements CharIterator {
-        private final CharIterator input;
-        private final Map<CodePointTuple, Record> mappings;
-        private final Options options;
-        private final List<Char> queue = new ArrayList<>();
-        private int queueIndex = 0;
-
-        public %1$sCharIterator(CharIterator input, Map<CodePointTuple, Record> mappings, Options options) {
-            this.input = input;
-            this.mappings = mappings;
-            this.options = options;
-        }
-
-        @Override
-        public Char next() {
-            // Return queued characters first
-            if (queueIndex < queue.size()) {
-                return queue.get(queueIndex++);
-            }
-
-            // Reset queue for new character
-            queue.clear();
-            queueIndex = 0;
-
-            if (!input.hasNext()) {
-                return null;
-            }
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        expansions.transliterate(input, start, end, output);
+    }
 
-            final Char ch = input.next();
-            if (ch.isSentinel()) {
-                return ch;
-            }
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints;
+    }
 
-            Record record = mappings.get(ch.get());
-            if (record != null) {
-                // Skip emoji characters if not included
-                if (record.emoji && !options.isIncludeEmojis()) {
-                    return ch;
-                }
-
-                // Get template
-                final String template = record.type == CharType.CIRCLE ? options.getTemplateForCircled() : options.getTemplateForSquared();
-                final String replacement = template.replace("?", record.rendering);
-
-                if (replacement.isEmpty()) {
-                    return ch;
-                }
-
-                // Create new characters for each replacement code point
-                final int[] replacementCodePoints = replacement.codePoints().toArray();
-                for (int i = 0; i < replacementCodePoints.length; i++) {
-                    queue.add(new io.yosina.Char(
-                        CodePointTuple.of(replacementCodePoints[i], -1),
-                        ch.getOffset() + i,
-                        ch
-                    ));
-                }
-                return queue.get(queueIndex++);
-            } else {
-                return ch;
-            }
-        }
+    @Override
+    public void forEachReplacement(
+            BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        expansions.forEach(action);
+    }
 
-        @Override
-        public boolean hasNext() {
-            return queueIndex < queue.size() || input.hasNext();
-        }
+    @Override
+    public Object getReplacementsKey() {
+        return expansions;
     }
 }
 """;
@@ -17,20 +17,13 @@ public class CombinedTransliteratorGenerator implements TransliteratorGenerator
 package io.yosina.transliterators;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.UncheckedIOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
-import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.ContextFreeTransliterator;
+import io.yosina.ResourceTable;
 import io.yosina.annotations.RegisteredTransliterator;
 
 /**
@@ -38,87 +31,42 @@ import io.yosina.annotations.RegisteredTransliterator;
  * Replace single characters with arrays of characters.
  */
 @RegisteredTransliterator(name = "%2$s")
-public class %1$s implements Transliterator {
-    private static final Map<CodePointTuple, int[]> mappings;
+public class %1$s implements ContextFreeTransliterator {
+    private static final ExpansionTable expansions;
 
     static {
-        final Map<CodePointTuple, int[]> mappings_ = new TreeMap<>();
-        final ByteBuffer b;
-        try {
-            try (final InputStream s = %1$s.class.getResourceAsStream("%2$s.data")) {
-                b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-        while (b.hasRemaining()) {
-            final int key1 = b.getInt(), key2 = b.getInt();
-            final int length = b.getInt();
-            final int[] value = new int[length];
-            for (int i = 0; i < length; i++) {
-                value[i] = b.getInt();
-            }
-            mappings_.put(CodePointTuple.of(key1, key2), value);
+        final ByteBuffer b = ResourceTable.load(%1$s.class, "%2$s.data");
+        if (ResourceTable.isInPlace()) {
+            expansions = ExpansionTable.inPlace(ResourceTable.ofLengthPrefixed(b, 0));
+        } else {
+            expansions = ExpansionTable.decode(b);
         }
-        mappings = Collections.unmodifiableMap(mappings_);
     }
 
-    private static class %1$sCharIterator implements CharIterator {
-        private final CharIterator input;
-        private final Map<CodePointTuple, int[]> mappings;
-        private final List<Char> queue = new ArrayList<>();
-        private int queueIndex = 0;
-
-        public %1$sCharIterator(CharIterator input, Map<CodePointTuple, int[]> mappings) {
-            this.input = input;
-            this.mappings = mappings;
-        }
-
-        @Override
-        public Char next() {
-            // Return queued characters first
-            if (queueIndex < queue.size()) {
-                return queue.get(queueIndex++);
-            }
-
-            // Reset queue for new character
-            queue.clear();
-            queueIndex = 0;
-
-            if (!input.hasNext()) {
-                return null;
-            }
+    @Override
+    public CharIterator transliterate(CharIterator input) {
+        return expansions.transliterate(input);
+    }
 
-            Char ch = input.next();
-            if (ch.isSentinel()) {
-                return ch;
-            }
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        expansions.transliterate(input, start, end, output);
+    }
 
-            int[] replacement = mappings.get(ch.get());
-            if (replacement != null) {
-                // Create new characters for each replacement
-                for (int i = 0; i < replacement.length; i++) {
-                    queue.add(new Char(
-                        CodePointTuple.of(replacement[i], -1),
-                        ch.getOffset() + i,
-                        ch
-                    ));
-                }
-                return queue.get(queueIndex++);
-            } else {
-                return ch;
-            }
-        }
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return expansions.keyCodePoints();
+    }
 
-        @Override
-        public boolean hasNext() {
-            return queueIndex < queue.size() || input.hasNext();
-        }
+    @Override
+    public void forEachReplacement(
+            BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        expansions.forEach(action);
     }
 
     @Override
-    public CharIterator transliterate(CharIterator input) {
-        return new %1$sCharIterator(input, mappings);
+    public Object getReplacementsKey() {
+        return expansions;
     }
 
     /** Creates a new Combined transliterator. */
@@ -15,50 +15,63 @@ public class SimpleTransliteratorGenerator implements TransliteratorGenerator {
             package io.yosina.transliterators;
 
             import java.nio.ByteBuffer;
-            import java.nio.ByteOrder;
-            import java.io.IOException;
-            import java.io.InputStream;
-            import java.io.UncheckedIOException;
-            import java.util.Collections;
-            import java.util.Map;
-            import java.util.TreeMap;
 
             import io.yosina.CharIterator;
+            import io.yosina.CodePointBuffer;
+            import io.yosina.CodePointLookup;
+            import io.yosina.CodePointSet;
+            import io.yosina.CodePointTrie;
             import io.yosina.CodePointTuple;
-            import io.yosina.Transliterator;
+            import io.yosina.ResourceTable;
+            import io.yosina.TableTransliterator;
             import io.yosina.annotations.RegisteredTransliterator;
 
             /**
              * Auto-generated transliterator for %1$s.
              */
             @RegisteredTransliterator(name = "%3$s")
-            public class %1$s implements Transliterator {
-                private static final Map<CodePointTuple, CodePointTuple> mappings;
+            public class %1$s implements TableTransliterator {
+                private static final CodePointLookup<CodePointTuple> mappings;
+                private static final CodePointSet affectedCodePoints;
 
                 static {
-                    final Map<CodePointTuple, CodePointTuple> mappings_ = new TreeMap<>();
-                    final ByteBuffer b;
-                    try {
-                        try (final InputStream s = %1$s.class.getResourceAsStream("%2$s")) {
-                            b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+                    final ByteBuffer b = ResourceTable.load(%1$s.class, "%2$s");
+                    if (ResourceTable.isInPlace()) {
+                        final ResourceTable table = ResourceTable.ofFixed(b, 4);
+                        mappings = table.asLookup(r -> CodePointTuple.of(table.getInt(r, 0), table.getInt(r, 1)));
+                        affectedCodePoints = table.keyCodePoints();
+                    } else {
+                        final CodePointTrie.Builder<CodePointTuple> mappings_ = new CodePointTrie.Builder<>();
+                        while (b.hasRemaining()) {
+                            final int key1 = b.getInt(), key2 = b.getInt();
+                            final int value1 = b.getInt(), value2 = b.getInt();
+                            mappings_.put(key1, key2, CodePointTuple.of(value1, value2));
                         }
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
+                        final CodePointTrie<CodePointTuple> trie = mappings_.build();
+                        mappings = trie;
+                        affectedCodePoints = trie.keyCodePoints();
                     }
-                    while (b.hasRemaining()) {
-                        final int key1 = b.getInt(), key2 = b.getInt();
-                        final int value1 = b.getInt(), value2 = b.getInt();
-                        final CodePointTuple key = CodePointTuple.of(key1, key2);
-                        final CodePointTuple value = CodePointTuple.of(value1, value2);
-                        mappings_.put(key, value);
-                    }
-                    mappings = Collections.unmodifiableMap(mappings_);
+                }
+
+                @Override
+                public CodePointLookup<CodePointTuple> getTable() {
+                    return mappings;
                 }
 
                 @Override
                 public CharIterator transliterate(CharIterator input) {
                     return new SimpleCharIterator(input, mappings);
                 }
+
+                @Override
+                public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+                    SimpleCharIterator.transliterate(input, start, end, output, mappings);
+                }
+
+                @Override
+                public CodePointSet getAffectedCodePoints() {
+                    return affectedCodePoints;
+                }
             }
             """;
 
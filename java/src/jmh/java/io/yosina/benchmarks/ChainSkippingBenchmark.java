@@ -0,0 +1,134 @@
+package io.yosina.benchmarks;
+
+import io.yosina.BufferTransliterator;
+import io.yosina.ChainedTransliterator;
+import io.yosina.CharIterator;
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import io.yosina.Transliterator;
+import io.yosina.transliterators.CircledOrSquaredTransliterator;
+import io.yosina.transliterators.CombinedTransliterator;
+import io.yosina.transliterators.HiraKataCompositionTransliterator;
+import io.yosina.transliterators.HyphensTransliterator;
+import io.yosina.transliterators.IdeographicAnnotationsTransliterator;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import io.yosina.transliterators.KanjiOldNewTransliterator;
+import io.yosina.transliterators.MathematicalAlphanumericsTransliterator;
+import io.yosina.transliterators.RadicalsTransliterator;
+import io.yosina.transliterators.SpacesTransliterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a chain of ten transliterators over text that they mostly leave as it is, with and
+ * without skipping the runs of characters that none of them may act on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainSkippingBenchmark {
+    private static final String ASCII =
+            "The quick brown fox jumps over the lazy dog, 1234567890 times a day. ";
+    private static final String JAPANESE = "東京都の天気は晴れ、最高気温は二十五度の予想です。";
+
+    @Param({"ascii", "mixed", "japanese"})
+    public String text;
+
+    @Param({"true", "false"})
+    public boolean skip;
+
+    private String input;
+    private ChainedTransliterator chain;
+
+    /** Hides the affected code points of a transliterator, so that nothing gets skipped. */
+    private static final class Opaque implements Transliterator, BufferTransliterator {
+        private final Transliterator transliterator;
+
+        Opaque(Transliterator transliterator) {
+            this.transliterator = transliterator;
+        }
+
+        @Override
+        public CharIterator transliterate(CharIterator input) {
+            return transliterator.transliterate(input);
+        }
+
+        @Override
+        public void transliterate(
+                CodePointBuffer input, int start, int end, CodePointBuffer output) {
+            ((BufferTransliterator) transliterator).transliterate(input, start, end, output);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 8192; i++) {
+            switch (text) {
+                case "ascii":
+                    sb.append(ASCII);
+                    break;
+                case "mixed":
+                    sb.append(i % 4 == 0 ? JAPANESE : ASCII);
+                    break;
+                default:
+                    sb.append(JAPANESE);
+                    break;
+            }
+        }
+        input = sb.toString();
+        final List<Transliterator> stages =
+                List.of(
+                        new SpacesTransliterator(),
+                        new RadicalsTransliterator(),
+                        new MathematicalAlphanumericsTransliterator(),
+                        new IdeographicAnnotationsTransliterator(),
+                        new KanjiOldNewTransliterator(),
+                        new HyphensTransliterator(new HyphensTransliterator.Options()),
+                        new CombinedTransliterator(),
+                        new CircledOrSquaredTransliterator(),
+                        new IvsSvsBaseTransliterator(
+                                new IvsSvsBaseTransliterator.Options()
+                                        .withMode(IvsSvsBaseTransliterator.Mode.BASE)
+                                        .withDropSelectorAltogether(true)),
+                        new HiraKataCompositionTransliterator());
+        if (skip) {
+            chain = new ChainedTransliterator(stages);
+        } else {
+            final List<Transliterator> opaque = new ArrayList<>();
+            for (Transliterator stage : stages) {
+                opaque.add(new Opaque(stage));
+            }
+            chain = new ChainedTransliterator(opaque);
+        }
+    }
+
+    @Benchmark
+    public String buffers() {
+        final CodePointBuffer in = CodePointBuffer.of(input);
+        final CodePointBuffer out = new CodePointBuffer(in.size());
+        chain.transliterate(in, 0, in.size(), out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String chars() {
+        return chain.transliterate(Chars.of(input, false).iterator()).string();
+    }
+}
@@ -0,0 +1,87 @@
+package io.yosina.benchmarks;
+
+import io.yosina.CodePointTrie;
+import io.yosina.CodePointTuple;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares looking up the mapping tables of the simple transliterators in a {@link TreeMap} keyed
+ * by {@link CodePointTuple}, as they used to, and in a {@link CodePointTrie}. Half of the probed
+ * keys are in the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodePointTrieBenchmark {
+    @Param({"spaces", "radicals", "kanji_old_new", "mathematical_alphanumerics"})
+    public String table;
+
+    private Map<CodePointTuple, CodePointTuple> map;
+    private CodePointTrie<CodePointTuple> trie;
+    private CodePointTuple[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final ByteBuffer b = load("/io/yosina/transliterators/" + table + ".data");
+        map = new TreeMap<>();
+        final CodePointTrie.Builder<CodePointTuple> builder = new CodePointTrie.Builder<>();
+        final int records = b.remaining() / 16;
+        keys = new CodePointTuple[records * 2];
+        for (int i = 0; i < records; i++) {
+            final int key1 = b.getInt(), key2 = b.getInt();
+            final int value1 = b.getInt(), value2 = b.getInt();
+            final CodePointTuple value = CodePointTuple.of(value1, value2);
+            map.put(CodePointTuple.of(key1, key2), value);
+            builder.put(key1, key2, value);
+            keys[i * 2] = CodePointTuple.of(key1, key2);
+            // A neighbouring code point that is usually not mapped
+            keys[i * 2 + 1] = CodePointTuple.of(key1 + 0x100, key2);
+        }
+        trie = builder.build();
+    }
+
+    private static ByteBuffer load(String name) {
+        try (final InputStream s = CodePointTrieBenchmark.class.getResourceAsStream(name)) {
+            return ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public void treeMap(Blackhole bh) {
+        for (final CodePointTuple key : keys) {
+            bh.consume(map.get(key));
+        }
+    }
+
+    @Benchmark
+    public void trie(Blackhole bh) {
+        for (final CodePointTuple key : keys) {
+            bh.consume(trie.get(key));
+        }
+    }
+}
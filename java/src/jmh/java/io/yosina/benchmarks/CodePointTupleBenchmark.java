@@ -0,0 +1,58 @@
+package io.yosina.benchmarks;
+
+import io.yosina.Char;
+import io.yosina.Chars;
+import io.yosina.CodePointTuple;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the tuple pool of {@link CodePointTuple#of(int)} on a Japanese corpus. Run with {@code
+ * -Pjmh.profilers=gc} and compare gc.alloc.rate.norm: with the pool, decoding the corpus allocates
+ * no tuples for pooled code points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodePointTupleBenchmark {
+    private static final String TEXT =
+            "吾輩は猫である。名前はまだ無い。どこで生れたかとんと見当がつかぬ。"
+                    + "何でも薄暗いじめじめした所でニャーニャー泣いていた事だけは記憶している。"
+                    + "ｶﾀｶﾅとＡＢＣ１２３、葛󠄀城市の辻󠄀さん（Tel: 03-1234-5678）。";
+
+    private String input;
+    private int[] codePoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = TEXT.repeat(32);
+        codePoints = input.codePoints().toArray();
+    }
+
+    @Benchmark
+    public void of(Blackhole bh) {
+        for (final int codePoint : codePoints) {
+            bh.consume(CodePointTuple.of(codePoint));
+        }
+    }
+
+    @Benchmark
+    public List<Char> chars() {
+        return Chars.of(input).toList();
+    }
+}
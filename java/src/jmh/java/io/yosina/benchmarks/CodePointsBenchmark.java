@@ -0,0 +1,65 @@
+package io.yosina.benchmarks;
+
+import io.yosina.Chars;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the code point adapters over a prebuilt {@link Chars}. Run with {@code
+ * -Pjmh.profilers=gc}: gc.alloc.rate.norm should not grow with {@code length}, i.e. iterating
+ * allocates nothing per character.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodePointsBenchmark {
+    private static final String TEXT = "カタカナとひらがな、ABC１２３葛󠄀城市𠮷野家";
+
+    @Param({"16", "4096"})
+    public int length;
+
+    private Chars chars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(TEXT);
+        }
+        chars = Chars.of(sb.toString());
+    }
+
+    @Benchmark
+    public int iterator() {
+        int sum = 0;
+        for (PrimitiveIterator.OfInt i = chars.codePointIterator(); i.hasNext(); ) {
+            sum += i.nextInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int stream() {
+        return chars.codePointStream().sum();
+    }
+
+    @Benchmark
+    public int[] toArray() {
+        return chars.codePointStream().toArray();
+    }
+}
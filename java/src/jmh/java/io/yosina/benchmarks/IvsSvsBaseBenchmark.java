@@ -0,0 +1,140 @@
+package io.yosina.benchmarks;
+
+import io.yosina.Chars;
+import io.yosina.CodePointTuple;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of the first ivs-svs-base transliteration in a fresh JVM, which includes
+ * loading the tables, and prints the heap the tables retain. {@code treeMaps} decodes the data into
+ * three TreeMaps of records as the transliterator used to; the other modes use the transliterator,
+ * which builds only the table for the requested direction and charset. {@code none} transliterates
+ * nothing and gives the baseline to subtract from the retained heap of the other modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = "-XX:+UseSerialGC")
+public class IvsSvsBaseBenchmark {
+    @Param({"none", "treeMaps", "ivsOrSvs", "base"})
+    public String mode;
+
+    private final List<Object> retained = new ArrayList<>();
+    private long heapBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Load the classes used by both modes so only the tables are measured
+        Chars.of("x").toList();
+        heapBefore = usedHeapAfterGc();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf(
+                "%n%s: %d KB retained (%d)%n",
+                mode, (usedHeapAfterGc() - heapBefore) / 1024, retained.size());
+    }
+
+    private static long usedHeapAfterGc() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public Object firstUse() {
+        switch (mode) {
+            case "none":
+                retained.add(mode);
+                break;
+            case "treeMaps":
+                retained.add(loadTreeMaps());
+                break;
+            case "ivsOrSvs":
+                retained.add(
+                        transliterate(
+                                new IvsSvsBaseTransliterator.Options()
+                                        .withMode(IvsSvsBaseTransliterator.Mode.IVS_OR_SVS)));
+                break;
+            default:
+                retained.add(
+                        transliterate(
+                                new IvsSvsBaseTransliterator.Options()
+                                        .withMode(IvsSvsBaseTransliterator.Mode.BASE)));
+                break;
+        }
+        return retained;
+    }
+
+    private static String transliterate(IvsSvsBaseTransliterator.Options options) {
+        return new IvsSvsBaseTransliterator(options)
+                .transliterate(Chars.of("葛󠄀城市").iterator())
+                .string();
+    }
+
+    private static List<Map<CodePointTuple, Object[]>> loadTreeMaps() {
+        final ByteBuffer b;
+        try (final InputStream s =
+                IvsSvsBaseTransliterator.class.getResourceAsStream("ivs_svs_base.data")) {
+            b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Map<CodePointTuple, Object[]> fwdBase90 = new TreeMap<>();
+        final Map<CodePointTuple, Object[]> fwdBase2004 = new TreeMap<>();
+        final Map<CodePointTuple, Object[]> rev = new TreeMap<>();
+        final int n = b.getInt();
+        for (int i = 0; i < n; i++) {
+            final CodePointTuple ivs = CodePointTuple.of(b.getInt(), b.getInt());
+            final CodePointTuple svs = CodePointTuple.of(b.getInt(), b.getInt());
+            final CodePointTuple base90 = CodePointTuple.of(b.getInt());
+            final CodePointTuple base2004 = CodePointTuple.of(b.getInt());
+            // Stands in for the record object holding the four tuples
+            final Object[] record = {ivs, svs, base90, base2004};
+            fwdBase90.put(ivs, record);
+            fwdBase2004.put(ivs, record);
+            if (!svs.isEmpty()) {
+                fwdBase90.put(svs, record);
+                fwdBase2004.put(svs, record);
+            }
+            if (!base90.isEmpty()) {
+                fwdBase90.put(base90, record);
+            }
+            if (!base2004.isEmpty()) {
+                fwdBase2004.put(base2004, record);
+            }
+            rev.put(ivs, record);
+        }
+        return List.of(fwdBase90, fwdBase2004, rev);
+    }
+}
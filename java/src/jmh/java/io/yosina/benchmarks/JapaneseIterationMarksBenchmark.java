@@ -0,0 +1,53 @@
+package io.yosina.benchmarks;
+
+import io.yosina.Chars;
+import io.yosina.transliterators.JapaneseIterationMarksTransliterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the japanese-iteration-marks transliterator over text without iteration marks, which is
+ * the common case, and over text that has some.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JapaneseIterationMarksBenchmark {
+    private static final String PLAIN = "東京都の天気は晴れ、最高気温は二十五度の予想です。カタカナも少し。";
+    private static final String MARKED = "時々こゝろみすゞ学問のすゝめヽヾ、人々の心々。";
+
+    @Param({"plain", "marked"})
+    public String text;
+
+    private String input;
+    private JapaneseIterationMarksTransliterator transliterator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 8192) {
+            sb.append(text.equals("plain") ? PLAIN : MARKED);
+        }
+        input = sb.toString();
+        transliterator = new JapaneseIterationMarksTransliterator();
+    }
+
+    @Benchmark
+    public String chars() {
+        return transliterator.transliterate(Chars.of(input, false).iterator()).string();
+    }
+}
@@ -0,0 +1,61 @@
+package io.yosina.benchmarks;
+
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import io.yosina.transliterators.Jisx0201AndAlikeTransliterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of a single jisx0201-and-alike transliteration of a short string, as when a
+ * transliterator is applied to many small fields one by one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Jisx0201AndAlikeBenchmark {
+    private static final String FULLWIDTH = "ガギパアイヴー　ＡＢＣ１２３";
+    private static final String HALFWIDTH = "ｶﾞｷﾞﾊﾟｱｲｳﾞｰ ABC123";
+
+    @Param({"true", "false"})
+    public boolean fullwidthToHalfwidth;
+
+    private String input;
+    private Jisx0201AndAlikeTransliterator transliterator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = fullwidthToHalfwidth ? FULLWIDTH : HALFWIDTH;
+        transliterator =
+                new Jisx0201AndAlikeTransliterator(
+                        new Jisx0201AndAlikeTransliterator.Options()
+                                .withFullwidthToHalfwidth(fullwidthToHalfwidth));
+    }
+
+    @Benchmark
+    public String chars() {
+        return transliterator.transliterate(Chars.of(input, false).iterator()).string();
+    }
+
+    @Benchmark
+    public String buffers() {
+        final CodePointBuffer in = CodePointBuffer.of(input);
+        final CodePointBuffer out = new CodePointBuffer(in.size());
+        transliterator.transliterate(in, 0, in.size(), out);
+        return out.toString();
+    }
+}
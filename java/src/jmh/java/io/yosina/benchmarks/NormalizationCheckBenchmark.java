@@ -0,0 +1,78 @@
+package io.yosina.benchmarks;
+
+import io.yosina.TransliterationRecipe;
+import io.yosina.Yosina;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures checking whether a text is what a recipe turns it into, by transliterating it and
+ * comparing the result and by checking it directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NormalizationCheckBenchmark {
+    // Already normalized, with a few characters that the recipe acts on and leaves as they are
+    private static final String TEXT = "ひらがなとカタカナの文章に、ABCや123-456などの英数字も交じる。";
+
+    @Param({"normalized", "unaffected", "changed-early"})
+    public String text;
+
+    private String input;
+    private Function<String, String> transliterator;
+    private Predicate<CharSequence> check;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 8192) {
+            sb.append(TEXT);
+        }
+        switch (text) {
+            case "unaffected":
+                input = sb.toString().replace('-', 'x').replace('、', ',');
+                break;
+            case "changed-early":
+                input = "　" + sb;
+                break;
+            default:
+                input = sb.toString();
+                break;
+        }
+        final TransliterationRecipe recipe =
+                new TransliterationRecipe()
+                        .withReplaceSpaces(true)
+                        .withReplaceHyphens(TransliterationRecipe.ReplaceHyphensOptions.ENABLED)
+                        .withReplaceMathematicalAlphanumerics(true)
+                        .withToHalfwidth(TransliterationRecipe.ToHalfwidthOptions.ENABLED);
+        transliterator = Yosina.makeTransliteratorFromRecipe(recipe);
+        check = Yosina.makeNormalizationCheckFromRecipe(recipe);
+    }
+
+    @Benchmark
+    public boolean transliterateAndCompare() {
+        return transliterator.apply(input).equals(input);
+    }
+
+    @Benchmark
+    public boolean isNormalized() {
+        return check.test(input);
+    }
+}
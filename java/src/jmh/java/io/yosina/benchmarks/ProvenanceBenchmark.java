@@ -0,0 +1,112 @@
+package io.yosina.benchmarks;
+
+import io.yosina.ChainedTransliterator;
+import io.yosina.Char;
+import io.yosina.Chars;
+import io.yosina.Transliterator;
+import io.yosina.transliterators.HiraKataCompositionTransliterator;
+import io.yosina.transliterators.HyphensTransliterator;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import io.yosina.transliterators.Jisx0201AndAlikeTransliterator;
+import io.yosina.transliterators.KanjiOldNewTransliterator;
+import io.yosina.transliterators.ProlongedSoundMarksTransliterator;
+import io.yosina.transliterators.RadicalsTransliterator;
+import io.yosina.transliterators.SpacesTransliterator;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the Char path with and without provenance tracking. Besides throughput (run with {@code
+ * -prof gc} to see the allocation rate), the setup prints the live heap retained per output
+ * character while the transliterated characters are kept around.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProvenanceBenchmark {
+    private static final String TEXT = "ｶﾀｶﾅとひらがな、ABCＡＢＣ１２３　舊字體の變換。葛󠄀城市ｰ東京都‐千代田区⼀丁目 ウェ―ブ";
+
+    @Param({"true", "false"})
+    public boolean trackProvenance;
+
+    private Transliterator transliterator;
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transliterator =
+                new ChainedTransliterator(
+                        new IvsSvsBaseTransliterator(new IvsSvsBaseTransliterator.Options()),
+                        new KanjiOldNewTransliterator(),
+                        new SpacesTransliterator(),
+                        new RadicalsTransliterator(),
+                        new HyphensTransliterator(new HyphensTransliterator.Options()),
+                        new ProlongedSoundMarksTransliterator(
+                                new ProlongedSoundMarksTransliterator.Options()),
+                        new HiraKataCompositionTransliterator(),
+                        new Jisx0201AndAlikeTransliterator(
+                                new Jisx0201AndAlikeTransliterator.Options()
+                                        .withFullwidthToHalfwidth(false)),
+                        new IvsSvsBaseTransliterator(
+                                new IvsSvsBaseTransliterator.Options()
+                                        .withMode(IvsSvsBaseTransliterator.Mode.BASE)));
+        input = TEXT.repeat(16);
+        reportLiveHeapPerChar();
+    }
+
+    private List<Char> transliterate() {
+        return transliterator.transliterate(Chars.of(input, trackProvenance).iterator()).toList();
+    }
+
+    private void reportLiveHeapPerChar() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final int rounds = 256;
+        final List<List<Char>> retained = new ArrayList<>(rounds);
+        final long before = usedHeapAfterGc(memory);
+        long chars = 0;
+        for (int i = 0; i < rounds; i++) {
+            final List<Char> result = transliterate();
+            chars += result.size();
+            retained.add(result);
+        }
+        final long after = usedHeapAfterGc(memory);
+        System.out.printf(
+                "%ntrackProvenance=%s: %.1f live bytes per output character (%d retained)%n",
+                trackProvenance, (double) (after - before) / chars, retained.size());
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public List<Char> materialize() {
+        return transliterate();
+    }
+
+    @Benchmark
+    public String string() {
+        return transliterator.transliterate(Chars.of(input, trackProvenance).iterator()).string();
+    }
+}
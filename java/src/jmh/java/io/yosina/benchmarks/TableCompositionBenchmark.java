@@ -0,0 +1,131 @@
+package io.yosina.benchmarks;
+
+import io.yosina.BufferTransliterator;
+import io.yosina.ChainedTransliterator;
+import io.yosina.CharIterator;
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
+import io.yosina.TableTransliterator;
+import io.yosina.TransliterationRecipe;
+import io.yosina.Transliterator;
+import io.yosina.Yosina;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the chain of a recipe that enables every table transliterator, with and without
+ * composing the consecutive ones into a single table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableCompositionBenchmark {
+    private static final String TEXT = "ひらがなの文章に　全角スペースや⼀⼆⺅の部首、𝐀𝐁𝐂と㆒㆓、ゐゑ𛀁も交じる。舊字體の亞細亞。";
+
+    @Param({"true", "false"})
+    public boolean compose;
+
+    private String input;
+    private ChainedTransliterator chain;
+
+    /** Hides that a transliterator is a table, so that it is not composed with its neighbours. */
+    private static final class Opaque implements Transliterator, BufferTransliterator {
+        private final TableTransliterator transliterator;
+
+        Opaque(TableTransliterator transliterator) {
+            this.transliterator = transliterator;
+        }
+
+        @Override
+        public CharIterator transliterate(CharIterator input) {
+            return transliterator.transliterate(input);
+        }
+
+        @Override
+        public void transliterate(
+                CodePointBuffer input, int start, int end, CodePointBuffer output) {
+            transliterator.transliterate(input, start, end, output);
+        }
+
+        @Override
+        public CodePointSet getAffectedCodePoints() {
+            return transliterator.getAffectedCodePoints();
+        }
+    }
+
+    private static Transliterator create(Yosina.TransliteratorConfig config) throws Exception {
+        final Class<Transliterator> class_ =
+                Yosina.getRegisteredTransliterators().get(config.getName());
+        if (config.getOptions().isEmpty()) {
+            return class_.getConstructor().newInstance();
+        }
+        final Object options = config.getOptions().get();
+        for (Constructor<?> ctor : class_.getConstructors()) {
+            if (ctor.getParameterCount() == 1 && ctor.getParameterTypes()[0].isInstance(options)) {
+                return (Transliterator) ctor.newInstance(options);
+            }
+        }
+        throw new IllegalArgumentException(config.getName());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 8192) {
+            sb.append(TEXT);
+        }
+        input = sb.toString();
+        final TransliterationRecipe recipe =
+                new TransliterationRecipe()
+                        .withKanjiOldNew(true)
+                        .withReplaceCombinedCharacters(true)
+                        .withReplaceIdeographicAnnotations(true)
+                        .withReplaceRadicals(true)
+                        .withReplaceSpaces(true)
+                        .withReplaceHyphens(TransliterationRecipe.ReplaceHyphensOptions.ENABLED)
+                        .withReplaceMathematicalAlphanumerics(true)
+                        .withReplaceArchaicHirakatas(true)
+                        .withReplaceSmallHirakatas(true)
+                        .withHiraKata("hira-to-kata");
+        final List<Transliterator> stages = new ArrayList<>();
+        for (Yosina.TransliteratorConfig config : recipe.buildTransliteratorConfigs()) {
+            final Transliterator stage = create(config);
+            stages.add(
+                    compose || !(stage instanceof TableTransliterator)
+                            ? stage
+                            : new Opaque((TableTransliterator) stage));
+        }
+        chain = new ChainedTransliterator(stages);
+    }
+
+    @Benchmark
+    public String buffers() {
+        final CodePointBuffer in = CodePointBuffer.of(input);
+        final CodePointBuffer out = new CodePointBuffer(in.size());
+        chain.transliterate(in, 0, in.size(), out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String chars() {
+        return chain.transliterate(Chars.of(input, false).iterator()).string();
+    }
+}
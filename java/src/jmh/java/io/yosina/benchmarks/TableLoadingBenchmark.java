@@ -0,0 +1,68 @@
+package io.yosina.benchmarks;
+
+import io.yosina.ChainedTransliterator;
+import io.yosina.Chars;
+import io.yosina.Transliterator;
+import io.yosina.transliterators.ArchaicHirakatasTransliterator;
+import io.yosina.transliterators.CircledOrSquaredTransliterator;
+import io.yosina.transliterators.CombinedTransliterator;
+import io.yosina.transliterators.IdeographicAnnotationsTransliterator;
+import io.yosina.transliterators.KanjiOldNewTransliterator;
+import io.yosina.transliterators.MathematicalAlphanumericsTransliterator;
+import io.yosina.transliterators.RadicalsTransliterator;
+import io.yosina.transliterators.RomanNumeralsTransliterator;
+import io.yosina.transliterators.SmallHirakatasTransliterator;
+import io.yosina.transliterators.SpacesTransliterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the first transliteration through every generated transliterator backed by a {@code
+ * .data} table in a fresh JVM, i.e. the cost of loading the tables, for each value of the {@code
+ * io.yosina.tables} system property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class TableLoadingBenchmark {
+    @Param({"decoded", "heap", "direct"})
+    public String tables;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // The transliterator classes have not been initialized yet
+        System.setProperty("io.yosina.tables", tables);
+        Chars.of("x").toList();
+    }
+
+    @Benchmark
+    public String firstUse() {
+        final Transliterator transliterator =
+                new ChainedTransliterator(
+                        new SpacesTransliterator(),
+                        new RadicalsTransliterator(),
+                        new KanjiOldNewTransliterator(),
+                        new MathematicalAlphanumericsTransliterator(),
+                        new IdeographicAnnotationsTransliterator(),
+                        new SmallHirakatasTransliterator(),
+                        new ArchaicHirakatasTransliterator(),
+                        new CombinedTransliterator(),
+                        new RomanNumeralsTransliterator(),
+                        new CircledOrSquaredTransliterator());
+        return transliterator.transliterate(Chars.of("㍿Ⅻ①　⼀𝐀").iterator()).string();
+    }
+}
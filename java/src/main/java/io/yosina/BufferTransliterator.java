@@ -0,0 +1,45 @@
+package io.yosina;
+
+/**
+ * Interface for transliterators that can operate on packed {@link CodePointBuffer}s in addition to
+ * {@link CharIterator}s. Implementations must produce the same characters as their {@link
+ * Transliterator#transliterate(CharIterator)} counterpart, and must carry over the input offset of
+ * the character each output character was derived from.
+ */
+@FunctionalInterface
+public interface BufferTransliterator {
+    /**
+     * Transliterates a range of characters in the input buffer, appending the result to the output
+     * buffer. The range is treated as a complete input sequence.
+     *
+     * @param input the input buffer
+     * @param start the index of the first character to transliterate
+     * @param end the index after the last character to transliterate
+     * @param output the buffer to append the transliterated characters to
+     */
+    void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output);
+
+    /**
+     * Checks whether transliterating a range of a text leaves it as it is, without producing the
+     * output where it can be avoided. The range is treated as a complete input sequence.
+     *
+     * <p>If some character may come out changed, this returns an index in the range at or before
+     * it, from which the rest of the range can be transliterated on its own with the same result;
+     * everything before the index comes out as it is. The default implementation transliterates the
+     * range and returns its start if the result differs. Implementations that replace each
+     * character on its own look the characters up and stop at the first one they change, which they
+     * can return as it is, and allocate nothing.
+     *
+     * @param text the text
+     * @param start the index of the first char of the range
+     * @param end the index after the last char of the range
+     * @return -1 if the range comes out as it is, or where transliterating it may first change it
+     */
+    default int mismatch(CharSequence text, int start, int end) {
+        final CodePointBuffer input = new CodePointBuffer(end - start);
+        input.appendText(text, start, end);
+        final CodePointBuffer output = new CodePointBuffer(input.size());
+        transliterate(input, 0, input.size(), output);
+        return output.contentEquals(input) ? -1 : start;
+    }
+}
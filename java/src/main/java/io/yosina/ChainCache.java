@@ -0,0 +1,231 @@
+package io.yosina;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the chains that {@link Yosina} builds from lists of transliterator
+ * configurations, so that a list that has been seen before is not looked up, instantiated and
+ * compiled again. Lists are compared with {@link Yosina.TransliteratorConfig#equals(Object)}, which
+ * compares the options of each configuration by value.
+ *
+ * <p>Lookups take no lock, and a chain is built outside the map, so building one blocks only the
+ * threads that ask for the same list. When the cache grows past its maximum size, the entry that
+ * was used least recently, to within a millisecond, is evicted. The maximum size of the cache
+ * shared by {@link Yosina} is chosen once per JVM with the {@code io.yosina.chainCacheSize} system
+ * property, and is {@value #DEFAULT_MAXIMUM_SIZE} by default; 0 turns caching off.
+ */
+public final class ChainCache {
+    /** The maximum size of the shared cache when the system property is not set. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    /** A snapshot of the statistics of a cache. */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        private Stats(long hitCount, long missCount, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+        }
+
+        /**
+         * Gets the number of lookups that found a chain in the cache.
+         *
+         * @return the hit count
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Gets the number of lookups that had to build a chain.
+         *
+         * @return the miss count
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * Gets the number of chains evicted to keep the cache within its maximum size.
+         *
+         * @return the eviction count
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hits="
+                    + hitCount
+                    + ", misses="
+                    + missCount
+                    + ", evictions="
+                    + evictionCount
+                    + "}";
+        }
+    }
+
+    // How stale the time an entry was last used may get before a hit writes it again, so that hits
+    // on the same entry from many threads do not all write to it
+    private static final long TOUCH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final class Entry {
+        private final CompletableFuture<ChainedTransliterator> chain = new CompletableFuture<>();
+        private volatile long lastUsed = System.nanoTime();
+
+        void touch() {
+            final long now = System.nanoTime();
+            if (now - lastUsed >= TOUCH_INTERVAL_NANOS) {
+                lastUsed = now;
+            }
+        }
+
+        // Waits for the chain, rethrowing what its build threw
+        ChainedTransliterator join() {
+            try {
+                return chain.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private final int maximumSize;
+    private final ConcurrentMap<List<Yosina.TransliteratorConfig>, Entry> entries =
+            new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new, empty ChainCache.
+     *
+     * @param maximumSize the number of chains to keep at most, or 0 to keep none
+     * @throws IllegalArgumentException if the maximum size is negative
+     */
+    public ChainCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Invalid maximum size: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    static int maximumSizeOf(String value) {
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_MAXIMUM_SIZE;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Invalid value for io.yosina.chainCacheSize: " + value, e);
+        }
+    }
+
+    /**
+     * Returns the chain for a list of configurations, building it if it is not in the cache. A
+     * chain is built at most once however many threads ask for it at the same time; the others wait
+     * for it. A build that fails is not cached, and what it threw is rethrown to every thread
+     * waiting for it.
+     */
+    ChainedTransliterator get(
+            List<Yosina.TransliteratorConfig> configs,
+            Function<List<Yosina.TransliteratorConfig>, ChainedTransliterator> build) {
+        if (maximumSize == 0) {
+            misses.increment();
+            return build.apply(configs);
+        }
+        final List<Yosina.TransliteratorConfig> key = List.copyOf(configs);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Entry created = new Entry();
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                misses.increment();
+                final ChainedTransliterator chain;
+                try {
+                    chain = build.apply(key);
+                } catch (RuntimeException | Error e) {
+                    entries.remove(key, created);
+                    created.chain.completeExceptionally(e);
+                    throw e;
+                }
+                created.chain.complete(chain);
+                evictIfNeeded();
+                return chain;
+            }
+        }
+        hits.increment();
+        entry.touch();
+        return entry.join();
+    }
+
+    // Scans for the least recently used entry, which is rare enough next to lookups not to need an
+    // ordering kept up to date by each of them
+    private void evictIfNeeded() {
+        while (entries.size() > maximumSize) {
+            Map.Entry<List<Yosina.TransliteratorConfig>, Entry> oldest = null;
+            for (Map.Entry<List<Yosina.TransliteratorConfig>, Entry> e : entries.entrySet()) {
+                if (oldest == null || e.getValue().lastUsed < oldest.getValue().lastUsed) {
+                    oldest = e;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of chains this cache keeps at most.
+     *
+     * @return the maximum size
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the number of chains in this cache.
+     *
+     * @return the number of cached chains
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the statistics of this cache since it was created.
+     *
+     * @return a snapshot of the statistics
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /** Removes every chain from this cache. The statistics are kept. */
+    public void clear() {
+        entries.clear();
+    }
+}
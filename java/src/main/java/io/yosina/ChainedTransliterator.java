@@ -1,10 +1,36 @@
 package io.yosina;
 
+import io.yosina.transliterators.ComposedTableTransliterator;
+import io.yosina.transliterators.Transducer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Applies multiple transliterators in sequence. When every transliterator in the chain also
+ * implements {@link BufferTransliterator}, the chain can run over {@link CodePointBuffer}s as well.
+ *
+ * <p>The chain takes the union of the {@linkplain Transliterator#getAffectedCodePoints() affected
+ * code points} of its transliterators once. Runs of at least {@value #MIN_SKIPPED_RUN} characters
+ * that no transliterator may act on are then moved to the output as they are, and the
+ * transliterators only run over the segments between them, each of which keeps one unaffected
+ * character on either side as context.
+ *
+ * <p>Consecutive {@link ContextFreeTransliterator}s are compiled into a single {@link Transducer}
+ * when the chain is created, or composed into a single table if they are all {@link
+ * TableTransliterator}s, so that each character is looked up once for the whole run of them. The
+ * transliterators that look at the characters around each one are left as they are in between.
+ */
+public class ChainedTransliterator implements Transliterator, BufferTransliterator {
+    // Shorter runs of unaffected characters are left in the segments around them
+    private static final int MIN_SKIPPED_RUN = 8;
 
-/** Applies multiple transliterators in sequence. */
-public class ChainedTransliterator implements Transliterator {
     private final List<Transliterator> transliterators;
+    private final List<BufferTransliterator> bufferTransliterators;
+    // The union of the affected code points, or null if no character can be skipped
+    private final CodePointSet affectedCodePoints;
 
     /**
      * Creates a new ChainedTransliterator with the specified transliterators.
@@ -12,7 +38,13 @@ public class ChainedTransliterator implements Transliterator {
      * @param transliterators the list of transliterators to apply in sequence
      */
     public ChainedTransliterator(List<Transliterator> transliterators) {
-        this.transliterators = List.copyOf(transliterators);
+        this.transliterators = compileContextFree(transliterators);
+        this.bufferTransliterators = collectBufferTransliterators(this.transliterators);
+        CodePointSet affected = CodePointSet.EMPTY;
+        for (Transliterator transliterator : this.transliterators) {
+            affected = affected.union(transliterator.getAffectedCodePoints());
+        }
+        this.affectedCodePoints = affected != CodePointSet.ALL ? affected : null;
     }
 
     /**
@@ -21,15 +53,519 @@ public class ChainedTransliterator implements Transliterator {
      * @param transliterators the transliterators to apply in sequence
      */
     public ChainedTransliterator(Transliterator... transliterators) {
-        this.transliterators = List.of(transliterators);
+        this(List.of(transliterators));
+    }
+
+    private static List<Transliterator> compileContextFree(List<Transliterator> transliterators) {
+        final List<Transliterator> result = new ArrayList<>(transliterators.size());
+        final List<ContextFreeTransliterator> run = new ArrayList<>();
+        for (Transliterator transliterator : transliterators) {
+            if (transliterator instanceof ContextFreeTransliterator) {
+                run.add((ContextFreeTransliterator) transliterator);
+                continue;
+            }
+            flushContextFree(run, result);
+            result.add(transliterator);
+        }
+        flushContextFree(run, result);
+        return List.copyOf(result);
+    }
+
+    private static void flushContextFree(
+            List<ContextFreeTransliterator> run, List<Transliterator> result) {
+        if (run.size() > 1) {
+            // A table cannot tell a character changed back from one left as is, a transducer can
+            final Optional<ComposedTableTransliterator> composed =
+                    run.stream().allMatch(t -> t instanceof TableTransliterator)
+                            ? ComposedTableTransliterator.of(tablesOf(run))
+                            : Optional.empty();
+            result.add(composed.isPresent() ? composed.get() : Transducer.compile(run));
+        } else {
+            result.addAll(run);
+        }
+        run.clear();
+    }
+
+    private static List<TableTransliterator> tablesOf(List<ContextFreeTransliterator> run) {
+        final List<TableTransliterator> tables = new ArrayList<>(run.size());
+        for (ContextFreeTransliterator transliterator : run) {
+            tables.add((TableTransliterator) transliterator);
+        }
+        return tables;
+    }
+
+    private static List<BufferTransliterator> collectBufferTransliterators(
+            List<Transliterator> transliterators) {
+        final List<BufferTransliterator> result = new ArrayList<>(transliterators.size());
+        for (Transliterator transliterator : transliterators) {
+            if (!supportsBuffers(transliterator)) {
+                return null;
+            }
+            result.add((BufferTransliterator) transliterator);
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Checks whether the given transliterator can run over {@link CodePointBuffer}s.
+     *
+     * @param transliterator the transliterator to check
+     * @return true if the transliterator supports the buffer path, false otherwise
+     */
+    public static boolean supportsBuffers(Transliterator transliterator) {
+        if (transliterator instanceof ChainedTransliterator) {
+            return ((ChainedTransliterator) transliterator).supportsBuffers();
+        }
+        return transliterator instanceof BufferTransliterator;
+    }
+
+    /**
+     * Checks whether every transliterator in this chain can run over {@link CodePointBuffer}s.
+     *
+     * @return true if the chain supports the buffer path, false otherwise
+     */
+    public boolean supportsBuffers() {
+        return bufferTransliterators != null;
+    }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints != null ? affectedCodePoints : CodePointSet.ALL;
+    }
+
+    @Override
+    public boolean readsProvenance() {
+        for (Transliterator transliterator : transliterators) {
+            if (transliterator.readsProvenance()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public CharIterator transliterate(CharIterator input) {
+        if (affectedCodePoints == null) {
+            return transliterateAll(input);
+        }
+        return new SkippingCharIterator(input);
+    }
+
+    private CharIterator transliterateAll(CharIterator input) {
         CharIterator current = input;
         for (Transliterator transliterator : transliterators) {
             current = transliterator.transliterate(current);
         }
         return current;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if some transliterator in the chain does not support
+     *     the buffer path
+     */
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        if (bufferTransliterators == null) {
+            throw new UnsupportedOperationException(
+                    "Some transliterators in the chain do not support buffers");
+        }
+        final CodePointBuffer[] scratch = new CodePointBuffer[2];
+        if (affectedCodePoints == null) {
+            transliterateAll(input, start, end, output, scratch);
+            return;
+        }
+        int segmentStart = start;
+        int i = start;
+        while (i < end) {
+            if (affectedCodePoints.containsAny(input.first(i), input.second(i))) {
+                i++;
+                continue;
+            }
+            final int runStart = i;
+            while (i < end && !affectedCodePoints.containsAny(input.first(i), input.second(i))) {
+                i++;
+            }
+            // Keep a character of context next to the segments on either side
+            final int skipStart = runStart > segmentStart ? runStart + 1 : runStart;
+            final int skipEnd = i < end ? i - 1 : i;
+            if (skipEnd - skipStart >= MIN_SKIPPED_RUN) {
+                if (segmentStart < skipStart) {
+                    transliterateAll(input, segmentStart, skipStart, output, scratch);
+                }
+                output.append(input, skipStart, skipEnd);
+                segmentStart = skipEnd;
+            }
+        }
+        if (segmentStart < end) {
+            transliterateAll(input, segmentStart, end, output, scratch);
+        }
+    }
+
+    private void transliterateAll(
+            CodePointBuffer input,
+            int start,
+            int end,
+            CodePointBuffer output,
+            CodePointBuffer[] scratch) {
+        transliterateFrom(0, input, start, end, output, scratch);
+    }
+
+    // Runs the buffer transliterators from the given one on
+    private void transliterateFrom(
+            int first,
+            CodePointBuffer input,
+            int start,
+            int end,
+            CodePointBuffer output,
+            CodePointBuffer[] scratch) {
+        final int n = bufferTransliterators.size();
+        if (first == n) {
+            output.append(input, start, end);
+            return;
+        }
+        CodePointBuffer src = input;
+        int s = start, e = end;
+        for (int i = first; i < n; i++) {
+            final CodePointBuffer dst;
+            if (i == n - 1) {
+                dst = output;
+            } else {
+                // Alternate between the intermediate buffers so the next stage reads what this
+                // one wrote
+                final int k = i & 1;
+                if (scratch[k] == null) {
+                    scratch[k] = new CodePointBuffer(e - s);
+                } else {
+                    scratch[k].clear();
+                }
+                dst = scratch[k];
+            }
+            bufferTransliterators.get(i).transliterate(src, s, e, dst);
+            src = dst;
+            s = 0;
+            e = dst.size();
+        }
+    }
+
+    /**
+     * Checks whether the chain leaves a text as it is, stopping as soon as some part of it is found
+     * to change. The text is divided into segments and runs of unaffected characters in the same
+     * way as for transliteration. Each segment is looked at by each transliterator in turn through
+     * {@link BufferTransliterator#mismatch(CharSequence, int, int)}, which for compiled
+     * transliterators stops at the first character they would change and allocates nothing; a
+     * segment that some transliterator changes is then run through the rest of the chain to see
+     * what it comes out as. Nothing is allocated for a text that the compiled transliterators of a
+     * chain leave as it is.
+     *
+     * @param text the text to check
+     * @return true if transliterating the text gives the same text
+     */
+    public boolean leavesUnchanged(CharSequence text) {
+        final int length = text.length();
+        if (affectedCodePoints != null && !affectedCodePoints.containsAny(text)) {
+            return true;
+        }
+        final long found = findChangedSegment(text, 0, length, true);
+        if (found < 0) {
+            return true;
+        }
+        if ((found & 1) != 0) {
+            return false;
+        }
+        // A segment changed its length, which the segments after it could make up for
+        return leavesUnchangedFrom(text, (int) (found >> 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A chain returns the start of the first segment, as divided for transliteration, that some
+     * of its transliterators may change.
+     */
+    @Override
+    public int mismatch(CharSequence text, int start, int end) {
+        final long found = findChangedSegment(text, start, end, false);
+        return found < 0 ? -1 : (int) (found >> 1);
+    }
+
+    // What a segment comes out as
+    private static final int UNCHANGED = 0;
+    private static final int CHANGED = 1;
+    private static final int MAY_BE_CHANGED = 2;
+
+    /**
+     * Finds the first segment of a range of a text that the chain may change. Returns -1 if there
+     * is none, and otherwise the start of the segment shifted left by one, with the lowest bit set
+     * if the segment is changed for certain without changing its length, so that the whole range is
+     * changed too. Segments are only run through the chain to tell this when exactly is true.
+     */
+    private long findChangedSegment(CharSequence text, int start, int end, boolean exactly) {
+        if (affectedCodePoints == null) {
+            return foundSegment(text, start, end, exactly);
+        }
+        int segmentStart = start;
+        int i = start;
+        while (i < end) {
+            int charEnd = Chars.endOfChar(text, i, end);
+            if (isAffected(text, i, charEnd)) {
+                i = charEnd;
+                continue;
+            }
+            final int runStart = i;
+            int last = i;
+            int run = 0;
+            while (i < end && !isAffected(text, i, charEnd)) {
+                last = i;
+                i = charEnd;
+                charEnd = i < end ? Chars.endOfChar(text, i, end) : i;
+                run++;
+            }
+            // Keep a character of context next to the segments on either side, as transliterate
+            // does, so that each segment is seen exactly as it would be there
+            final int skipStart =
+                    runStart > segmentStart ? Chars.endOfChar(text, runStart, end) : runStart;
+            final int skipEnd = i < end ? last : i;
+            final int skipped = run - (runStart > segmentStart ? 1 : 0) - (i < end ? 1 : 0);
+            if (skipped >= MIN_SKIPPED_RUN) {
+                if (segmentStart < skipStart) {
+                    final long found = foundSegment(text, segmentStart, skipStart, exactly);
+                    if (found >= 0) {
+                        return found;
+                    }
+                }
+                segmentStart = skipEnd;
+            }
+        }
+        return segmentStart < end ? foundSegment(text, segmentStart, end, exactly) : -1;
+    }
+
+    private long foundSegment(CharSequence text, int start, int end, boolean exactly) {
+        final int result = compareSegment(text, start, end, exactly);
+        return result == UNCHANGED ? -1 : (long) start << 1 | (result == CHANGED ? 1 : 0);
+    }
+
+    /**
+     * Tells what the chain turns a segment of a text into, as UNCHANGED, CHANGED or MAY_BE_CHANGED.
+     */
+    private int compareSegment(CharSequence text, int start, int end, boolean exactly) {
+        if (bufferTransliterators != null) {
+            for (int k = 0, n = bufferTransliterators.size(); k < n; k++) {
+                if (bufferTransliterators.get(k).mismatch(text, start, end) < 0) {
+                    continue;
+                }
+                if (!exactly) {
+                    return MAY_BE_CHANGED;
+                }
+                // The transliterators before this one leave the segment as it is, so it gets the
+                // segment as it is too
+                final CodePointBuffer in = new CodePointBuffer(end - start);
+                in.appendText(text, start, end);
+                final CodePointBuffer out = new CodePointBuffer(in.size());
+                transliterateFrom(k, in, 0, in.size(), out, new CodePointBuffer[2]);
+                if (out.contentEquals(in)) {
+                    return UNCHANGED;
+                }
+                return out.charCount() == end - start ? CHANGED : MAY_BE_CHANGED;
+            }
+            return UNCHANGED;
+        }
+        // Compare the output with the segment as it comes, and only go through the rest of it to
+        // find out its length
+        final CharIterator result =
+                transliterateAll(
+                        new Chars.OfCharSequence(CharBuffer.wrap(text, start, end), false)
+                                .iterator());
+        int i = start;
+        while (result.hasNext()) {
+            final CodePointTuple c = result.next().get();
+            if (!startsWith(text, i, end, c)) {
+                if (!exactly) {
+                    return MAY_BE_CHANGED;
+                }
+                int length = i - start + c.charCount();
+                while (result.hasNext()) {
+                    length += result.next().get().charCount();
+                }
+                return length == end - start ? CHANGED : MAY_BE_CHANGED;
+            }
+            i += c.charCount();
+        }
+        return i == end ? UNCHANGED : MAY_BE_CHANGED;
+    }
+
+    // Checks whether the code points of a tuple come at an index of a text
+    private static boolean startsWith(CharSequence text, int index, int end, CodePointTuple c) {
+        int i = index;
+        for (int k = 0, n = c.size(); k < n; k++) {
+            if (i >= end || Character.codePointAt(text, i) != c.get(k)) {
+                return false;
+            }
+            i += Character.charCount(c.get(k));
+        }
+        return true;
+    }
+
+    private boolean leavesUnchangedFrom(CharSequence text, int start) {
+        final int length = text.length();
+        if (bufferTransliterators != null) {
+            final CodePointBuffer in = new CodePointBuffer(length - start);
+            in.appendText(text, start, length);
+            final CodePointBuffer out = new CodePointBuffer(in.size());
+            transliterate(in, 0, in.size(), out);
+            return out.contentEquals(in);
+        }
+        final CharSequence rest = CharBuffer.wrap(text, start, length);
+        final StringBuilder result =
+                transliterate(new Chars.OfCharSequence(rest, false).iterator())
+                        .appendTo(new StringBuilder(rest.length()));
+        return CharSequence.compare(rest, result) == 0;
+    }
+
+    private boolean isAffected(CharSequence text, int start, int end) {
+        for (int i = start; i < end; ) {
+            final int codePoint = Character.codePointAt(text, i);
+            if (affectedCodePoints.contains(codePoint)) {
+                return true;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return false;
+    }
+
+    private boolean isAffected(Char c) {
+        return affectedCodePoints.containsAny(c.get());
+    }
+
+    /**
+     * Runs the transliterators over the segments of the input between runs of unaffected
+     * characters, and passes those runs through. Characters are read ahead into a small ring.
+     */
+    private final class SkippingCharIterator implements CharIterator {
+        private final CharIterator input;
+        private final Char[] ahead = new Char[16];
+        private int head = 0;
+        private int count = 0;
+        // The output of the transliterators over the current segment, or null between segments
+        private CharIterator segment = null;
+        private int offset = 0;
+        private boolean done = false;
+
+        SkippingCharIterator(CharIterator input) {
+            this.input = input;
+        }
+
+        private Char peek(int i) {
+            while (count <= i) {
+                final Char last = count > 0 ? ahead[(head + count - 1) & 15] : null;
+                if (last != null && last.isSentinel()) {
+                    return last;
+                }
+                final Char c;
+                if (input.hasNext()) {
+                    c = input.next();
+                } else {
+                    final int o = last != null ? last.getOffset() + last.charCount() : 0;
+                    c = new Char(CodePointTuple.SENTINEL, o, null);
+                }
+                ahead[(head + count++) & 15] = c;
+            }
+            return ahead[(head + i) & 15];
+        }
+
+        private Char poll() {
+            final Char c = peek(0);
+            ahead[head] = null;
+            head = (head + 1) & 15;
+            count--;
+            return c;
+        }
+
+        private Char emit(Char c) {
+            final Char result = c.getOffset() == offset ? c : c.withOffset(offset);
+            offset += result.charCount();
+            return result;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public Char next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                if (segment != null) {
+                    final Char c = segment.hasNext() ? segment.next() : null;
+                    if (c != null && !c.isSentinel()) {
+                        return emit(c);
+                    }
+                    segment = null;
+                }
+                final Char c = peek(0);
+                if (c.isSentinel()) {
+                    poll();
+                    done = true;
+                    return emit(c);
+                }
+                if (isAffected(c) || isAffected(peek(1))) {
+                    segment = transliterateAll(new SegmentCharIterator());
+                    continue;
+                }
+                return emit(poll());
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return input.estimateSize();
+        }
+
+        /**
+         * Feeds the transliterators the characters up to the next run of unaffected characters,
+         * followed by a sentinel of its own.
+         */
+        private final class SegmentCharIterator implements CharIterator {
+            private boolean ending = false;
+            private boolean ended = false;
+
+            @Override
+            public boolean hasNext() {
+                return !ended;
+            }
+
+            @Override
+            public Char next() {
+                if (ended) {
+                    throw new NoSuchElementException();
+                }
+                final Char c = peek(0);
+                if (ending || c.isSentinel()) {
+                    ended = true;
+                    return new Char(CodePointTuple.SENTINEL, c.getOffset(), null);
+                }
+                if (!isAffected(c)) {
+                    // End the segment with this character if enough unaffected ones follow
+                    ending = true;
+                    for (int i = 1; i <= MIN_SKIPPED_RUN; i++) {
+                        final Char n = peek(i);
+                        if (n.isSentinel() || isAffected(n)) {
+                            ending = false;
+                            break;
+                        }
+                    }
+                }
+                return poll();
+            }
+
+            @Override
+            public long estimateSize() {
+                return input.estimateSize();
+            }
+        }
+    }
 }
@@ -3,8 +3,21 @@ package io.yosina;
 /**
  * Represents a character with metadata for transliteration. Properly handles Ideographic Variation
  * Sequences (IVS) and Standardized Variation Sequences (SVS).
+ *
+ * <p>A Char normally keeps a reference to the Char it was derived from. Chars created by {@link
+ * #detached(CodePointTuple, int)} don't: every Char derived from them only records whether it
+ * differs from the original character, so that no chain of previous stages is kept alive.
  */
 public class Char {
+    /** Marks an original character that does not track provenance. */
+    private static final Char DETACHED_ROOT = new Char(CodePointTuple.SENTINEL, -1, null);
+
+    /** Marks a derived character that does not track provenance and is left unchanged. */
+    private static final Char DETACHED_UNMODIFIED = new Char(CodePointTuple.SENTINEL, -1, null);
+
+    /** Marks a derived character that does not track provenance and has been changed. */
+    private static final Char DETACHED_MODIFIED = new Char(CodePointTuple.SENTINEL, -1, null);
+
     /** The character data (may contain variation selector) */
     private final CodePointTuple c;
 
@@ -35,10 +48,31 @@ public class Char {
     /**
      * Gets the original character this was derived from.
      *
-     * @return the source character, or null if this is an original character
+     * @return the source character, or null if this is an original character or does not track
+     *     provenance
      */
     public Char getSource() {
-        return source;
+        return isMarker(source) ? null : source;
+    }
+
+    /**
+     * Checks if this character was derived from another one, as opposed to being an original
+     * character. Unlike {@link #getSource()}, this also works for characters that do not track
+     * provenance.
+     *
+     * @return true if this character was derived from another character, false otherwise
+     */
+    public boolean hasSource() {
+        return source != null && source != DETACHED_ROOT;
+    }
+
+    /**
+     * Checks if this character keeps a reference to the character it was derived from.
+     *
+     * @return true if this character tracks provenance, false otherwise
+     */
+    public boolean tracksProvenance() {
+        return !isMarker(source);
     }
 
     /**
@@ -65,6 +99,9 @@ public class Char {
      * @return true if this character has been transliterated, false otherwise
      */
     public boolean isTransliterated() {
+        if (isMarker(source)) {
+            return source == DETACHED_MODIFIED;
+        }
         Char c = this;
         for (; ; ) {
             final Char s = c.getSource();
@@ -88,7 +125,17 @@ public class Char {
     public String toString() {
         return String.format(
                 "Char(%s, %d, %s)",
-                c.toString(), offset, source != null ? source.toString() : "null");
+                c.toString(),
+                offset,
+                source == null
+                        ? "null"
+                        : source == DETACHED_ROOT
+                                ? "detached"
+                                : source == DETACHED_UNMODIFIED
+                                        ? "unmodified"
+                                        : source == DETACHED_MODIFIED
+                                                ? "modified"
+                                                : source.toString());
     }
 
     /**
@@ -120,7 +167,8 @@ public class Char {
     }
 
     /**
-     * Creates a new Char instance with the specified CodePointTuple,
+     * Creates a new Char instance with the specified CodePointTuple. If the source does not track
+     * provenance, neither does the new instance.
      *
      * @param c The CodePointTuple representing the character data
      * @param offset The byte offset in the original string
@@ -129,6 +177,29 @@ public class Char {
     public Char(CodePointTuple c, int offset, Char source) {
         this.c = c;
         this.offset = offset;
-        this.source = source;
+        if (source != null && isMarker(source.source)) {
+            this.source =
+                    source.source == DETACHED_MODIFIED || !c.equals(source.c)
+                            ? DETACHED_MODIFIED
+                            : DETACHED_UNMODIFIED;
+        } else {
+            this.source = source;
+        }
+    }
+
+    /**
+     * Creates an original character that does not track provenance. Characters derived from it only
+     * keep a flag telling whether they differ from it.
+     *
+     * @param c The CodePointTuple representing the character data
+     * @param offset The byte offset in the original string
+     * @return a new Char instance
+     */
+    public static Char detached(CodePointTuple c, int offset) {
+        return new Char(c, offset, DETACHED_ROOT);
+    }
+
+    private static boolean isMarker(Char c) {
+        return c == DETACHED_ROOT || c == DETACHED_UNMODIFIED || c == DETACHED_MODIFIED;
     }
 }
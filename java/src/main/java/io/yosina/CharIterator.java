@@ -128,4 +128,17 @@ public interface CharIterator extends Iterator<Char>, Spliterator<Char>, Chars {
     default int charCount() {
         return -1;
     }
+
+    /**
+     * Returns a string representation of the remaining characters. The buffer is presized from
+     * {@link #estimateSize()} when the estimate is known.
+     *
+     * @return a string representation of the characters
+     */
+    @Override
+    default String string() {
+        final long size = estimateSize();
+        return appendTo(new StringBuilder(size >= 0 && size < (1 << 24) ? (int) size : 16))
+                .toString();
+    }
 }
@@ -1,8 +1,10 @@
 package io.yosina;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.stream.IntStream;
@@ -10,17 +12,41 @@ import java.util.stream.StreamSupport;
 
 /** Utility methods for working with characters and character arrays. */
 public interface Chars {
-    /** Checks if a code point is a variation selector. */
-    private static boolean isVariationSelector(int codePoint) {
+    /**
+     * Checks if a code point is a variation selector.
+     *
+     * @param codePoint the code point to check
+     * @return true if the code point is a variation selector, false otherwise
+     */
+    public static boolean isVariationSelector(int codePoint) {
         // Variation Selector-1 to Variation Selector-16 (U+FE00–U+FE0F)
         // Variation Selector-17 to Variation Selector-256 (U+E0100–U+E01EF)
         return (codePoint >= 0xFE00 && codePoint <= 0xFE0F)
                 || (codePoint >= 0xE0100 && codePoint <= 0xE01EF);
     }
 
+    /**
+     * Returns the end of the character starting at an index of a text, which takes a variation
+     * selector after its code point along with it as {@link CodePointBuffer#appendText} does.
+     *
+     * @param text the text
+     * @param index the index of the first char of the character
+     * @param end the end of the part of the text the character is in
+     * @return the index after the last char of the character
+     */
+    public static int endOfChar(CharSequence text, int index, int end) {
+        final int next = index + Character.charCount(Character.codePointAt(text, index));
+        if (next < end && isVariationSelector(Character.codePointAt(text, next))) {
+            return next + Character.charCount(Character.codePointAt(text, next));
+        }
+        return next;
+    }
+
     /** Represents a Chars implementation backed by a list of Char objects. */
     public static class OfList implements Chars {
         private List<Char> chars;
+        private int codePointCount = -1;
+        private int charCount = -1;
 
         /**
          * Returns an iterator over the code points in this OfList.
@@ -40,7 +66,7 @@ public interface Chars {
         @Override
         public IntStream codePointStream() {
             return StreamSupport.intStream(
-                    CodePoints.spliteratorOf(this.chars.spliterator()), false);
+                    CodePoints.spliteratorOf(this.chars.spliterator(), codePointCount()), false);
         }
 
         /**
@@ -95,7 +121,10 @@ public interface Chars {
          */
         @Override
         public int codePointCount() {
-            return this.chars.stream().mapToInt(c -> c.get().size()).sum();
+            if (codePointCount < 0) {
+                countChars();
+            }
+            return codePointCount;
         }
 
         /**
@@ -105,7 +134,23 @@ public interface Chars {
          */
         @Override
         public int charCount() {
-            return this.chars.stream().mapToInt(c -> c.get().charCount()).sum();
+            if (charCount < 0) {
+                countChars();
+            }
+            return charCount;
+        }
+
+        private void countChars() {
+            int codePoints = 0, chars = 0;
+            for (final Char c : this.chars) {
+                if (c.isSentinel()) {
+                    break;
+                }
+                codePoints += c.get().size();
+                chars += c.get().charCount();
+            }
+            this.codePointCount = codePoints;
+            this.charCount = chars;
         }
 
         /**
@@ -135,40 +180,31 @@ public interface Chars {
          * @return a list of Char objects representing the text
          */
         public static List<Char> build(String text) {
-            List<Char> result = new ArrayList<>();
-            int prevChar = -1;
-            int offset = 0;
-            int[] codePoints = text.codePoints().toArray();
-            for (int i = 0; i < codePoints.length; i++) {
-                final int codePoint = codePoints[i];
-                // Check for variation selectors
-                if (prevChar >= 0) {
-                    if (isVariationSelector(codePoint)) {
-                        // Combine base character with variation selector
-                        final var ct = CodePointTuple.of(prevChar, codePoint);
-                        result.add(new Char(ct, offset, null));
-                        offset += ct.charCount();
-                        prevChar = -1;
-                    } else {
-                        final var ct = CodePointTuple.of(prevChar);
-                        result.add(new Char(ct, offset, null));
-                        offset += ct.charCount();
-                        prevChar = codePoint;
-                    }
-                } else {
-                    prevChar = codePoint;
-                }
-            }
-            // Handle last character
-            if (prevChar >= 0) {
-                result.add(new Char(CodePointTuple.of(prevChar), offset, null));
-                offset += Character.charCount(prevChar);
+            return build(text, true);
+        }
+
+        /**
+         * Converts a text string into an array of Char objects, properly handling Ideographic
+         * Variation Sequences (IVS) and Standardized Variation Sequences (SVS).
+         *
+         * @param text the text string to convert
+         * @param trackProvenance false to create characters that don't keep references to the
+         *     characters they are derived from (see {@link Char#detached(CodePointTuple, int)})
+         * @return a list of Char objects representing the text
+         */
+        public static List<Char> build(String text, boolean trackProvenance) {
+            final List<Char> result = new ArrayList<>(text.length() + 1);
+            final CharIterator i = new OfCharSequence(text, trackProvenance).iterator();
+            while (i.hasNext()) {
+                result.add(i.next());
             }
-            // Add sentinel character to mark end of input
-            result.add(new Char(CodePointTuple.SENTINEL, offset, null));
             return result;
         }
 
+        private static Char newChar(CodePointTuple c, int offset, boolean trackProvenance) {
+            return trackProvenance ? new Char(c, offset, null) : Char.detached(c, offset);
+        }
+
         /**
          * Creates a new OfList instance from a string.
          *
@@ -176,7 +212,167 @@ public interface Chars {
          * @return a new OfList instance containing the characters
          */
         public static OfList of(String chars) {
-            return new OfList(Collections.unmodifiableList(build(chars)));
+            return of(chars, true);
+        }
+
+        /**
+         * Creates a new OfList instance from a string.
+         *
+         * @param chars the string to convert to a list of Char objects
+         * @param trackProvenance false to create characters that don't keep references to the
+         *     characters they are derived from
+         * @return a new OfList instance containing the characters
+         */
+        public static OfList of(String chars, boolean trackProvenance) {
+            return new OfList(Collections.unmodifiableList(build(chars, trackProvenance)));
+        }
+    }
+
+    /**
+     * Represents a Chars implementation that decodes a CharSequence lazily. Surrogate pairs and
+     * variation selectors are combined on demand with one code point of lookahead, so iterating
+     * takes constant memory regardless of the length of the text. The sequence is not copied; it
+     * must not be modified while it is being iterated.
+     */
+    public static class OfCharSequence implements Chars {
+        private final CharSequence text;
+        private final boolean trackProvenance;
+        private int codePointCount = -1;
+
+        /**
+         * Creates a new instance of OfCharSequence over the specified text.
+         *
+         * @param text the text, e.g. a String, StringBuilder or CharBuffer
+         * @param trackProvenance false to create characters that don't keep references to the
+         *     characters they are derived from
+         */
+        public OfCharSequence(CharSequence text, boolean trackProvenance) {
+            this.text = text;
+            this.trackProvenance = trackProvenance;
+        }
+
+        /**
+         * Returns an iterator over the code points in this OfCharSequence.
+         *
+         * @return a primitive iterator of code points
+         */
+        @Override
+        public PrimitiveIterator.OfInt codePointIterator() {
+            return CodePoints.iteratorOf(iterator());
+        }
+
+        /**
+         * Returns a stream of code points from this OfCharSequence.
+         *
+         * @return an IntStream of code points
+         */
+        @Override
+        public IntStream codePointStream() {
+            return StreamSupport.intStream(
+                    CodePoints.spliteratorOf(iterator(), codePointCount()), false);
+        }
+
+        /**
+         * Returns an iterator that decodes the characters of the text as it advances, ending with a
+         * sentinel character.
+         *
+         * @return a CharIterator over the characters
+         */
+        @Override
+        public CharIterator iterator() {
+            return new CharIterator() {
+                private int offset = 0;
+                private boolean done = false;
+
+                @Override
+                public boolean hasNext() {
+                    return !done;
+                }
+
+                @Override
+                public Char next() {
+                    if (done) {
+                        throw new NoSuchElementException("No more characters in iterator");
+                    }
+                    final int length = text.length();
+                    if (offset >= length) {
+                        done = true;
+                        return OfList.newChar(CodePointTuple.SENTINEL, offset, trackProvenance);
+                    }
+                    final int codePoint = Character.codePointAt(text, offset);
+                    int end = offset + Character.charCount(codePoint);
+                    final CodePointTuple ct;
+                    if (end < length) {
+                        // Look ahead one code point for a variation selector
+                        final int next = Character.codePointAt(text, end);
+                        if (isVariationSelector(next)) {
+                            ct = CodePointTuple.of(codePoint, next);
+                            end += Character.charCount(next);
+                        } else {
+                            ct = CodePointTuple.of(codePoint);
+                        }
+                    } else {
+                        ct = CodePointTuple.of(codePoint);
+                    }
+                    final Char c = OfList.newChar(ct, offset, trackProvenance);
+                    offset = end;
+                    return c;
+                }
+
+                /** Returns an upper bound: one per remaining Java char plus the sentinel. */
+                @Override
+                public long estimateSize() {
+                    return done ? 0 : (long) text.length() - offset + 1;
+                }
+            };
+        }
+
+        /**
+         * Returns the number of code points in the text, counting them on the first call.
+         *
+         * @return the number of code points
+         */
+        @Override
+        public int codePointCount() {
+            if (codePointCount < 0) {
+                codePointCount = Character.codePointCount(text, 0, text.length());
+            }
+            return codePointCount;
+        }
+
+        /**
+         * Returns the number of Java chars in the text.
+         *
+         * @return the number of Java chars
+         */
+        @Override
+        public int charCount() {
+            return text.length();
+        }
+
+        /**
+         * Appends the text to a StringBuilder without decoding it into characters.
+         *
+         * @param sb the StringBuilder to append to
+         * @return the given StringBuilder
+         */
+        @Override
+        public StringBuilder appendTo(StringBuilder sb) {
+            return sb.append(text);
+        }
+
+        /**
+         * Appends the text to an Appendable without decoding it into characters.
+         *
+         * @param <A> the type of the Appendable
+         * @param a the Appendable to append to
+         * @return the given Appendable
+         * @throws IOException if the Appendable throws one
+         */
+        @Override
+        public <A extends Appendable> A appendTo(A a) throws IOException {
+            a.append(text);
+            return a;
         }
     }
 
@@ -190,6 +386,41 @@ public interface Chars {
         return OfList.of(text);
     }
 
+    /**
+     * Creates a new Chars instance from a string.
+     *
+     * @param text the text string to convert
+     * @param trackProvenance false to create characters that don't keep references to the
+     *     characters they are derived from, so that transliterating them keeps no chain of
+     *     intermediate characters alive
+     * @return a new Chars instance containing the characters
+     */
+    public static Chars of(String text, boolean trackProvenance) {
+        return OfList.of(text, trackProvenance);
+    }
+
+    /**
+     * Creates a new Chars instance that decodes a character sequence lazily, without copying it.
+     *
+     * @param text the character sequence, e.g. a StringBuilder or CharBuffer
+     * @return a new Chars instance over the characters
+     */
+    public static Chars of(CharSequence text) {
+        return new OfCharSequence(text, true);
+    }
+
+    /**
+     * Creates a new Chars instance that decodes a character sequence lazily, without copying it.
+     *
+     * @param text the character sequence, e.g. a StringBuilder or CharBuffer
+     * @param trackProvenance false to create characters that don't keep references to the
+     *     characters they are derived from
+     * @return a new Chars instance over the characters
+     */
+    public static Chars of(CharSequence text, boolean trackProvenance) {
+        return new OfCharSequence(text, trackProvenance);
+    }
+
     /**
      * Returns an iterator over the code points in this Chars object.
      *
@@ -244,9 +475,47 @@ public interface Chars {
      * @return A string representation of the characters
      */
     default String string() {
-        final int[] codePoints = codePointStream().toArray();
-        final int size = codePoints.length;
-        return new String(codePoints, 0, size);
+        final int charCount = charCount();
+        return appendTo(new StringBuilder(charCount >= 0 ? charCount : 16)).toString();
+    }
+
+    /**
+     * Appends the characters in this Chars object to a StringBuilder, stopping at the sentinel.
+     *
+     * @param sb the StringBuilder to append to
+     * @return the given StringBuilder
+     */
+    default StringBuilder appendTo(StringBuilder sb) {
+        final CharIterator i = iterator();
+        while (i.hasNext()) {
+            final Char c = i.next();
+            if (c == null || c.isSentinel()) {
+                break;
+            }
+            c.get().appendTo(sb);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends the characters in this Chars object to an Appendable as UTF-16, stopping at the
+     * sentinel.
+     *
+     * @param <A> the type of the Appendable
+     * @param a the Appendable to append to
+     * @return the given Appendable
+     * @throws IOException if the Appendable throws one
+     */
+    default <A extends Appendable> A appendTo(A a) throws IOException {
+        final CharIterator i = iterator();
+        while (i.hasNext()) {
+            final Char c = i.next();
+            if (c == null || c.isSentinel()) {
+                break;
+            }
+            c.get().appendTo(a);
+        }
+        return a;
     }
 
     /**
@@ -0,0 +1,276 @@
+package io.yosina;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of characters packed into primitive arrays. Each character occupies two slots
+ * of the code point array (the base code point and an optional variation selector, or -1) and one
+ * slot of the offset array, which holds the offset of the character in the original input that
+ * produced it.
+ *
+ * <p>This is the primitive counterpart of a sequence of {@link Char} objects, used by {@link
+ * BufferTransliterator} implementations to avoid per-character allocations.
+ */
+public final class CodePointBuffer {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] codePoints;
+    private int[] offsets;
+    private int size;
+
+    /** Creates an empty buffer with the default capacity. */
+    public CodePointBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty buffer that can hold the specified number of characters without growing.
+     *
+     * @param capacity the initial capacity in characters
+     */
+    public CodePointBuffer(int capacity) {
+        final int c = Math.max(capacity, 1);
+        this.codePoints = new int[c * 2];
+        this.offsets = new int[c];
+        this.size = 0;
+    }
+
+    /**
+     * Creates a buffer from a character sequence, combining base characters with the variation
+     * selectors that follow them the same way {@link Chars.OfList#build(String)} does.
+     *
+     * @param text the text to decode
+     * @return a new buffer containing the characters of the text
+     */
+    public static CodePointBuffer of(CharSequence text) {
+        final CodePointBuffer result = new CodePointBuffer(text.length());
+        result.appendText(text);
+        return result;
+    }
+
+    /**
+     * Decodes a character sequence and appends its characters to this buffer.
+     *
+     * @param text the text to decode
+     */
+    public void appendText(CharSequence text) {
+        appendText(text, 0, text.length());
+    }
+
+    /**
+     * Decodes a range of a character sequence as a text of its own and appends its characters to
+     * this buffer. The offsets of the characters are their offsets in the whole sequence.
+     *
+     * @param text the text to decode
+     * @param start the index of the first char of the range
+     * @param end the index after the last char of the range
+     */
+    public void appendText(CharSequence text, int start, int end) {
+        int prevChar = -1;
+        int offset = start;
+        for (int i = start; i < end; ) {
+            final int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            if (prevChar >= 0) {
+                if (Chars.isVariationSelector(codePoint)) {
+                    append(prevChar, codePoint, offset);
+                    offset += Character.charCount(prevChar) + Character.charCount(codePoint);
+                    prevChar = -1;
+                } else {
+                    append(prevChar, -1, offset);
+                    offset += Character.charCount(prevChar);
+                    prevChar = codePoint;
+                }
+            } else {
+                prevChar = codePoint;
+            }
+        }
+        if (prevChar >= 0) {
+            append(prevChar, -1, offset);
+        }
+    }
+
+    /**
+     * Returns the number of characters in this buffer.
+     *
+     * @return the number of characters
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the first code point of the character at the specified index.
+     *
+     * @param index the character index
+     * @return the first code point
+     */
+    public int first(int index) {
+        return codePoints[index * 2];
+    }
+
+    /**
+     * Returns the second code point of the character at the specified index.
+     *
+     * @param index the character index
+     * @return the second code point, or -1 if the character consists of a single code point
+     */
+    public int second(int index) {
+        return codePoints[index * 2 + 1];
+    }
+
+    /**
+     * Returns the offset in the original input of the character at the specified index.
+     *
+     * @param index the character index
+     * @return the offset in the original input
+     */
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the character at the specified index as a CodePointTuple.
+     *
+     * @param index the character index
+     * @return the CodePointTuple for the character
+     */
+    public CodePointTuple get(int index) {
+        return CodePointTuple.of(codePoints[index * 2], codePoints[index * 2 + 1]);
+    }
+
+    /**
+     * Appends a character to this buffer.
+     *
+     * @param first the first code point
+     * @param second the second code point, or -1
+     * @param offset the offset in the original input
+     */
+    public void append(int first, int second, int offset) {
+        if (size == offsets.length) {
+            grow(size + 1);
+        }
+        codePoints[size * 2] = first;
+        codePoints[size * 2 + 1] = second;
+        offsets[size] = offset;
+        size++;
+    }
+
+    /**
+     * Appends the characters in a CodePointTuple. A tuple is appended as a single character, and an
+     * empty tuple is ignored.
+     *
+     * @param c the tuple to append
+     * @param offset the offset in the original input
+     */
+    public void append(CodePointTuple c, int offset) {
+        switch (c.size()) {
+            case 0:
+                break;
+            case 1:
+                append(c.get(0), -1, offset);
+                break;
+            default:
+                append(c.get(0), c.get(1), offset);
+                break;
+        }
+    }
+
+    /**
+     * Appends a copy of the character at the specified index of another buffer.
+     *
+     * @param source the buffer to copy from
+     * @param index the index of the character in the source buffer
+     */
+    public void append(CodePointBuffer source, int index) {
+        append(
+                source.codePoints[index * 2],
+                source.codePoints[index * 2 + 1],
+                source.offsets[index]);
+    }
+
+    /**
+     * Appends copies of a range of characters of another buffer.
+     *
+     * @param source the buffer to copy from
+     * @param start the index of the first character to copy
+     * @param end the index after the last character to copy
+     */
+    public void append(CodePointBuffer source, int start, int end) {
+        final int n = end - start;
+        if (n <= 0) {
+            return;
+        }
+        if (size + n > offsets.length) {
+            grow(size + n);
+        }
+        System.arraycopy(source.codePoints, start * 2, codePoints, size * 2, n * 2);
+        System.arraycopy(source.offsets, start, offsets, size, n);
+        size += n;
+    }
+
+    /** Removes all characters from this buffer, retaining the allocated capacity. */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the number of Java char values needed to represent the characters in this buffer.
+     *
+     * @return the char count
+     */
+    public int charCount() {
+        int n = 0;
+        for (int i = 0, e = size * 2; i < e; i++) {
+            final int cp = codePoints[i];
+            if (cp >= 0) {
+                n += Character.charCount(cp);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Checks whether this buffer holds the same characters as another one, regardless of their
+     * offsets.
+     *
+     * @param other the other buffer
+     * @return true if both buffers hold the same code points in the same order
+     */
+    public boolean contentEquals(CodePointBuffer other) {
+        return size == other.size
+                && Arrays.equals(codePoints, 0, size * 2, other.codePoints, 0, size * 2);
+    }
+
+    /**
+     * Appends the characters in this buffer to a StringBuilder.
+     *
+     * @param sb the StringBuilder to append to
+     * @return the given StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        for (int i = 0, e = size * 2; i < e; i++) {
+            final int cp = codePoints[i];
+            if (cp >= 0) {
+                sb.appendCodePoint(cp);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Returns the text represented by the characters in this buffer.
+     *
+     * @return the text
+     */
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(charCount())).toString();
+    }
+
+    private void grow(int minCapacity) {
+        final int newCapacity = Math.max(minCapacity, offsets.length + (offsets.length >> 1) + 1);
+        codePoints = Arrays.copyOf(codePoints, newCapacity * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+    }
+}
@@ -0,0 +1,55 @@
+package io.yosina;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A read-only map from code points, and from pairs of code points such as a base character followed
+ * by a variation selector, to values.
+ *
+ * @param <V> the type of the values
+ */
+public interface CodePointLookup<V> {
+    /**
+     * Gets the value mapped from a pair of code points. If the second code point is negative, this
+     * looks up the first code point alone.
+     *
+     * @param first the first code point
+     * @param second the second code point, or -1
+     * @return the value, or null if the pair is not mapped
+     */
+    V get(int first, int second);
+
+    /**
+     * Gets the value mapped from a single code point.
+     *
+     * @param codePoint the code point
+     * @return the value, or null if the code point is not mapped
+     */
+    default V get(int codePoint) {
+        return get(codePoint, -1);
+    }
+
+    /**
+     * Gets the value mapped from the code points of a tuple.
+     *
+     * @param key the tuple
+     * @return the value, or null if the tuple is empty or not mapped
+     */
+    default V get(CodePointTuple key) {
+        switch (key.size()) {
+            case 1:
+                return get(key.get(0));
+            case 2:
+                return get(key.get(0), key.get(1));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Performs an action for each key and its value.
+     *
+     * @param action the action, given each key as a tuple of one or two code points
+     */
+    void forEach(BiConsumer<? super CodePointTuple, ? super V> action);
+}
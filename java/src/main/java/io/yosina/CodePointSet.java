@@ -0,0 +1,302 @@
+package io.yosina;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of code points.
+ *
+ * <p>Code points in the Basic Multilingual Plane are kept in a bitmap of 8 KiB, so testing them is
+ * a single array read. Code points in the other planes, which the tables touch far more sparsely,
+ * are kept as sorted ranges and found by binary search.
+ */
+public final class CodePointSet {
+    private static final int BMP_WORDS = 0x10000 >>> 6;
+    private static final long[] NO_BITS = new long[BMP_WORDS];
+
+    /** The set with no code points. */
+    public static final CodePointSet EMPTY = new CodePointSet(NO_BITS, new int[0]);
+
+    /** The set of all code points. */
+    public static final CodePointSet ALL =
+            new Builder().addRange(0, Character.MAX_CODE_POINT).build();
+
+    private final long[] bmp;
+    // Disjoint inclusive ranges above the BMP as start/end pairs, sorted and not adjacent
+    private final int[] ranges;
+
+    private CodePointSet(long[] bmp, int[] ranges) {
+        this.bmp = bmp;
+        this.ranges = ranges;
+    }
+
+    /**
+     * Checks whether this set contains a code point.
+     *
+     * @param codePoint the code point
+     * @return true if the code point is in this set
+     */
+    public boolean contains(int codePoint) {
+        if (codePoint < 0x10000) {
+            return codePoint >= 0 && (bmp[codePoint >>> 6] & (1L << codePoint)) != 0;
+        }
+        int lo = 0, hi = (ranges.length >>> 1) - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (codePoint < ranges[mid * 2]) {
+                hi = mid - 1;
+            } else if (codePoint > ranges[mid * 2 + 1]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether this set contains either code point of a character.
+     *
+     * @param first the first code point
+     * @param second the second code point, or -1
+     * @return true if either code point is in this set
+     */
+    public boolean containsAny(int first, int second) {
+        return contains(first) || (second >= 0 && contains(second));
+    }
+
+    /**
+     * Checks whether this set contains any code point of a tuple.
+     *
+     * @param tuple the tuple
+     * @return true if some code point of the tuple is in this set
+     */
+    public boolean containsAny(CodePointTuple tuple) {
+        switch (tuple.size()) {
+            case 0:
+                return false;
+            case 1:
+                return contains(tuple.get(0));
+            default:
+                return contains(tuple.get(0)) || contains(tuple.get(1));
+        }
+    }
+
+    /**
+     * Checks whether this set contains any code point of a text.
+     *
+     * @param text the text
+     * @return true if some code point of the text is in this set
+     */
+    public boolean containsAny(CharSequence text) {
+        if (this == EMPTY) {
+            return false;
+        }
+        for (int i = 0, n = text.length(); i < n; ) {
+            final int codePoint = Character.codePointAt(text, i);
+            if (contains(codePoint)) {
+                return true;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether this set has no code points.
+     *
+     * @return true if this set is empty
+     */
+    public boolean isEmpty() {
+        return this == EMPTY || (ranges.length == 0 && Arrays.equals(bmp, NO_BITS));
+    }
+
+    /**
+     * Counts the code points in this set.
+     *
+     * @return the number of code points
+     */
+    public int size() {
+        int n = 0;
+        for (long word : bmp) {
+            n += Long.bitCount(word);
+        }
+        for (int i = 0; i < ranges.length; i += 2) {
+            n += ranges[i + 1] - ranges[i] + 1;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the union of this set and another one.
+     *
+     * @param other the other set
+     * @return a set of the code points in either set
+     */
+    public CodePointSet union(CodePointSet other) {
+        if (this == ALL || other == ALL) {
+            return ALL;
+        }
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        return new Builder().addAll(this).addAll(other).build();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof CodePointSet)) return false;
+        final CodePointSet other = (CodePointSet) obj;
+        return Arrays.equals(bmp, other.bmp) && Arrays.equals(ranges, other.ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(bmp) + Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        int start = -1;
+        for (int c = 0; c <= 0x10000; c++) {
+            if (c < 0x10000 && contains(c)) {
+                if (start < 0) {
+                    start = c;
+                }
+            } else if (start >= 0) {
+                appendRange(sb, start, c - 1);
+                start = -1;
+            }
+        }
+        for (int i = 0; i < ranges.length; i += 2) {
+            appendRange(sb, ranges[i], ranges[i + 1]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void appendRange(StringBuilder sb, int start, int end) {
+        if (sb.length() > 1) {
+            sb.append(' ');
+        }
+        sb.append(String.format("U+%04X", start));
+        if (end != start) {
+            sb.append(String.format("-U+%04X", end));
+        }
+    }
+
+    /** Builds a CodePointSet. */
+    public static final class Builder {
+        private long[] bmp = null;
+        private int[] ranges = new int[16];
+        private int rangesLength = 0;
+
+        /** Creates an empty builder. */
+        public Builder() {}
+
+        /**
+         * Adds a code point.
+         *
+         * @param codePoint the code point
+         * @return this builder
+         * @throws IllegalArgumentException if the code point is not valid
+         */
+        public Builder add(int codePoint) {
+            return addRange(codePoint, codePoint);
+        }
+
+        /**
+         * Adds a range of code points.
+         *
+         * @param start the first code point of the range
+         * @param end the last code point of the range, inclusive
+         * @return this builder
+         * @throws IllegalArgumentException if a code point is not valid or the range is reversed
+         */
+        public Builder addRange(int start, int end) {
+            if (!Character.isValidCodePoint(start) || !Character.isValidCodePoint(end)) {
+                throw new IllegalArgumentException("Invalid code points: " + start + ", " + end);
+            }
+            if (end < start) {
+                throw new IllegalArgumentException("Reversed range: " + start + ", " + end);
+            }
+            for (int c = start; c <= end && c < 0x10000; c++) {
+                if (bmp == null) {
+                    bmp = new long[BMP_WORDS];
+                }
+                bmp[c >>> 6] |= 1L << c;
+            }
+            if (end >= 0x10000) {
+                if (rangesLength == ranges.length) {
+                    ranges = Arrays.copyOf(ranges, rangesLength * 2);
+                }
+                ranges[rangesLength++] = Math.max(start, 0x10000);
+                ranges[rangesLength++] = end;
+            }
+            return this;
+        }
+
+        /**
+         * Adds the code points that a character must contain to match a lookup key: the code point
+         * itself for a single code point key, and the second code point, usually a variation
+         * selector, for a pair.
+         *
+         * @param first the first code point of the key
+         * @param second the second code point of the key, or -1
+         * @return this builder
+         */
+        public Builder addKey(int first, int second) {
+            return add(second >= 0 ? second : first);
+        }
+
+        /**
+         * Adds the code points of another set.
+         *
+         * @param other the set to add
+         * @return this builder
+         */
+        public Builder addAll(CodePointSet other) {
+            if (other.bmp != NO_BITS) {
+                if (bmp == null) {
+                    bmp = new long[BMP_WORDS];
+                }
+                for (int i = 0; i < BMP_WORDS; i++) {
+                    bmp[i] |= other.bmp[i];
+                }
+            }
+            for (int i = 0; i < other.ranges.length; i += 2) {
+                addRange(other.ranges[i], other.ranges[i + 1]);
+            }
+            return this;
+        }
+
+        /**
+         * Builds the set.
+         *
+         * @return a new CodePointSet
+         */
+        public CodePointSet build() {
+            // Sort the ranges by their start and merge the overlapping or adjacent ones
+            final long[] sorted = new long[rangesLength / 2];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = ((long) ranges[i * 2] << 32) | ranges[i * 2 + 1];
+            }
+            Arrays.sort(sorted);
+            final int[] merged = new int[sorted.length * 2];
+            int n = 0;
+            for (final long range : sorted) {
+                final int start = (int) (range >>> 32), end = (int) range;
+                if (n > 0 && start <= merged[n - 1] + 1) {
+                    merged[n - 1] = Math.max(merged[n - 1], end);
+                } else {
+                    merged[n++] = start;
+                    merged[n++] = end;
+                }
+            }
+            return new CodePointSet(bmp != null ? bmp.clone() : NO_BITS, Arrays.copyOf(merged, n));
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package io.yosina;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map from code points, and from pairs of code points such as a base character
+ * followed by a variation selector, to values.
+ *
+ * <p>Single code points are looked up in a two-level trie: each plane that has keys has an index of
+ * 1024 blocks of 64 code points, and each index entry points at a block of values. Blocks without
+ * keys share a single empty block, so a table takes a few kilobytes per plane it touches. Pairs are
+ * kept in a separate trie keyed by their first code point, whose entries list the second code
+ * points and their values; there are rarely more than a few variation selectors per base.
+ *
+ * @param <V> the type of the values
+ */
+public final class CodePointTrie<V> implements CodePointLookup<V> {
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int INDEX_LENGTH = 0x10000 >> BLOCK_SHIFT;
+    private static final int PLANE_COUNT = (Character.MAX_CODE_POINT >> 16) + 1;
+
+    // For each plane, the offset in values of the block for each 64 code points, or null
+    private final int[][] planes;
+    // Blocks of BLOCK_SIZE values; the first block is empty and shared
+    private final Object[] values;
+    // Pairs by their first code point, or null if there are none
+    private final CodePointTrie<Row> pairs;
+    private final int size;
+
+    /** The second code points of the pairs sharing a first code point, and their values. */
+    private static final class Row {
+        private final int[] seconds;
+        private final Object[] values;
+
+        private Row(int[] seconds, Object[] values) {
+            this.seconds = seconds;
+            this.values = values;
+        }
+    }
+
+    private CodePointTrie(int[][] planes, Object[] values, CodePointTrie<Row> pairs, int size) {
+        this.planes = planes;
+        this.values = values;
+        this.pairs = pairs;
+        this.size = size;
+    }
+
+    /**
+     * Gets the value mapped from a single code point.
+     *
+     * @param codePoint the code point
+     * @return the value, or null if the code point is not mapped
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int codePoint) {
+        if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+            return null;
+        }
+        final int[] index = planes[codePoint >>> 16];
+        if (index == null) {
+            return null;
+        }
+        return (V) values[index[(codePoint & 0xffff) >>> BLOCK_SHIFT] + (codePoint & BLOCK_MASK)];
+    }
+
+    /**
+     * Gets the value mapped from a pair of code points. If the second code point is negative, this
+     * looks up the first code point alone.
+     *
+     * @param first the first code point
+     * @param second the second code point, or -1
+     * @return the value, or null if the pair is not mapped
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int first, int second) {
+        if (second < 0) {
+            return get(first);
+        }
+        if (pairs == null) {
+            return null;
+        }
+        final Row row = pairs.get(first);
+        if (row == null) {
+            return null;
+        }
+        final int[] seconds = row.seconds;
+        for (int i = 0; i < seconds.length; i++) {
+            if (seconds[i] == second) {
+                return (V) row.values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Performs an action for each key and its value: the single code points in ascending order,
+     * then the pairs in ascending order.
+     *
+     * @param action the action
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super CodePointTuple, ? super V> action) {
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            final int[] index = planes[plane];
+            if (index == null) {
+                continue;
+            }
+            for (int block = 0; block < INDEX_LENGTH; block++) {
+                final int offset = index[block];
+                if (offset == 0) {
+                    continue;
+                }
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    final Object value = values[offset + i];
+                    if (value != null) {
+                        action.accept(
+                                CodePointTuple.of((plane << 16) | (block << BLOCK_SHIFT) | i),
+                                (V) value);
+                    }
+                }
+            }
+        }
+        if (pairs != null) {
+            pairs.forEach(
+                    (first, row) -> {
+                        for (int i = 0; i < row.seconds.length; i++) {
+                            action.accept(
+                                    CodePointTuple.of(first.get(0), row.seconds[i]),
+                                    (V) row.values[i]);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Returns the number of keys in this trie.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the code points that a character must contain to match a key of this trie: the single
+     * code point keys and the second code points of the pairs.
+     *
+     * @return the key code points
+     */
+    public CodePointSet keyCodePoints() {
+        final CodePointSet.Builder builder = new CodePointSet.Builder();
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            final int[] index = planes[plane];
+            if (index == null) {
+                continue;
+            }
+            for (int block = 0; block < INDEX_LENGTH; block++) {
+                final int offset = index[block];
+                if (offset == 0) {
+                    continue;
+                }
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    if (values[offset + i] != null) {
+                        builder.add((plane << 16) | (block << BLOCK_SHIFT) | i);
+                    }
+                }
+            }
+        }
+        if (pairs != null) {
+            for (final Object row : pairs.values) {
+                if (row != null) {
+                    for (final int second : ((Row) row).seconds) {
+                        builder.add(second);
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a trie holding the same mappings as a map keyed by code point tuples.
+     *
+     * @param <V> the type of the values
+     * @param map the map to copy
+     * @return a new trie
+     */
+    public static <V> CodePointTrie<V> of(Map<CodePointTuple, V> map) {
+        final Builder<V> builder = new Builder<>();
+        for (final Map.Entry<CodePointTuple, V> e : map.entrySet()) {
+            builder.put(e.getKey(), e.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds a CodePointTrie. Putting a key twice replaces the earlier value.
+     *
+     * @param <V> the type of the values
+     */
+    public static final class Builder<V> {
+        private final TreeMap<Integer, V> singles = new TreeMap<>();
+        private final TreeMap<Integer, TreeMap<Integer, V>> pairs = new TreeMap<>();
+        private int pairCount = 0;
+
+        /** Creates an empty builder. */
+        public Builder() {}
+
+        /**
+         * Maps a single code point to a value.
+         *
+         * @param codePoint the code point
+         * @param value the value, not null
+         * @return this builder
+         * @throws IllegalArgumentException if the code point is not valid
+         */
+        public Builder<V> put(int codePoint, V value) {
+            if (!Character.isValidCodePoint(codePoint)) {
+                throw new IllegalArgumentException("Invalid code point: " + codePoint);
+            }
+            singles.put(codePoint, value);
+            return this;
+        }
+
+        /**
+         * Maps a pair of code points to a value. If the second code point is negative, this maps
+         * the first code point alone.
+         *
+         * @param first the first code point
+         * @param second the second code point, or -1
+         * @param value the value, not null
+         * @return this builder
+         * @throws IllegalArgumentException if a code point is not valid
+         */
+        public Builder<V> put(int first, int second, V value) {
+            if (second < 0) {
+                return put(first, value);
+            }
+            if (!Character.isValidCodePoint(first) || !Character.isValidCodePoint(second)) {
+                throw new IllegalArgumentException("Invalid code points: " + first + ", " + second);
+            }
+            if (pairs.computeIfAbsent(first, k -> new TreeMap<>()).put(second, value) == null) {
+                pairCount++;
+            }
+            return this;
+        }
+
+        /**
+         * Maps the code points of a tuple to a value.
+         *
+         * @param key the tuple, not empty
+         * @param value the value, not null
+         * @return this builder
+         * @throws IllegalArgumentException if the tuple is empty
+         */
+        public Builder<V> put(CodePointTuple key, V value) {
+            switch (key.size()) {
+                case 1:
+                    return put(key.get(0), value);
+                case 2:
+                    return put(key.get(0), key.get(1), value);
+                default:
+                    throw new IllegalArgumentException("Empty key");
+            }
+        }
+
+        /**
+         * Builds the trie.
+         *
+         * @return a new CodePointTrie
+         */
+        public CodePointTrie<V> build() {
+            final int[][] planes = new int[PLANE_COUNT][];
+            // Count the distinct blocks first to size the values array
+            int blocks = 1;
+            int lastBlock = -1;
+            for (final int codePoint : singles.keySet()) {
+                final int block = codePoint >>> BLOCK_SHIFT;
+                if (block != lastBlock) {
+                    blocks++;
+                    lastBlock = block;
+                }
+            }
+            final Object[] values = new Object[blocks * BLOCK_SIZE];
+            int next = BLOCK_SIZE;
+            lastBlock = -1;
+            int blockOffset = 0;
+            for (final Map.Entry<Integer, V> e : singles.entrySet()) {
+                final int codePoint = e.getKey();
+                final int block = codePoint >>> BLOCK_SHIFT;
+                if (block != lastBlock) {
+                    int[] index = planes[codePoint >>> 16];
+                    if (index == null) {
+                        index = planes[codePoint >>> 16] = new int[INDEX_LENGTH];
+                    }
+                    blockOffset = next;
+                    next += BLOCK_SIZE;
+                    index[(codePoint & 0xffff) >>> BLOCK_SHIFT] = blockOffset;
+                    lastBlock = block;
+                }
+                values[blockOffset + (codePoint & BLOCK_MASK)] = e.getValue();
+            }
+            CodePointTrie<Row> pairTrie = null;
+            if (!pairs.isEmpty()) {
+                final Builder<Row> rows = new Builder<>();
+                for (final Map.Entry<Integer, TreeMap<Integer, V>> e : pairs.entrySet()) {
+                    final int[] seconds = new int[e.getValue().size()];
+                    final Object[] rowValues = new Object[seconds.length];
+                    int i = 0;
+                    for (final Map.Entry<Integer, V> f : e.getValue().entrySet()) {
+                        seconds[i] = f.getKey();
+                        rowValues[i] = f.getValue();
+                        i++;
+                    }
+                    rows.put(e.getKey(), new Row(seconds, rowValues));
+                }
+                pairTrie = rows.build();
+            }
+            return new CodePointTrie<>(planes, values, pairTrie, singles.size() + pairCount);
+        }
+    }
+}
@@ -1,53 +1,65 @@
 package io.yosina;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents a tuple of up to two Unicode code points. This class is used to efficiently store and
  * handle characters, including those with variation selectors.
  */
 public class CodePointTuple implements Comparable<CodePointTuple> {
-    private static class Bucket {
-        private final int start;
-        private final AtomicReferenceArray<CodePointTuple> codePoints;
+    /**
+     * A pool of single code point tuples covering a range of code points. The slots are allocated
+     * on first use and filled as tuples are requested; racing threads agree on one tuple per code
+     * point through compare-and-set, so no lock is taken.
+     */
+    private static final class Bucket {
+        private static final AtomicReferenceFieldUpdater<Bucket, AtomicReferenceArray>
+                SLOTS_UPDATER =
+                        AtomicReferenceFieldUpdater.newUpdater(
+                                Bucket.class, AtomicReferenceArray.class, "slots");
 
-        private void put(CodePointTuple codePoint) {
-            codePoints.set(codePoint.first - start, codePoint);
-        }
+        private final int start;
+        private final int end;
+        private volatile AtomicReferenceArray<CodePointTuple> slots;
 
-        private CodePointTuple get(int index) {
-            return codePoints.get(index - start);
+        private boolean canContain(int codePoint) {
+            return codePoint >= start && codePoint < end;
         }
 
-        private boolean canContain(int codePoint) {
-            return codePoint >= start && codePoint < start + codePoints.length();
+        @SuppressWarnings("unchecked")
+        private CodePointTuple intern(int codePoint) {
+            AtomicReferenceArray<CodePointTuple> slots = this.slots;
+            if (slots == null) {
+                SLOTS_UPDATER.compareAndSet(this, null, new AtomicReferenceArray<>(end - start));
+                slots = this.slots;
+            }
+            final int i = codePoint - start;
+            final CodePointTuple cached = slots.get(i);
+            if (cached != null) {
+                return cached;
+            }
+            final CodePointTuple newCp = new CodePointTuple(codePoint, INVALID_VALUE);
+            final CodePointTuple witness = slots.compareAndExchange(i, null, newCp);
+            return witness != null ? witness : newCp;
         }
 
         private Bucket(int start, int end) {
             this.start = start;
-            this.codePoints = new AtomicReferenceArray<>(end - start);
+            this.end = end;
         }
     }
 
-    private static class Buckets {
+    private static final class Buckets {
         private final Bucket[] buckets;
 
-        private boolean tryPut(CodePointTuple codePoint) {
-            for (int i = 0, e = buckets.length; i < e; ++i) {
-                final Bucket bucket = buckets[i];
-                if (bucket.canContain(codePoint.first)) {
-                    bucket.put(codePoint);
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        private CodePointTuple get(int codePoint) {
+        /** Returns the pooled tuple for the code point, or null if it is not in any bucket. */
+        private CodePointTuple intern(int codePoint) {
             for (int i = 0, e = buckets.length; i < e; ++i) {
                 final Bucket bucket = buckets[i];
                 if (bucket.canContain(codePoint)) {
-                    return bucket.get(codePoint);
+                    return bucket.intern(codePoint);
                 }
             }
             return null;
@@ -56,21 +68,48 @@ public class CodePointTuple implements Comparable<CodePointTuple> {
         private Buckets(int... startEndPairs) {
             int size = startEndPairs.length / 2;
             buckets = new Bucket[size];
-            for (int i = 0, j = 0; i < size; i++) {
-                buckets[i] = new Bucket(startEndPairs[j], startEndPairs[j]);
+            for (int i = 0, j = 0; i < size; i++, j += 2) {
+                buckets[i] = new Bucket(startEndPairs[j], startEndPairs[j + 1]);
             }
         }
     }
 
+    /**
+     * A direct-mapped cache of tuples made of a base character and a variation selector, such as
+     * the IVS and SVS sequences found in Japanese text. A slot holds whichever pair was stored
+     * there last, so the cache stays bounded while frequent pairs keep hitting.
+     */
+    private static final class VariationSequences {
+        private static final int SIZE = 4096;
+        private final AtomicReferenceArray<CodePointTuple> slots = new AtomicReferenceArray<>(SIZE);
+
+        private CodePointTuple intern(int first, int second) {
+            final int i = ((first * 31 + second) * 0x9e3779b9 >>> 20) & (SIZE - 1);
+            final CodePointTuple cached = slots.get(i);
+            if (cached != null && cached.first == first && cached.second == second) {
+                return cached;
+            }
+            final CodePointTuple newCp = new CodePointTuple(first, second);
+            slots.lazySet(i, newCp);
+            return newCp;
+        }
+    }
+
     private static final int INVALID_VALUE = -1;
     private final int first;
     private final int second;
+    // Ordered by how often the ranges occur in Japanese text
     private static final Buckets buckets =
             new Buckets(
-                    0x0000, 0x007f, // ASCII
-                    0x3040, 0x30a0, // Ideographic space and punctuations
-                    0x30a0, 0x3100 // Katakana
+                    0x0000, 0x0080, // ASCII
+                    0x3000, 0x3100, // CJK symbols and punctuation, Hiragana and Katakana
+                    0x4e00, 0xa000, // CJK unified ideographs
+                    0xff00, 0xfff0, // Halfwidth and fullwidth forms
+                    0x2000, 0x2070, // General punctuation
+                    0x0080, 0x0100, // Latin-1 supplement
+                    0xf900, 0xfb00 // CJK compatibility ideographs
                     );
+    private static final VariationSequences variationSequences = new VariationSequences();
 
     /** A sentinel value representing an empty tuple. */
     public static final CodePointTuple SENTINEL = new CodePointTuple(INVALID_VALUE, INVALID_VALUE);
@@ -133,6 +172,17 @@ public class CodePointTuple implements Comparable<CodePointTuple> {
         return first == other.first && second == other.second;
     }
 
+    /**
+     * Checks whether this tuple is made of the given code points.
+     *
+     * @param first the first code point
+     * @param second the second code point, or -1 if there is none
+     * @return true if this tuple holds exactly those code points
+     */
+    public boolean matches(int first, int second) {
+        return this.first == first && this.second == second;
+    }
+
     /**
      * Returns a string representation of the code points in this tuple.
      *
@@ -149,6 +199,49 @@ public class CodePointTuple implements Comparable<CodePointTuple> {
         }
     }
 
+    /**
+     * Appends the code points in this tuple to a StringBuilder.
+     *
+     * @param sb the StringBuilder to append to
+     * @return the given StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        if (first != INVALID_VALUE) {
+            sb.appendCodePoint(first);
+            if (second != INVALID_VALUE) {
+                sb.appendCodePoint(second);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Appends the code points in this tuple to an Appendable as UTF-16.
+     *
+     * @param <A> the type of the Appendable
+     * @param a the Appendable to append to
+     * @return the given Appendable
+     * @throws IOException if the Appendable throws one
+     */
+    public <A extends Appendable> A appendTo(A a) throws IOException {
+        if (first != INVALID_VALUE) {
+            appendCodePoint(a, first);
+            if (second != INVALID_VALUE) {
+                appendCodePoint(a, second);
+            }
+        }
+        return a;
+    }
+
+    private static void appendCodePoint(Appendable a, int codePoint) throws IOException {
+        if (Character.isBmpCodePoint(codePoint)) {
+            a.append((char) codePoint);
+        } else {
+            a.append(Character.highSurrogate(codePoint));
+            a.append(Character.lowSurrogate(codePoint));
+        }
+    }
+
     /**
      * Writes the code points to the given array starting at the specified offset.
      *
@@ -256,13 +349,8 @@ public class CodePointTuple implements Comparable<CodePointTuple> {
         if (first == INVALID_VALUE) {
             return SENTINEL;
         }
-        final CodePointTuple cached = buckets.get(first);
-        if (cached != null) {
-            return cached;
-        }
-        final CodePointTuple newCp = new CodePointTuple(first, INVALID_VALUE);
-        buckets.tryPut(newCp);
-        return newCp;
+        final CodePointTuple pooled = buckets.intern(first);
+        return pooled != null ? pooled : new CodePointTuple(first, INVALID_VALUE);
     }
 
     /**
@@ -276,6 +364,12 @@ public class CodePointTuple implements Comparable<CodePointTuple> {
         if (first == INVALID_VALUE) {
             return SENTINEL;
         }
+        if (second == INVALID_VALUE) {
+            return of(first);
+        }
+        if (Chars.isVariationSelector(second)) {
+            return variationSequences.intern(first, second);
+        }
         return new CodePointTuple(first, second);
     }
 
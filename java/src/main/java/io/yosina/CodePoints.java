@@ -2,13 +2,15 @@ package io.yosina;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 import java.util.PrimitiveIterator;
 import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
 /** Utility class for converting between Char iterators and code point iterators. */
 public final class CodePoints {
+    private static final int NONE = -1;
+
     /**
      * Creates a code point iterator from a Char iterator.
      *
@@ -17,42 +19,39 @@ public final class CodePoints {
      */
     public static PrimitiveIterator.OfInt iteratorOf(final Iterator<Char> input) {
         return new PrimitiveIterator.OfInt() {
-            int i = 0;
-            Optional<CodePointTuple> codePoint = Optional.empty();
+            // Code points of the current character that have not been returned yet
+            int first = NONE;
+            int second = NONE;
+            boolean done = false;
 
-            @Override
-            public boolean hasNext() {
-                if (codePoint.isEmpty()) {
-                    if (!input.hasNext()) {
-                        return false;
-                    }
-                    final Char c = input.next();
-                    if (c.isSentinel()) {
-                        return false;
-                    }
-                    codePoint = Optional.of(c.get());
-                } else if (i >= codePoint.get().size()) {
+            private boolean fill() {
+                if (done || !input.hasNext()) {
+                    return false;
+                }
+                final Char c = input.next();
+                if (c.isSentinel()) {
+                    done = true;
                     return false;
                 }
+                final CodePointTuple cp = c.get();
+                first = cp.get(0);
+                second = cp.size() > 1 ? cp.get(1) : NONE;
                 return true;
             }
 
+            @Override
+            public boolean hasNext() {
+                return first != NONE || fill();
+            }
+
             @Override
             public int nextInt() {
-                if (codePoint.isEmpty()) {
-                    final Char c = input.next();
-                    if (c.isSentinel()) {
-                        throw new NoSuchElementException("No more characters in iterator");
-                    }
-                    i = 0;
-                    codePoint = Optional.of(c.get());
-                }
-                final CodePointTuple cp = codePoint.get();
-                final int v = cp.get(i++);
-                if (i >= cp.size()) {
-                    i = 0;
-                    codePoint = Optional.empty();
+                if (first == NONE && !fill()) {
+                    throw new NoSuchElementException("No more characters in iterator");
                 }
+                final int v = first;
+                first = second;
+                second = NONE;
                 return v;
             }
         };
@@ -65,51 +64,84 @@ public final class CodePoints {
      * @return a Spliterator.OfInt that splits over code points
      */
     public static Spliterator.OfInt spliteratorOf(final Spliterator<Char> input) {
-        return new Spliterator.OfInt() {
-            int i = 0;
-            Optional<CodePointTuple> codePoint = Optional.empty();
+        return new CodePointSpliterator(input, -1);
+    }
 
-            @Override
-            public boolean tryAdvance(IntConsumer action) {
-                if (codePoint.isEmpty()) {
-                    if (!input.tryAdvance(
-                            c -> {
-                                if (c.isSentinel()) {
-                                    codePoint = Optional.empty();
-                                    return;
-                                }
-                                codePoint = Optional.of(c.get());
-                            })) {
-                        return false;
-                    }
-                    if (codePoint.isEmpty()) {
-                        return false;
-                    }
-                }
-                final CodePointTuple cp = codePoint.get();
-                final int v = cp.get(i++);
-                if (i >= cp.size()) {
-                    i = 0;
-                    codePoint = Optional.empty();
-                }
-                action.accept(v);
-                return true;
-            }
+    /**
+     * Creates a code point spliterator from a Char spliterator whose exact number of code points is
+     * known. The resulting spliterator is {@link Spliterator#SIZED}.
+     *
+     * @param input the Char spliterator to convert
+     * @param codePointCount the number of code points the input yields before the sentinel
+     * @return a Spliterator.OfInt that splits over code points
+     */
+    public static Spliterator.OfInt spliteratorOf(
+            final Spliterator<Char> input, final long codePointCount) {
+        return new CodePointSpliterator(input, codePointCount);
+    }
 
-            @Override
-            public long estimateSize() {
-                return input.estimateSize();
-            }
+    private static final class CodePointSpliterator implements Spliterator.OfInt, Consumer<Char> {
+        private final Spliterator<Char> input;
+        // Number of code points still to be returned, or -1 if unknown
+        private long remaining;
+        // Code points of the current character that have not been returned yet
+        private int first = NONE;
+        private int second = NONE;
+        private boolean done = false;
 
-            @Override
-            public int characteristics() {
-                return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        CodePointSpliterator(Spliterator<Char> input, long remaining) {
+            this.input = input;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public void accept(Char c) {
+            if (c.isSentinel()) {
+                done = true;
+                return;
             }
+            final CodePointTuple cp = c.get();
+            first = cp.get(0);
+            second = cp.size() > 1 ? cp.get(1) : NONE;
+        }
 
-            @Override
-            public OfInt trySplit() {
-                return null; // No splitting for this iterator
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            while (first == NONE) {
+                // The spliterator is its own consumer so that advancing allocates nothing
+                if (done || !input.tryAdvance(this)) {
+                    done = true;
+                    return false;
+                }
             }
-        };
+            final int v = first;
+            first = second;
+            second = NONE;
+            if (remaining > 0) {
+                remaining--;
+            }
+            action.accept(v);
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining >= 0 ? remaining : input.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return remaining >= 0
+                    ? Spliterator.ORDERED
+                            | Spliterator.NONNULL
+                            | Spliterator.IMMUTABLE
+                            | Spliterator.SIZED
+                    : Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            return null; // No splitting for this iterator
+        }
     }
 }
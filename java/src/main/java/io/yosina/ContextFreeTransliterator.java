@@ -0,0 +1,65 @@
+package io.yosina;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A transliterator that replaces each character on its own with a sequence of characters, whatever
+ * the characters around it. Characters that it has no replacement for are left as they are, unless
+ * {@link #replacesUnmappedPairsWithFirst()} says otherwise.
+ *
+ * <p>{@link ChainedTransliterator} compiles consecutive context-free transliterators into a single
+ * transducer, so that a chain of them reads each character once.
+ */
+public interface ContextFreeTransliterator extends Transliterator, BufferTransliterator {
+    /**
+     * Performs an action for each character that this transliterator replaces. Its keys are single
+     * code points or pairs of code points, and are only matched by characters made of exactly those
+     * code points. A character replaced with an empty sequence is removed.
+     *
+     * @param action the action, given each key and the characters that replace it
+     */
+    void forEachReplacement(BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action);
+
+    /**
+     * Returns whether characters made of two code points that have no replacement are replaced with
+     * their first code point, as when variation selectors are dropped altogether.
+     *
+     * @return true if such characters lose their second code point, false if they are left as is
+     */
+    default boolean replacesUnmappedPairsWithFirst() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A context-free transliterator replaces each character whatever it was derived from, so
+     * this returns false.
+     */
+    @Override
+    default boolean readsProvenance() {
+        return false;
+    }
+
+    /**
+     * Returns whether characters that this transliterator has no replacement for come out as new
+     * characters derived from them, rather than as the very same characters. A later stage can tell
+     * the two apart with {@link Char#hasSource()}, so what is compiled from a run of
+     * transliterators does as each of them does.
+     *
+     * @return true if such characters are given a source, false if they are passed through as is
+     */
+    default boolean wrapsUnmappedChars() {
+        return true;
+    }
+
+    /**
+     * Returns a key that is equal for transliterators that make the same replacements, so that what
+     * is compiled from them can be shared. The key is kept for as long as the class is loaded.
+     *
+     * @return the key, or null if what is compiled from this transliterator is not to be shared
+     */
+    default Object getReplacementsKey() {
+        return null;
+    }
+}
@@ -0,0 +1,145 @@
+package io.yosina;
+
+import java.util.List;
+
+/**
+ * A transliterated text together with the spans of the original text that were changed to produce
+ * it. Everything outside the spans is the same in both texts.
+ */
+public final class EditedText {
+    /** A span of the original text and the span of the transliterated text it was changed into. */
+    public static final class Span {
+        private final int inputStart;
+        private final int inputEnd;
+        private final int outputStart;
+        private final int outputEnd;
+
+        /**
+         * Creates a new Span.
+         *
+         * @param inputStart the offset in the original text where the span starts
+         * @param inputEnd the offset in the original text where the span ends
+         * @param outputStart the offset in the transliterated text where the span starts
+         * @param outputEnd the offset in the transliterated text where the span ends
+         */
+        public Span(int inputStart, int inputEnd, int outputStart, int outputEnd) {
+            this.inputStart = inputStart;
+            this.inputEnd = inputEnd;
+            this.outputStart = outputStart;
+            this.outputEnd = outputEnd;
+        }
+
+        /**
+         * Gets the offset in the original text where the span starts.
+         *
+         * @return the start offset, inclusive
+         */
+        public int getInputStart() {
+            return inputStart;
+        }
+
+        /**
+         * Gets the offset in the original text where the span ends.
+         *
+         * @return the end offset, exclusive
+         */
+        public int getInputEnd() {
+            return inputEnd;
+        }
+
+        /**
+         * Gets the offset in the transliterated text where the span starts.
+         *
+         * @return the start offset, inclusive
+         */
+        public int getOutputStart() {
+            return outputStart;
+        }
+
+        /**
+         * Gets the offset in the transliterated text where the span ends.
+         *
+         * @return the end offset, exclusive
+         */
+        public int getOutputEnd() {
+            return outputEnd;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Span)) {
+                return false;
+            }
+            final Span other = (Span) obj;
+            return inputStart == other.inputStart
+                    && inputEnd == other.inputEnd
+                    && outputStart == other.outputStart
+                    && outputEnd == other.outputEnd;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((inputStart * 31 + inputEnd) * 31 + outputStart) * 31 + outputEnd;
+        }
+
+        @Override
+        public String toString() {
+            return "["
+                    + inputStart
+                    + ", "
+                    + inputEnd
+                    + ") -> ["
+                    + outputStart
+                    + ", "
+                    + outputEnd
+                    + ")";
+        }
+    }
+
+    private final String text;
+    private final List<Span> spans;
+
+    /**
+     * Creates a new EditedText.
+     *
+     * @param text the transliterated text
+     * @param spans the changed spans, in order
+     */
+    public EditedText(String text, List<Span> spans) {
+        this.text = text;
+        this.spans = List.copyOf(spans);
+    }
+
+    /**
+     * Gets the transliterated text. It is the original String itself when nothing was changed.
+     *
+     * @return the transliterated text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the spans that were changed, in order. They do not overlap, and neither do two of them
+     * touch.
+     *
+     * @return the changed spans, or an empty list if nothing was changed
+     */
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    /**
+     * Checks whether anything was changed.
+     *
+     * @return true if there is at least one changed span
+     */
+    public boolean isModified() {
+        return !spans.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,52 @@
+package io.yosina;
+
+/** A transliterated text together with the map from its offsets back to the original text. */
+public final class MappedText {
+    private final String text;
+    private final OffsetMap offsetMap;
+
+    /**
+     * Creates a new MappedText.
+     *
+     * @param text the transliterated text
+     * @param offsetMap the map from offsets in the transliterated text to the original text
+     */
+    public MappedText(String text, OffsetMap offsetMap) {
+        this.text = text;
+        this.offsetMap = offsetMap;
+    }
+
+    /**
+     * Gets the transliterated text.
+     *
+     * @return the transliterated text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the map from offsets in the transliterated text to offsets in the original text.
+     *
+     * @return the offset map
+     */
+    public OffsetMap getOffsetMap() {
+        return offsetMap;
+    }
+
+    /**
+     * Returns the offset in the original text corresponding to an offset in the transliterated
+     * text.
+     *
+     * @param offset the offset in the transliterated text
+     * @return the corresponding offset in the original text
+     */
+    public int correctOffset(int offset) {
+        return offsetMap.correctOffset(offset);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,152 @@
+package io.yosina;
+
+import java.util.Arrays;
+
+/**
+ * Maps offsets in a transliterated text back to offsets in the original text.
+ *
+ * <p>The map is a sorted list of checkpoints, each pairing an offset in the output with an offset
+ * in the input. Between two checkpoints, output and input advance in lockstep, so a checkpoint is
+ * only recorded where a character does not come from the position right after the previous one (for
+ * example after a deletion, or within a one-to-many replacement). Looking up an offset is a binary
+ * search over the checkpoints. All offsets are counted in Java chars.
+ *
+ * <p>Built from whole characters with {@link Builder#add(int, int, int, int)}, the map never goes
+ * backwards and never goes past the end of the input.
+ */
+public final class OffsetMap {
+    private final int[] outputOffsets;
+    private final int[] inputOffsets;
+    private final int size;
+
+    private OffsetMap(int[] outputOffsets, int[] inputOffsets, int size) {
+        this.outputOffsets = outputOffsets;
+        this.inputOffsets = inputOffsets;
+        this.size = size;
+    }
+
+    /**
+     * Returns the offset in the original text corresponding to an offset in the transliterated
+     * text. An offset inside a character produced by a one-to-many replacement, or inside one that
+     * is longer or shorter than the character it comes from, maps to the offset of the original
+     * character.
+     *
+     * @param outputOffset the offset in the transliterated text
+     * @return the corresponding offset in the original text
+     */
+    public int correctOffset(int outputOffset) {
+        int i = Arrays.binarySearch(outputOffsets, 0, size, outputOffset);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        if (i < 0) {
+            return outputOffset;
+        }
+        return inputOffsets[i] + (outputOffset - outputOffsets[i]);
+    }
+
+    /**
+     * Returns the number of checkpoints in this map.
+     *
+     * @return the number of checkpoints
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Builds an OffsetMap from the characters of a transliterated text, in order. */
+    public static final class Builder {
+        private int[] outputOffsets = new int[8];
+        private int[] inputOffsets = new int[8];
+        private int size = 0;
+        private int lastOutputOffset = 0;
+        private int lastInputOffset = 0;
+        // The last character added whole, whose inside is mapped in lockstep with the character it
+        // comes from until another character turns out to come from that one too
+        private int lastCharOutputOffset = -1;
+        private int lastCharOutputLength = 0;
+        private int lastCharInputOffset = -1;
+
+        /** Creates an empty builder. */
+        public Builder() {}
+
+        /**
+         * Records that the character at the specified offset of the output comes from the character
+         * at the specified offset of the input. Characters must be added in output order.
+         *
+         * @param outputOffset the offset of the character in the transliterated text
+         * @param inputOffset the offset of the original character in the input text
+         * @return this builder
+         */
+        public Builder add(int outputOffset, int inputOffset) {
+            if (inputOffset - lastInputOffset != outputOffset - lastOutputOffset) {
+                if (size == outputOffsets.length) {
+                    final int newLength = size + (size >> 1) + 1;
+                    outputOffsets = Arrays.copyOf(outputOffsets, newLength);
+                    inputOffsets = Arrays.copyOf(inputOffsets, newLength);
+                }
+                outputOffsets[size] = outputOffset;
+                inputOffsets[size] = inputOffset;
+                size++;
+            }
+            lastOutputOffset = outputOffset;
+            lastInputOffset = inputOffset;
+            return this;
+        }
+
+        /**
+         * Records that a character of the output comes from a character of the input, giving the
+         * length of both. Offsets inside the output character map to the same place inside the
+         * input character if both are as long and no other character comes from it, and to the
+         * start of the input character otherwise. Characters must be added in output order; one
+         * that comes from before the character added last, such as a voiced sound mark moved into
+         * the middle of a decomposed character, is taken to come from where that one does.
+         *
+         * @param outputOffset the offset of the character in the transliterated text
+         * @param outputLength the length of the character in the transliterated text
+         * @param inputOffset the offset of the original character in the input text
+         * @param inputLength the length of the original character in the input text
+         * @return this builder
+         */
+        public Builder add(int outputOffset, int outputLength, int inputOffset, int inputLength) {
+            final boolean movedBack = inputOffset < lastInputOffset;
+            if (movedBack) {
+                inputOffset = lastInputOffset;
+            }
+            final boolean sharesSource = inputOffset == lastCharInputOffset;
+            if (sharesSource) {
+                pinInside(lastCharOutputOffset, lastCharOutputLength, inputOffset);
+            }
+            add(outputOffset, inputOffset);
+            if (movedBack || sharesSource || outputLength != inputLength) {
+                pinInside(outputOffset, outputLength, inputOffset);
+                lastCharInputOffset = -1;
+            } else {
+                lastCharOutputOffset = outputOffset;
+                lastCharOutputLength = outputLength;
+                lastCharInputOffset = inputOffset;
+            }
+            return this;
+        }
+
+        // Maps every offset inside a character to the start of the one it comes from
+        private void pinInside(int outputOffset, int outputLength, int inputOffset) {
+            for (int i = 1; i < outputLength; i++) {
+                add(outputOffset + i, inputOffset);
+            }
+        }
+
+        /**
+         * Builds the map, recording that the end of the output corresponds to the end of the input.
+         *
+         * @param outputLength the length of the transliterated text
+         * @param inputLength the length of the input text
+         * @return a new OffsetMap
+         */
+        public OffsetMap build(int outputLength, int inputLength) {
+            add(outputLength, inputLength);
+            return new OffsetMap(
+                    Arrays.copyOf(outputOffsets, size), Arrays.copyOf(inputOffsets, size), size);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package io.yosina;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * A table of big-endian records read from a {@code .data} resource and searched in place, without
+ * decoding the records into objects.
+ *
+ * <p>Each record starts with a key of two code points, the second being -1 for a single code point
+ * key. Records either have a fixed number of ints, or are length-prefixed: the key is followed by a
+ * count, that many ints, and a fixed number of trailing ints. Lookups are binary searches over the
+ * keys. When the records are of fixed width and already sorted, the table reads nothing at
+ * construction; otherwise it builds a single int array of record positions sorted by key.
+ *
+ * <p>Which representation the generated transliterators use is chosen once per JVM with the {@code
+ * io.yosina.tables} system property:
+ *
+ * <ul>
+ *   <li>{@code decoded} (the default) decodes the records into lookup structures, which makes
+ *       lookups fastest;
+ *   <li>{@code heap} keeps the resource bytes in a heap ByteBuffer and searches them in place,
+ *       which makes loading a table a single read;
+ *   <li>{@code direct} does the same with a direct ByteBuffer, keeping the bytes off the heap.
+ * </ul>
+ */
+public final class ResourceTable {
+    /** How the tables of the generated transliterators are represented. */
+    public enum Mode {
+        /** Records are decoded into lookup structures. */
+        DECODED,
+        /** Records are searched in place in a heap ByteBuffer. */
+        HEAP,
+        /** Records are searched in place in a direct ByteBuffer. */
+        DIRECT,
+    }
+
+    private static final Mode MODE = modeOf(System.getProperty("io.yosina.tables"));
+
+    private final ByteBuffer data;
+    // Byte positions of the records sorted by key, or null for fixed-width sorted records
+    private final int[] positions;
+    private final int recordBytes;
+    private final int size;
+
+    private ResourceTable(ByteBuffer data, int[] positions, int recordBytes, int size) {
+        this.data = data;
+        this.positions = positions;
+        this.recordBytes = recordBytes;
+        this.size = size;
+    }
+
+    static Mode modeOf(String value) {
+        if (value == null || value.isEmpty()) {
+            return Mode.DECODED;
+        }
+        try {
+            return Mode.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for io.yosina.tables: " + value, e);
+        }
+    }
+
+    /**
+     * Returns the representation selected by the {@code io.yosina.tables} system property.
+     *
+     * @return the table mode
+     */
+    public static Mode mode() {
+        return MODE;
+    }
+
+    /**
+     * Checks whether the generated transliterators search their resources in place.
+     *
+     * @return true unless the mode is {@link Mode#DECODED}
+     */
+    public static boolean isInPlace() {
+        return MODE != Mode.DECODED;
+    }
+
+    /**
+     * Reads a resource into a big-endian ByteBuffer with a single read. The buffer is direct if the
+     * mode is {@link Mode#DIRECT}.
+     *
+     * @param owner the class relative to which the resource is resolved
+     * @param name the name of the resource
+     * @return the contents of the resource
+     * @throws UncheckedIOException if the resource cannot be read
+     */
+    public static ByteBuffer load(Class<?> owner, String name) {
+        final byte[] bytes;
+        try (final InputStream s = owner.getResourceAsStream(name)) {
+            if (s == null) {
+                throw new UncheckedIOException(new IOException("Resource not found: " + name));
+            }
+            bytes = s.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final ByteBuffer b;
+        if (MODE == Mode.DIRECT) {
+            b = ByteBuffer.allocateDirect(bytes.length);
+            b.put(bytes).flip();
+        } else {
+            b = ByteBuffer.wrap(bytes);
+        }
+        return b.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates a table of records of a fixed number of ints.
+     *
+     * @param data the records
+     * @param recordInts the number of ints in a record, including the key
+     * @return a new table
+     */
+    public static ResourceTable ofFixed(ByteBuffer data, int recordInts) {
+        final int recordBytes = recordInts * 4;
+        final int size = data.remaining() / recordBytes;
+        final ByteBuffer b = data.slice().order(ByteOrder.BIG_ENDIAN);
+        for (int i = 1; i < size; i++) {
+            if (compare(
+                            b,
+                            (i - 1) * recordBytes,
+                            b.getInt(i * recordBytes),
+                            b.getInt(i * recordBytes + 4))
+                    > 0) {
+                final int[] positions = new int[size];
+                for (int j = 0; j < size; j++) {
+                    positions[j] = j * recordBytes;
+                }
+                return new ResourceTable(b, sort(b, positions), recordBytes, size);
+            }
+        }
+        return new ResourceTable(b, null, recordBytes, size);
+    }
+
+    /**
+     * Creates a table of length-prefixed records: a key, a count, that many ints, and then {@code
+     * trailerInts} more ints.
+     *
+     * @param data the records
+     * @param trailerInts the number of ints following the counted ones
+     * @return a new table
+     */
+    public static ResourceTable ofLengthPrefixed(ByteBuffer data, int trailerInts) {
+        final ByteBuffer b = data.slice().order(ByteOrder.BIG_ENDIAN);
+        int[] positions = new int[64];
+        int size = 0;
+        for (int p = 0, e = b.limit(); p < e; p += (3 + b.getInt(p + 8) + trailerInts) * 4) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = p;
+        }
+        return new ResourceTable(b, sort(b, Arrays.copyOf(positions, size)), 0, size);
+    }
+
+    private static int compare(ByteBuffer b, int position, int first, int second) {
+        final int c = Integer.compare(b.getInt(position), first);
+        return c != 0 ? c : Integer.compare(b.getInt(position + 4), second);
+    }
+
+    // Insertion sort; the tables that need sorting have a few hundred records at most
+    private static int[] sort(ByteBuffer b, int[] positions) {
+        for (int i = 1; i < positions.length; i++) {
+            final int p = positions[i];
+            final int first = b.getInt(p), second = b.getInt(p + 4);
+            int j = i - 1;
+            while (j >= 0 && compare(b, positions[j], first, second) > 0) {
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            positions[j + 1] = p;
+        }
+        return positions;
+    }
+
+    private int positionOf(int index) {
+        return positions != null ? positions[index] : index * recordBytes;
+    }
+
+    /**
+     * Finds the record with the specified key.
+     *
+     * @param first the first code point of the key
+     * @param second the second code point of the key, or -1
+     * @return a handle to the record for {@link #getInt(int, int)}, or -1 if there is none
+     */
+    public int find(int first, int second) {
+        if (first < 0) {
+            return -1;
+        }
+        if (second < 0) {
+            second = -1;
+        }
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int p = positionOf(mid);
+            final int c = compare(data, p, first, second);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads an int of a record following its key.
+     *
+     * @param record the handle returned by {@link #find(int, int)}
+     * @param index the index of the int after the key; for length-prefixed records, 0 is the count
+     * @return the int
+     */
+    public int getInt(int record, int index) {
+        return data.getInt(record + 8 + index * 4);
+    }
+
+    /**
+     * Returns the number of records in this table.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the code points that a character must contain to match a key of this table: the
+     * single code point keys and the second code points of the pairs.
+     *
+     * @return the key code points
+     */
+    public CodePointSet keyCodePoints() {
+        final CodePointSet.Builder builder = new CodePointSet.Builder();
+        for (int i = 0; i < size; i++) {
+            final int p = positionOf(i);
+            builder.addKey(data.getInt(p), data.getInt(p + 4));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a lookup that decodes the record found for a key into a value on each hit.
+     *
+     * @param <V> the type of the values
+     * @param decoder a function from a record handle to its value
+     * @return a lookup over this table
+     */
+    public <V> CodePointLookup<V> asLookup(IntFunction<V> decoder) {
+        return new CodePointLookup<V>() {
+            @Override
+            public V get(int first, int second) {
+                final int record = find(first, second);
+                return record >= 0 ? decoder.apply(record) : null;
+            }
+
+            @Override
+            public void forEach(BiConsumer<? super CodePointTuple, ? super V> action) {
+                for (int i = 0; i < size; i++) {
+                    final int p = positionOf(i);
+                    action.accept(
+                            CodePointTuple.of(data.getInt(p), data.getInt(p + 4)),
+                            decoder.apply(p));
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package io.yosina;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A transliterator that replaces each character on its own by looking it up in a table, whatever
+ * the characters around it. Characters that are not in the table are left as they are, and those
+ * mapped to an empty tuple are removed.
+ *
+ * <p>{@link ChainedTransliterator} composes the tables of consecutive table transliterators into a
+ * single one, so that a chain of them looks each character up once.
+ */
+public interface TableTransliterator extends ContextFreeTransliterator {
+    /**
+     * Returns the table of this transliterator. Its keys are single code points or pairs of code
+     * points, and are only matched by characters made of exactly those code points.
+     *
+     * @return the table
+     */
+    CodePointLookup<CodePointTuple> getTable();
+
+    @Override
+    default Object getReplacementsKey() {
+        return getTable();
+    }
+
+    @Override
+    default void forEachReplacement(
+            BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        getTable()
+                .forEach(
+                        (key, value) ->
+                                action.accept(
+                                        key,
+                                        value.isEmpty()
+                                                ? new CodePointTuple[0]
+                                                : new CodePointTuple[] {value}));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A table transliterator looks each character up in its table and returns the index of the
+     * first one it maps to something else.
+     */
+    @Override
+    default int mismatch(CharSequence text, int start, int end) {
+        final CodePointLookup<CodePointTuple> table = getTable();
+        for (int i = start; i < end; ) {
+            final int first = Character.codePointAt(text, i);
+            final int next = Chars.endOfChar(text, i, end);
+            final int afterFirst = i + Character.charCount(first);
+            final int second = next > afterFirst ? Character.codePointAt(text, afterFirst) : -1;
+            final CodePointTuple replacement = table.get(first, second);
+            if (replacement != null && !replacement.matches(first, second)) {
+                return i;
+            }
+            i = next;
+        }
+        return -1;
+    }
+}
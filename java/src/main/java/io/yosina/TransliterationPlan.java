@@ -0,0 +1,416 @@
+package io.yosina;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The steps that a list of transliterator configurations is run as, after the stages that provably
+ * make no difference to the output have been removed.
+ *
+ * <p>Only {@link ContextFreeTransliterator}s are removed, since what they do can be read off their
+ * replacements: a stage that repeats the stage right before it when applying that stage twice gives
+ * the same characters as applying it once, and a stage that replaces every character with itself.
+ * Such a stage still gives the characters it goes over a {@linkplain Char#hasSource() source},
+ * which a later stage {@linkplain Transliterator#readsProvenance() may look at}, so it is only
+ * removed if it gives no character a source, if an earlier stage that is kept already gives every
+ * character one, or if no later stage looks. The characters that come out of the plan are then the
+ * same as those of the stages one after another, down to whether each of them {@linkplain
+ * Char#isTransliterated() was transliterated}.
+ *
+ * <p>Stages are never moved past one another: consecutive context-free stages are already compiled
+ * into a single step in which their order costs nothing, and the others may look at any character
+ * around the ones they act on.
+ *
+ * <p>{@link #explain()} describes the steps with an estimate of what each one costs.
+ */
+public final class TransliterationPlan {
+    // Lookups per character that a stage looking at the characters around it is estimated to take
+    private static final int CONTEXT_DEPENDENT_COST = 3;
+
+    // What is known of the replacements of the context-free transliterators seen so far
+    private static final ConcurrentMap<List<Object>, Boolean> changesNothing =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<Object>, Boolean> idempotent =
+            new ConcurrentHashMap<>();
+
+    /** How a step runs. */
+    public enum Kind {
+        /** Consecutive context-free stages compiled into a single transducer or table. */
+        COMPILED,
+        /** A single stage that replaces each character on its own. */
+        CONTEXT_FREE,
+        /** A single stage that looks at the characters around each one. */
+        CONTEXT_DEPENDENT
+    }
+
+    /** A step of a plan, made of one stage or of consecutive context-free stages. */
+    public static final class Step {
+        private final Kind kind;
+        private final List<String> names;
+        private final int affectedCodePointCount;
+
+        private Step(Kind kind, List<String> names, int affectedCodePointCount) {
+            this.kind = kind;
+            this.names = List.copyOf(names);
+            this.affectedCodePointCount = affectedCodePointCount;
+        }
+
+        /**
+         * Gets how this step runs.
+         *
+         * @return the kind of the step
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Gets the names of the stages in this step, in the order they are applied.
+         *
+         * @return the names of the transliterators
+         */
+        public List<String> getNames() {
+            return names;
+        }
+
+        /**
+         * Gets the number of code points that this step may act on. The fewer there are, the more
+         * of a text is skipped without running the step at all.
+         *
+         * @return the number of affected code points
+         */
+        public int getAffectedCodePointCount() {
+            return affectedCodePointCount;
+        }
+
+        /**
+         * Gets the estimated number of lookups this step takes for each character it runs over. It
+         * is 1 for a step that looks each character up once, however many stages it is made of.
+         *
+         * @return the estimated cost per character
+         */
+        public int getEstimatedCost() {
+            return kind == Kind.CONTEXT_DEPENDENT ? CONTEXT_DEPENDENT_COST : 1;
+        }
+
+        @Override
+        public String toString() {
+            return (names.size() == 1 ? names.get(0) : names.toString())
+                    + ": "
+                    + kind.name().toLowerCase().replace('_', '-')
+                    + ", estimated cost "
+                    + getEstimatedCost()
+                    + ", "
+                    + affectedCodePointCount
+                    + " affected code points";
+        }
+    }
+
+    /** A stage removed from a plan, and why. */
+    public static final class RemovedStage {
+        private final int index;
+        private final String name;
+        private final String reason;
+
+        private RemovedStage(int index, String name, String reason) {
+            this.index = index;
+            this.name = name;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the position of the stage in the configurations the plan was made of.
+         *
+         * @return the index of the stage
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the name of the transliterator of the stage.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets why the stage makes no difference to the output.
+         *
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " " + name + ": " + reason;
+        }
+    }
+
+    private final List<Transliterator> transliterators;
+    private final List<Step> steps;
+    private final List<RemovedStage> removedStages;
+    private final int stageCount;
+
+    private TransliterationPlan(List<String> names, List<Transliterator> stages) {
+        final List<String> keptNames = new ArrayList<>();
+        final List<Transliterator> kept = new ArrayList<>();
+        final List<RemovedStage> removed = new ArrayList<>();
+        // Whether some stage from each index on may tell a character given a source from one that
+        // is not
+        final boolean[] provenanceRead = new boolean[stages.size() + 1];
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            provenanceRead[i] = provenanceRead[i + 1] || stages.get(i).readsProvenance();
+        }
+        // Whether a stage that is kept gives every character a source
+        boolean sourcesGiven = false;
+        for (int i = 0; i < stages.size(); i++) {
+            final Transliterator stage = stages.get(i);
+            if (!(stage instanceof ContextFreeTransliterator)) {
+                keptNames.add(names.get(i));
+                kept.add(stage);
+                continue;
+            }
+            final ContextFreeTransliterator contextFree = (ContextFreeTransliterator) stage;
+            if (changesNothing(contextFree)
+                    && (givesNoSource(contextFree) || sourcesGiven || !provenanceRead[i + 1])) {
+                removed.add(new RemovedStage(i, names.get(i), "changes nothing"));
+                continue;
+            }
+            final Transliterator previous = kept.isEmpty() ? null : kept.get(kept.size() - 1);
+            if (previous instanceof ContextFreeTransliterator
+                    && sameReplacements((ContextFreeTransliterator) previous, contextFree)
+                    && isIdempotent(contextFree)) {
+                removed.add(new RemovedStage(i, names.get(i), "repeats the stage before it"));
+                continue;
+            }
+            keptNames.add(names.get(i));
+            kept.add(stage);
+            sourcesGiven |= contextFree.wrapsUnmappedChars();
+        }
+        this.transliterators = List.copyOf(kept);
+        this.steps = groupSteps(keptNames, kept);
+        this.removedStages = List.copyOf(removed);
+        this.stageCount = stages.size();
+    }
+
+    /**
+     * Makes the plan for a list of transliterator configurations.
+     *
+     * @param configs the configurations, in the order they are applied
+     * @return the plan
+     * @throws IllegalArgumentException if a transliterator is unknown or its options do not fit
+     */
+    public static TransliterationPlan of(List<Yosina.TransliteratorConfig> configs) {
+        final List<String> names = new ArrayList<>(configs.size());
+        final List<Transliterator> stages = new ArrayList<>(configs.size());
+        for (Yosina.TransliteratorConfig config : configs) {
+            names.add(config.getName());
+            stages.add(Yosina.createTransliterator(config.getName(), config.getOptions()));
+        }
+        return new TransliterationPlan(names, stages);
+    }
+
+    /**
+     * Makes the plan for a recipe.
+     *
+     * @param recipe the recipe
+     * @return the plan
+     * @throws IllegalArgumentException if the recipe contains mutually exclusive options
+     */
+    public static TransliterationPlan of(TransliterationRecipe recipe) {
+        return of(recipe.buildTransliteratorConfigs());
+    }
+
+    static TransliterationPlan of(List<String> names, List<Transliterator> stages) {
+        return new TransliterationPlan(names, stages);
+    }
+
+    private static List<Step> groupSteps(List<String> names, List<Transliterator> stages) {
+        final List<Step> steps = new ArrayList<>();
+        int i = 0;
+        while (i < stages.size()) {
+            if (!(stages.get(i) instanceof ContextFreeTransliterator)) {
+                steps.add(
+                        new Step(
+                                Kind.CONTEXT_DEPENDENT,
+                                List.of(names.get(i)),
+                                stages.get(i).getAffectedCodePoints().size()));
+                i++;
+                continue;
+            }
+            final int start = i;
+            CodePointSet affected = CodePointSet.EMPTY;
+            while (i < stages.size() && stages.get(i) instanceof ContextFreeTransliterator) {
+                affected = affected.union(stages.get(i).getAffectedCodePoints());
+                i++;
+            }
+            steps.add(
+                    new Step(
+                            i - start > 1 ? Kind.COMPILED : Kind.CONTEXT_FREE,
+                            names.subList(start, i),
+                            affected.size()));
+        }
+        return List.copyOf(steps);
+    }
+
+    private static List<Object> keyOf(ContextFreeTransliterator transliterator) {
+        final Object replacementsKey = transliterator.getReplacementsKey();
+        return replacementsKey != null ? List.of(transliterator.getClass(), replacementsKey) : null;
+    }
+
+    private static boolean sameReplacements(
+            ContextFreeTransliterator a, ContextFreeTransliterator b) {
+        if (a == b) {
+            return true;
+        }
+        final List<Object> key = keyOf(a);
+        return key != null && key.equals(keyOf(b));
+    }
+
+    // Characters are only given a source by a replacement, or on the way through if the
+    // transliterator wraps them
+    private static boolean givesNoSource(ContextFreeTransliterator transliterator) {
+        return !transliterator.wrapsUnmappedChars()
+                && transliterator.getAffectedCodePoints().isEmpty();
+    }
+
+    private static boolean changesNothing(ContextFreeTransliterator transliterator) {
+        if (transliterator.getAffectedCodePoints().isEmpty()) {
+            return true;
+        }
+        final List<Object> key = keyOf(transliterator);
+        if (key == null) {
+            return findChangesNothing(transliterator);
+        }
+        return changesNothing.computeIfAbsent(key, k -> findChangesNothing(transliterator));
+    }
+
+    private static boolean findChangesNothing(ContextFreeTransliterator transliterator) {
+        if (transliterator.replacesUnmappedPairsWithFirst()) {
+            return false;
+        }
+        final boolean[] changes = new boolean[1];
+        transliterator.forEachReplacement(
+                (k, vs) -> {
+                    if (vs.length != 1 || !vs[0].equals(k)) {
+                        changes[0] = true;
+                    }
+                });
+        return !changes[0];
+    }
+
+    private static boolean isIdempotent(ContextFreeTransliterator transliterator) {
+        final List<Object> key = keyOf(transliterator);
+        if (key == null) {
+            return findIdempotent(transliterator);
+        }
+        return idempotent.computeIfAbsent(key, k -> findIdempotent(transliterator));
+    }
+
+    // Applying the replacements twice gives what applying them once does if nothing they put out
+    // is replaced again
+    private static boolean findIdempotent(ContextFreeTransliterator transliterator) {
+        final Map<CodePointTuple, CodePointTuple[]> replacements = new HashMap<>();
+        transliterator.forEachReplacement(replacements::put);
+        final boolean dropsSeconds = transliterator.replacesUnmappedPairsWithFirst();
+        for (Map.Entry<CodePointTuple, CodePointTuple[]> entry : replacements.entrySet()) {
+            final CodePointTuple[] vs = entry.getValue();
+            final boolean changes = vs.length != 1 || !vs[0].equals(entry.getKey());
+            // An unmapped pair comes out as its first code point, which is then looked up
+            if (dropsSeconds && entry.getKey().size() == 1 && changes) {
+                return false;
+            }
+            for (CodePointTuple v : vs) {
+                final CodePointTuple[] again = replacements.get(v);
+                if (again != null) {
+                    if (again.length != 1 || !again[0].equals(v)) {
+                        return false;
+                    }
+                } else if (dropsSeconds && v.size() == 2) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the steps of this plan, in the order they are applied.
+     *
+     * @return the steps
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Gets the stages that were removed because they make no difference to the output.
+     *
+     * @return the removed stages, in the order of the configurations
+     */
+    public List<RemovedStage> getRemovedStages() {
+        return removedStages;
+    }
+
+    /**
+     * Gets the estimated number of lookups the plan takes for each character it runs over, the sum
+     * of the {@linkplain Step#getEstimatedCost() estimated costs} of its steps.
+     *
+     * @return the estimated cost per character
+     */
+    public int getEstimatedCost() {
+        int cost = 0;
+        for (Step step : steps) {
+            cost += step.getEstimatedCost();
+        }
+        return cost;
+    }
+
+    /**
+     * Creates the transliterator that runs this plan. A stage is only removed with the stages of
+     * this plan in view, so the chain is not meant to be followed by stages that {@linkplain
+     * Transliterator#readsProvenance() look at where characters come from}.
+     *
+     * @return a chain of the stages that were kept
+     */
+    public ChainedTransliterator toTransliterator() {
+        return new ChainedTransliterator(transliterators);
+    }
+
+    /**
+     * Describes the steps of this plan, one per line, with the estimated cost and the number of
+     * affected code points of each, followed by the stages that were removed.
+     *
+     * @return the description
+     */
+    public String explain() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(stageCount)
+                .append(" stages in ")
+                .append(steps.size())
+                .append(" steps, estimated cost ")
+                .append(getEstimatedCost())
+                .append(" lookups per character\n");
+        for (int i = 0; i < steps.size(); i++) {
+            sb.append("  ").append(i + 1).append(". ").append(steps.get(i)).append('\n');
+        }
+        for (RemovedStage stage : removedStages) {
+            sb.append("  removed ").append(stage).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
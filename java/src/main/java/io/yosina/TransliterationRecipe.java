@@ -12,6 +12,7 @@ import io.yosina.transliterators.Jisx0201AndAlikeTransliterator;
 import io.yosina.transliterators.ProlongedSoundMarksTransliterator;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -270,6 +271,19 @@ public class TransliterationRecipe {
         public List<Mapping> getPrecedence() {
             return precedence;
         }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            ReplaceHyphensOptions options = (ReplaceHyphensOptions) obj;
+            return enabled == options.enabled && Objects.equals(precedence, options.precedence);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(enabled, precedence);
+        }
     }
 
     /** Mode for converting historical hiragana and katakana characters. */
@@ -314,6 +328,7 @@ public class TransliterationRecipe {
     private ToHalfwidthOptions toHalfwidth = ToHalfwidthOptions.DISABLED;
     private RemoveIvsSvsOptions removeIvsSvs = RemoveIvsSvsOptions.DISABLED;
     private Charset charset = Charset.UNIJIS_2004;
+    private boolean trackProvenance = true;
 
     // Builder methods
     /**
@@ -749,6 +764,19 @@ public class TransliterationRecipe {
         return this;
     }
 
+    /**
+     * Enables or disables provenance tracking while transliterating. When disabled, intermediate
+     * characters don't keep references to the characters they are derived from, which reduces the
+     * memory held per character. The output is the same either way.
+     *
+     * @param trackProvenance true to keep the chain of source characters, false to drop it
+     * @return this recipe instance for method chaining
+     */
+    public TransliterationRecipe withTrackProvenance(boolean trackProvenance) {
+        this.trackProvenance = trackProvenance;
+        return this;
+    }
+
     // Getters
     /**
      * Checks if old-to-new kanji conversion is enabled.
@@ -930,6 +958,83 @@ public class TransliterationRecipe {
         return charset;
     }
 
+    /**
+     * Checks if provenance tracking is enabled.
+     *
+     * @return true if intermediate characters keep references to their sources, false otherwise
+     */
+    public boolean isTrackProvenance() {
+        return trackProvenance;
+    }
+
+    // Options other than ReplaceHyphensOptions only have the instances in their constants, so they
+    // are compared by identity
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        TransliterationRecipe recipe = (TransliterationRecipe) obj;
+        return kanjiOldNew == recipe.kanjiOldNew
+                && Objects.equals(hiraKata, recipe.hiraKata)
+                && replaceJapaneseIterationMarks == recipe.replaceJapaneseIterationMarks
+                && replaceSuspiciousHyphensToProlongedSoundMarks
+                        == recipe.replaceSuspiciousHyphensToProlongedSoundMarks
+                && replaceCombinedCharacters == recipe.replaceCombinedCharacters
+                && replaceCircledOrSquaredCharacters == recipe.replaceCircledOrSquaredCharacters
+                && replaceIdeographicAnnotations == recipe.replaceIdeographicAnnotations
+                && replaceRadicals == recipe.replaceRadicals
+                && replaceSpaces == recipe.replaceSpaces
+                && replaceHyphens.equals(recipe.replaceHyphens)
+                && replaceMathematicalAlphanumerics == recipe.replaceMathematicalAlphanumerics
+                && replaceRomanNumerals == recipe.replaceRomanNumerals
+                && replaceArchaicHirakatas == recipe.replaceArchaicHirakatas
+                && replaceSmallHirakatas == recipe.replaceSmallHirakatas
+                && combineDecomposedHiraganasAndKatakanas
+                        == recipe.combineDecomposedHiraganasAndKatakanas
+                && convertHistoricalHirakatas == recipe.convertHistoricalHirakatas
+                && toFullwidth == recipe.toFullwidth
+                && toHalfwidth == recipe.toHalfwidth
+                && removeIvsSvs == recipe.removeIvsSvs
+                && charset == recipe.charset
+                && trackProvenance == recipe.trackProvenance;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                kanjiOldNew,
+                hiraKata,
+                replaceJapaneseIterationMarks,
+                replaceSuspiciousHyphensToProlongedSoundMarks,
+                replaceCombinedCharacters,
+                replaceCircledOrSquaredCharacters,
+                replaceIdeographicAnnotations,
+                replaceRadicals,
+                replaceSpaces,
+                replaceHyphens,
+                replaceMathematicalAlphanumerics,
+                replaceRomanNumerals,
+                replaceArchaicHirakatas,
+                replaceSmallHirakatas,
+                combineDecomposedHiraganasAndKatakanas,
+                convertHistoricalHirakatas,
+                toFullwidth,
+                toHalfwidth,
+                removeIvsSvs,
+                charset,
+                trackProvenance);
+    }
+
+    /**
+     * Describes the steps that this recipe is run as, with the estimated cost of each.
+     *
+     * @return the description given by {@link TransliterationPlan#explain()}
+     * @throws IllegalArgumentException if the recipe contains mutually exclusive options
+     */
+    public String explain() {
+        return TransliterationPlan.of(this).explain();
+    }
+
     /**
      * Build transliterator configurations from this recipe.
      *
@@ -10,4 +10,35 @@ public interface Transliterator {
      * @return the transliterated character iterator
      */
     CharIterator transliterate(CharIterator input);
+
+    /**
+     * Returns the code points this transliterator may act on. A character is affected when any of
+     * its code points is in the set; the transliterator must leave every other character as it is.
+     * What it does with an affected character may depend on at most one unaffected character on
+     * either side of it, such as the kana before a prolonged sound mark. {@link
+     * ChainedTransliterator} relies on this to pass runs of unaffected characters through without
+     * running the transliterator over them.
+     *
+     * <p>The default implementation returns {@link CodePointSet#ALL}, which never lets characters
+     * be skipped.
+     *
+     * @return the set of code points that may be affected
+     */
+    default CodePointSet getAffectedCodePoints() {
+        return CodePointSet.ALL;
+    }
+
+    /**
+     * Returns whether what this transliterator puts out may depend on whether the characters it
+     * reads were derived from others, as told by {@link Char#hasSource()} and {@link
+     * Char#isTransliterated()}, and not only on the characters themselves. {@link
+     * TransliterationPlan} relies on this to tell whether a stage before this one can be removed.
+     *
+     * <p>The default implementation returns true, which keeps every such stage.
+     *
+     * @return true if the output may depend on where the characters come from
+     */
+    default boolean readsProvenance() {
+        return true;
+    }
 }
@@ -1,18 +1,13 @@
 package io.yosina;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import io.yosina.transliterators.TransliteratorFactory;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /** Main entry point for the Yosina Japanese text transliteration library. */
@@ -72,11 +67,24 @@ public class Yosina {
             this.name = name;
             this.options = Optional.empty();
         }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            TransliteratorConfig config = (TransliteratorConfig) obj;
+            return name.equals(config.name) && options.equals(config.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, options);
+        }
     }
 
-    private static final String TRANSLITERATORS_PACKAGE_REL = "transliterators";
-    private static final String TRANSLITERATORS_MANIFEST_NAME = "TRANSLITERATORS";
-    private static volatile Map<String, Class<Transliterator>> registeredTransliterators;
+    private static final ChainCache chainCache =
+            new ChainCache(
+                    ChainCache.maximumSizeOf(System.getProperty("io.yosina.chainCacheSize")));
 
     /**
      * Creates a string-to-string transliterator function from a list of configurations.
@@ -85,17 +93,91 @@ public class Yosina {
      * @return a function that applies the chained transliterations to input strings
      */
     public static Function<String, String> makeTransliterator(List<TransliteratorConfig> configs) {
-        List<Transliterator> transliterators = new ArrayList<>();
+        return makeTransliterator(configs, true);
+    }
 
-        for (TransliteratorConfig config : configs) {
-            Transliterator transliterator =
-                    createTransliterator(config.getName(), config.getOptions());
-            transliterators.add(transliterator);
-        }
+    /**
+     * Creates a string-to-string transliterator function from a list of configurations.
+     *
+     * @param configs the list of transliterator configurations to chain together
+     * @param trackProvenance false to run the chain without keeping references from each
+     *     intermediate character to its source (see {@link Char#detached(CodePointTuple, int)})
+     * @return a function that applies the chained transliterations to input strings
+     */
+    public static Function<String, String> makeTransliterator(
+            List<TransliteratorConfig> configs, boolean trackProvenance) {
+        return makeFunction(makeChain(configs), trackProvenance);
+    }
+
+    /**
+     * Creates a transliterator function from a list of configurations that also reports where each
+     * part of the output comes from in the input.
+     *
+     * @param configs the list of transliterator configurations to chain together
+     * @return a function that applies the chained transliterations to input strings and returns the
+     *     result together with an {@link OffsetMap}
+     */
+    public static Function<String, MappedText> makeMappingTransliterator(
+            List<TransliteratorConfig> configs) {
+        return makeMappingFunction(makeChain(configs));
+    }
+
+    /**
+     * Creates a transliterator function from a recipe that also reports where each part of the
+     * output comes from in the input.
+     *
+     * @param recipe The recipe specifying which transliterations to apply
+     * @return a function that applies the configured transliterations to input strings and returns
+     *     the result together with an {@link OffsetMap}
+     */
+    public static Function<String, MappedText> makeMappingTransliteratorFromRecipe(
+            TransliterationRecipe recipe) {
+        return makeMappingTransliterator(recipe.buildTransliteratorConfigs());
+    }
 
-        ChainedTransliterator chained = new ChainedTransliterator(transliterators);
+    /**
+     * Creates a transliterator function from a list of configurations that also reports which spans
+     * of the input it changed. Input that is left unchanged is returned as the same String with no
+     * spans.
+     *
+     * @param configs the list of transliterator configurations to chain together
+     * @return a function that applies the chained transliterations to input strings and returns the
+     *     result together with the changed spans
+     */
+    public static Function<String, EditedText> makeEditingTransliterator(
+            List<TransliteratorConfig> configs) {
+        return makeEditingFunction(makeChain(configs));
+    }
 
-        return (String input) -> chained.transliterate(Chars.of(input).iterator()).string();
+    /**
+     * Creates a transliterator function from a recipe that also reports which spans of the input it
+     * changed.
+     *
+     * @param recipe The recipe specifying which transliterations to apply
+     * @return a function that applies the configured transliterations to input strings and returns
+     *     the result together with the changed spans
+     */
+    public static Function<String, EditedText> makeEditingTransliteratorFromRecipe(
+            TransliterationRecipe recipe) {
+        return makeEditingTransliterator(recipe.buildTransliteratorConfigs());
+    }
+
+    /**
+     * Gets the cache of the chains built from lists of configurations, which the functions created
+     * from configurations and recipes share.
+     *
+     * @return the chain cache
+     */
+    public static ChainCache getChainCache() {
+        return chainCache;
+    }
+
+    private static ChainedTransliterator makeChain(List<TransliteratorConfig> configs) {
+        return chainCache.get(configs, Yosina::buildChain);
+    }
+
+    private static ChainedTransliterator buildChain(List<TransliteratorConfig> configs) {
+        return TransliterationPlan.of(configs).toTransliterator();
     }
 
     /**
@@ -108,7 +190,7 @@ public class Yosina {
     public static Function<String, String> makeTransliterator(
             String name, Optional<Object> options) {
         final Transliterator transliterator = createTransliterator(name, options);
-        return (String input) -> transliterator.transliterate(Chars.of(input).iterator()).string();
+        return makeFunction(transliterator, true);
     }
 
     /**
@@ -141,119 +223,281 @@ public class Yosina {
     public static Function<String, String> makeTransliteratorFromRecipe(
             TransliterationRecipe recipe) {
         List<TransliteratorConfig> configs = recipe.buildTransliteratorConfigs();
-        return makeTransliterator(configs);
+        return makeTransliterator(configs, recipe.isTrackProvenance());
+    }
+
+    /**
+     * Checks whether a text is already what a recipe turns it into, stopping as soon as some part
+     * of it is found to change. The result is the same as comparing the text with the output of
+     * {@link #makeTransliteratorFromRecipe(TransliterationRecipe)}.
+     *
+     * @param recipe The recipe specifying which transliterations to apply
+     * @param text the text to check
+     * @return true if transliterating the text with the recipe leaves it as it is
+     */
+    public static boolean isNormalized(TransliterationRecipe recipe, CharSequence text) {
+        return makeChain(recipe.buildTransliteratorConfigs()).leavesUnchanged(text);
+    }
+
+    /**
+     * Creates a predicate that checks whether a text is already what a recipe turns it into. Unlike
+     * {@link #isNormalized(TransliterationRecipe, CharSequence)}, it creates the transliterators
+     * only once.
+     *
+     * @param recipe The recipe specifying which transliterations to apply
+     * @return a predicate that is true of the texts that transliterating leaves as they are
+     */
+    public static Predicate<CharSequence> makeNormalizationCheckFromRecipe(
+            TransliterationRecipe recipe) {
+        return makeChain(recipe.buildTransliteratorConfigs())::leavesUnchanged;
     }
 
-    private static Map<String, Class<Transliterator>> getRegisteredTransliteratorsInner()
-            throws IOException {
-        final Map<String, Class<Transliterator>> transliterators = new HashMap<>();
-        final String manifestPath =
-                TRANSLITERATORS_PACKAGE_REL + "/" + TRANSLITERATORS_MANIFEST_NAME;
-        final InputStream s = Yosina.class.getResourceAsStream(manifestPath);
-        if (s == null) {
-            throw new RuntimeException("No transliterators manifest found under " + manifestPath);
+    /**
+     * Wraps a transliterator into a string-to-string function, running it over primitive {@link
+     * CodePointBuffer}s when it supports them and over {@link Char} objects otherwise. On the
+     * buffer path only the part of the input from where the transliterator may first change it is
+     * decoded and transliterated.
+     */
+    private static Function<String, String> makeFunction(
+            Transliterator transliterator, boolean trackProvenance) {
+        // Text without any code point the transliterator may act on is returned as it is
+        final CodePointSet affected = transliterator.getAffectedCodePoints();
+        if (ChainedTransliterator.supportsBuffers(transliterator)) {
+            final BufferTransliterator bufferTransliterator = (BufferTransliterator) transliterator;
+            return (String input) -> {
+                if (!affected.containsAny(input)) {
+                    return input;
+                }
+                final int from = bufferTransliterator.mismatch(input, 0, input.length());
+                if (from < 0) {
+                    return input;
+                }
+                final CodePointBuffer in = decodeFrom(input, from);
+                final CodePointBuffer out = new CodePointBuffer(in.size());
+                bufferTransliterator.transliterate(in, 0, in.size(), out);
+                return out.contentEquals(in) ? input : textFrom(input, from, out);
+            };
         }
-        try (s) {
-            final BufferedReader r = new BufferedReader(new InputStreamReader(s));
-            for (String line; (line = r.readLine()) != null; ) {
-                final String[] elems = line.stripTrailing().split("\\s+");
-                if (elems.length != 2) {
+        return (String input) -> {
+            if (!affected.containsAny(input)) {
+                return input;
+            }
+            final StringBuilder sb =
+                    transliterator
+                            .transliterate(
+                                    new Chars.OfCharSequence(input, trackProvenance).iterator())
+                            .appendTo(new StringBuilder(input.length()));
+            return input.contentEquals(sb) ? input : sb.toString();
+        };
+    }
+
+    /**
+     * Wraps a transliterator into a function that builds an {@link OffsetMap} while writing the
+     * output. On the buffer path the original offsets are carried by the buffers, and the part of
+     * the input before where the transliterator may first change it is copied as it is; on the Char
+     * path they are found at the end of each character's source chain.
+     */
+    private static Function<String, MappedText> makeMappingFunction(Transliterator transliterator) {
+        if (ChainedTransliterator.supportsBuffers(transliterator)) {
+            final BufferTransliterator bufferTransliterator = (BufferTransliterator) transliterator;
+            return (String input) -> {
+                final int from = bufferTransliterator.mismatch(input, 0, input.length());
+                if (from < 0) {
+                    return new MappedText(
+                            input, new OffsetMap.Builder().build(input.length(), input.length()));
+                }
+                final CodePointBuffer in = decodeFrom(input, from);
+                final CodePointBuffer out = new CodePointBuffer(in.size());
+                bufferTransliterator.transliterate(in, 0, in.size(), out);
+                // The characters before are their own output, which needs no offsets
+                final StringBuilder sb = new StringBuilder(input.length()).append(input, 0, from);
+                final OffsetMap.Builder offsets = new OffsetMap.Builder();
+                for (int i = 0; i < out.size(); i++) {
+                    final int outputOffset = sb.length();
+                    final int inputOffset = out.offset(i);
+                    sb.appendCodePoint(out.first(i));
+                    if (out.second(i) >= 0) {
+                        sb.appendCodePoint(out.second(i));
+                    }
+                    offsets.add(
+                            outputOffset,
+                            sb.length() - outputOffset,
+                            inputOffset,
+                            Chars.endOfChar(input, inputOffset, input.length()) - inputOffset);
+                }
+                return new MappedText(sb.toString(), offsets.build(sb.length(), input.length()));
+            };
+        }
+        return (String input) -> {
+            final CharIterator result =
+                    transliterator.transliterate(new Chars.OfCharSequence(input, true).iterator());
+            final StringBuilder sb = new StringBuilder(input.length());
+            final OffsetMap.Builder offsets = new OffsetMap.Builder();
+            while (result.hasNext()) {
+                final Char c = result.next();
+                if (c.isSentinel()) {
                     continue;
                 }
-                try {
-                    @SuppressWarnings("unchecked")
-                    final Class<Transliterator> class_ =
-                            (Class<Transliterator>) Class.forName(elems[1]);
-                    if (!Transliterator.class.isAssignableFrom(class_)) {
+                Char origin = c;
+                while (origin.getSource() != null) {
+                    origin = origin.getSource();
+                }
+                offsets.add(
+                        sb.length(),
+                        c.get().charCount(),
+                        origin.getOffset(),
+                        origin.get().charCount());
+                c.get().appendTo(sb);
+            }
+            return new MappedText(sb.toString(), offsets.build(sb.length(), input.length()));
+        };
+    }
+
+    /**
+     * Wraps a transliterator into a function that compares the output with the input to find the
+     * spans it changed. The output is collected into a {@link CodePointBuffer} together with the
+     * original offset of each character, on the Char path from the end of its source chain. On the
+     * buffer path only the part of the input from where the transliterator may first change it is
+     * transliterated and compared.
+     */
+    private static Function<String, EditedText> makeEditingFunction(Transliterator transliterator) {
+        final CodePointSet affected = transliterator.getAffectedCodePoints();
+        final boolean buffers = ChainedTransliterator.supportsBuffers(transliterator);
+        return (String input) -> {
+            if (!affected.containsAny(input)) {
+                return new EditedText(input, List.of());
+            }
+            final int from;
+            final CodePointBuffer in, out;
+            if (buffers) {
+                final BufferTransliterator bufferTransliterator =
+                        (BufferTransliterator) transliterator;
+                from = bufferTransliterator.mismatch(input, 0, input.length());
+                if (from < 0) {
+                    return new EditedText(input, List.of());
+                }
+                in = decodeFrom(input, from);
+                out = new CodePointBuffer(in.size());
+                bufferTransliterator.transliterate(in, 0, in.size(), out);
+            } else {
+                from = 0;
+                in = CodePointBuffer.of(input);
+                out = new CodePointBuffer(in.size());
+                final CharIterator result =
+                        transliterator.transliterate(
+                                new Chars.OfCharSequence(input, true).iterator());
+                while (result.hasNext()) {
+                    final Char c = result.next();
+                    if (c.isSentinel()) {
                         continue;
                     }
-                    transliterators.put(elems[0], class_);
-                } catch (ClassNotFoundException e) {
-                    continue;
+                    Char origin = c;
+                    while (origin.getSource() != null) {
+                        origin = origin.getSource();
+                    }
+                    out.append(c.get(), origin.getOffset());
+                }
+            }
+            final List<EditedText.Span> spans = findChangedSpans(input.length(), from, in, out);
+            return new EditedText(spans.isEmpty() ? input : textFrom(input, from, out), spans);
+        };
+    }
+
+    // Decodes the part of a text from an index on, keeping the offsets in the whole text
+    private static CodePointBuffer decodeFrom(String input, int from) {
+        final CodePointBuffer in = new CodePointBuffer(input.length() - from);
+        in.appendText(input, from, input.length());
+        return in;
+    }
+
+    // Puts the part of a text before an index back in front of the output for the rest of it
+    private static String textFrom(String input, int from, CodePointBuffer out) {
+        return out.appendTo(new StringBuilder(input.length()).append(input, 0, from)).toString();
+    }
+
+    /**
+     * Finds the spans of the input that were changed. Each input character is matched with the
+     * output characters that come from it, and is unchanged if that is exactly one character with
+     * the same code points; the spans are the runs of input characters that are not. The buffers
+     * may start from some offset of the input, before which the output is the input as it is.
+     */
+    private static List<EditedText.Span> findChangedSpans(
+            int inputLength, int start, CodePointBuffer in, CodePointBuffer out) {
+        final List<EditedText.Span> spans = new ArrayList<>();
+        int spanInput = -1, spanOutput = -1;
+        int j = 0, outputOffset = start;
+        for (int i = 0, n = in.size(); i < n; i++) {
+            final int inputOffset = in.offset(i);
+            final int nextInputOffset = i + 1 < n ? in.offset(i + 1) : Integer.MAX_VALUE;
+            final int from = j, fromOutputOffset = outputOffset;
+            while (j < out.size() && out.offset(j) < nextInputOffset) {
+                outputOffset += Character.charCount(out.first(j));
+                if (out.second(j) >= 0) {
+                    outputOffset += Character.charCount(out.second(j));
                 }
+                j++;
             }
+            final boolean unchanged =
+                    j - from == 1
+                            && out.first(from) == in.first(i)
+                            && out.second(from) == in.second(i);
+            if (unchanged) {
+                if (spanInput >= 0) {
+                    spans.add(
+                            new EditedText.Span(
+                                    spanInput, inputOffset, spanOutput, fromOutputOffset));
+                    spanInput = -1;
+                }
+            } else if (spanInput < 0) {
+                spanInput = inputOffset;
+                spanOutput = fromOutputOffset;
+            }
+        }
+        if (spanInput >= 0) {
+            spans.add(new EditedText.Span(spanInput, inputLength, spanOutput, outputOffset));
         }
-        return transliterators;
+        return spans;
     }
 
     /**
      * Returns a map of all registered transliterators.
      *
      * @return an unmodifiable map where keys are transliterator names and values are their classes
-     * @throws RuntimeException if failed to load the transliterators manifest
      */
+    @SuppressWarnings("unchecked")
     public static Map<String, Class<Transliterator>> getRegisteredTransliterators() {
-        if (registeredTransliterators != null) {
-            return registeredTransliterators;
-        }
-        try {
-            registeredTransliterators =
-                    Collections.unmodifiableMap(getRegisteredTransliteratorsInner());
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load registered transliterators", e);
-        }
-        return registeredTransliterators;
+        // Every value is a class of a transliterator, so the map can be viewed as this type
+        return (Map<String, Class<Transliterator>>) (Map<?, ?>) TransliteratorFactory.getClasses();
     }
 
-    private static Transliterator createTransliterator(String name, Optional<Object> options) {
-        Class<Transliterator> class_ = getRegisteredTransliterators().get(name);
-        if (class_ == null) {
+    static Transliterator createTransliterator(String name, Optional<Object> options) {
+        final Transliterator transliterator =
+                TransliteratorFactory.create(name, options.orElse(null));
+        if (transliterator != null) {
+            return transliterator;
+        }
+        if (!TransliteratorFactory.getClasses().containsKey(name)) {
             throw new IllegalArgumentException(
                     "Unknown transliterator: "
                             + name
                             + " (available: "
-                            + getRegisteredTransliterators().keySet().stream()
-                                    .collect(Collectors.joining(", "))
+                            + String.join(", ", TransliteratorFactory.getClasses().keySet())
                             + ")");
         }
-        final Constructor<?>[] ctors = class_.getConstructors();
-        final List<Class<?>> otherCandidates = new ArrayList<>();
-
         if (options.isEmpty()) {
-            // If no options are provided, try to find a default constructor
-            for (Constructor<?> ctor : ctors) {
-                if (ctor.getParameterCount() == 0) {
-                    try {
-                        return (Transliterator) ctor.newInstance();
-                    } catch (InstantiationException
-                            | IllegalAccessException
-                            | InvocationTargetException e) {
-                        throw new RuntimeException("Failed to create transliterator: " + name, e);
-                    }
-                }
-            }
             throw new IllegalArgumentException(
                     "Transliterator " + name + " has no default constructor");
-        } else {
-            final Object options_ = options.get();
-            // First try to find a constructor with a parameters
-            for (Constructor<?> ctor : ctors) {
-                final Class<?>[] paramTypes = ctor.getParameterTypes();
-                if (paramTypes.length != 1) {
-                    continue; // We only care about single-parameter constructors
-                }
-                if (paramTypes[0].isAssignableFrom(options_.getClass())) {
-                    try {
-                        return (Transliterator) ctor.newInstance(options_);
-                    } catch (Exception e) {
-                        throw new RuntimeException(
-                                "Failed to create transliterator with options: " + name, e);
-                    }
-                } else {
-                    otherCandidates.add(paramTypes[0]);
-                }
-            }
-            throw new IllegalArgumentException(
-                    "Transliterator "
-                            + name
-                            + " has a constructor(s) with a single parameter"
-                            + " that take(s) "
-                            + otherCandidates.stream()
-                                    .map(Class::getName)
-                                    .collect(Collectors.joining(", "))
-                            + ", but type "
-                            + options.getClass().getName()
-                            + " was provided as the options");
         }
+        throw new IllegalArgumentException(
+                "Transliterator "
+                        + name
+                        + " has a constructor(s) with a single parameter"
+                        + " that take(s) "
+                        + TransliteratorFactory.getOptionsClasses().get(name).stream()
+                                .map(Class::getName)
+                                .collect(Collectors.joining(", "))
+                        + ", but type "
+                        + options.get().getClass().getName()
+                        + " was provided as the options");
     }
 }
@@ -0,0 +1,135 @@
+package io.yosina.transliterators;
+
+import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
+import io.yosina.CodePointTuple;
+import io.yosina.TableTransliterator;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A single table transliterator that does what a sequence of table transliterators does one after
+ * another. Its table maps every key of any of the tables to what the sequence turns it into, so a
+ * character is looked up once instead of once per table.
+ */
+public final class ComposedTableTransliterator implements TableTransliterator {
+    // Composed once per distinct sequence of tables and way of passing characters through; empty if
+    // the tables cannot be composed
+    private static final ConcurrentMap<List<Object>, Optional<Composed>> composedTables =
+            new ConcurrentHashMap<>();
+
+    private static final class Composed {
+        private final CodePointTrie<CodePointTuple> table;
+        private final CodePointSet affectedCodePoints;
+
+        Composed(CodePointTrie<CodePointTuple> table) {
+            this.table = table;
+            this.affectedCodePoints = table.keyCodePoints();
+        }
+    }
+
+    private final Composed composed;
+    private final boolean wrapsUnmapped;
+
+    private ComposedTableTransliterator(Composed composed, boolean wrapsUnmapped) {
+        this.composed = composed;
+        this.wrapsUnmapped = wrapsUnmapped;
+    }
+
+    /**
+     * Composes a sequence of table transliterators into one.
+     *
+     * <p>The composed transliterator produces the same characters at the same offsets as the
+     * sequence. A character is only reported as {@linkplain io.yosina.Char#isTransliterated()
+     * transliterated} when it differs from the one it comes from, so the tables are not composed if
+     * some character would be changed and then changed back. A character that no table maps is
+     * given a {@linkplain io.yosina.Char#hasSource() source} only if some of the transliterators
+     * {@linkplain io.yosina.ContextFreeTransliterator#wrapsUnmappedChars() do so}.
+     *
+     * @param transliterators the transliterators, in the order they are applied
+     * @return the composed transliterator, or empty if the tables cannot be composed
+     */
+    public static Optional<ComposedTableTransliterator> of(
+            List<? extends TableTransliterator> transliterators) {
+        final List<CodePointLookup<CodePointTuple>> tables =
+                new ArrayList<>(transliterators.size());
+        boolean wrapsUnmapped = false;
+        for (TableTransliterator transliterator : transliterators) {
+            tables.add(transliterator.getTable());
+            wrapsUnmapped |= transliterator.wrapsUnmappedChars();
+        }
+        final boolean wraps = wrapsUnmapped;
+        return composedTables
+                .computeIfAbsent(List.of(List.copyOf(tables), wraps), k -> compose(tables, wraps))
+                .map(composed -> new ComposedTableTransliterator(composed, wraps));
+    }
+
+    private static Optional<Composed> compose(
+            List<CodePointLookup<CodePointTuple>> tables, boolean wrapsUnmapped) {
+        // A character that is not a key of any table goes through all of them unchanged
+        final Set<CodePointTuple> keys = new LinkedHashSet<>();
+        for (CodePointLookup<CodePointTuple> table : tables) {
+            table.forEach((key, value) -> keys.add(key));
+        }
+        final CodePointTrie.Builder<CodePointTuple> builder = new CodePointTrie.Builder<>();
+        for (CodePointTuple key : keys) {
+            CodePointTuple c = key;
+            boolean changed = false;
+            for (CodePointLookup<CodePointTuple> table : tables) {
+                if (c.isEmpty()) {
+                    break;
+                }
+                final CodePointTuple replacement = table.get(c);
+                if (replacement != null) {
+                    changed |= !replacement.equals(c);
+                    c = replacement;
+                }
+            }
+            if (c.equals(key)) {
+                if (changed) {
+                    return Optional.empty();
+                }
+                // A key mapped to itself is still given a source, which a character passed
+                // through as is would not be
+                if (wrapsUnmapped) {
+                    continue;
+                }
+            }
+            builder.put(key, c);
+        }
+        return Optional.of(new Composed(builder.build()));
+    }
+
+    @Override
+    public CodePointLookup<CodePointTuple> getTable() {
+        return composed.table;
+    }
+
+    @Override
+    public CharIterator transliterate(CharIterator input) {
+        return new SimpleCharIterator(input, composed.table, wrapsUnmapped);
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        SimpleCharIterator.transliterate(input, start, end, output, composed.table);
+    }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return composed.affectedCodePoints;
+    }
+
+    @Override
+    public boolean wrapsUnmappedChars() {
+        return wrapsUnmapped;
+    }
+}
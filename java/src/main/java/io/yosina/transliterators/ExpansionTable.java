@@ -0,0 +1,264 @@
+package io.yosina.transliterators;
+
+import io.yosina.Char;
+import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
+import io.yosina.CodePointTuple;
+import io.yosina.ResourceTable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Replacements of single characters with sequences of code points, shared by the transliterators
+ * that expand one character into several.
+ *
+ * <p>The sequences are length-prefixed records stored back to back in a single int array, and a key
+ * is looked up to the index of its record. In the in-place table mode, the records of the resource
+ * are read where they are instead. Either way, characters are expanded by reading the code points
+ * straight out of the records, without building any intermediate list.
+ */
+final class ExpansionTable {
+    // Length-prefixed sequences of code points, or null for a table searched in place
+    private final int[] arena;
+    // The index of the record of each key in the arena
+    private final CodePointLookup<Integer> index;
+    // The resource searched in place, or null
+    private final ResourceTable table;
+    private final CodePointSet keyCodePoints;
+
+    private ExpansionTable(CodePointTrie<Integer> index, int[] arena) {
+        this.arena = arena;
+        this.index = index;
+        this.table = null;
+        this.keyCodePoints = index.keyCodePoints();
+    }
+
+    private ExpansionTable(ResourceTable table) {
+        this.arena = null;
+        this.index = null;
+        this.table = table;
+        this.keyCodePoints = table.keyCodePoints();
+    }
+
+    /**
+     * Creates a table over a resource of length-prefixed records without trailing ints, searched in
+     * place.
+     *
+     * @param table the resource table
+     * @return the expansion table
+     */
+    static ExpansionTable inPlace(ResourceTable table) {
+        return new ExpansionTable(table);
+    }
+
+    /**
+     * Decodes a resource of length-prefixed records without trailing ints: two ints for the key,
+     * the number of code points and the code points.
+     *
+     * @param b the resource
+     * @return the expansion table
+     */
+    static ExpansionTable decode(ByteBuffer b) {
+        // The records only lose their keys, so the arena is sized from the resource alone
+        final int[] arena = new int[b.remaining() / 4];
+        final CodePointTrie.Builder<Integer> index = new CodePointTrie.Builder<>();
+        int size = 0;
+        while (b.hasRemaining()) {
+            final int key1 = b.getInt(), key2 = b.getInt();
+            final int length = b.getInt();
+            index.put(key1, key2, size);
+            arena[size++] = length;
+            for (int i = 0; i < length; i++) {
+                arena[size++] = b.getInt();
+            }
+        }
+        return new ExpansionTable(index.build(), Arrays.copyOf(arena, size));
+    }
+
+    /** A builder of expansion tables. */
+    static final class Builder {
+        private int[] arena = new int[256];
+        private int size = 0;
+        private final CodePointTrie.Builder<Integer> index = new CodePointTrie.Builder<>();
+
+        /**
+         * Maps a key to the code points of a string. Empty strings are not mapped, so that the
+         * character is left as it is.
+         *
+         * @param first the first code point of the key
+         * @param second the second code point of the key, or -1
+         * @param replacement the replacement
+         * @return this builder
+         */
+        Builder put(int first, int second, CharSequence replacement) {
+            final int length = Character.codePointCount(replacement, 0, replacement.length());
+            if (length == 0) {
+                return this;
+            }
+            if (size + 1 + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, size + 1 + length));
+            }
+            index.put(first, second, size);
+            arena[size++] = length;
+            for (int i = 0; i < replacement.length(); ) {
+                final int cp = Character.codePointAt(replacement, i);
+                arena[size++] = cp;
+                i += Character.charCount(cp);
+            }
+            return this;
+        }
+
+        /**
+         * Builds the table.
+         *
+         * @return the expansion table
+         */
+        ExpansionTable build() {
+            return new ExpansionTable(index.build(), Arrays.copyOf(arena, size));
+        }
+    }
+
+    /**
+     * Returns the code points that a character must contain to match a key of this table.
+     *
+     * @return the key code points
+     */
+    CodePointSet keyCodePoints() {
+        return keyCodePoints;
+    }
+
+    /**
+     * Performs an action for each key and the characters it expands to, one code point each.
+     *
+     * @param action the action
+     */
+    void forEach(BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        final CodePointLookup<Integer> records = table != null ? table.asLookup(r -> r) : index;
+        records.forEach(
+                (key, record) -> {
+                    final CodePointTuple[] expansion = new CodePointTuple[length(record)];
+                    for (int i = 0; i < expansion.length; i++) {
+                        expansion[i] = CodePointTuple.of(codePointAt(record, i));
+                    }
+                    action.accept(key, expansion);
+                });
+    }
+
+    private int find(int first, int second) {
+        if (table != null) {
+            return table.find(first, second);
+        }
+        final Integer record = index.get(first, second);
+        return record != null ? record : -1;
+    }
+
+    private int find(CodePointTuple c) {
+        switch (c.size()) {
+            case 1:
+                return find(c.get(0), -1);
+            case 2:
+                return find(c.get(0), c.get(1));
+            default:
+                return -1;
+        }
+    }
+
+    private int length(int record) {
+        return table != null ? table.getInt(record, 0) : arena[record];
+    }
+
+    private int codePointAt(int record, int i) {
+        return table != null ? table.getInt(record, i + 1) : arena[record + 1 + i];
+    }
+
+    /**
+     * Expands the characters of an iterator.
+     *
+     * @param input the input characters
+     * @return the expanded characters
+     */
+    CharIterator transliterate(CharIterator input) {
+        return new ExpandingCharIterator(input, this);
+    }
+
+    /**
+     * Expands a range of characters of a buffer.
+     *
+     * @param input the input buffer
+     * @param start the index of the first character to expand
+     * @param end the index after the last character to expand
+     * @param output the buffer to append the expanded characters to
+     */
+    void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            final int record = find(input.first(i), input.second(i));
+            if (record >= 0) {
+                final int offset = input.offset(i);
+                final int length = length(record);
+                for (int j = 0; j < length; j++) {
+                    output.append(codePointAt(record, j), -1, offset);
+                }
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
+
+    private static final class ExpandingCharIterator implements CharIterator {
+        private final CharIterator input;
+        private final ExpansionTable expansions;
+        // The character being expanded, its record, and the number of code points left to emit
+        private Char source;
+        private int record;
+        private int index = 0;
+        private int length = 0;
+
+        ExpandingCharIterator(CharIterator input, ExpansionTable expansions) {
+            this.input = input;
+            this.expansions = expansions;
+        }
+
+        @Override
+        public Char next() {
+            if (index < length) {
+                return expanded();
+            }
+
+            if (!input.hasNext()) {
+                return null;
+            }
+
+            final Char ch = input.next();
+            if (ch.isSentinel()) {
+                return ch;
+            }
+
+            final int found = expansions.find(ch.get());
+            if (found < 0) {
+                return ch;
+            }
+            source = ch;
+            record = found;
+            index = 0;
+            length = expansions.length(found);
+            return expanded();
+        }
+
+        private Char expanded() {
+            final int i = index++;
+            return new Char(
+                    CodePointTuple.of(expansions.codePointAt(record, i)),
+                    source.getOffset() + i,
+                    source);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < length || input.hasNext();
+        }
+    }
+}
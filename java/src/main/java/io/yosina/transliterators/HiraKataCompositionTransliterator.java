@@ -1,7 +1,10 @@
 package io.yosina.transliterators;
 
+import io.yosina.BufferTransliterator;
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
 import io.yosina.Transliterator;
 import io.yosina.annotations.RegisteredTransliterator;
@@ -9,7 +12,7 @@ import java.util.NoSuchElementException;
 
 /** Transliterator for combining hiragana and katakana with voiced/semi-voiced marks. */
 @RegisteredTransliterator(name = "hira-kata-composition")
-public class HiraKataCompositionTransliterator implements Transliterator {
+public class HiraKataCompositionTransliterator implements Transliterator, BufferTransliterator {
     private static final int VOICED = 1;
     private static final int SEMI_VOICED = 2;
 
@@ -94,6 +97,11 @@ public class HiraKataCompositionTransliterator implements Transliterator {
         }
     }
 
+    private static final CodePointSet COMBINING_MARKS =
+            new CodePointSet.Builder().addRange(0x3099, 0x309a).build();
+    private static final CodePointSet ALL_MARKS =
+            new CodePointSet.Builder().addRange(0x3099, 0x309c).build();
+
     private final Options options;
 
     /** Creates a new HiraKataCompositionTransliterator with default options. */
@@ -122,6 +130,62 @@ public class HiraKataCompositionTransliterator implements Transliterator {
         return new HiraKataCompositionCharIterator(input, options);
     }
 
+    /**
+     * Returns the sound marks that get composed. The characters they are composed with are the
+     * single character of context before each of them.
+     *
+     * @return the affected code points
+     */
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return options.composeNonCombiningMarks ? ALL_MARKS : COMBINING_MARKS;
+    }
+
+    @Override
+    public boolean readsProvenance() {
+        return false;
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            if (input.second(i) < 0 && i + 1 < end) {
+                final long cc = canBeComposed(input.first(i));
+                if (cc != 0) {
+                    final int m =
+                            input.second(i + 1) < 0 ? isSoundMark(input.first(i + 1), options) : 0;
+                    final int composed = ((int) (cc >>> (64 - 24 * m))) & 0xffff;
+                    if (composed != 0) {
+                        output.append(composed, -1, input.offset(i));
+                        i++;
+                        continue;
+                    }
+                }
+            }
+            output.append(input, i);
+        }
+    }
+
+    private static long canBeComposed(int codePoint) {
+        final int i = codePoint - 0x3000;
+        if (i < 0 || i >= compositionTable.length) {
+            return 0;
+        }
+        return compositionTable[i];
+    }
+
+    private static int isSoundMark(int codePoint, Options options) {
+        final int flags = JapaneseCharClass.of(codePoint);
+        // Halfwidth marks are left to the jisx0201-and-alike transliterator
+        if ((flags & (JapaneseCharClass.SOUND_MARK | JapaneseCharClass.HALFWIDTH))
+                        != JapaneseCharClass.SOUND_MARK
+                || ((flags & JapaneseCharClass.COMBINING) == 0
+                        && !options.composeNonCombiningMarks)) {
+            return 0;
+        }
+        return (flags & JapaneseCharClass.VOICED) != 0 ? VOICED : SEMI_VOICED;
+    }
+
     private static class HiraKataCompositionCharIterator implements CharIterator {
         private final CharIterator input;
         private final Options options;
@@ -137,31 +201,14 @@ public class HiraKataCompositionTransliterator implements Transliterator {
             if (c.size() != 1) {
                 return 0;
             }
-            final int codePoint = c.get(0);
-            final int i = codePoint - 0x3000;
-            if (i < 0 || i >= compositionTable.length) {
-                return 0;
-            }
-            return compositionTable[i];
+            return HiraKataCompositionTransliterator.canBeComposed(c.get(0));
         }
 
         private int isSoundMark(CodePointTuple c) {
             if (c.size() != 1) {
                 return 0;
             }
-            final int codePoint = c.get(0);
-            switch (codePoint) {
-                case 0x3099: // U+3099 (combining voiced sound mark)
-                    return VOICED;
-                case 0x309a: // U+309A (combining semi-voiced sound mark)
-                    return SEMI_VOICED;
-                case 0x309b: // U+309B (non-combining voiced sound mark)
-                    return options.composeNonCombiningMarks ? VOICED : 0;
-                case 0x309c: // U+309C (non-combining semi-voiced sound mark)
-                    return options.composeNonCombiningMarks ? SEMI_VOICED : 0;
-                default:
-                    return 0;
-            }
+            return HiraKataCompositionTransliterator.isSoundMark(c.get(0), options);
         }
 
         @Override
@@ -2,15 +2,18 @@ package io.yosina.transliterators;
 
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.TableTransliterator;
 import io.yosina.annotations.RegisteredTransliterator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
 
 /** Transliterator for converting between Hiragana and Katakana scripts. */
 @RegisteredTransliterator(name = "hira-kata")
-public class HiraKataTransliterator implements Transliterator {
+public class HiraKataTransliterator implements TableTransliterator {
     /** Options for configuring the behavior of HiraKataTransliterator. */
     public static class Options {
         private final Mode mode;
@@ -40,12 +43,45 @@ public class HiraKataTransliterator implements Transliterator {
         public Mode getMode() {
             return mode;
         }
-    }
 
-    // Class-level cache for mapping tables (package-private for testing)
-    static final Map<Options.Mode, Map<Integer, Integer>> mappingCache = new HashMap<>();
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Options options = (Options) obj;
+            return mode == options.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(mode);
+        }
+    }
 
-    private final Map<Integer, Integer> mappingTable;
+    // The tables cover the hiraganas and katakanas in U+3040-30FF, followed by the small kanas of
+    // the Small Kana Extension in U+1B130-1B16F
+    private static final int KANA_START = 0x3040;
+    private static final int KANA_SIZE = 0xc0;
+    private static final int SMALL_KANA_EXTENSION_START = 0x1b130;
+    private static final int SMALL_KANA_EXTENSION_SIZE = 0x40;
+    private static final int TABLE_SIZE = KANA_SIZE + SMALL_KANA_EXTENSION_SIZE;
+
+    // Built once when the class is loaded and never modified afterwards; each entry is the
+    // converted code point, or 0 if the code point is not converted
+    private static final int[] HIRA_TO_KATA_TABLE = buildMappingTable(Options.Mode.HIRA_TO_KATA);
+    private static final int[] KATA_TO_HIRA_TABLE = buildMappingTable(Options.Mode.KATA_TO_HIRA);
+    private static final CodePointSet HIRA_TO_KATA_KEYS = keysOf(HIRA_TO_KATA_TABLE);
+    private static final CodePointSet KATA_TO_HIRA_KEYS = keysOf(KATA_TO_HIRA_TABLE);
+    // The same tables as tries, for composing them with other tables
+    private static final CodePointTrie<CodePointTuple> HIRA_TO_KATA_TRIE =
+            trieOf(HIRA_TO_KATA_TABLE);
+    private static final CodePointTrie<CodePointTuple> KATA_TO_HIRA_TRIE =
+            trieOf(KATA_TO_HIRA_TABLE);
+
+    // The table for the mode of this instance (package-private for testing)
+    final int[] mappingTable;
+    private final CodePointTrie<CodePointTuple> trie;
+    private final CodePointSet affectedCodePoints;
 
     /**
      * Creates a new HiraKataTransliterator with the specified options.
@@ -53,7 +89,15 @@ public class HiraKataTransliterator implements Transliterator {
      * @param options the transliterator options
      */
     public HiraKataTransliterator(Options options) {
-        this.mappingTable = getMappingTable(options.getMode());
+        if (options.getMode() == Options.Mode.HIRA_TO_KATA) {
+            this.mappingTable = HIRA_TO_KATA_TABLE;
+            this.trie = HIRA_TO_KATA_TRIE;
+            this.affectedCodePoints = HIRA_TO_KATA_KEYS;
+        } else {
+            this.mappingTable = KATA_TO_HIRA_TABLE;
+            this.trie = KATA_TO_HIRA_TRIE;
+            this.affectedCodePoints = KATA_TO_HIRA_KEYS;
+        }
     }
 
     /** Default constructor uses hira-to-kata mode. */
@@ -61,14 +105,8 @@ public class HiraKataTransliterator implements Transliterator {
         this(new Options(Options.Mode.HIRA_TO_KATA));
     }
 
-    private static synchronized Map<Integer, Integer> getMappingTable(Options.Mode mode) {
-        // Check cache first
-        Map<Integer, Integer> cached = mappingCache.get(mode);
-        if (cached != null) {
-            return cached;
-        }
-
-        Map<Integer, Integer> mapping = new HashMap<>();
+    private static int[] buildMappingTable(Options.Mode mode) {
+        final int[] table = new int[TABLE_SIZE];
 
         // Main table mappings
         for (HiraKataTable.HiraKataEntry entry : HiraKataTable.HIRAGANA_KATAKANA_TABLE) {
@@ -77,20 +115,20 @@ public class HiraKataTransliterator implements Transliterator {
                 HiraKataTable.HiraKata kata = entry.katakana;
 
                 if (mode == Options.Mode.HIRA_TO_KATA) {
-                    mapping.put(hira.base, kata.base);
+                    put(table, hira.base, kata.base);
                     if (hira.voiced >= 0 && kata.voiced >= 0) {
-                        mapping.put(hira.voiced, kata.voiced);
+                        put(table, hira.voiced, kata.voiced);
                     }
                     if (hira.semivoiced >= 0 && kata.semivoiced >= 0) {
-                        mapping.put(hira.semivoiced, kata.semivoiced);
+                        put(table, hira.semivoiced, kata.semivoiced);
                     }
                 } else {
-                    mapping.put(kata.base, hira.base);
+                    put(table, kata.base, hira.base);
                     if (kata.voiced >= 0 && hira.voiced >= 0) {
-                        mapping.put(kata.voiced, hira.voiced);
+                        put(table, kata.voiced, hira.voiced);
                     }
                     if (kata.semivoiced >= 0 && hira.semivoiced >= 0) {
-                        mapping.put(kata.semivoiced, hira.semivoiced);
+                        put(table, kata.semivoiced, hira.semivoiced);
                     }
                 }
             }
@@ -99,15 +137,65 @@ public class HiraKataTransliterator implements Transliterator {
         // Small character mappings
         for (HiraKataTable.SmallKanaEntry entry : HiraKataTable.HIRAGANA_KATAKANA_SMALL_TABLE) {
             if (mode == Options.Mode.HIRA_TO_KATA) {
-                mapping.put(entry.hiragana, entry.katakana);
+                put(table, entry.hiragana, entry.katakana);
             } else {
-                mapping.put(entry.katakana, entry.hiragana);
+                put(table, entry.katakana, entry.hiragana);
             }
         }
+        return table;
+    }
 
-        // Cache the result
-        mappingCache.put(mode, mapping);
-        return mapping;
+    private static void put(int[] table, int from, int to) {
+        final int index = indexOf(from);
+        if (index < 0 || to <= 0) {
+            throw new IllegalStateException(
+                    String.format("Mapping out of range: U+%04X to U+%04X", from, to));
+        }
+        table[index] = to;
+    }
+
+    private static CodePointSet keysOf(int[] table) {
+        final CodePointSet.Builder keys = new CodePointSet.Builder();
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            if (table[i] != 0) {
+                keys.add(codePointAt(i));
+            }
+        }
+        return keys.build();
+    }
+
+    private static CodePointTrie<CodePointTuple> trieOf(int[] table) {
+        final CodePointTrie.Builder<CodePointTuple> trie = new CodePointTrie.Builder<>();
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            if (table[i] != 0) {
+                trie.put(codePointAt(i), -1, CodePointTuple.of(table[i]));
+            }
+        }
+        return trie.build();
+    }
+
+    private static int codePointAt(int index) {
+        return index < KANA_SIZE
+                ? KANA_START + index
+                : SMALL_KANA_EXTENSION_START + index - KANA_SIZE;
+    }
+
+    private static int indexOf(int codePoint) {
+        if (codePoint - KANA_START >= 0 && codePoint - KANA_START < KANA_SIZE) {
+            return codePoint - KANA_START;
+        }
+        final int index = codePoint - SMALL_KANA_EXTENSION_START;
+        return index >= 0 && index < SMALL_KANA_EXTENSION_SIZE ? KANA_SIZE + index : -1;
+    }
+
+    private static int lookup(int[] table, int codePoint) {
+        final int index = indexOf(codePoint);
+        return index >= 0 ? table[index] : 0;
+    }
+
+    @Override
+    public CodePointLookup<CodePointTuple> getTable() {
+        return trie;
     }
 
     @Override
@@ -123,10 +211,8 @@ public class HiraKataTransliterator implements Transliterator {
                 Char ch = inputChars.next();
                 CodePointTuple tuple = ch.get();
                 if (tuple.size() == 1) {
-                    int codePoint = tuple.get(0);
-                    Integer mapped = mappingTable.get(codePoint);
-
-                    if (mapped != null) {
+                    final int mapped = lookup(mappingTable, tuple.get(0));
+                    if (mapped != 0) {
                         return new Char(CodePointTuple.of(mapped), ch.getOffset(), ch);
                     }
                 }
@@ -134,4 +220,28 @@ public class HiraKataTransliterator implements Transliterator {
             }
         };
     }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints;
+    }
+
+    @Override
+    public boolean wrapsUnmappedChars() {
+        return false;
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            if (input.second(i) < 0) {
+                final int mapped = lookup(mappingTable, input.first(i));
+                if (mapped != 0) {
+                    output.append(mapped, -1, input.offset(i));
+                    continue;
+                }
+            }
+            output.append(input, i);
+        }
+    }
 }
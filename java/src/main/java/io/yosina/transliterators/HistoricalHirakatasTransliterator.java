@@ -1,7 +1,10 @@
 package io.yosina.transliterators;
 
+import io.yosina.BufferTransliterator;
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
 import io.yosina.Transliterator;
 import io.yosina.annotations.RegisteredTransliterator;
@@ -44,7 +47,7 @@ import java.util.Objects;
  * </ul>
  */
 @RegisteredTransliterator(name = "historical-hirakatas")
-public class HistoricalHirakatasTransliterator implements Transliterator {
+public class HistoricalHirakatasTransliterator implements Transliterator, BufferTransliterator {
 
     /** Conversion mode for historical kana characters. */
     public enum ConversionMode {
@@ -195,6 +198,15 @@ public class HistoricalHirakatasTransliterator implements Transliterator {
     // VU prefix is emitted separately; these are just the small vowel suffixes.
     private static final int VU_KATAKANA = 0x30F4; // ヴ
     private static final int U_KATAKANA = 0x30A6; // ウ
+
+    // The historical kana, and the dakuten that may follow a decomposed voiced base
+    private static final CodePointSet AFFECTED_CODE_POINTS =
+            new CodePointSet.Builder()
+                    .addRange(WI_HIRAGANA, WE_HIRAGANA)
+                    .addRange(WI_KATAKANA, WE_KATAKANA)
+                    .addRange(VA_KATAKANA, VO_KATAKANA)
+                    .add(COMBINING_DAKUTEN)
+                    .build();
     private static final CodePointTuple VU_TUPLE = CodePointTuple.of(VU_KATAKANA);
     private static final CodePointTuple U_TUPLE = CodePointTuple.of(U_KATAKANA);
 
@@ -255,6 +267,117 @@ public class HistoricalHirakatasTransliterator implements Transliterator {
         return new HistoricalHirakatasCharIterator(input, options);
     }
 
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return AFFECTED_CODE_POINTS;
+    }
+
+    @Override
+    public boolean readsProvenance() {
+        return false;
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            if (input.second(i) >= 0) {
+                output.append(input, i);
+                continue;
+            }
+            final int codePoint = input.first(i);
+
+            // Lookahead: peek at next char for combining dakuten
+            if (i + 1 < end && input.second(i + 1) < 0 && input.first(i + 1) == COMBINING_DAKUTEN) {
+                final int vowel = getDecomposedVowel(codePoint);
+                if (vowel != -1 && options.voicedKatakanas == ConversionMode.DECOMPOSE) {
+                    // decompose mode: emit U + dakuten + vowel
+                    output.append(U_KATAKANA, -1, input.offset(i));
+                    output.append(input, i + 1);
+                    output.append(vowel, -1, input.offset(i));
+                    i++;
+                } else {
+                    // the dakuten is handled on its own in the next round
+                    output.append(input, i);
+                }
+                continue;
+            }
+
+            final CodePointTuple replacement = getReplacement(codePoint, options);
+            if (replacement != null) {
+                output.append(replacement, input.offset(i));
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
+
+    private static CodePointTuple getReplacement(int codePoint, Options options) {
+        switch (codePoint) {
+            // Historical hiragana
+            case WI_HIRAGANA:
+                return getHistoricalHiraganaReplacement(
+                        SIMPLE_I_HIRAGANA, DECOMPOSE_WI_HIRAGANA, options);
+            case WE_HIRAGANA:
+                return getHistoricalHiraganaReplacement(
+                        SIMPLE_E_HIRAGANA, DECOMPOSE_WE_HIRAGANA, options);
+
+            // Historical katakana
+            case WI_KATAKANA:
+                return getHistoricalKatakanaReplacement(
+                        SIMPLE_I_KATAKANA, DECOMPOSE_WI_KATAKANA, options);
+            case WE_KATAKANA:
+                return getHistoricalKatakanaReplacement(
+                        SIMPLE_E_KATAKANA, DECOMPOSE_WE_KATAKANA, options);
+
+            // Voiced historical katakana
+            case VA_KATAKANA:
+            case VI_KATAKANA:
+            case VE_KATAKANA:
+            case VO_KATAKANA:
+                return getVoicedHistoricalReplacement(codePoint, options);
+
+            default:
+                return null;
+        }
+    }
+
+    private static CodePointTuple getHistoricalHiraganaReplacement(
+            CodePointTuple simple, CodePointTuple decompose, Options options) {
+        switch (options.hiraganas) {
+            case SIMPLE:
+                return simple;
+            case DECOMPOSE:
+                return decompose;
+            case SKIP:
+            default:
+                return null;
+        }
+    }
+
+    private static CodePointTuple getHistoricalKatakanaReplacement(
+            CodePointTuple simple, CodePointTuple decompose, Options options) {
+        switch (options.katakanas) {
+            case SIMPLE:
+                return simple;
+            case DECOMPOSE:
+                return decompose;
+            case SKIP:
+            default:
+                return null;
+        }
+    }
+
+    private static CodePointTuple getVoicedHistoricalReplacement(int codePoint, Options options) {
+        if (options.voicedKatakanas != ConversionMode.DECOMPOSE) {
+            return null;
+        }
+        int vowel = getVoicedVowel(codePoint);
+        if (vowel == -1) {
+            return null;
+        }
+        return CodePointTuple.of(VU_KATAKANA, vowel);
+    }
+
     private static class HistoricalHirakatasCharIterator implements CharIterator {
         private final CharIterator input;
         private final Options options;
@@ -338,7 +461,7 @@ public class HistoricalHirakatasTransliterator implements Transliterator {
                 }
             }
 
-            final CodePointTuple replacement = getReplacement(codePoint);
+            final CodePointTuple replacement = getReplacement(codePoint, options);
 
             if (replacement != null) {
                 Char result = new Char(replacement, offset, c);
@@ -350,72 +473,5 @@ public class HistoricalHirakatasTransliterator implements Transliterator {
             offset += result.charCount();
             return result;
         }
-
-        private CodePointTuple getReplacement(int codePoint) {
-            switch (codePoint) {
-                // Historical hiragana
-                case WI_HIRAGANA:
-                    return getHistoricalHiraganaReplacement(
-                            SIMPLE_I_HIRAGANA, DECOMPOSE_WI_HIRAGANA);
-                case WE_HIRAGANA:
-                    return getHistoricalHiraganaReplacement(
-                            SIMPLE_E_HIRAGANA, DECOMPOSE_WE_HIRAGANA);
-
-                // Historical katakana
-                case WI_KATAKANA:
-                    return getHistoricalKatakanaReplacement(
-                            SIMPLE_I_KATAKANA, DECOMPOSE_WI_KATAKANA);
-                case WE_KATAKANA:
-                    return getHistoricalKatakanaReplacement(
-                            SIMPLE_E_KATAKANA, DECOMPOSE_WE_KATAKANA);
-
-                // Voiced historical katakana
-                case VA_KATAKANA:
-                case VI_KATAKANA:
-                case VE_KATAKANA:
-                case VO_KATAKANA:
-                    return getVoicedHistoricalReplacement(codePoint);
-
-                default:
-                    return null;
-            }
-        }
-
-        private CodePointTuple getHistoricalHiraganaReplacement(
-                CodePointTuple simple, CodePointTuple decompose) {
-            switch (options.hiraganas) {
-                case SIMPLE:
-                    return simple;
-                case DECOMPOSE:
-                    return decompose;
-                case SKIP:
-                default:
-                    return null;
-            }
-        }
-
-        private CodePointTuple getHistoricalKatakanaReplacement(
-                CodePointTuple simple, CodePointTuple decompose) {
-            switch (options.katakanas) {
-                case SIMPLE:
-                    return simple;
-                case DECOMPOSE:
-                    return decompose;
-                case SKIP:
-                default:
-                    return null;
-            }
-        }
-
-        private CodePointTuple getVoicedHistoricalReplacement(int codePoint) {
-            if (options.voicedKatakanas != ConversionMode.DECOMPOSE) {
-                return null;
-            }
-            int vowel = getVoicedVowel(codePoint);
-            if (vowel == -1) {
-                return null;
-            }
-            return CodePointTuple.of(VU_KATAKANA, vowel);
-        }
     }
 }
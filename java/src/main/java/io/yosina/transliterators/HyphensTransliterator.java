@@ -2,13 +2,20 @@ package io.yosina.transliterators;
 
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.ContextFreeTransliterator;
 import io.yosina.annotations.RegisteredTransliterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
 class HyphensRecord {
     private CodePointTuple code;
@@ -60,8 +67,9 @@ class HyphensRecord {
 
 /** Auto-generated transliterator for hyphens. */
 @RegisteredTransliterator(name = "hyphens")
-public class HyphensTransliterator implements Transliterator {
+public class HyphensTransliterator implements ContextFreeTransliterator {
     private static final Map<CodePointTuple, HyphensRecord> mappings;
+    private static final CodePointSet affectedCodePoints;
 
     static {
         final Map<CodePointTuple, HyphensRecord> mappings_ = new TreeMap<>();
@@ -469,11 +477,16 @@ public class HyphensTransliterator implements Transliterator {
                         new CodePointTuple[] {CodePointTuple.of(0xFF5C)},
                         null));
         mappings = mappings_;
+        final CodePointSet.Builder affectedCodePoints_ = new CodePointSet.Builder();
+        for (final CodePointTuple key : mappings_.keySet()) {
+            affectedCodePoints_.addKey(key.get(0), key.size() > 1 ? key.get(1) : -1);
+        }
+        affectedCodePoints = affectedCodePoints_.build();
     }
 
     private static class HyphenCharIterator implements CharIterator {
         private final CharIterator input;
-        private final List<Mapping> precedence;
+        private final CodePointLookup<CodePointTuple[]> table;
         private int offset = 0;
         private Char source = null;
         private CodePointTuple[] buf = null;
@@ -508,82 +521,25 @@ public class HyphensTransliterator implements Transliterator {
                 return null;
             }
 
-            final HyphensRecord replacement = mappings.get(c.get());
-            if (replacement != null) {
-                for (final Mapping m : precedence) {
-                    switch (m) {
-                        case ASCII:
-                            {
-                                final CodePointTuple[] cts = replacement.getAscii();
-                                if (cts.length > 1) {
-                                    buf = cts;
-                                    bufOffset = 1;
-                                    source = c;
-                                }
-                                final CodePointTuple ct = cts[0];
-                                final Char result = new Char(ct, offset, c);
-                                offset += result.charCount();
-                                return result;
-                            }
-                        case JISX0201:
-                            {
-                                final CodePointTuple[] cts = replacement.getJisx0201();
-                                if (cts.length > 1) {
-                                    buf = cts;
-                                    bufOffset = 1;
-                                    source = c;
-                                }
-                                final CodePointTuple ct = cts[0];
-                                final Char result = new Char(ct, offset, c);
-                                offset += result.charCount();
-                                return result;
-                            }
-                        case JISX0208_90:
-                            {
-                                final CodePointTuple[] cts = replacement.getJisx0208_1978();
-                                if (cts.length > 1) {
-                                    buf = cts;
-                                    bufOffset = 1;
-                                    source = c;
-                                }
-                                final CodePointTuple ct = cts[0];
-                                final Char result = new Char(ct, offset, c);
-                                offset += result.charCount();
-                                return result;
-                            }
-                        case JISX0208_90_WINDOWS:
-                            {
-                                final CodePointTuple[] cts = replacement.getJisx0208_1978_windows();
-                                if (cts.length > 1) {
-                                    buf = cts;
-                                    bufOffset = 1;
-                                    source = c;
-                                }
-                                final CodePointTuple ct = cts[0];
-                                final Char result = new Char(ct, offset, c);
-                                offset += result.charCount();
-                                return result;
-                            }
-                        case JISX0208_VERBATIM:
-                            {
-                                final CodePointTuple ct = replacement.getJisx0208_verbatim();
-                                if (ct != null) {
-                                    final Char result = new Char(ct, offset, c);
-                                    offset += result.charCount();
-                                    return result;
-                                }
-                            }
-                    }
+            final CodePointTuple[] cts = table.get(c.get());
+            if (cts != null) {
+                if (cts.length > 1) {
+                    buf = cts;
+                    bufOffset = 1;
+                    source = c;
                 }
+                final Char result = new Char(cts[0], offset, c);
+                offset += result.charCount();
+                return result;
             }
             final Char result = c.withOffset(offset);
             offset += result.charCount();
             return result;
         }
 
-        public HyphenCharIterator(CharIterator input, List<Mapping> precedence) {
+        public HyphenCharIterator(CharIterator input, CodePointLookup<CodePointTuple[]> table) {
             this.input = input;
-            this.precedence = precedence;
+            this.table = table;
         }
     }
 
@@ -638,11 +594,8 @@ public class HyphensTransliterator implements Transliterator {
             if (obj == null || !(obj instanceof Options)) {
                 return false;
             }
-            final Options options = (Options) obj;
-            if (precedence.size() != options.precedence.size()) {
-                return false;
-            }
-            return precedence.containsAll(options.precedence);
+            // The order matters, as the first mapping that has a replacement wins
+            return precedence.equals(((Options) obj).precedence);
         }
 
         @Override
@@ -656,7 +609,7 @@ public class HyphensTransliterator implements Transliterator {
          * @param precedence the list of mappings in order of precedence
          */
         public Options(List<Mapping> precedence) {
-            this.precedence = precedence;
+            this.precedence = List.copyOf(precedence);
         }
 
         /** Creates Options with default precedence (JISX0208_90). */
@@ -665,11 +618,91 @@ public class HyphensTransliterator implements Transliterator {
         }
     }
 
-    private final Options options;
+    // The replacements resolved for each distinct precedence, shared by all the instances
+    private static final ConcurrentMap<Options, CodePointTrie<CodePointTuple[]>> resolvedTables =
+            new ConcurrentHashMap<>();
+
+    private final CodePointTrie<CodePointTuple[]> table;
 
     @Override
     public CharIterator transliterate(CharIterator input) {
-        return new HyphenCharIterator(input, options.getPrecedence());
+        return new HyphenCharIterator(input, table);
+    }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints;
+    }
+
+    @Override
+    public void forEachReplacement(
+            BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        table.forEach(action);
+    }
+
+    @Override
+    public Object getReplacementsKey() {
+        return table;
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            final CodePointTuple[] cts = table.get(input.first(i), input.second(i));
+            if (cts != null) {
+                final int offset = input.offset(i);
+                for (final CodePointTuple ct : cts) {
+                    output.append(ct, offset);
+                }
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
+
+    private static CodePointTrie<CodePointTuple[]> resolveAll(Options options) {
+        final CodePointTrie.Builder<CodePointTuple[]> table = new CodePointTrie.Builder<>();
+        for (final Map.Entry<CodePointTuple, HyphensRecord> e : mappings.entrySet()) {
+            final CodePointTuple[] cts = resolve(e.getValue(), options.getPrecedence());
+            if (cts != null) {
+                table.put(e.getKey(), cts);
+            }
+        }
+        return table.build();
+    }
+
+    // Returns the replacement of the first mapping in the precedence that has one, or null to
+    // leave the character as it is
+    private static CodePointTuple[] resolve(HyphensRecord replacement, List<Mapping> precedence) {
+        for (final Mapping m : precedence) {
+            final CodePointTuple[] cts;
+            switch (m) {
+                case ASCII:
+                    cts = replacement.getAscii();
+                    break;
+                case JISX0201:
+                    cts = replacement.getJisx0201();
+                    break;
+                case JISX0208_90:
+                    cts = replacement.getJisx0208_1978();
+                    break;
+                case JISX0208_90_WINDOWS:
+                    cts = replacement.getJisx0208_1978_windows();
+                    break;
+                case JISX0208_VERBATIM:
+                    {
+                        final CodePointTuple ct = replacement.getJisx0208_verbatim();
+                        cts = ct != null ? new CodePointTuple[] {ct} : null;
+                        break;
+                    }
+                default:
+                    cts = null;
+            }
+            if (cts != null) {
+                return cts;
+            }
+        }
+        return null;
     }
 
     /**
@@ -678,6 +711,6 @@ public class HyphensTransliterator implements Transliterator {
      * @param options the configuration options for hyphen conversion
      */
     public HyphensTransliterator(Options options) {
-        this.options = options;
+        this.table = resolvedTables.computeIfAbsent(options, HyphensTransliterator::resolveAll);
     }
 }
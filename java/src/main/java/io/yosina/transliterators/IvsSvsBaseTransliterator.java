@@ -2,119 +2,250 @@ package io.yosina.transliterators;
 
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.ContextFreeTransliterator;
 import io.yosina.annotations.RegisteredTransliterator;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Collections;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
-class IvsSvsBaseRecord {
-    private CodePointTuple ivs;
-    private CodePointTuple svs;
-    private CodePointTuple base90;
-    private CodePointTuple base2004;
+/**
+ * The IVS/SVS mapping records and the lookup tables derived from them. The records are decoded into
+ * a single int array on first use, and each lookup table is built the first time its direction and
+ * charset are needed, so a JVM that only uses one mode never builds the others.
+ */
+final class IvsSvsBaseMappings {
+    /** Offset of the two code points of the IVS in a record. */
+    static final int IVS = 0;
 
-    public CodePointTuple getIvs() {
-        return ivs;
+    /** Offset of the two code points of the SVS in a record; -1 if the record has no SVS. */
+    static final int SVS = 2;
+
+    /** Offset of the Uni-JIS-90 base character in a record; -1 if there is none. */
+    static final int BASE90 = 4;
+
+    /** Offset of the Uni-JIS-2004 base character in a record; -1 if there is none. */
+    static final int BASE2004 = 5;
+
+    /** Number of ints in a record. */
+    static final int STRIDE = 6;
+
+    /**
+     * A map from a code point, or a pair of code points, to the offset of a record, stored as
+     * sorted packed keys searched with a binary search.
+     */
+    static final class Table {
+        private final long[] keys;
+        private final int[] records;
+        private final CodePointSet keyCodePoints;
+
+        private Table(long[] keys, int[] records, CodePointSet keyCodePoints) {
+            this.keys = keys;
+            this.records = records;
+            this.keyCodePoints = keyCodePoints;
+        }
+
+        /**
+         * Finds the record mapped from a code point or a pair of code points.
+         *
+         * @param first the first code point
+         * @param second the second code point, or -1
+         * @return the offset of the record in {@link IvsSvsBaseMappings#records()}, or -1
+         */
+        int find(int first, int second) {
+            if (first < 0) {
+                return -1;
+            }
+            final int i = Arrays.binarySearch(keys, pack(first, second));
+            return i >= 0 ? records[i] : -1;
+        }
+
+        int find(CodePointTuple c) {
+            return c.isEmpty() ? -1 : find(c.get(0), c.size() > 1 ? c.get(1) : -1);
+        }
+
+        /**
+         * Performs an action for each key and the offset of its record.
+         *
+         * @param action the action
+         */
+        void forEach(BiConsumer<? super CodePointTuple, ? super Integer> action) {
+            for (int i = 0; i < keys.length; i++) {
+                final int second = (int) (keys[i] & 0x1fffff);
+                action.accept(
+                        CodePointTuple.of((int) (keys[i] >>> 21), second != 0x1fffff ? second : -1),
+                        records[i]);
+            }
+        }
+
+        /**
+         * Returns the code points that a character must contain to match a key of this table.
+         *
+         * @return the single code point keys and the second code points of the pairs
+         */
+        CodePointSet keyCodePoints() {
+            return keyCodePoints;
+        }
     }
 
-    public CodePointTuple getSvs() {
-        return svs;
+    /**
+     * Collects the entries of a table. When a key is added more than once, the last record wins, as
+     * with successive puts into a map.
+     */
+    private static final class TableBuilder {
+        private static final int SEQUENCE_BITS = 22;
+        private long[] entries = new long[1024];
+        private int[] records = new int[1024];
+        private int size = 0;
+        private final CodePointSet.Builder keyCodePoints = new CodePointSet.Builder();
+
+        void add(int first, int second, int record) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                records = Arrays.copyOf(records, size * 2);
+            }
+            entries[size] = (pack(first, second) << SEQUENCE_BITS) | size;
+            records[size] = record;
+            size++;
+            keyCodePoints.addKey(first, second);
+        }
+
+        Table build() {
+            final long[] sorted = Arrays.copyOf(entries, size);
+            Arrays.sort(sorted);
+            final long[] keys = new long[size];
+            final int[] values = new int[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                final long key = sorted[i] >>> SEQUENCE_BITS;
+                if (i + 1 < size && sorted[i + 1] >>> SEQUENCE_BITS == key) {
+                    continue;
+                }
+                keys[n] = key;
+                values[n] = records[(int) (sorted[i] & ((1L << SEQUENCE_BITS) - 1))];
+                n++;
+            }
+            return new Table(
+                    Arrays.copyOf(keys, n), Arrays.copyOf(values, n), keyCodePoints.build());
+        }
+    }
+
+    // Packs a code point and an optional second code point into 42 bits; -1 becomes 0x1fffff
+    private static long pack(int first, int second) {
+        return ((long) first << 21) | (second & 0x1fffff);
     }
 
-    public CodePointTuple getBase90() {
-        return base90;
+    private static final class Records {
+        static final int[] RECORDS;
+
+        static {
+            final ByteBuffer b;
+            try {
+                try (final InputStream s =
+                        IvsSvsBaseMappings.class.getResourceAsStream("ivs_svs_base.data")) {
+                    b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final int n = b.getInt();
+            RECORDS = new int[n * STRIDE];
+            b.asIntBuffer().get(RECORDS);
+        }
     }
 
-    public CodePointTuple getBase2004() {
-        return base2004;
+    private static final class FwdBase90 {
+        static final Table TABLE = buildFwd(BASE90);
     }
 
-    public IvsSvsBaseRecord(
-            CodePointTuple ivs,
-            CodePointTuple svs,
-            CodePointTuple base90,
-            CodePointTuple base2004) {
-        this.ivs = ivs;
-        this.svs = svs;
-        this.base90 = base90;
-        this.base2004 = base2004;
+    private static final class FwdBase2004 {
+        static final Table TABLE = buildFwd(BASE2004);
     }
-}
 
-class IvsSvsBaseMappings {
-    private static final Map<CodePointTuple, IvsSvsBaseRecord> fwdBase90Mappings;
-    private static final Map<CodePointTuple, IvsSvsBaseRecord> fwdBase2004Mappings;
-    private static final Map<CodePointTuple, IvsSvsBaseRecord> revMappings;
-
-    static {
-        final Map<CodePointTuple, IvsSvsBaseRecord> fwdBase90Mappings_ = new TreeMap<>();
-        final Map<CodePointTuple, IvsSvsBaseRecord> fwdBase2004Mappings_ = new TreeMap<>();
-        final Map<CodePointTuple, IvsSvsBaseRecord> revMappings_ = new TreeMap<>();
-
-        final ByteBuffer b;
-        try {
-            try (final InputStream s =
-                    IvsSvsBaseMappings.class.getResourceAsStream("ivs_svs_base.data")) {
-                b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        final int n = b.getInt();
-        for (int i = 0; i < n; i++) {
-            final CodePointTuple ivs = CodePointTuple.of(b.getInt(), b.getInt());
-            final CodePointTuple svs = CodePointTuple.of(b.getInt(), b.getInt());
-            final CodePointTuple base90 = CodePointTuple.of(b.getInt());
-            final CodePointTuple base2004 = CodePointTuple.of(b.getInt());
-            final IvsSvsBaseRecord record = new IvsSvsBaseRecord(ivs, svs, base90, base2004);
-            fwdBase90Mappings_.put(ivs, record);
-            fwdBase2004Mappings_.put(ivs, record);
-            if (!svs.isEmpty()) {
-                fwdBase90Mappings_.put(svs, record);
-                fwdBase2004Mappings_.put(svs, record);
+    private static final class RevBase90 {
+        static final Table TABLE = buildRev(BASE90);
+    }
+
+    private static final class RevBase2004 {
+        static final Table TABLE = buildRev(BASE2004);
+    }
+
+    private static Table buildFwd(int base) {
+        final int[] r = Records.RECORDS;
+        final TableBuilder builder = new TableBuilder();
+        for (int i = 0; i < r.length; i += STRIDE) {
+            builder.add(r[i + IVS], r[i + IVS + 1], i);
+            if (r[i + SVS] >= 0) {
+                builder.add(r[i + SVS], r[i + SVS + 1], i);
             }
-            if (!base90.isEmpty()) {
-                fwdBase90Mappings_.put(base90, record);
+            if (r[i + base] >= 0) {
+                builder.add(r[i + base], -1, i);
             }
-            if (!base2004.isEmpty()) {
-                fwdBase2004Mappings_.put(base2004, record);
+        }
+        return builder.build();
+    }
+
+    private static Table buildRev(int base) {
+        final int[] r = Records.RECORDS;
+        final TableBuilder builder = new TableBuilder();
+        for (int i = 0; i < r.length; i += STRIDE) {
+            // Records without a base for the charset leave the IVS as is, like unmapped ones
+            if (r[i + base] >= 0) {
+                builder.add(r[i + IVS], r[i + IVS + 1], i);
             }
-            revMappings_.put(ivs, record);
         }
-        fwdBase90Mappings = Collections.unmodifiableMap(fwdBase90Mappings_);
-        fwdBase2004Mappings = Collections.unmodifiableMap(fwdBase2004Mappings_);
-        revMappings = Collections.unmodifiableMap(revMappings_);
+        return builder.build();
     }
 
-    public static Map<CodePointTuple, IvsSvsBaseRecord> getFwdBase90Mapping() {
-        return fwdBase90Mappings;
+    /**
+     * Returns the records, {@link #STRIDE} ints each.
+     *
+     * @return the records
+     */
+    static int[] records() {
+        return Records.RECORDS;
     }
 
-    public static Map<CodePointTuple, IvsSvsBaseRecord> getFwdBase2004Mapping() {
-        return fwdBase2004Mappings;
+    /**
+     * Returns the table from IVS, SVS and base characters to records.
+     *
+     * @param base {@link #BASE90} or {@link #BASE2004}
+     * @return the table
+     */
+    static Table getFwdMapping(int base) {
+        return base == BASE90 ? FwdBase90.TABLE : FwdBase2004.TABLE;
     }
 
-    public static Map<CodePointTuple, IvsSvsBaseRecord> getRevMapping() {
-        return revMappings;
+    /**
+     * Returns the table from IVS to the records that have a base character in the charset.
+     *
+     * @param base {@link #BASE90} or {@link #BASE2004}
+     * @return the table
+     */
+    static Table getRevMapping(int base) {
+        return base == BASE90 ? RevBase90.TABLE : RevBase2004.TABLE;
     }
+
+    private IvsSvsBaseMappings() {}
 }
 
 /** Auto-generated transliterator for IVS/SVS base. */
 @RegisteredTransliterator(name = "ivs-svs-base")
-public class IvsSvsBaseTransliterator implements Transliterator {
+public class IvsSvsBaseTransliterator implements ContextFreeTransliterator {
+    private static final CodePointSet VARIATION_SELECTORS =
+            new CodePointSet.Builder().addRange(0xfe00, 0xfe0f).addRange(0xe0100, 0xe01ef).build();
+
     private static class IvsSvsBaseFwdCharIterator implements CharIterator {
         private final CharIterator input;
-        private final Map<CodePointTuple, IvsSvsBaseRecord> mappings;
+        private final IvsSvsBaseMappings.Table mappings;
         private final boolean preferSvs;
         private int offset = 0;
 
@@ -134,13 +265,14 @@ public class IvsSvsBaseTransliterator implements Transliterator {
                 return null;
             }
 
-            final IvsSvsBaseRecord replacement = mappings.get(c.get());
-            if (replacement != null) {
-                final CodePointTuple ct =
-                        preferSvs && !replacement.getSvs().isEmpty()
-                                ? replacement.getSvs()
-                                : replacement.getIvs();
-                final Char result = new Char(ct, offset, c);
+            final int record = mappings.find(c.get());
+            if (record >= 0) {
+                final int[] r = IvsSvsBaseMappings.records();
+                final int i =
+                        preferSvs && r[record + IvsSvsBaseMappings.SVS] >= 0
+                                ? record + IvsSvsBaseMappings.SVS
+                                : record + IvsSvsBaseMappings.IVS;
+                final Char result = new Char(CodePointTuple.of(r[i], r[i + 1]), offset, c);
                 offset += result.charCount();
                 return result;
             } else {
@@ -156,9 +288,7 @@ public class IvsSvsBaseTransliterator implements Transliterator {
         }
 
         public IvsSvsBaseFwdCharIterator(
-                CharIterator input,
-                Map<CodePointTuple, IvsSvsBaseRecord> mappings,
-                boolean preferSvs) {
+                CharIterator input, IvsSvsBaseMappings.Table mappings, boolean preferSvs) {
             this.input = input;
             this.mappings = mappings;
             this.preferSvs = preferSvs;
@@ -166,10 +296,9 @@ public class IvsSvsBaseTransliterator implements Transliterator {
     }
 
     private static class IvsSvsBaseRevCharIterator implements CharIterator {
-        private static final Map<CodePointTuple, IvsSvsBaseRecord> mappings =
-                IvsSvsBaseMappings.getRevMapping();
         private final CharIterator input;
-        private final Charset charset;
+        private final IvsSvsBaseMappings.Table mappings;
+        private final int base;
         private final boolean dropSelectorsAltogether;
         private int offset = 0;
 
@@ -189,22 +318,12 @@ public class IvsSvsBaseTransliterator implements Transliterator {
                 return null;
             }
 
-            final IvsSvsBaseRecord replacement = mappings.get(c.get());
-            if (replacement != null) {
-                CodePointTuple ct = null;
-                switch (charset) {
-                    case UNIJIS_90:
-                        ct = replacement.getBase90();
-                        break;
-                    case UNIJIS_2004:
-                        ct = replacement.getBase2004();
-                        break;
-                }
-                if (ct != null) {
-                    final Char result = new Char(ct, offset, c);
-                    offset += result.charCount();
-                    return result;
-                }
+            final int record = mappings.find(c.get());
+            if (record >= 0) {
+                final int[] r = IvsSvsBaseMappings.records();
+                final Char result = new Char(CodePointTuple.of(r[record + base]), offset, c);
+                offset += result.charCount();
+                return result;
             }
             final Char result;
             if (dropSelectorsAltogether && c.get().size() > 1) {
@@ -224,11 +343,18 @@ public class IvsSvsBaseTransliterator implements Transliterator {
         public IvsSvsBaseRevCharIterator(
                 CharIterator input, Charset charset, boolean dropSelectorsAltogether) {
             this.input = input;
-            this.charset = charset;
+            this.base = baseOf(charset);
+            this.mappings = IvsSvsBaseMappings.getRevMapping(base);
             this.dropSelectorsAltogether = dropSelectorsAltogether;
         }
     }
 
+    private static int baseOf(Charset charset) {
+        return charset == Charset.UNIJIS_90
+                ? IvsSvsBaseMappings.BASE90
+                : IvsSvsBaseMappings.BASE2004;
+    }
+
     /** Transliteration mode for IVS/SVS conversion. */
     public static enum Mode {
         /** Convert to IVS or SVS format */
@@ -377,9 +503,7 @@ public class IvsSvsBaseTransliterator implements Transliterator {
             case IVS_OR_SVS:
                 return new IvsSvsBaseFwdCharIterator(
                         input,
-                        options.getCharset() == Charset.UNIJIS_90
-                                ? IvsSvsBaseMappings.getFwdBase90Mapping()
-                                : IvsSvsBaseMappings.getFwdBase2004Mapping(),
+                        IvsSvsBaseMappings.getFwdMapping(baseOf(options.getCharset())),
                         options.isPreferSvs());
             case BASE:
                 return new IvsSvsBaseRevCharIterator(
@@ -388,6 +512,119 @@ public class IvsSvsBaseTransliterator implements Transliterator {
         throw new IllegalArgumentException("Invalid transliteration mode: " + options.getMode());
     }
 
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        switch (options.getMode()) {
+            case IVS_OR_SVS:
+                return IvsSvsBaseMappings.getFwdMapping(baseOf(options.getCharset()))
+                        .keyCodePoints();
+            case BASE:
+                // Only characters with a selector are looked up, and any selector may be dropped
+                return VARIATION_SELECTORS;
+        }
+        throw new IllegalArgumentException("Invalid transliteration mode: " + options.getMode());
+    }
+
+    @Override
+    public void forEachReplacement(
+            BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        final int base = baseOf(options.getCharset());
+        final int[] r = IvsSvsBaseMappings.records();
+        switch (options.getMode()) {
+            case IVS_OR_SVS:
+                IvsSvsBaseMappings.getFwdMapping(base)
+                        .forEach(
+                                (key, record) -> {
+                                    final int i =
+                                            options.isPreferSvs()
+                                                            && r[record + IvsSvsBaseMappings.SVS]
+                                                                    >= 0
+                                                    ? record + IvsSvsBaseMappings.SVS
+                                                    : record + IvsSvsBaseMappings.IVS;
+                                    action.accept(
+                                            key,
+                                            new CodePointTuple[] {
+                                                CodePointTuple.of(r[i], r[i + 1])
+                                            });
+                                });
+                return;
+            case BASE:
+                IvsSvsBaseMappings.getRevMapping(base)
+                        .forEach(
+                                (key, record) ->
+                                        action.accept(
+                                                key,
+                                                new CodePointTuple[] {
+                                                    CodePointTuple.of(r[record + base])
+                                                }));
+                return;
+        }
+        throw new IllegalArgumentException("Invalid transliteration mode: " + options.getMode());
+    }
+
+    @Override
+    public boolean replacesUnmappedPairsWithFirst() {
+        return options.getMode() == Mode.BASE && options.isDropSelectorsAltogether();
+    }
+
+    @Override
+    public Object getReplacementsKey() {
+        return options;
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        switch (options.getMode()) {
+            case IVS_OR_SVS:
+                transliterateFwd(input, start, end, output);
+                return;
+            case BASE:
+                transliterateRev(input, start, end, output);
+                return;
+        }
+        throw new IllegalArgumentException("Invalid transliteration mode: " + options.getMode());
+    }
+
+    private void transliterateFwd(
+            CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        final IvsSvsBaseMappings.Table mappings =
+                IvsSvsBaseMappings.getFwdMapping(baseOf(options.getCharset()));
+        final int[] r = IvsSvsBaseMappings.records();
+        for (int i = start; i < end; i++) {
+            final int record = mappings.find(input.first(i), input.second(i));
+            if (record >= 0) {
+                final int j =
+                        options.isPreferSvs() && r[record + IvsSvsBaseMappings.SVS] >= 0
+                                ? record + IvsSvsBaseMappings.SVS
+                                : record + IvsSvsBaseMappings.IVS;
+                output.append(r[j], r[j + 1], input.offset(i));
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
+
+    private void transliterateRev(
+            CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        final int base = baseOf(options.getCharset());
+        final IvsSvsBaseMappings.Table mappings = IvsSvsBaseMappings.getRevMapping(base);
+        final int[] r = IvsSvsBaseMappings.records();
+        for (int i = start; i < end; i++) {
+            if (input.second(i) < 0) {
+                output.append(input, i);
+                continue;
+            }
+            final int record = mappings.find(input.first(i), input.second(i));
+            if (record >= 0) {
+                output.append(r[record + base], -1, input.offset(i));
+            } else if (options.isDropSelectorsAltogether()) {
+                output.append(input.first(i), -1, input.offset(i));
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
+
     /**
      * Creates a new IvsSvsBaseTransliterator with the specified options.
      *
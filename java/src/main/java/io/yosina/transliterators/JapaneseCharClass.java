@@ -0,0 +1,161 @@
+package io.yosina.transliterators;
+
+import io.yosina.CodePointTuple;
+
+/**
+ * The classes of the characters that the context-sensitive transliterators look at around the
+ * characters they replace, as bit flags per code point.
+ *
+ * <p>The flags are kept in a short array for each of the three blocks of 256 code points that have
+ * any: U+00xx for the ASCII digits and letters, U+30xx for the kanas and their marks, and U+FFxx
+ * for the fullwidth and halfwidth forms. Classifying a code point is two array reads and allocates
+ * nothing. The tables are filled in when the class is loaded and never modified afterwards.
+ */
+final class JapaneseCharClass {
+    /** A hiragana, or a mark counted with the hiraganas around a prolonged sound mark. */
+    static final int HIRAGANA = 1 << 0;
+
+    /** A katakana, or a mark counted with the katakanas around a prolonged sound mark. */
+    static final int KATAKANA = 1 << 1;
+
+    /** A kana letter proper, as opposed to a mark. */
+    static final int LETTER = 1 << 2;
+
+    /** A halfwidth form. */
+    static final int HALFWIDTH = 1 << 3;
+
+    /** A decimal digit. */
+    static final int DIGIT = 1 << 4;
+
+    /** A Latin letter. */
+    static final int ALPHABET = 1 << 5;
+
+    /** A character that ends with a vowel and can be followed by a prolonged sound mark. */
+    static final int VOWEL_ENDED = 1 << 6;
+
+    /** Hatsuon (ん/ン/ﾝ). */
+    static final int HATSUON = 1 << 7;
+
+    /** Sokuon (っ/ッ/ｯ). */
+    static final int SOKUON = 1 << 8;
+
+    /** A prolonged sound mark (ー/ｰ). */
+    static final int PROLONGED_SOUND_MARK = 1 << 9;
+
+    /** A voiced kana that has an unvoiced counterpart, or a voiced sound mark. */
+    static final int VOICED = 1 << 10;
+
+    /** A semi-voiced kana, or a semi-voiced sound mark. */
+    static final int SEMI_VOICED = 1 << 11;
+
+    /** A voiced or semi-voiced sound mark. */
+    static final int SOUND_MARK = 1 << 12;
+
+    /** A combining sound mark (U+3099, U+309A). */
+    static final int COMBINING = 1 << 13;
+
+    /** An iteration mark (々, 〱-〴, ゝ, ゞ, ヽ, ヾ). */
+    static final int ITERATION_MARK = 1 << 14;
+
+    private static final short[][] BLOCKS = new short[0x100][];
+
+    static {
+        // ASCII digits and letters
+        set(0x0030, 0x0039, DIGIT | HALFWIDTH);
+        set(0x0041, 0x005a, ALPHABET | HALFWIDTH);
+        set(0x0061, 0x007a, ALPHABET | HALFWIDTH);
+
+        // Fullwidth digits and letters
+        set(0xff10, 0xff19, DIGIT);
+        set(0xff21, 0xff3a, ALPHABET);
+        set(0xff41, 0xff5a, ALPHABET);
+
+        // Hiraganas; U+3097 and U+3098 are unassigned, but the range has always covered them
+        set(0x3041, 0x3096, HIRAGANA | LETTER | VOWEL_ENDED);
+        set(0x3097, 0x3098, HIRAGANA | VOWEL_ENDED);
+        set(0x3099, 0x309a, HIRAGANA | VOWEL_ENDED | SOUND_MARK | COMBINING);
+        set(0x309b, 0x309c, HIRAGANA | VOWEL_ENDED | SOUND_MARK);
+        set(0x309f, 0x309f, HIRAGANA | VOWEL_ENDED);
+
+        // Katakanas
+        set(0x30a1, 0x30fa, KATAKANA | LETTER | VOWEL_ENDED);
+        set(0x30fd, 0x30ff, KATAKANA | VOWEL_ENDED);
+        set(0x30fc, 0x30fc, HIRAGANA | KATAKANA | PROLONGED_SOUND_MARK);
+
+        // Halfwidth katakanas
+        set(0xff66, 0xff6f, KATAKANA | LETTER | VOWEL_ENDED | HALFWIDTH);
+        set(0xff70, 0xff70, KATAKANA | PROLONGED_SOUND_MARK | HALFWIDTH);
+        set(0xff71, 0xff9d, KATAKANA | LETTER | VOWEL_ENDED | HALFWIDTH);
+        set(0xff9e, 0xff9f, KATAKANA | VOWEL_ENDED | HALFWIDTH | SOUND_MARK);
+
+        // Hatsuons and sokuons do not end with a vowel
+        set(0x3063, 0x3063, HIRAGANA | LETTER | SOKUON);
+        set(0x3093, 0x3093, HIRAGANA | LETTER | HATSUON);
+        set(0x30c3, 0x30c3, KATAKANA | LETTER | SOKUON);
+        set(0x30f3, 0x30f3, KATAKANA | LETTER | HATSUON);
+        set(0xff6f, 0xff6f, KATAKANA | LETTER | SOKUON | HALFWIDTH);
+        set(0xff9d, 0xff9d, KATAKANA | LETTER | HATSUON | HALFWIDTH);
+
+        // Voiced and semi-voiced kanas and marks
+        for (final char c : "がぎぐげござじずぜぞだぢづでどばびぶべぼガギグゲゴザジズゼゾダヂヅデドバビブベボヴ".toCharArray()) {
+            add(c, VOICED);
+        }
+        for (final char c : "ぱぴぷぺぽパピプペポ".toCharArray()) {
+            add(c, SEMI_VOICED);
+        }
+        add(0x3099, VOICED);
+        add(0x309b, VOICED);
+        add(0xff9e, VOICED);
+        add(0x309a, SEMI_VOICED);
+        add(0x309c, SEMI_VOICED);
+        add(0xff9f, SEMI_VOICED);
+
+        // Iteration marks
+        add(0x3005, ITERATION_MARK);
+        for (int c = 0x3031; c <= 0x3034; c++) {
+            add(c, ITERATION_MARK);
+        }
+        for (final int c : new int[] {0x309d, 0x309e, 0x30fd, 0x30fe}) {
+            add(c, ITERATION_MARK);
+        }
+    }
+
+    private JapaneseCharClass() {}
+
+    private static void set(int start, int end, int flags) {
+        for (int c = start; c <= end; c++) {
+            if (BLOCKS[c >>> 8] == null) {
+                BLOCKS[c >>> 8] = new short[0x100];
+            }
+            BLOCKS[c >>> 8][c & 0xff] = (short) flags;
+        }
+    }
+
+    private static void add(int codePoint, int flags) {
+        set(codePoint, codePoint, of(codePoint) | flags);
+    }
+
+    /**
+     * Classifies a code point.
+     *
+     * @param codePoint the code point
+     * @return the flags of the code point, or 0 if it has none
+     */
+    static int of(int codePoint) {
+        if (codePoint >>> 16 != 0) {
+            return 0;
+        }
+        final short[] block = BLOCKS[codePoint >>> 8];
+        return block != null ? block[codePoint & 0xff] : 0;
+    }
+
+    /**
+     * Classifies a character by its first code point.
+     *
+     * @param c the character
+     * @return the flags of its first code point, or 0 if it has none or is empty
+     */
+    static int of(CodePointTuple c) {
+        return c.size() > 0 ? of(c.get(0)) : 0;
+    }
+}
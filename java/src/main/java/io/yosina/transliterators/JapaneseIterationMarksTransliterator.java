@@ -2,16 +2,11 @@ package io.yosina.transliterators;
 
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
 import io.yosina.Transliterator;
 import io.yosina.annotations.RegisteredTransliterator;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 /**
  * Japanese iteration marks transliterator.
@@ -56,127 +51,44 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
     private static final int VERTICAL_KATAKANA_VOICED_ITERATION_MARK = 0x3034; // 〴
     private static final int KANJI_ITERATION_MARK = 0x3005; // 々
 
-    // Character type constants
+    private static final CodePointSet ITERATION_MARKS =
+            new CodePointSet.Builder()
+                    .add(KANJI_ITERATION_MARK)
+                    .addRange(
+                            VERTICAL_HIRAGANA_ITERATION_MARK,
+                            VERTICAL_KATAKANA_VOICED_ITERATION_MARK)
+                    .addRange(HIRAGANA_ITERATION_MARK, HIRAGANA_VOICED_ITERATION_MARK)
+                    .addRange(KATAKANA_ITERATION_MARK, KATAKANA_VOICED_ITERATION_MARK)
+                    .build();
+
+    // The types of the characters that an iteration mark may repeat
     private enum CharType {
         OTHER,
         HIRAGANA,
-        HIRAGANA_HATSUON,
-        HIRAGANA_SOKUON,
-        HIRAGANA_ITERATION_MARK,
         HIRAGANA_VOICED,
-        HIRAGANA_VOICED_ITERATION_MARK,
-        HIRAGANA_SEMIVOICED,
         KATAKANA,
-        KATAKANA_ITERATION_MARK,
-        KATAKANA_HATSUON,
-        KATAKANA_SOKUON,
         KATAKANA_VOICED,
-        KATAKANA_VOICED_ITERATION_MARK,
-        KATAKANA_SEMIVOICED,
-        KANJI,
-        KANJI_ITERATION_MARK
+        KANJI
     }
 
-    // Special characters that cannot be repeated
-    private static final Set<Integer> HATSUON_CHARS =
-            Set.of(
-                    0x3093, // ん
-                    0x30F3, // ン
-                    0xFF9D // ﾝ (halfwidth)
-                    );
-
-    private static final Set<Integer> SOKUON_CHARS =
-            Set.of(
-                    0x3063, // っ
-                    0x30C3, // ッ
-                    0xFF6F // ｯ (halfwidth)
-                    );
-
-    // Semi-voiced characters
-    private static final Set<String> SEMI_VOICED_CHARS =
-            Set.of(
-                    // Hiragana semi-voiced
-                    "ぱ",
-                    "ぴ",
-                    "ぷ",
-                    "ぺ",
-                    "ぽ",
-                    // Katakana semi-voiced
-                    "パ",
-                    "ピ",
-                    "プ",
-                    "ペ",
-                    "ポ");
-
-    // Voicing mappings for hiragana
-    private static final Map<String, String> HIRAGANA_VOICING = new HashMap<>();
+    // The voiced counterpart of each unvoiced kana in U+3000-30FF, and the other way round, or 0
+    // if none; filled in once when the class is loaded and never modified afterwards
+    private static final int KANA_BLOCK_START = 0x3000;
+    private static final int KANA_BLOCK_SIZE = 0x100;
+    private static final char[] VOICING = new char[KANA_BLOCK_SIZE];
+    private static final char[] UNVOICING = new char[KANA_BLOCK_SIZE];
 
-    static {
-        HIRAGANA_VOICING.put("か", "が");
-        HIRAGANA_VOICING.put("き", "ぎ");
-        HIRAGANA_VOICING.put("く", "ぐ");
-        HIRAGANA_VOICING.put("け", "げ");
-        HIRAGANA_VOICING.put("こ", "ご");
-        HIRAGANA_VOICING.put("さ", "ざ");
-        HIRAGANA_VOICING.put("し", "じ");
-        HIRAGANA_VOICING.put("す", "ず");
-        HIRAGANA_VOICING.put("せ", "ぜ");
-        HIRAGANA_VOICING.put("そ", "ぞ");
-        HIRAGANA_VOICING.put("た", "だ");
-        HIRAGANA_VOICING.put("ち", "ぢ");
-        HIRAGANA_VOICING.put("つ", "づ");
-        HIRAGANA_VOICING.put("て", "で");
-        HIRAGANA_VOICING.put("と", "ど");
-        HIRAGANA_VOICING.put("は", "ば");
-        HIRAGANA_VOICING.put("ひ", "び");
-        HIRAGANA_VOICING.put("ふ", "ぶ");
-        HIRAGANA_VOICING.put("へ", "べ");
-        HIRAGANA_VOICING.put("ほ", "ぼ");
-    }
-
-    // Voicing mappings for katakana
-    private static final Map<String, String> KATAKANA_VOICING = new HashMap<>();
-
-    static {
-        KATAKANA_VOICING.put("カ", "ガ");
-        KATAKANA_VOICING.put("キ", "ギ");
-        KATAKANA_VOICING.put("ク", "グ");
-        KATAKANA_VOICING.put("ケ", "ゲ");
-        KATAKANA_VOICING.put("コ", "ゴ");
-        KATAKANA_VOICING.put("サ", "ザ");
-        KATAKANA_VOICING.put("シ", "ジ");
-        KATAKANA_VOICING.put("ス", "ズ");
-        KATAKANA_VOICING.put("セ", "ゼ");
-        KATAKANA_VOICING.put("ソ", "ゾ");
-        KATAKANA_VOICING.put("タ", "ダ");
-        KATAKANA_VOICING.put("チ", "ヂ");
-        KATAKANA_VOICING.put("ツ", "ヅ");
-        KATAKANA_VOICING.put("テ", "デ");
-        KATAKANA_VOICING.put("ト", "ド");
-        KATAKANA_VOICING.put("ハ", "バ");
-        KATAKANA_VOICING.put("ヒ", "ビ");
-        KATAKANA_VOICING.put("フ", "ブ");
-        KATAKANA_VOICING.put("ヘ", "ベ");
-        KATAKANA_VOICING.put("ホ", "ボ");
-        KATAKANA_VOICING.put("ウ", "ヴ");
-    }
-
-    // Derived set of all voiced characters (values from voicing maps)
-    private static final Set<String> VOICED_CHARS;
-
-    // Reverse voicing mappings (voiced to unvoiced)
-    private static final Map<String, String> HIRAGANA_UNVOICING = new HashMap<>();
-    private static final Map<String, String> KATAKANA_UNVOICING = new HashMap<>();
+    // Pairs of unvoiced and voiced kanas
+    private static final String VOICING_PAIRS =
+            "かがきぎくぐけげこごさざしじすずせぜそぞただちぢつづてでとどはばひびふぶへべほぼ"
+                    + "カガキギクグケゲコゴサザシジスズセゼソゾタダチヂツヅテデトドハバヒビフブヘベホボウヴ";
 
     static {
-        Set<String> voiced = new HashSet<>();
-        voiced.addAll(HIRAGANA_VOICING.values());
-        voiced.addAll(KATAKANA_VOICING.values());
-        VOICED_CHARS = Set.copyOf(voiced);
-
-        // Create reverse mappings
-        HIRAGANA_VOICING.forEach((k, v) -> HIRAGANA_UNVOICING.put(v, k));
-        KATAKANA_VOICING.forEach((k, v) -> KATAKANA_UNVOICING.put(v, k));
+        for (int i = 0; i < VOICING_PAIRS.length(); i += 2) {
+            final int unvoiced = VOICING_PAIRS.charAt(i), voiced = VOICING_PAIRS.charAt(i + 1);
+            VOICING[unvoiced - KANA_BLOCK_START] = (char) voiced;
+            UNVOICING[voiced - KANA_BLOCK_START] = (char) unvoiced;
+        }
     }
 
     /** Options for the transliterator. Currently unused but reserved for future use. */
@@ -185,6 +97,16 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
         public Options() {
             // Options reserved for future use
         }
+
+        @Override
+        public boolean equals(Object obj) {
+            return this == obj || (obj != null && getClass() == obj.getClass());
+        }
+
+        @Override
+        public int hashCode() {
+            return Options.class.hashCode();
+        }
     }
 
     private final Options options;
@@ -214,26 +136,54 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
         return new JapaneseIterationMarksCharIterator(input, options);
     }
 
+    /**
+     * Returns the iteration marks. The character a mark repeats is the one just before it, which is
+     * the context kept around it.
+     *
+     * @return the affected code points
+     */
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return ITERATION_MARKS;
+    }
+
+    @Override
+    public boolean readsProvenance() {
+        return false;
+    }
+
     /** Check if a character is an iteration mark. */
     private static boolean isIterationMark(int codepoint) {
-        return codepoint == HIRAGANA_ITERATION_MARK
-                || codepoint == HIRAGANA_VOICED_ITERATION_MARK
-                || codepoint == VERTICAL_HIRAGANA_ITERATION_MARK
-                || codepoint == VERTICAL_HIRAGANA_VOICED_ITERATION_MARK
-                || codepoint == KATAKANA_ITERATION_MARK
-                || codepoint == KATAKANA_VOICED_ITERATION_MARK
-                || codepoint == VERTICAL_KATAKANA_ITERATION_MARK
-                || codepoint == VERTICAL_KATAKANA_VOICED_ITERATION_MARK
-                || codepoint == KANJI_ITERATION_MARK;
+        return (JapaneseCharClass.of(codepoint) & JapaneseCharClass.ITERATION_MARK) != 0;
     }
 
     /** Get the character type for a given character. */
-    private static CharType getCharType(String charStr) {
-        if (charStr == null || charStr.isEmpty()) {
+    private static CharType getCharType(CodePointTuple tuple) {
+        if (tuple.size() == 0) {
             return CharType.OTHER;
         }
 
-        int codepoint = charStr.codePointAt(0);
+        final int codepoint = tuple.get(0);
+        final int flags = JapaneseCharClass.of(codepoint);
+
+        // Fullwidth kana letters; halfwidth katakanas are not supported
+        if ((flags & (JapaneseCharClass.LETTER | JapaneseCharClass.HALFWIDTH))
+                == JapaneseCharClass.LETTER) {
+            // Hatsuon, sokuon and semi-voiced characters cannot be repeated
+            if ((flags
+                            & (JapaneseCharClass.HATSUON
+                                    | JapaneseCharClass.SOKUON
+                                    | JapaneseCharClass.SEMI_VOICED))
+                    != 0) {
+                return CharType.OTHER;
+            }
+            // A letter followed by another code point is not one of the voiced letters
+            final boolean voiced = (flags & JapaneseCharClass.VOICED) != 0 && tuple.size() == 1;
+            if ((flags & JapaneseCharClass.HIRAGANA) != 0) {
+                return voiced ? CharType.HIRAGANA_VOICED : CharType.HIRAGANA;
+            }
+            return voiced ? CharType.KATAKANA_VOICED : CharType.KATAKANA;
+        }
 
         // Kanji - CJK Unified Ideographs (common ranges)
         if ((codepoint >= 0x4E00 && codepoint <= 0x9FFF)
@@ -247,84 +197,27 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
             return CharType.KANJI;
         }
 
-        // Check specific characters
-        switch (codepoint) {
-            case 0x3071:
-            case 0x3074:
-            case 0x3077:
-            case 0x307A:
-            case 0x307D: // ぱ, ぴ, ぷ, ぺ, ぽ
-                return CharType.HIRAGANA_SEMIVOICED;
-            case 0x30D1:
-            case 0x30D4:
-            case 0x30D7:
-            case 0x30DA:
-            case 0x30DD: // パ, ピ, プ, ペ, ポ
-                return CharType.KATAKANA_SEMIVOICED;
-            case 0x3093: // ん
-                return CharType.HIRAGANA_HATSUON;
-            case 0x30F3: // ン
-                return CharType.KATAKANA_HATSUON;
-            case 0x3063: // っ
-                return CharType.HIRAGANA_SOKUON;
-            case 0x30C3: // ッ
-                return CharType.KATAKANA_SOKUON;
-            case 0x309D: // ゝ
-            case 0x3031: // 〱 (vertical hiragana repeat mark)
-                return CharType.HIRAGANA_ITERATION_MARK;
-            case 0x309E: // ゞ
-            case 0x3032: // 〲 (vertical hiragana voiced repeat mark)
-                return CharType.HIRAGANA_VOICED_ITERATION_MARK;
-            case 0x30FD: // ヽ
-            case 0x3033: // 〳 (vertical katakana repeat mark)
-                return CharType.KATAKANA_ITERATION_MARK;
-            case 0x30FE: // ヾ
-            case 0x3034: // 〴 (vertical katakana voiced repeat mark)
-                return CharType.KATAKANA_VOICED_ITERATION_MARK;
-            case 0x3005: // 々
-                return CharType.KANJI_ITERATION_MARK;
-        }
-
-        // Check if it's voiced
-        if (VOICED_CHARS.contains(charStr)) {
-            // Determine if it's hiragana or katakana voiced
-            if (codepoint >= 0x3041 && codepoint <= 0x3096) {
-                return CharType.HIRAGANA_VOICED;
-            } else if (codepoint >= 0x30A1 && codepoint <= 0x30FA) {
-                return CharType.KATAKANA_VOICED;
-            }
-        }
-
-        // Hiragana (excluding special marks)
-        if (codepoint >= 0x3041 && codepoint <= 0x3096) {
-            return CharType.HIRAGANA;
-        }
+        return CharType.OTHER;
+    }
 
-        // Katakana (excluding special marks)
-        if (codepoint >= 0x30A1 && codepoint <= 0x30FA) {
-            return CharType.KATAKANA;
+    /** Get the voiced or unvoiced counterpart of a single kana, or null if it has none. */
+    private static CodePointTuple lookup(char[] table, CodePointTuple tuple) {
+        if (tuple.size() != 1) {
+            return null;
         }
-
-        return CharType.OTHER;
+        final int index = tuple.get(0) - KANA_BLOCK_START;
+        final int mapped = index >= 0 && index < KANA_BLOCK_SIZE ? table[index] : 0;
+        return mapped != 0 ? CodePointTuple.of(mapped) : null;
     }
 
     private static class JapaneseIterationMarksCharIterator implements CharIterator {
         private final CharIterator input;
         private final Options options;
         private int offset = 0;
-        private CharInfo prevCharInfo = null;
+        // The previous character and its type, if it is one that an iteration mark may repeat
+        private CodePointTuple prevChar = null;
+        private CharType prevType = CharType.OTHER;
         private boolean prevWasIterationMark = false;
-        private final List<Char> outputBuf = new ArrayList<>();
-
-        private static class CharInfo {
-            final String charStr;
-            final CharType type;
-
-            CharInfo(String charStr, CharType type) {
-                this.charStr = charStr;
-                this.type = type;
-            }
-        }
 
         public JapaneseIterationMarksCharIterator(CharIterator input, Options options) {
             this.input = input;
@@ -333,7 +226,7 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
 
         @Override
         public boolean hasNext() {
-            return !outputBuf.isEmpty() || input.hasNext();
+            return input.hasNext();
         }
 
         @Override
@@ -342,19 +235,14 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
                 throw new NoSuchElementException();
             }
 
-            // If we have output characters buffered, return them first
-            if (!outputBuf.isEmpty()) {
-                return outputBuf.remove(0);
-            }
-
             // Get next character from input
             Char character = input.next();
             if (character == null || character.isSentinel()) {
                 return character;
             }
 
-            String currentChar = character.get().toString();
-            int codepoint = currentChar.isEmpty() ? -1 : currentChar.codePointAt(0);
+            final CodePointTuple currentChar = character.get();
+            int codepoint = currentChar.size() == 0 ? -1 : currentChar.get(0);
 
             if (isIterationMark(codepoint)) {
                 // Check if previous character was also an iteration mark
@@ -367,68 +255,66 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
                 }
 
                 // Try to replace the iteration mark
-                String replacement = null;
-                if (prevCharInfo != null) {
-                    switch (codepoint) {
-                        case HIRAGANA_ITERATION_MARK:
-                        case VERTICAL_HIRAGANA_ITERATION_MARK:
-                            // Repeat previous hiragana if valid
-                            if (prevCharInfo.type == CharType.HIRAGANA) {
-                                replacement = prevCharInfo.charStr;
-                            } else if (prevCharInfo.type == CharType.HIRAGANA_VOICED) {
-                                // Voiced character followed by unvoiced iteration mark
-                                replacement = HIRAGANA_UNVOICING.get(prevCharInfo.charStr);
-                            }
-                            break;
-
-                        case HIRAGANA_VOICED_ITERATION_MARK:
-                        case VERTICAL_HIRAGANA_VOICED_ITERATION_MARK:
-                            // Repeat previous hiragana with voicing if possible
-                            if (prevCharInfo.type == CharType.HIRAGANA) {
-                                replacement = HIRAGANA_VOICING.get(prevCharInfo.charStr);
-                            } else if (prevCharInfo.type == CharType.HIRAGANA_VOICED) {
-                                // Voiced character followed by voiced iteration mark
-                                replacement = prevCharInfo.charStr;
-                            }
-                            break;
-
-                        case KATAKANA_ITERATION_MARK:
-                        case VERTICAL_KATAKANA_ITERATION_MARK:
-                            // Repeat previous katakana if valid
-                            if (prevCharInfo.type == CharType.KATAKANA) {
-                                replacement = prevCharInfo.charStr;
-                            } else if (prevCharInfo.type == CharType.KATAKANA_VOICED) {
-                                // Voiced character followed by unvoiced iteration mark
-                                replacement = KATAKANA_UNVOICING.get(prevCharInfo.charStr);
-                            }
-                            break;
-
-                        case KATAKANA_VOICED_ITERATION_MARK:
-                        case VERTICAL_KATAKANA_VOICED_ITERATION_MARK:
-                            // Repeat previous katakana with voicing if possible
-                            if (prevCharInfo.type == CharType.KATAKANA) {
-                                replacement = KATAKANA_VOICING.get(prevCharInfo.charStr);
-                            } else if (prevCharInfo.type == CharType.KATAKANA_VOICED) {
-                                // Voiced character followed by voiced iteration mark
-                                replacement = prevCharInfo.charStr;
-                            }
-                            break;
-
-                        case KANJI_ITERATION_MARK:
-                            // Repeat previous kanji
-                            if (prevCharInfo.type == CharType.KANJI) {
-                                replacement = prevCharInfo.charStr;
-                            }
-                            break;
-                    }
+                CodePointTuple replacement = null;
+                switch (codepoint) {
+                    case HIRAGANA_ITERATION_MARK:
+                    case VERTICAL_HIRAGANA_ITERATION_MARK:
+                        // Repeat previous hiragana if valid
+                        if (prevType == CharType.HIRAGANA) {
+                            replacement = prevChar;
+                        } else if (prevType == CharType.HIRAGANA_VOICED) {
+                            // Voiced character followed by unvoiced iteration mark
+                            replacement = lookup(UNVOICING, prevChar);
+                        }
+                        break;
+
+                    case HIRAGANA_VOICED_ITERATION_MARK:
+                    case VERTICAL_HIRAGANA_VOICED_ITERATION_MARK:
+                        // Repeat previous hiragana with voicing if possible
+                        if (prevType == CharType.HIRAGANA) {
+                            replacement = lookup(VOICING, prevChar);
+                        } else if (prevType == CharType.HIRAGANA_VOICED) {
+                            // Voiced character followed by voiced iteration mark
+                            replacement = prevChar;
+                        }
+                        break;
+
+                    case KATAKANA_ITERATION_MARK:
+                    case VERTICAL_KATAKANA_ITERATION_MARK:
+                        // Repeat previous katakana if valid
+                        if (prevType == CharType.KATAKANA) {
+                            replacement = prevChar;
+                        } else if (prevType == CharType.KATAKANA_VOICED) {
+                            // Voiced character followed by unvoiced iteration mark
+                            replacement = lookup(UNVOICING, prevChar);
+                        }
+                        break;
+
+                    case KATAKANA_VOICED_ITERATION_MARK:
+                    case VERTICAL_KATAKANA_VOICED_ITERATION_MARK:
+                        // Repeat previous katakana with voicing if possible
+                        if (prevType == CharType.KATAKANA) {
+                            replacement = lookup(VOICING, prevChar);
+                        } else if (prevType == CharType.KATAKANA_VOICED) {
+                            // Voiced character followed by voiced iteration mark
+                            replacement = prevChar;
+                        }
+                        break;
+
+                    case KANJI_ITERATION_MARK:
+                        // Repeat previous kanji
+                        if (prevType == CharType.KANJI) {
+                            replacement = prevChar;
+                        }
+                        break;
                 }
 
                 if (replacement != null) {
                     // Replace the iteration mark
-                    Char result = new Char(CodePointTuple.of(replacement), offset, character);
+                    Char result = new Char(replacement, offset, character);
                     offset += result.charCount();
                     prevWasIterationMark = true;
-                    // Keep the original prevCharInfo - don't update it
+                    // Keep the original previous character - don't update it
                     return result;
                 } else {
                     // Couldn't replace the iteration mark
@@ -443,12 +329,8 @@ public class JapaneseIterationMarksTransliterator implements Transliterator {
                 offset += result.charCount();
 
                 // Update previous character info
-                CharType charType = getCharType(currentChar);
-                if (charType != CharType.OTHER) {
-                    prevCharInfo = new CharInfo(currentChar, charType);
-                } else {
-                    prevCharInfo = null;
-                }
+                prevType = getCharType(currentChar);
+                prevChar = prevType != CharType.OTHER ? currentChar : null;
 
                 prevWasIterationMark = false;
                 return result;
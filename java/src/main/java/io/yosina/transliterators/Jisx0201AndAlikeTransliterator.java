@@ -1,15 +1,21 @@
 package io.yosina.transliterators;
 
+import io.yosina.BufferTransliterator;
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
 import io.yosina.Transliterator;
 import io.yosina.annotations.RegisteredTransliterator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * JIS X 0201 and alike transliterator for fullwidth/halfwidth conversion.
@@ -23,7 +29,7 @@ import java.util.Optional;
  * U+30FC. - Japanese punctuations: U+3001, U+3002, U+30A0, and U+30FB.
  */
 @RegisteredTransliterator(name = "jisx0201-and-alike")
-public class Jisx0201AndAlikeTransliterator implements Transliterator {
+public class Jisx0201AndAlikeTransliterator implements Transliterator, BufferTransliterator {
 
     // GL area mapping table (fullwidth to halfwidth)
     private static final String[][] JISX0201_GL_TABLE = {
@@ -821,19 +827,18 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
 
         @Override
         public int hashCode() {
-            return convertGL
-                    ? 1
-                    : 0
-                            + (convertGR ? 2 : 0)
-                            + (convertUnsafeSpecials ? 4 : 0)
-                            + (convertHiraganas ? 8 : 0)
-                            + (u005cAsYenSign ? 16 : 0)
-                            + (u005cAsBackslash ? 32 : 0)
-                            + (u007eAsFullwidthTilde ? 64 : 0)
-                            + (u007eAsWaveDash ? 128 : 0)
-                            + (u007eAsOverline ? 256 : 0)
-                            + (u007eAsFullwidthMacron ? 512 : 0)
-                            + (u00a5AsYenSign ? 1024 : 0);
+            return Objects.hash(
+                    convertGL,
+                    convertGR,
+                    convertUnsafeSpecials,
+                    convertHiraganas,
+                    u005cAsYenSign,
+                    u005cAsBackslash,
+                    u007eAsFullwidthTilde,
+                    u007eAsWaveDash,
+                    u007eAsOverline,
+                    u007eAsFullwidthMacron,
+                    u00a5AsYenSign);
         }
 
         private ForwardOptions(
@@ -896,19 +901,18 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
 
         @Override
         public int hashCode() {
-            return convertGL
-                    ? 1
-                    : 0
-                            + (convertGR ? 2 : 0)
-                            + (convertUnsafeSpecials ? 4 : 0)
-                            + (combineVoicedSoundMarks ? 8 : 0)
-                            + (u005cAsYenSign ? 16 : 0)
-                            + (u005cAsBackslash ? 32 : 0)
-                            + (u007eAsFullwidthTilde ? 64 : 0)
-                            + (u007eAsWaveDash ? 128 : 0)
-                            + (u007eAsOverline ? 256 : 0)
-                            + (u007eAsFullwidthMacron ? 512 : 0)
-                            + (u00a5AsYenSign ? 1024 : 0);
+            return Objects.hash(
+                    convertGL,
+                    convertGR,
+                    convertUnsafeSpecials,
+                    combineVoicedSoundMarks,
+                    u005cAsYenSign,
+                    u005cAsBackslash,
+                    u007eAsFullwidthTilde,
+                    u007eAsWaveDash,
+                    u007eAsOverline,
+                    u007eAsFullwidthMacron,
+                    u00a5AsYenSign);
         }
 
         private ReverseOptions(
@@ -937,8 +941,17 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         }
     }
 
+    // Compiled once per distinct set of options and shared by all the instances that use it
+    private static final ConcurrentMap<ForwardOptions, ForwardTable> FORWARD_TABLES =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentMap<ReverseOptions, ReverseTable> REVERSE_TABLES =
+            new ConcurrentHashMap<>();
+
     private final Optional<ForwardOptions> forwardOptions;
     private final Optional<ReverseOptions> reverseOptions;
+    private final ForwardTable forwardTable;
+    private final ReverseTable reverseTable;
+    private final CodePointSet affectedCodePoints;
 
     /** Creates a new Jisx0201AndAlikeTransliterator with default options. */
     public Jisx0201AndAlikeTransliterator() {
@@ -959,6 +972,15 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
                 options.fullwidthToHalfwidth
                         ? Optional.empty()
                         : Optional.of(options.buildReverseOptions());
+        this.forwardTable =
+                forwardOptions
+                        .map(opts -> FORWARD_TABLES.computeIfAbsent(opts, ForwardTable::new))
+                        .orElse(null);
+        this.reverseTable =
+                reverseOptions
+                        .map(opts -> REVERSE_TABLES.computeIfAbsent(opts, ReverseTable::new))
+                        .orElse(null);
+        this.affectedCodePoints = forwardTable != null ? forwardTable.keys : reverseTable.keys;
     }
 
     /**
@@ -973,7 +995,7 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
                 .orElseThrow();
     }
 
-    private Map<Integer, String> buildForwardMappings(ForwardOptions opts) {
+    private static Map<Integer, String> buildForwardMappings(ForwardOptions opts) {
         Map<Integer, String> mappings = new HashMap<>();
 
         if (opts.convertGL) {
@@ -1039,7 +1061,7 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         return mappings;
     }
 
-    private Map<Integer, Integer> buildReverseMappings(ReverseOptions opts) {
+    private static Map<Integer, Integer> buildReverseMappings(ReverseOptions opts) {
         Map<Integer, Integer> mappings = new HashMap<>();
 
         if (opts.convertGL) {
@@ -1093,7 +1115,8 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         return mappings;
     }
 
-    private Map<Integer, Map<Integer, Integer>> buildVoicedReverseMappings(ReverseOptions opts) {
+    private static Map<Integer, Map<Integer, Integer>> buildVoicedReverseMappings(
+            ReverseOptions opts) {
         Map<Integer, Map<Integer, Integer>> mappings = new HashMap<>();
 
         if (opts.convertGR && opts.combineVoicedSoundMarks) {
@@ -1114,7 +1137,7 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         return mappings;
     }
 
-    private void addMappings(Map<Integer, String> mappings, String[][] pairs) {
+    private static void addMappings(Map<Integer, String> mappings, String[][] pairs) {
         if (pairs != null) {
             for (String[] pair : pairs) {
                 int codePoint = pair[0].codePointAt(0);
@@ -1123,7 +1146,7 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         }
     }
 
-    private void addReverseMappings(Map<Integer, Integer> mappings, String[][] pairs) {
+    private static void addReverseMappings(Map<Integer, Integer> mappings, String[][] pairs) {
         if (pairs != null) {
             for (String[] pair : pairs) {
                 int fromCodePoint = pair[1].codePointAt(0);
@@ -1133,6 +1156,134 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         }
     }
 
+    /**
+     * An immutable map from code points in the Basic Multilingual Plane to non-zero ints, kept as
+     * an int array for each block of 256 code points that has keys. The mappings only touch a
+     * handful of blocks, mostly U+30xx and U+FFxx, so a lookup is two array reads.
+     */
+    private static final class BlockTable {
+        private final int[][] blocks = new int[0x100][];
+
+        private BlockTable(Map<Integer, Integer> mappings) {
+            for (Map.Entry<Integer, Integer> entry : mappings.entrySet()) {
+                final int codePoint = entry.getKey();
+                if (codePoint >= 0x10000 || entry.getValue() == 0) {
+                    throw new IllegalStateException(
+                            String.format("Cannot compile the mapping of U+%04X", codePoint));
+                }
+                if (blocks[codePoint >>> 8] == null) {
+                    blocks[codePoint >>> 8] = new int[0x100];
+                }
+                blocks[codePoint >>> 8][codePoint & 0xff] = entry.getValue();
+            }
+        }
+
+        /**
+         * Looks up a code point.
+         *
+         * @param codePoint the code point
+         * @return the value for the code point, or 0 if it has none
+         */
+        int get(int codePoint) {
+            if (codePoint >>> 16 != 0) {
+                return 0;
+            }
+            final int[] block = blocks[codePoint >>> 8];
+            return block != null ? block[codePoint & 0xff] : 0;
+        }
+    }
+
+    /** Fullwidth to halfwidth mappings compiled for a set of options. */
+    private static final class ForwardTable {
+        // Each value packs the one or two halfwidth code points of a mapping, the first in the
+        // low 16 bits
+        private final BlockTable mappings;
+        private final CodePointSet keys;
+
+        private ForwardTable(ForwardOptions options) {
+            final Map<Integer, Integer> packed = new HashMap<>();
+            final CodePointSet.Builder keys = new CodePointSet.Builder();
+            buildForwardMappings(options)
+                    .forEach(
+                            (codePoint, mapped) -> {
+                                packed.put(codePoint, pack(mapped));
+                                keys.add(codePoint);
+                            });
+            this.mappings = new BlockTable(packed);
+            this.keys = keys.build();
+        }
+
+        private static int pack(String mapped) {
+            final int[] codePoints = mapped.codePoints().toArray();
+            if (codePoints.length == 0
+                    || codePoints.length > 2
+                    || Arrays.stream(codePoints).anyMatch(c -> c >= 0x10000)) {
+                throw new IllegalStateException("Cannot compile the mapping to " + mapped);
+            }
+            return codePoints[0] | (codePoints.length > 1 ? codePoints[1] << 16 : 0);
+        }
+    }
+
+    /** Halfwidth to fullwidth mappings compiled for a set of options. */
+    private static final class ReverseTable {
+        private final BlockTable mappings;
+        // Each value packs the letter that a base makes with U+FF9E in the low 16 bits and the one
+        // it makes with U+FF9F in the high 16 bits
+        private final BlockTable voicedMappings;
+        private final CodePointSet keys;
+
+        private ReverseTable(ReverseOptions options) {
+            final Map<Integer, Integer> mappings = buildReverseMappings(options);
+            final Map<Integer, Integer> voiced = new HashMap<>();
+            buildVoicedReverseMappings(options)
+                    .forEach(
+                            (base, marks) ->
+                                    marks.forEach(
+                                            (mark, combined) ->
+                                                    voiced.merge(
+                                                            base,
+                                                            combined << markShift(mark),
+                                                            (a, b) -> a | b)));
+            this.mappings = new BlockTable(mappings);
+            this.voicedMappings = new BlockTable(voiced);
+            // The bases and marks of the voiced letters are mapped on their own as well
+            final CodePointSet.Builder keys = new CodePointSet.Builder();
+            mappings.keySet().forEach(keys::add);
+            this.keys = keys.build();
+        }
+
+        private static int markShift(int mark) {
+            switch (mark) {
+                case 0xff9e:
+                    return 0;
+                case 0xff9f:
+                    return 16;
+                default:
+                    throw new IllegalStateException(
+                            String.format("Unexpected sound mark U+%04X", mark));
+            }
+        }
+
+        /**
+         * Looks up the letter that a base and a sound mark combine into.
+         *
+         * @param base the base code point
+         * @param mark the code point that follows the base
+         * @return the combined letter, or 0 if they do not combine
+         */
+        int combine(int base, int mark) {
+            final int packed = voicedMappings.get(base);
+            switch (mark) {
+                case 0xff9e:
+                    return packed & 0xffff;
+                case 0xff9f:
+                    return packed >>> 16;
+                default:
+                    return 0;
+            }
+        }
+    }
+
     /**
      * Transliterates the input by converting between fullwidth and halfwidth characters.
      *
@@ -1141,46 +1292,91 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
      */
     @Override
     public CharIterator transliterate(CharIterator input) {
-        return this.forwardOptions
-                .map(
-                        (options) -> {
-                            final Map<Integer, String> forwardMappings =
-                                    buildForwardMappings(options);
-                            return (CharIterator)
-                                    new FullwidthToHalfwidthIterator(forwardMappings, input);
-                        })
-                .or(
-                        () ->
-                                this.reverseOptions.map(
-                                        (options) -> {
-                                            final Map<Integer, Integer> reverseMappings =
-                                                    buildReverseMappings(options);
-                                            final Map<Integer, Map<Integer, Integer>>
-                                                    voicedReverseMappings =
-                                                            buildVoicedReverseMappings(options);
-                                            return new HalfwidthToFullwidthIterator(
-                                                    reverseMappings, voicedReverseMappings, input);
-                                        }))
-                .orElseThrow();
+        return forwardTable != null
+                ? new FullwidthToHalfwidthIterator(forwardTable, input)
+                : new HalfwidthToFullwidthIterator(reverseTable, input);
+    }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints;
     }
 
-    private class FullwidthToHalfwidthIterator implements CharIterator {
-        private final Map<Integer, String> forwardMappings;
+    @Override
+    public boolean readsProvenance() {
+        return false;
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        if (forwardTable != null) {
+            transliterateForward(forwardTable, input, start, end, output);
+        } else {
+            transliterateReverse(reverseTable, input, start, end, output);
+        }
+    }
+
+    private static void transliterateForward(
+            ForwardTable table, CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            final int mapped = input.second(i) < 0 ? table.mappings.get(input.first(i)) : 0;
+            if (mapped == 0) {
+                output.append(input, i);
+                continue;
+            }
+            final int offset = input.offset(i);
+            output.append(mapped & 0xffff, -1, offset);
+            if (mapped >>> 16 != 0) {
+                output.append(mapped >>> 16, -1, offset);
+            }
+        }
+    }
+
+    private static void transliterateReverse(
+            ReverseTable table, CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            if (input.second(i) >= 0) {
+                output.append(input, i);
+                continue;
+            }
+            final int codePoint = input.first(i);
+
+            // Check for voiced sound mark combination
+            if (i + 1 < end && input.second(i + 1) < 0) {
+                final int combined = table.combine(codePoint, input.first(i + 1));
+                if (combined != 0) {
+                    output.append(combined, -1, input.offset(i));
+                    i++;
+                    continue;
+                }
+            }
+
+            // Regular mapping
+            final int mapped = table.mappings.get(codePoint);
+            if (mapped != 0) {
+                output.append(mapped, -1, input.offset(i));
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
+
+    private static class FullwidthToHalfwidthIterator implements CharIterator {
+        private final ForwardTable table;
         private final CharIterator input;
-        private String pending;
-        private int pendingOffset;
+        // The second code point of the last mapping if it is yet to be returned, or 0
+        private int pending;
         private Char pendingSource;
         private int offset = 0;
 
-        public FullwidthToHalfwidthIterator(
-                Map<Integer, String> forwardMappings, CharIterator input) {
-            this.forwardMappings = forwardMappings;
+        public FullwidthToHalfwidthIterator(ForwardTable table, CharIterator input) {
+            this.table = table;
             this.input = input;
         }
 
         @Override
         public boolean hasNext() {
-            return (pending != null && pendingOffset < pending.length()) || input.hasNext();
+            return pending != 0 || input.hasNext();
         }
 
         @Override
@@ -1190,10 +1386,10 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
             }
 
             // Return pending character if available
-            if (pending != null && pendingOffset < pending.length()) {
-                int codePoint = pending.codePointAt(pendingOffset);
-                pendingOffset += Character.charCount(codePoint);
-                Char result = new Char(CodePointTuple.of(codePoint), offset, pendingSource);
+            if (pending != 0) {
+                Char result = new Char(CodePointTuple.of(pending), offset, pendingSource);
+                pending = 0;
+                pendingSource = null;
                 offset += result.charCount();
                 return result;
             }
@@ -1211,28 +1407,14 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
                 return result;
             }
 
-            int codePoint = tuple.get(0);
-            String mapped = forwardMappings.get(codePoint);
-
-            if (mapped != null) {
-                // Multi-character mapping
-                if (mapped.length() > Character.charCount(mapped.codePointAt(0))) {
-                    pending = mapped;
-                    pendingOffset = 0;
-                    pendingSource = c;
-                    // Return first character
-                    int firstCodePoint = mapped.codePointAt(0);
-                    pendingOffset = Character.charCount(firstCodePoint);
-                    Char result = new Char(CodePointTuple.of(firstCodePoint), offset, c);
-                    offset += result.charCount();
-                    return result;
-                } else {
-                    // Single character mapping
-                    int mappedCodePoint = mapped.codePointAt(0);
-                    Char result = new Char(CodePointTuple.of(mappedCodePoint), offset, c);
-                    offset += result.charCount();
-                    return result;
-                }
+            final int mapped = table.mappings.get(tuple.get(0));
+            if (mapped != 0) {
+                // A multi-character mapping leaves its second character pending
+                pending = mapped >>> 16;
+                pendingSource = pending != 0 ? c : null;
+                Char result = new Char(CodePointTuple.of(mapped & 0xffff), offset, c);
+                offset += result.charCount();
+                return result;
             }
 
             // No mapping, return original
@@ -1247,19 +1429,14 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
         }
     }
 
-    private class HalfwidthToFullwidthIterator implements CharIterator {
-        private final Map<Integer, Integer> reverseMappings;
-        private final Map<Integer, Map<Integer, Integer>> voicedReverseMappings;
+    private static class HalfwidthToFullwidthIterator implements CharIterator {
+        private final ReverseTable table;
         private final CharIterator input;
         private Char pending;
         private int offset = 0;
 
-        public HalfwidthToFullwidthIterator(
-                Map<Integer, Integer> reverseMappings,
-                Map<Integer, Map<Integer, Integer>> voicedReverseMappings,
-                CharIterator input) {
-            this.reverseMappings = reverseMappings;
-            this.voicedReverseMappings = voicedReverseMappings;
+        public HalfwidthToFullwidthIterator(ReverseTable table, CharIterator input) {
+            this.table = table;
             this.input = input;
         }
 
@@ -1296,27 +1473,23 @@ public class Jisx0201AndAlikeTransliterator implements Transliterator {
             int codePoint = tuple.get(0);
 
             // Check for voiced sound mark combination
-            if (!voicedReverseMappings.isEmpty() && voicedReverseMappings.containsKey(codePoint)) {
-                if (input.hasNext()) {
-                    Char next = input.next();
-                    if (!next.isSentinel() && next.get().size() == 1) {
-                        int nextCodePoint = next.get().get(0);
-                        Map<Integer, Integer> markMappings = voicedReverseMappings.get(codePoint);
-                        Integer combined = markMappings.get(nextCodePoint);
-                        if (combined != null) {
-                            Char result = new Char(CodePointTuple.of(combined), offset, c);
-                            offset += result.charCount();
-                            return result;
-                        }
+            if (table.voicedMappings.get(codePoint) != 0 && input.hasNext()) {
+                Char next = input.next();
+                if (!next.isSentinel() && next.get().size() == 1) {
+                    final int combined = table.combine(codePoint, next.get().get(0));
+                    if (combined != 0) {
+                        Char result = new Char(CodePointTuple.of(combined), offset, c);
+                        offset += result.charCount();
+                        return result;
                     }
-                    // No combination, set next as pending
-                    pending = next;
                 }
+                // No combination, set next as pending
+                pending = next;
             }
 
             // Regular mapping
-            Integer mapped = reverseMappings.get(codePoint);
-            if (mapped != null) {
+            final int mapped = table.mappings.get(codePoint);
+            if (mapped != 0) {
                 Char result = new Char(CodePointTuple.of(mapped), offset, c);
                 offset += result.charCount();
                 return result;
@@ -1,46 +1,60 @@
 package io.yosina.transliterators;
 
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.ResourceTable;
+import io.yosina.TableTransliterator;
 import io.yosina.annotations.RegisteredTransliterator;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Collections;
-import java.util.Map;
-import java.util.TreeMap;
 
 /** Auto-generated transliterator for KanjiOldNewTransliterator. */
 @RegisteredTransliterator(name = "kanji-old-new")
-public class KanjiOldNewTransliterator implements Transliterator {
-    private static final Map<CodePointTuple, CodePointTuple> mappings;
+public class KanjiOldNewTransliterator implements TableTransliterator {
+    private static final CodePointLookup<CodePointTuple> mappings;
+    private static final CodePointSet affectedCodePoints;
 
     static {
-        final Map<CodePointTuple, CodePointTuple> mappings_ = new TreeMap<>();
-        final ByteBuffer b;
-        try {
-            try (final InputStream s =
-                    KanjiOldNewTransliterator.class.getResourceAsStream("kanji_old_new.data")) {
-                b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+        final ByteBuffer b =
+                ResourceTable.load(KanjiOldNewTransliterator.class, "kanji_old_new.data");
+        if (ResourceTable.isInPlace()) {
+            final ResourceTable table = ResourceTable.ofFixed(b, 4);
+            mappings =
+                    table.asLookup(r -> CodePointTuple.of(table.getInt(r, 0), table.getInt(r, 1)));
+            affectedCodePoints = table.keyCodePoints();
+        } else {
+            final CodePointTrie.Builder<CodePointTuple> mappings_ = new CodePointTrie.Builder<>();
+            while (b.hasRemaining()) {
+                final int key1 = b.getInt(), key2 = b.getInt();
+                final int value1 = b.getInt(), value2 = b.getInt();
+                mappings_.put(key1, key2, CodePointTuple.of(value1, value2));
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            final CodePointTrie<CodePointTuple> trie = mappings_.build();
+            mappings = trie;
+            affectedCodePoints = trie.keyCodePoints();
         }
-        while (b.hasRemaining()) {
-            final int key1 = b.getInt(), key2 = b.getInt();
-            final int value1 = b.getInt(), value2 = b.getInt();
-            final CodePointTuple key = CodePointTuple.of(key1, key2);
-            final CodePointTuple value = CodePointTuple.of(value1, value2);
-            mappings_.put(key, value);
-        }
-        mappings = Collections.unmodifiableMap(mappings_);
+    }
+
+    @Override
+    public CodePointLookup<CodePointTuple> getTable() {
+        return mappings;
     }
 
     @Override
     public CharIterator transliterate(CharIterator input) {
         return new SimpleCharIterator(input, mappings);
     }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        SimpleCharIterator.transliterate(input, start, end, output, mappings);
+    }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints;
+    }
 }
@@ -2,17 +2,13 @@ package io.yosina.transliterators;
 
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
 import io.yosina.Transliterator;
 import io.yosina.annotations.RegisteredTransliterator;
-import java.util.ArrayList;
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.ArrayDeque;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * Prolonged sound marks transliterator.
@@ -23,190 +19,21 @@ import java.util.Set;
 @RegisteredTransliterator(name = "prolonged-sound-marks")
 public class ProlongedSoundMarksTransliterator implements Transliterator {
 
-    /** Character type classification flags. */
-    /** Character type classification for determining whether a character can be prolonged. */
-    private enum CharType {
-        /** Other character types */
-        OTHER(0x00),
-        /** Hiragana character */
-        HIRAGANA(0x20),
-        /** Katakana character */
-        KATAKANA(0x40),
-        /** Alphabetic character */
-        ALPHABET(0x60),
-        /** Digit character */
-        DIGIT(0x80),
-        /** Either hiragana or katakana */
-        EITHER(0xA0),
-
-        /** Halfwidth character flag */
-        HALFWIDTH(1 << 0),
-        /** Vowel-ended character flag */
-        VOWEL_ENDED(1 << 1),
-        /** Hatsuon (ん/ン) character flag */
-        HATSUON(1 << 2),
-        /** Sokuon (っ/ッ) character flag */
-        SOKUON(1 << 3),
-        /** Prolonged sound mark flag */
-        PROLONGED_SOUND_MARK(1 << 4),
-
-        /** Halfwidth digit */
-        HALFWIDTH_DIGIT(DIGIT.value | HALFWIDTH.value),
-        /** Fullwidth digit */
-        FULLWIDTH_DIGIT(DIGIT.value),
-        /** Halfwidth alphabet */
-        HALFWIDTH_ALPHABET(ALPHABET.value | HALFWIDTH.value),
-        /** Fullwidth alphabet */
-        FULLWIDTH_ALPHABET(ALPHABET.value),
-        /** Ordinary hiragana (vowel-ended) */
-        ORDINARY_HIRAGANA(HIRAGANA.value | VOWEL_ENDED.value),
-        /** Ordinary katakana (vowel-ended) */
-        ORDINARY_KATAKANA(KATAKANA.value | VOWEL_ENDED.value),
-        /** Ordinary halfwidth katakana (vowel-ended) */
-        ORDINARY_HALFWIDTH_KATAKANA(KATAKANA.value | VOWEL_ENDED.value | HALFWIDTH.value);
-
-        private final int value;
-
-        CharType(int value) {
-            this.value = value;
-        }
-
-        /**
-         * Checks if the character type is alphanumeric.
-         *
-         * @param typeValue the character type value
-         * @return true if the character is alphanumeric, false otherwise
-         */
-        public static boolean isAlnum(int typeValue) {
-            int t = (typeValue & 0xe0);
-            return t == ALPHABET.value || t == DIGIT.value;
-        }
-
-        /**
-         * Checks if the character type is kana (hiragana, katakana, or either).
-         *
-         * @param typeValue the character type value
-         * @return true if the character is kana, false otherwise
-         */
-        public static boolean isKana(int typeValue) {
-            int masked = typeValue & 0xe0;
-            return masked == HIRAGANA.value || masked == KATAKANA.value || masked == EITHER.value;
-        }
-
-        /**
-         * Checks if the character type is halfwidth.
-         *
-         * @param typeValue the character type value
-         * @return true if the character is halfwidth, false otherwise
-         */
-        public static boolean isHalfwidth(int typeValue) {
-            return (typeValue & HALFWIDTH.value) != 0;
-        }
-
-        /**
-         * Checks if the character type has a specific flag.
-         *
-         * @param typeValue the character type value
-         * @param flag the flag to check
-         * @return true if the character has the flag, false otherwise
-         */
-        public static boolean hasFlag(int typeValue, CharType flag) {
-            return (typeValue & flag.value) != 0;
-        }
-
-        /**
-         * Combines multiple character types into a single value.
-         *
-         * @param types the character types to combine
-         * @return the combined character type value
-         */
-        public static int combine(CharType... types) {
-            int combined = 0;
-            for (CharType type : types) {
-                combined |= type.value;
-            }
-            return combined;
-        }
-
-        /**
-         * Determines the character type from a Unicode code point.
-         *
-         * @param codepoint the Unicode code point
-         * @return the character type value
-         */
-        public static int fromCodepoint(int codepoint) {
-            // Halfwidth digits
-            if (0x30 <= codepoint && codepoint <= 0x39) {
-                return HALFWIDTH_DIGIT.value;
-            }
-
-            // Fullwidth digits
-            if (0xFF10 <= codepoint && codepoint <= 0xFF19) {
-                return FULLWIDTH_DIGIT.value;
-            }
-
-            // Halfwidth alphabets
-            if ((0x41 <= codepoint && codepoint <= 0x5A)
-                    || (0x61 <= codepoint && codepoint <= 0x7A)) {
-                return HALFWIDTH_ALPHABET.value;
-            }
-
-            // Fullwidth alphabets
-            if ((0xFF21 <= codepoint && codepoint <= 0xFF3A)
-                    || (0xFF41 <= codepoint && codepoint <= 0xFF5A)) {
-                return FULLWIDTH_ALPHABET.value;
-            }
-
-            // Special characters
-            if (SPECIALS.containsKey(codepoint)) {
-                return SPECIALS.get(codepoint);
-            }
-
-            // Hiragana
-            if ((0x3041 <= codepoint && codepoint <= 0x309C) || codepoint == 0x309F) {
-                return ORDINARY_HIRAGANA.value;
-            }
-
-            // Katakana
-            if ((0x30A1 <= codepoint && codepoint <= 0x30FA)
-                    || (0x30FD <= codepoint && codepoint <= 0x30FF)) {
-                return ORDINARY_KATAKANA.value;
-            }
-
-            // Halfwidth katakana
-            if ((0xFF66 <= codepoint && codepoint <= 0xFF6F)
-                    || (0xFF71 <= codepoint && codepoint <= 0xFF9F)) {
-                return ORDINARY_HALFWIDTH_KATAKANA.value;
-            }
-
-            return OTHER.value;
-        }
-    }
-
-    // Special character mappings
-    private static final Map<Integer, Integer> SPECIALS = new HashMap<>();
-
-    static {
-        SPECIALS.put(
-                0xFF70,
-                CharType.combine(
-                        CharType.KATAKANA, CharType.PROLONGED_SOUND_MARK, CharType.HALFWIDTH)); // ｰ
-        SPECIALS.put(0x30FC, CharType.combine(CharType.EITHER, CharType.PROLONGED_SOUND_MARK)); // ー
-        SPECIALS.put(0x3063, CharType.combine(CharType.HIRAGANA, CharType.SOKUON)); // っ
-        SPECIALS.put(0x3093, CharType.combine(CharType.HIRAGANA, CharType.HATSUON)); // ん
-        SPECIALS.put(0x30C3, CharType.combine(CharType.KATAKANA, CharType.SOKUON)); // ッ
-        SPECIALS.put(0x30F3, CharType.combine(CharType.KATAKANA, CharType.HATSUON)); // ン
-        SPECIALS.put(
-                0xFF6F,
-                CharType.combine(CharType.KATAKANA, CharType.SOKUON, CharType.HALFWIDTH)); // ｯ
-        SPECIALS.put(
-                0xFF9D,
-                CharType.combine(CharType.KATAKANA, CharType.HATSUON, CharType.HALFWIDTH)); // ﾝ
-    }
-
     // Hyphen-like characters that could be prolonged sound marks
-    private static final Set<String> HYPHEN_LIKE_CHARS =
-            Set.of("\u002d", "\u2010", "\u2014", "\u2015", "\u2212", "\uff0d", "\uff70", "\u30fc");
+    private static final CodePointSet HYPHEN_LIKE_CODE_POINTS =
+            new CodePointSet.Builder()
+                    .add(0x002d)
+                    .add(0x2010)
+                    .add(0x2014)
+                    .add(0x2015)
+                    .add(0x2212)
+                    .add(0xff0d)
+                    .add(0xff70)
+                    .add(0x30fc)
+                    .build();
+
+    // The type of no character, as before the first one
+    private static final int NONE = -1;
 
     /** Options for the transliterator. */
     public static class Options {
@@ -427,7 +254,8 @@ public class ProlongedSoundMarksTransliterator implements Transliterator {
     }
 
     private final Options options;
-    private final EnumSet<CharType> prolongables;
+    // The JapaneseCharClass flags of the characters that can be prolonged
+    private final int prolongables;
 
     /** Creates a new ProlongedSoundMarksTransliterator with default options. */
     public ProlongedSoundMarksTransliterator() {
@@ -443,13 +271,10 @@ public class ProlongedSoundMarksTransliterator implements Transliterator {
         this.options = options;
 
         // Build prolongable character types
-        this.prolongables = EnumSet.of(CharType.VOWEL_ENDED, CharType.PROLONGED_SOUND_MARK);
-        if (options.allowProlongedHatsuon) {
-            this.prolongables.add(CharType.HATSUON);
-        }
-        if (options.allowProlongedSokuon) {
-            this.prolongables.add(CharType.SOKUON);
-        }
+        this.prolongables =
+                JapaneseCharClass.VOWEL_ENDED
+                        | (options.allowProlongedHatsuon ? JapaneseCharClass.HATSUON : 0)
+                        | (options.allowProlongedSokuon ? JapaneseCharClass.SOKUON : 0);
     }
 
     /**
@@ -463,27 +288,140 @@ public class ProlongedSoundMarksTransliterator implements Transliterator {
         return new ProlongedSoundMarksCharIterator(input, options, prolongables);
     }
 
-    private static class ProlongedSoundMarksCharIterator implements CharIterator {
+    /**
+     * Returns the hyphen-like characters this transliterator replaces. A replacement depends on the
+     * characters just before and after a run of them, which are the context kept around it.
+     *
+     * @return the affected code points
+     */
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return HYPHEN_LIKE_CODE_POINTS;
+    }
+
+    /**
+     * Returns whether already transliterated characters are skipped, which is told from where they
+     * come from.
+     *
+     * @return true if {@code skipAlreadyTransliteratedChars} is set
+     */
+    @Override
+    public boolean readsProvenance() {
+        return options.skipAlreadyTransliteratedChars;
+    }
+
+    private static boolean isHyphenLike(CodePointTuple c) {
+        return c.size() == 1 && HYPHEN_LIKE_CODE_POINTS.contains(c.get(0));
+    }
+
+    private static boolean isAlnum(int type) {
+        return (type & (JapaneseCharClass.DIGIT | JapaneseCharClass.ALPHABET)) != 0;
+    }
+
+    private static boolean isKana(int type) {
+        return (type & (JapaneseCharClass.HIRAGANA | JapaneseCharClass.KATAKANA)) != 0;
+    }
+
+    private static boolean isHalfwidth(int type) {
+        return (type & JapaneseCharClass.HALFWIDTH) != 0;
+    }
+
+    /**
+     * Consecutive characters of a run of hyphen-like characters that differ only in their position,
+     * kept as the first of them and a count.
+     */
+    private static final class Segment {
+        private final Char first;
+        private int count = 1;
+        private int emitted = 0;
+
+        Segment(Char first) {
+            this.first = first;
+        }
+
+        /** Extends the segment by the given character if it can be rebuilt from the first one. */
+        boolean tryAppend(Char c) {
+            if (!c.get().equals(first.get())) {
+                return false;
+            }
+            if (!first.tracksProvenance()) {
+                // Characters derived from one that does not track provenance only remember whether
+                // they have been changed
+                if (c.tracksProvenance() || c.isTransliterated() != first.isTransliterated()) {
+                    return false;
+                }
+            } else if (!isShifted(first, c, count)) {
+                // Other than characters derived the same way from consecutive offsets, each one has
+                // to be kept
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        /**
+         * Checks whether a character and every character it was derived from are the same as those
+         * of another one, only that many positions further along.
+         */
+        private static boolean isShifted(Char a, Char b, int distance) {
+            while (true) {
+                if (!b.get().equals(a.get())
+                        || b.getOffset() != a.getOffset() + distance
+                        || !b.tracksProvenance()) {
+                    return false;
+                }
+                if (a.getSource() == null || b.getSource() == null) {
+                    return !a.hasSource() && !b.hasSource();
+                }
+                a = a.getSource();
+                b = b.getSource();
+            }
+        }
+
+        private static Char shift(Char c, int distance) {
+            final Char source = c.getSource();
+            return new Char(
+                    c.get(),
+                    c.getOffset() + distance,
+                    source != null ? shift(source, distance) : null);
+        }
+
+        boolean isExhausted() {
+            return emitted == count;
+        }
+
+        Char next() {
+            final int i = emitted++;
+            if (i == 0 || !first.tracksProvenance()) {
+                return first;
+            }
+            return shift(first, i);
+        }
+    }
+
+    // Package-private for testing
+    static class ProlongedSoundMarksCharIterator implements CharIterator {
         private final CharIterator input;
         private final Options options;
-        private final EnumSet<CharType> prolongables;
+        private final int prolongables;
         private int offset = 0;
-        private boolean processedCharsInLookahead = false;
-        private final List<Char> lookaheadBuf = new ArrayList<>();
-        private CharWithType lastNonProlongedChar = null;
+        // The JapaneseCharClass flags of the last character that is not hyphen-like, or NONE
+        private int lastNonProlongedType = NONE;
+        // The code point to replace the hyphen-like characters that follow with, or NONE
+        private int streamReplacement = NONE;
+        // A run of hyphen-like characters whose replacement depended on what follows it
+        private final ArrayDeque<Segment> run = new ArrayDeque<>();
+        // The code point to replace the run with, or NONE to pass it through
+        private int runReplacement = NONE;
         private Char pendingChar = null;
-        private final List<Char> outputBuf = new ArrayList<>();
 
-        private static class CharWithType {
-            final int type;
-
-            CharWithType(Char character, int type) {
-                this.type = type;
-            }
+        // The number of segments the buffered run is kept in (package-private for testing)
+        int bufferedSegments() {
+            return run.size();
         }
 
         public ProlongedSoundMarksCharIterator(
-                CharIterator input, Options options, EnumSet<CharType> prolongables) {
+                CharIterator input, Options options, int prolongables) {
             this.input = input;
             this.options = options;
             this.prolongables = prolongables;
@@ -491,10 +429,7 @@ public class ProlongedSoundMarksTransliterator implements Transliterator {
 
         @Override
         public boolean hasNext() {
-            return !outputBuf.isEmpty()
-                    || pendingChar != null
-                    || !lookaheadBuf.isEmpty()
-                    || input.hasNext();
+            return !run.isEmpty() || pendingChar != null || input.hasNext();
         }
 
         @Override
@@ -503,190 +438,153 @@ public class ProlongedSoundMarksTransliterator implements Transliterator {
                 throw new NoSuchElementException();
             }
 
-            // If we have output characters buffered, return them first
-            if (!outputBuf.isEmpty()) {
-                return outputBuf.remove(0);
+            // Drain the run being replaced or passed through first
+            if (!run.isEmpty()) {
+                return nextInRun();
             }
 
-            // If we have a pending character from previous iteration, return it
+            // Then the character that ended the run, if any
+            Char character;
             if (pendingChar != null) {
-                Char result = pendingChar;
+                character = pendingChar;
                 pendingChar = null;
-                return result;
-            }
-
-            // If we're processing lookahead buffer
-            if (!lookaheadBuf.isEmpty()) {
-                processLookaheadBuffer();
-                if (!outputBuf.isEmpty()) {
-                    return outputBuf.remove(0);
-                }
+            } else {
+                character = input.next();
             }
-
-            // Get next character from input
-            Char character = input.next();
             if (character == null || character.isSentinel()) {
                 return character;
             }
 
             // Check if this is a hyphen-like character
-            String charStr = character.get().toString();
-            if (HYPHEN_LIKE_CHARS.contains(charStr)) {
+            if (isHyphenLike(character.get())) {
+                if (streamReplacement != NONE) {
+                    return replace(character, streamReplacement);
+                }
                 return processHyphenLikeChar(character);
-            } else {
-                // Update last non-prolonged character
-                int codepoint = character.get().size() > 0 ? character.get().get(0) : -1;
-                lastNonProlongedChar =
-                        new CharWithType(character, CharType.fromCodepoint(codepoint));
-
-                // Pass through the character
-                Char result = character.withOffset(offset);
-                offset += result.charCount();
-                return result;
             }
+
+            // Update last non-prolonged character and pass it through
+            streamReplacement = NONE;
+            lastNonProlongedType = JapaneseCharClass.of(character.get());
+            return passThrough(character);
         }
 
         private Char processHyphenLikeChar(Char character) {
             boolean shouldProcess =
                     !options.skipAlreadyTransliteratedChars || !character.isTransliterated();
 
-            if (shouldProcess && lastNonProlongedChar != null) {
+            if (shouldProcess && lastNonProlongedType != NONE) {
                 // Check if the last character can be prolonged
-                if (hasProlongableFlag(lastNonProlongedChar.type)) {
+                if (hasProlongableFlag(lastNonProlongedType)) {
                     // Replace with appropriate prolonged sound mark
-                    String replacement =
-                            CharType.isHalfwidth(lastNonProlongedChar.type) ? "\uff70" : "\u30fc";
-                    Char result = new Char(CodePointTuple.of(replacement), offset, character);
-                    offset += result.charCount();
-                    return result;
-                } else if ((options.replaceProlongedMarksFollowingAlnums
-                                && CharType.isAlnum(lastNonProlongedChar.type))
+                    return replace(character, isHalfwidth(lastNonProlongedType) ? 0xff70 : 0x30fc);
+                }
+                boolean followingAlnum =
+                        options.replaceProlongedMarksFollowingAlnums
+                                && isAlnum(lastNonProlongedType);
+                if (followingAlnum
                         || (options.replaceProlongedMarksBetweenNonKanas
-                                && !CharType.isKana(lastNonProlongedChar.type))) {
-                    // Start buffering for potential alphanumeric replacement
-                    lookaheadBuf.add(character);
-                    if (character.getSource() != null) {
-                        processedCharsInLookahead = true;
-                    }
-
-                    // Continue reading hyphen-like characters
-                    while (input.hasNext()) {
-                        Char nextChar = input.next();
-                        if (nextChar == null || nextChar.isSentinel()) {
-                            pendingChar = nextChar;
-                            break;
-                        }
-                        String nextCharStr = nextChar.get().toString();
-                        if (HYPHEN_LIKE_CHARS.contains(nextCharStr)) {
-                            lookaheadBuf.add(nextChar);
-                            if (nextChar.getSource() != null) {
-                                processedCharsInLookahead = true;
-                            }
-                        } else {
-                            pendingChar = nextChar;
-                            break;
-                        }
-                    }
-
-                    processLookaheadBuffer();
-                    if (!outputBuf.isEmpty()) {
-                        return outputBuf.remove(0);
+                                && !isKana(lastNonProlongedType))) {
+                    if (followingAlnum
+                            && !options.skipAlreadyTransliteratedChars
+                            && (!options.replaceProlongedMarksBetweenNonKanas
+                                    || isHalfwidth(lastNonProlongedType))) {
+                        // The replacement does not depend on what follows, so the run is
+                        // replaced as it is read
+                        streamReplacement = isHalfwidth(lastNonProlongedType) ? 0x002d : 0xff0d;
+                        return replace(character, streamReplacement);
                     }
+                    readRun(character);
+                    return nextInRun();
                 }
             }
 
             // Default: pass through the character
-            Char result = character.withOffset(offset);
-            offset += result.charCount();
-            return result;
+            return passThrough(character);
         }
 
-        private void processLookaheadBuffer() {
-            if (lookaheadBuf.isEmpty()) {
-                return;
+        /**
+         * Reads the run of hyphen-like characters that starts with the given one up to the
+         * character that follows it, and decides what to replace it with.
+         */
+        private void readRun(Char character) {
+            boolean processedCharsInRun = character.hasSource();
+            run.add(new Segment(character));
+
+            // Continue reading hyphen-like characters
+            while (input.hasNext()) {
+                Char nextChar = input.next();
+                if (nextChar == null || nextChar.isSentinel() || !isHyphenLike(nextChar.get())) {
+                    pendingChar = nextChar;
+                    break;
+                }
+                if (!run.getLast().tryAppend(nextChar)) {
+                    run.add(new Segment(nextChar));
+                }
+                processedCharsInRun |= nextChar.hasSource();
             }
 
-            CharWithType prevNonProlongedChar = lastNonProlongedChar;
+            int prevNonProlongedType = lastNonProlongedType;
 
             // Update last non-prolonged character if we have a pending char
             if (pendingChar != null) {
-                int codepoint = pendingChar.get().size() > 0 ? pendingChar.get().get(0) : -1;
-                lastNonProlongedChar =
-                        new CharWithType(pendingChar, CharType.fromCodepoint(codepoint));
+                lastNonProlongedType = JapaneseCharClass.of(pendingChar.get());
             }
 
-            int followingCharType =
-                    lastNonProlongedChar != null ? lastNonProlongedChar.type : CharType.OTHER.value;
+            int followingCharType = lastNonProlongedType;
 
             boolean replaceByAlnum =
-                    options.replaceProlongedMarksFollowingAlnums
-                            && (prevNonProlongedChar == null
-                                    || CharType.isAlnum(prevNonProlongedChar.type));
+                    options.replaceProlongedMarksFollowingAlnums && isAlnum(prevNonProlongedType);
             boolean replaceByNonKana =
                     options.replaceProlongedMarksBetweenNonKanas
-                            && (prevNonProlongedChar == null
-                                    || !CharType.isKana(prevNonProlongedChar.type))
-                            && !CharType.isKana(followingCharType);
+                            && !isKana(prevNonProlongedType)
+                            && !isKana(followingCharType);
 
             // Check if we should replace with hyphens
             if ((replaceByAlnum || replaceByNonKana)
-                    && (!options.skipAlreadyTransliteratedChars || !processedCharsInLookahead)) {
-
+                    && (!options.skipAlreadyTransliteratedChars || !processedCharsInRun)) {
                 // Determine replacement based on width
-                String replacement;
                 if (replaceByNonKana) {
-                    boolean prevHalf =
-                            prevNonProlongedChar == null
-                                    || CharType.isHalfwidth(prevNonProlongedChar.type);
-                    boolean nextHalf = CharType.isHalfwidth(followingCharType);
-                    replacement = (!prevHalf && !nextHalf) ? "\uff0d" : "\u002d";
+                    boolean prevHalf = isHalfwidth(prevNonProlongedType);
+                    boolean nextHalf = isHalfwidth(followingCharType);
+                    runReplacement = (!prevHalf && !nextHalf) ? 0xff0d : 0x002d;
                 } else {
-                    if (prevNonProlongedChar == null) {
-                        replacement =
-                                lastNonProlongedChar != null
-                                                && CharType.isHalfwidth(lastNonProlongedChar.type)
-                                        ? "\u002d"
-                                        : "\uff0d";
-                    } else {
-                        replacement =
-                                CharType.isHalfwidth(prevNonProlongedChar.type)
-                                        ? "\u002d"
-                                        : "\uff0d";
-                    }
-                }
-
-                // Replace ALL characters in buffer
-                for (Char bufferedChar : lookaheadBuf) {
-                    Char result = new Char(CodePointTuple.of(replacement), offset, bufferedChar);
-                    outputBuf.add(result);
-                    offset += result.charCount();
+                    runReplacement = isHalfwidth(prevNonProlongedType) ? 0x002d : 0xff0d;
                 }
             } else {
-                // Just pass through all buffered characters
-                for (Char bufferedChar : lookaheadBuf) {
-                    Char result = bufferedChar.withOffset(offset);
-                    outputBuf.add(result);
-                    offset += result.charCount();
-                }
+                runReplacement = NONE;
             }
+        }
 
-            // Clear the buffer and reset state
-            lookaheadBuf.clear();
-            processedCharsInLookahead = false;
+        private Char nextInRun() {
+            final Segment segment = run.getFirst();
+            final Char character = segment.next();
+            if (segment.isExhausted()) {
+                run.removeFirst();
+            }
+            return runReplacement != NONE
+                    ? replace(character, runReplacement)
+                    : passThrough(character);
+        }
+
+        private Char replace(Char character, int replacement) {
+            Char result = new Char(CodePointTuple.of(replacement), offset, character);
+            offset += result.charCount();
+            return result;
         }
 
-        private boolean hasProlongableFlag(int typeValue) {
+        private Char passThrough(Char character) {
+            Char result = character.withOffset(offset);
+            offset += result.charCount();
+            return result;
+        }
+
+        private boolean hasProlongableFlag(int type) {
             // Don't prolong if the character is already a prolonged sound mark
-            if (CharType.hasFlag(typeValue, CharType.PROLONGED_SOUND_MARK)) {
+            if ((type & JapaneseCharClass.PROLONGED_SOUND_MARK) != 0) {
                 return false;
             }
-
-            for (CharType prolongable : prolongables) {
-                if (CharType.hasFlag(typeValue, prolongable)) {
-                    return true;
-                }
-            }
-            return false;
+            return (type & prolongables) != 0;
         }
     }
 }
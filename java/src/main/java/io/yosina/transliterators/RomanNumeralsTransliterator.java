@@ -1,107 +1,62 @@
 package io.yosina.transliterators;
 
-import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
 import io.yosina.CodePointTuple;
-import io.yosina.Transliterator;
+import io.yosina.ContextFreeTransliterator;
+import io.yosina.ResourceTable;
 import io.yosina.annotations.RegisteredTransliterator;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 /**
  * Auto-generated transliterator for roman-numerals. Replace single characters with arrays of
  * characters.
  */
 @RegisteredTransliterator(name = "roman-numerals")
-public class RomanNumeralsTransliterator implements Transliterator {
-    private static final Map<CodePointTuple, int[]> mappings;
+public class RomanNumeralsTransliterator implements ContextFreeTransliterator {
+    private static final ExpansionTable expansions;
 
     static {
-        final Map<CodePointTuple, int[]> mappings_ = new TreeMap<>();
-        final ByteBuffer b;
-        try {
-            try (final InputStream s =
-                    RomanNumeralsTransliterator.class.getResourceAsStream("roman-numerals.data")) {
-                b = ByteBuffer.wrap(s.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        final ByteBuffer b =
+                ResourceTable.load(RomanNumeralsTransliterator.class, "roman-numerals.data");
+        if (ResourceTable.isInPlace()) {
+            expansions = ExpansionTable.inPlace(ResourceTable.ofLengthPrefixed(b, 0));
+        } else {
+            expansions = ExpansionTable.decode(b);
         }
-        while (b.hasRemaining()) {
-            final int key1 = b.getInt(), key2 = b.getInt();
-            final int length = b.getInt();
-            final int[] value = new int[length];
-            for (int i = 0; i < length; i++) {
-                value[i] = b.getInt();
-            }
-            mappings_.put(CodePointTuple.of(key1, key2), value);
-        }
-        mappings = Collections.unmodifiableMap(mappings_);
     }
 
-    private static class RomanNumeralsTransliteratorCharIterator implements CharIterator {
-        private final CharIterator input;
-        private final Map<CodePointTuple, int[]> mappings;
-        private final List<Char> queue = new ArrayList<>();
-        private int queueIndex = 0;
-
-        public RomanNumeralsTransliteratorCharIterator(
-                CharIterator input, Map<CodePointTuple, int[]> mappings) {
-            this.input = input;
-            this.mappings = mappings;
-        }
-
-        @Override
-        public Char next() {
-            // Return queued characters first
-            if (queueIndex < queue.size()) {
-                return queue.get(queueIndex++);
-            }
-
-            // Reset queue for new character
-            queue.clear();
-            queueIndex = 0;
+    @Override
+    public CharIterator transliterate(CharIterator input) {
+        return expansions.transliterate(input);
+    }
 
-            if (!input.hasNext()) {
-                return null;
-            }
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        expansions.transliterate(input, start, end, output);
+    }
 
-            Char ch = input.next();
-            if (ch.isSentinel()) {
-                return ch;
-            }
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return expansions.keyCodePoints();
+    }
 
-            int[] replacement = mappings.get(ch.get());
-            if (replacement != null) {
-                // Create new characters for each replacement
-                for (int i = 0; i < replacement.length; i++) {
-                    queue.add(
-                            new Char(
-                                    CodePointTuple.of(replacement[i], -1), ch.getOffset() + i, ch));
-                }
-                return queue.get(queueIndex++);
-            } else {
-                return ch;
-            }
-        }
+    @Override
+    public void forEachReplacement(
+            BiConsumer<? super CodePointTuple, ? super CodePointTuple[]> action) {
+        expansions.forEach(action);
+    }
 
-        @Override
-        public boolean hasNext() {
-            return queueIndex < queue.size() || input.hasNext();
-        }
+    @Override
+    public Object getReplacementsKey() {
+        return expansions;
     }
 
     @Override
-    public CharIterator transliterate(CharIterator input) {
-        return new RomanNumeralsTransliteratorCharIterator(input, mappings);
+    public boolean wrapsUnmappedChars() {
+        return false;
     }
 
     /** Creates a new Combined transliterator. */
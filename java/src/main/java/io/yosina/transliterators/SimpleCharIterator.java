@@ -2,6 +2,9 @@ package io.yosina.transliterators;
 
 import io.yosina.Char;
 import io.yosina.CharIterator;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointTrie;
 import io.yosina.CodePointTuple;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -12,7 +15,10 @@ import java.util.NoSuchElementException;
  */
 public class SimpleCharIterator implements CharIterator {
     private final CharIterator input;
-    private final Map<CodePointTuple, CodePointTuple> mappings;
+    private final CodePointLookup<CodePointTuple> mappings;
+    // Whether a character without a mapping is given a source and the running offset, or passed
+    // through as is with every character keeping the offset of the one it comes from
+    private final boolean wrapsUnmapped;
     private int offset = 0;
 
     /**
@@ -21,9 +27,26 @@ public class SimpleCharIterator implements CharIterator {
      * @param input the source character iterator
      * @param mappings the character mapping table
      */
-    public SimpleCharIterator(CharIterator input, Map<CodePointTuple, CodePointTuple> mappings) {
+    public SimpleCharIterator(CharIterator input, CodePointLookup<CodePointTuple> mappings) {
+        this(input, mappings, true);
+    }
+
+    SimpleCharIterator(
+            CharIterator input, CodePointLookup<CodePointTuple> mappings, boolean wrapsUnmapped) {
         this.input = input;
         this.mappings = mappings;
+        this.wrapsUnmapped = wrapsUnmapped;
+    }
+
+    /**
+     * Creates a new SimpleCharIterator with the specified input and character mappings. The map is
+     * copied into a {@link CodePointTrie}; prefer the other constructor with a prebuilt trie.
+     *
+     * @param input the source character iterator
+     * @param mappings the character mapping table
+     */
+    public SimpleCharIterator(CharIterator input, Map<CodePointTuple, CodePointTuple> mappings) {
+        this(input, CodePointTrie.of(mappings));
     }
 
     @Override
@@ -48,11 +71,11 @@ public class SimpleCharIterator implements CharIterator {
                 if (replacement.isEmpty()) {
                     continue;
                 }
-                Char result = new Char(replacement, offset, c);
+                Char result = new Char(replacement, wrapsUnmapped ? offset : c.getOffset(), c);
                 offset += replacement.charCount();
                 return result;
             } else {
-                Char result = c.withOffset(offset);
+                Char result = wrapsUnmapped ? c.withOffset(offset) : c;
                 offset += c.charCount();
                 return result;
             }
@@ -63,4 +86,30 @@ public class SimpleCharIterator implements CharIterator {
     public long estimateSize() {
         return input.estimateSize();
     }
+
+    /**
+     * Translates a range of a {@link CodePointBuffer} based on a mapping table, with the same
+     * semantics as iterating over it with a SimpleCharIterator.
+     *
+     * @param input the input buffer
+     * @param start the index of the first character to translate
+     * @param end the index after the last character to translate
+     * @param output the buffer to append the translated characters to
+     * @param mappings the character mapping table
+     */
+    public static void transliterate(
+            CodePointBuffer input,
+            int start,
+            int end,
+            CodePointBuffer output,
+            CodePointLookup<CodePointTuple> mappings) {
+        for (int i = start; i < end; i++) {
+            final CodePointTuple replacement = mappings.get(input.first(i), input.second(i));
+            if (replacement != null) {
+                output.append(replacement, input.offset(i));
+            } else {
+                output.append(input, i);
+            }
+        }
+    }
 }
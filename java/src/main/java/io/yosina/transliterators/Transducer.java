@@ -0,0 +1,376 @@
+package io.yosina.transliterators;
+
+import io.yosina.BufferTransliterator;
+import io.yosina.Char;
+import io.yosina.CharIterator;
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
+import io.yosina.CodePointTuple;
+import io.yosina.ContextFreeTransliterator;
+import io.yosina.Transliterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A deterministic transducer compiled from a sequence of context-free transliterators, which does
+ * in one pass over the input what they do one after another.
+ *
+ * <p>Its transitions map each key of any of the transliterators to the characters that the whole
+ * sequence turns it into, stored as records back to back in a single int array: the number of
+ * characters, then four ints for each of them. A character without a transition goes through as it
+ * is, except that a pair of code points is cut down to its first code point if one of the
+ * transliterators {@linkplain ContextFreeTransliterator#replacesUnmappedPairsWithFirst() does so}.
+ * It is given a source on the way if one of the transliterators {@linkplain
+ * ContextFreeTransliterator#wrapsUnmappedChars() does so}, and is otherwise the very same Char.
+ * What is left then goes through the transducer compiled from the transliterators after that one,
+ * which is in effect a second state of this one.
+ */
+public final class Transducer implements Transliterator, BufferTransliterator {
+    // The ints of a character in a record: its code points, and those of a character it was changed
+    // into on the way back to the one it comes from, or -1
+    private static final int STRIDE = 4;
+
+    // Compiled once per distinct sequence of replacements
+    private static final ConcurrentMap<List<Object>, Transducer> compiled =
+            new ConcurrentHashMap<>();
+
+    // The records of the characters produced by the transitions
+    private final int[] arena;
+    // The index of the record of each character that has a transition
+    private final CodePointTrie<Integer> transitions;
+    // Takes over the first code point of a pair without a transition, or null if pairs are kept
+    private final Transducer pairFallback;
+    private final CodePointSet affectedCodePoints;
+    // Whether a character without a transition is given a source
+    private final boolean wrapsUnmapped;
+
+    private Transducer(
+            int[] arena,
+            CodePointTrie<Integer> transitions,
+            Transducer pairFallback,
+            CodePointSet affectedCodePoints,
+            boolean wrapsUnmapped) {
+        this.arena = arena;
+        this.transitions = transitions;
+        this.pairFallback = pairFallback;
+        this.affectedCodePoints = affectedCodePoints;
+        this.wrapsUnmapped = wrapsUnmapped;
+    }
+
+    /**
+     * Compiles a sequence of context-free transliterators into a transducer.
+     *
+     * <p>The transducer produces the same characters as the sequence, and reports the same of them
+     * as {@linkplain Char#isTransliterated() transliterated}: a character that is changed and then
+     * changed back keeps a reference to what it was changed into, so that it is reported as such.
+     * The same characters are given a {@linkplain Char#hasSource() source} as by the sequence.
+     *
+     * @param transliterators the transliterators, in the order they are applied
+     * @return the transducer
+     */
+    public static Transducer compile(List<? extends ContextFreeTransliterator> transliterators) {
+        final List<Object> key = new ArrayList<>(transliterators.size());
+        for (ContextFreeTransliterator transliterator : transliterators) {
+            final Object replacementsKey = transliterator.getReplacementsKey();
+            if (replacementsKey == null) {
+                return build(transliterators);
+            }
+            key.add(replacementsKey);
+        }
+        return compiled.computeIfAbsent(key, k -> build(transliterators));
+    }
+
+    private static Transducer build(List<? extends ContextFreeTransliterator> transliterators) {
+        final List<Map<CodePointTuple, CodePointTuple[]>> stages = new ArrayList<>();
+        final boolean[] dropsSecond = new boolean[transliterators.size()];
+        CodePointSet affected = CodePointSet.EMPTY;
+        boolean wrapsUnmapped = false;
+        for (ContextFreeTransliterator transliterator : transliterators) {
+            final Map<CodePointTuple, CodePointTuple[]> replacements = new HashMap<>();
+            transliterator.forEachReplacement(replacements::put);
+            dropsSecond[stages.size()] = transliterator.replacesUnmappedPairsWithFirst();
+            stages.add(replacements);
+            affected = affected.union(transliterator.getAffectedCodePoints());
+            wrapsUnmapped |= transliterator.wrapsUnmappedChars();
+        }
+        return compile(stages, dropsSecond, 0, affected, wrapsUnmapped);
+    }
+
+    private static Transducer compile(
+            List<Map<CodePointTuple, CodePointTuple[]>> stages,
+            boolean[] dropsSecond,
+            int from,
+            CodePointSet affectedCodePoints,
+            boolean wrapsUnmapped) {
+        // A character that is not a key of any stage goes through all of them unchanged, unless
+        // some stage drops the second code point of a pair
+        final Set<CodePointTuple> keys = new LinkedHashSet<>();
+        for (int i = from; i < stages.size(); i++) {
+            keys.addAll(stages.get(i).keySet());
+        }
+        int dropping = from;
+        while (dropping < stages.size() && !dropsSecond[dropping]) {
+            dropping++;
+        }
+        final CodePointTrie.Builder<Integer> transitions = new CodePointTrie.Builder<>();
+        int[] arena = new int[256];
+        int size = 0;
+        final List<CodePointTuple> output = new ArrayList<>();
+        final List<CodePointTuple> via = new ArrayList<>();
+        for (CodePointTuple key : keys) {
+            run(stages, dropsSecond, from, key, output, via);
+            // A pair left as it is still needs a transition, or it would lose its second code
+            // point, and so does a key mapped to itself if it would not be given a source
+            // otherwise
+            if (output.size() == 1
+                    && output.get(0).equals(key)
+                    && via.get(0) == null
+                    && (key.size() < 2 || dropping == stages.size())
+                    && wrapsUnmapped) {
+                continue;
+            }
+            final int length = 1 + output.size() * STRIDE;
+            if (size + length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, size + length));
+            }
+            transitions.put(key, size);
+            arena[size++] = output.size();
+            for (int i = 0; i < output.size(); i++) {
+                final CodePointTuple c = output.get(i);
+                final CodePointTuple v = c.equals(key) ? via.get(i) : null;
+                arena[size++] = c.get(0);
+                arena[size++] = c.size() > 1 ? c.get(1) : -1;
+                arena[size++] = v != null ? v.get(0) : -1;
+                arena[size++] = v != null && v.size() > 1 ? v.get(1) : -1;
+            }
+        }
+
+        final Transducer pairFallback =
+                dropping < stages.size()
+                        ? compile(
+                                stages,
+                                dropsSecond,
+                                dropping + 1,
+                                CodePointSet.EMPTY,
+                                wrapsUnmapped)
+                        : null;
+        return new Transducer(
+                Arrays.copyOf(arena, size),
+                transitions.build(),
+                pairFallback,
+                affectedCodePoints,
+                wrapsUnmapped);
+    }
+
+    // Runs a character through the stages, noting for each resulting character the last character
+    // other than the key that it was on the way, or null if it has never been changed
+    private static void run(
+            List<Map<CodePointTuple, CodePointTuple[]>> stages,
+            boolean[] dropsSecond,
+            int from,
+            CodePointTuple key,
+            List<CodePointTuple> output,
+            List<CodePointTuple> via) {
+        output.clear();
+        via.clear();
+        output.add(key);
+        via.add(null);
+        for (int i = from; i < stages.size() && !output.isEmpty(); i++) {
+            final Map<CodePointTuple, CodePointTuple[]> stage = stages.get(i);
+            final int n = output.size();
+            for (int j = 0; j < n; j++) {
+                final CodePointTuple c = output.get(j);
+                final CodePointTuple v = c.equals(key) ? via.get(j) : c;
+                final CodePointTuple[] replacement = stage.get(c);
+                if (replacement != null) {
+                    for (CodePointTuple r : replacement) {
+                        output.add(r);
+                        via.add(r.equals(c) ? via.get(j) : v);
+                    }
+                } else if (dropsSecond[i] && c.size() > 1) {
+                    output.add(CodePointTuple.of(c.get(0)));
+                    via.add(v);
+                } else {
+                    output.add(c);
+                    via.add(via.get(j));
+                }
+            }
+            output.subList(0, n).clear();
+            via.subList(0, n).clear();
+        }
+    }
+
+    private int find(int first, int second) {
+        final Integer record = transitions.get(first, second);
+        return record != null ? record : -1;
+    }
+
+    @Override
+    public CharIterator transliterate(CharIterator input) {
+        return new TransducingCharIterator(input);
+    }
+
+    @Override
+    public void transliterate(CodePointBuffer input, int start, int end, CodePointBuffer output) {
+        for (int i = start; i < end; i++) {
+            final int first = input.first(i), second = input.second(i);
+            Transducer transducer = this;
+            int record = find(first, second);
+            if (record < 0 && second >= 0 && pairFallback != null) {
+                transducer = pairFallback;
+                record = pairFallback.find(first, -1);
+                if (record < 0) {
+                    output.append(first, -1, input.offset(i));
+                    continue;
+                }
+            }
+            if (record < 0) {
+                output.append(input, i);
+                continue;
+            }
+            final int[] a = transducer.arena;
+            final int offset = input.offset(i);
+            for (int j = 0, n = a[record]; j < n; j++) {
+                final int p = record + 1 + j * STRIDE;
+                output.append(a[p], a[p + 1], offset);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A transducer follows the transition of each character and returns the index of the first
+     * one that comes out as something else.
+     */
+    @Override
+    public int mismatch(CharSequence text, int start, int end) {
+        for (int i = start; i < end; ) {
+            final int first = Character.codePointAt(text, i);
+            final int next = Chars.endOfChar(text, i, end);
+            final int afterFirst = i + Character.charCount(first);
+            final int second = next > afterFirst ? Character.codePointAt(text, afterFirst) : -1;
+            if (!leavesAsIs(first, second)) {
+                return i;
+            }
+            i = next;
+        }
+        return -1;
+    }
+
+    // Checks whether a character comes out of the transducer as the very same code points
+    private boolean leavesAsIs(int first, int second) {
+        Transducer transducer = this;
+        int record = find(first, second);
+        if (record < 0 && second >= 0 && pairFallback != null) {
+            transducer = pairFallback;
+            record = pairFallback.find(first, -1);
+            if (record < 0) {
+                return false;
+            }
+        }
+        if (record < 0) {
+            return true;
+        }
+        final int[] a = transducer.arena;
+        final int p = record + 1;
+        return a[record] == 1 && a[p] == first && a[p + 1] == second;
+    }
+
+    @Override
+    public CodePointSet getAffectedCodePoints() {
+        return affectedCodePoints;
+    }
+
+    @Override
+    public boolean readsProvenance() {
+        return false;
+    }
+
+    private final class TransducingCharIterator implements CharIterator {
+        private final CharIterator input;
+        private int offset = 0;
+        // The character being expanded, the transducer and record it is expanded from, and the
+        // number of characters left to emit
+        private Char source;
+        private Transducer transducer;
+        private int record;
+        private int index = 0;
+        private int length = 0;
+
+        TransducingCharIterator(CharIterator input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < length || input.hasNext();
+        }
+
+        @Override
+        public Char next() {
+            while (index >= length) {
+                if (!input.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Char c = input.next();
+                if (c == null) {
+                    return null;
+                }
+                final CodePointTuple t = c.get();
+                final int first = t.isEmpty() ? -1 : t.get(0);
+                final int second = t.size() > 1 ? t.get(1) : -1;
+                int found = first >= 0 ? find(first, second) : -1;
+                if (found >= 0) {
+                    start(c, Transducer.this, found);
+                    continue;
+                }
+                if (second >= 0 && pairFallback != null) {
+                    final Char dropped = new Char(CodePointTuple.of(first), offset, c);
+                    found = pairFallback.find(first, -1);
+                    if (found >= 0) {
+                        start(dropped, pairFallback, found);
+                        continue;
+                    }
+                    offset += dropped.charCount();
+                    return dropped;
+                }
+                final Char result = wrapsUnmapped ? c.withOffset(offset) : c;
+                offset += result.charCount();
+                return result;
+            }
+            final int[] a = transducer.arena;
+            final int p = record + 1 + index++ * STRIDE;
+            final Char from =
+                    a[p + 2] >= 0
+                            ? new Char(CodePointTuple.of(a[p + 2], a[p + 3]), offset, source)
+                            : source;
+            final Char result = new Char(CodePointTuple.of(a[p], a[p + 1]), offset, from);
+            offset += result.charCount();
+            return result;
+        }
+
+        private void start(Char source, Transducer transducer, int record) {
+            this.source = source;
+            this.transducer = transducer;
+            this.record = record;
+            this.index = 0;
+            this.length = transducer.arena[record];
+        }
+
+        @Override
+        public long estimateSize() {
+            return input.estimateSize();
+        }
+    }
+}
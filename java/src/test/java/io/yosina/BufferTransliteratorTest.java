@@ -0,0 +1,230 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.transliterators.ArchaicHirakatasTransliterator;
+import io.yosina.transliterators.CircledOrSquaredTransliterator;
+import io.yosina.transliterators.CombinedTransliterator;
+import io.yosina.transliterators.HiraKataCompositionTransliterator;
+import io.yosina.transliterators.HiraKataTransliterator;
+import io.yosina.transliterators.HistoricalHirakatasTransliterator;
+import io.yosina.transliterators.HistoricalHirakatasTransliterator.ConversionMode;
+import io.yosina.transliterators.HyphensTransliterator;
+import io.yosina.transliterators.IdeographicAnnotationsTransliterator;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import io.yosina.transliterators.Jisx0201AndAlikeTransliterator;
+import io.yosina.transliterators.KanjiOldNewTransliterator;
+import io.yosina.transliterators.MathematicalAlphanumericsTransliterator;
+import io.yosina.transliterators.ProlongedSoundMarksTransliterator;
+import io.yosina.transliterators.RadicalsTransliterator;
+import io.yosina.transliterators.RomanNumeralsTransliterator;
+import io.yosina.transliterators.SmallHirakatasTransliterator;
+import io.yosina.transliterators.SpacesTransliterator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Tests that the buffer path produces the same results as the Char path. */
+public class BufferTransliteratorTest {
+    private static final List<String> CORPUS =
+            List.of(
+                    "",
+                    "hello, world!",
+                    "Ｈｅｌｌｏ　Ｗｏｒｌｄ！",
+                    "ｶﾞｷﾞﾊﾟｱｲｳﾞｰ",
+                    "がき゛ぱハ゜ゞヾ",
+                    "ゐゑヰヱヷヸヷヸヹヺ",
+                    "葛󠄀辻󠄁邉︀一",
+                    "①②㉑㊱Ⓐ🅰🄰",
+                    "㍿㈱ⅢⅫⅳⅿ",
+                    "‐‑‒–—―−ーｰ-〜～",
+                    "⼀⼆舊體㆒㆓𝐀𝟎",
+                    "ぁぃァィㇰᬓ2　  ",
+                    "¥\\~‾〜‖￣＼～",
+                    "カ゛ヴヷ゙");
+
+    static Stream<Arguments> transliterators() {
+        return Stream.of(
+                Arguments.of("spaces", new SpacesTransliterator()),
+                Arguments.of("radicals", new RadicalsTransliterator()),
+                Arguments.of("kanji-old-new", new KanjiOldNewTransliterator()),
+                Arguments.of(
+                        "mathematical-alphanumerics",
+                        new MathematicalAlphanumericsTransliterator()),
+                Arguments.of("ideographic-annotations", new IdeographicAnnotationsTransliterator()),
+                Arguments.of("small-hirakatas", new SmallHirakatasTransliterator()),
+                Arguments.of("archaic-hirakatas", new ArchaicHirakatasTransliterator()),
+                Arguments.of("combined", new CombinedTransliterator()),
+                Arguments.of("roman-numerals", new RomanNumeralsTransliterator()),
+                Arguments.of("circled-or-squared", new CircledOrSquaredTransliterator()),
+                Arguments.of(
+                        "circled-or-squared (no emojis)",
+                        new CircledOrSquaredTransliterator(
+                                new CircledOrSquaredTransliterator.Options()
+                                        .withIncludeEmojis(false))),
+                Arguments.of(
+                        "hira-kata",
+                        new HiraKataTransliterator(
+                                new HiraKataTransliterator.Options(
+                                        HiraKataTransliterator.Options.Mode.HIRA_TO_KATA))),
+                Arguments.of(
+                        "kata-hira",
+                        new HiraKataTransliterator(
+                                new HiraKataTransliterator.Options(
+                                        HiraKataTransliterator.Options.Mode.KATA_TO_HIRA))),
+                Arguments.of("hira-kata-composition", new HiraKataCompositionTransliterator()),
+                Arguments.of(
+                        "hira-kata-composition (non-combining)",
+                        new HiraKataCompositionTransliterator(
+                                new HiraKataCompositionTransliterator.Options(true))),
+                Arguments.of("historical-hirakatas", new HistoricalHirakatasTransliterator()),
+                Arguments.of(
+                        "historical-hirakatas (decompose)",
+                        new HistoricalHirakatasTransliterator(
+                                new HistoricalHirakatasTransliterator.Options(
+                                        ConversionMode.DECOMPOSE,
+                                        ConversionMode.DECOMPOSE,
+                                        ConversionMode.DECOMPOSE))),
+                Arguments.of(
+                        "hyphens", new HyphensTransliterator(new HyphensTransliterator.Options())),
+                Arguments.of(
+                        "hyphens (ascii, verbatim)",
+                        new HyphensTransliterator(
+                                new HyphensTransliterator.Options(
+                                        List.of(
+                                                HyphensTransliterator.Mapping.JISX0208_VERBATIM,
+                                                HyphensTransliterator.Mapping.ASCII)))),
+                Arguments.of(
+                        "ivs-svs-base (ivs-or-svs)",
+                        new IvsSvsBaseTransliterator(new IvsSvsBaseTransliterator.Options())),
+                Arguments.of(
+                        "ivs-svs-base (base, unijis-90)",
+                        new IvsSvsBaseTransliterator(
+                                new IvsSvsBaseTransliterator.Options(
+                                        IvsSvsBaseTransliterator.Mode.BASE,
+                                        false,
+                                        IvsSvsBaseTransliterator.Charset.UNIJIS_90,
+                                        false))),
+                Arguments.of(
+                        "ivs-svs-base (base, drop selectors)",
+                        new IvsSvsBaseTransliterator(
+                                new IvsSvsBaseTransliterator.Options(
+                                        IvsSvsBaseTransliterator.Mode.BASE,
+                                        true,
+                                        IvsSvsBaseTransliterator.Charset.UNIJIS_2004,
+                                        false))),
+                Arguments.of(
+                        "jisx0201-and-alike (fullwidth to halfwidth)",
+                        new Jisx0201AndAlikeTransliterator(
+                                new Jisx0201AndAlikeTransliterator.Options()
+                                        .withFullwidthToHalfwidth(true)
+                                        .withConvertHiraganas(true))),
+                Arguments.of(
+                        "jisx0201-and-alike (halfwidth to fullwidth)",
+                        new Jisx0201AndAlikeTransliterator(
+                                new Jisx0201AndAlikeTransliterator.Options()
+                                        .withFullwidthToHalfwidth(false)
+                                        .withCombineVoicedSoundMarks(true))),
+                Arguments.of(
+                        "chain",
+                        new ChainedTransliterator(
+                                new IvsSvsBaseTransliterator(
+                                        new IvsSvsBaseTransliterator.Options()),
+                                new HiraKataCompositionTransliterator(),
+                                new SpacesTransliterator(),
+                                new CombinedTransliterator(),
+                                new Jisx0201AndAlikeTransliterator(
+                                        new Jisx0201AndAlikeTransliterator.Options()
+                                                .withFullwidthToHalfwidth(true)),
+                                new IvsSvsBaseTransliterator(
+                                        new IvsSvsBaseTransliterator.Options()
+                                                .withMode(IvsSvsBaseTransliterator.Mode.BASE)))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("transliterators")
+    public void testBufferPathMatchesCharPath(String name, Transliterator transliterator) {
+        assertTrue(ChainedTransliterator.supportsBuffers(transliterator));
+        final BufferTransliterator bufferTransliterator = (BufferTransliterator) transliterator;
+        for (String input : CORPUS) {
+            final String expected =
+                    transliterator.transliterate(Chars.of(input).iterator()).string();
+            final CodePointBuffer in = CodePointBuffer.of(input);
+            final CodePointBuffer out = new CodePointBuffer();
+            bufferTransliterator.transliterate(in, 0, in.size(), out);
+            assertEquals(expected, out.toString(), "input: " + input);
+            for (int i = 0; i < out.size(); i++) {
+                assertTrue(out.offset(i) >= 0 && out.offset(i) < input.length());
+            }
+        }
+    }
+
+    private static String transliterate(BufferTransliterator transliterator, CharSequence text) {
+        final CodePointBuffer in = CodePointBuffer.of(text);
+        final CodePointBuffer out = new CodePointBuffer();
+        transliterator.transliterate(in, 0, in.size(), out);
+        return out.toString();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("transliterators")
+    public void testMismatchMatchesTransliteration(String name, Transliterator transliterator) {
+        final BufferTransliterator bufferTransliterator = (BufferTransliterator) transliterator;
+        for (String text : CORPUS) {
+            // The output is mostly left as it is, so both ways get checked
+            for (String input : List.of(text, transliterate(bufferTransliterator, text))) {
+                final String expected = transliterate(bufferTransliterator, input);
+                // Looked at within a longer text, as a chain does with its segments
+                final String padded = "<" + input + ">";
+                final int mismatch = bufferTransliterator.mismatch(padded, 1, padded.length() - 1);
+                if (mismatch < 0) {
+                    assertEquals(input, expected, "input: " + input);
+                    continue;
+                }
+                assertTrue(mismatch >= 1 && mismatch <= padded.length() - 1, "input: " + input);
+                final String rest = padded.substring(mismatch, padded.length() - 1);
+                assertEquals(
+                        expected,
+                        padded.substring(1, mismatch) + transliterate(bufferTransliterator, rest),
+                        "input: " + input);
+            }
+        }
+    }
+
+    @Test
+    public void testCodePointBufferCombinesVariationSelectors() {
+        final CodePointBuffer buffer = CodePointBuffer.of("a葛󠄀辻︀b");
+        assertEquals(4, buffer.size());
+        assertEquals(0x845b, buffer.first(1));
+        assertEquals(0xe0100, buffer.second(1));
+        assertEquals(1, buffer.offset(1));
+        assertEquals(0x8fbb, buffer.first(2));
+        assertEquals(0xfe00, buffer.second(2));
+        assertEquals(4, buffer.offset(2));
+        assertEquals(-1, buffer.second(3));
+        assertEquals(6, buffer.offset(3));
+        assertEquals("a葛󠄀辻︀b", buffer.toString());
+    }
+
+    @Test
+    public void testChainWithoutBufferSupportFallsBack() {
+        final ChainedTransliterator chained =
+                new ChainedTransliterator(
+                        new SpacesTransliterator(),
+                        new ProlongedSoundMarksTransliterator(
+                                new ProlongedSoundMarksTransliterator.Options()));
+        assertFalse(chained.supportsBuffers());
+        assertEquals(
+                "ウェーブ",
+                Yosina.makeTransliterator(
+                                List.of(
+                                        new Yosina.TransliteratorConfig("spaces"),
+                                        new Yosina.TransliteratorConfig("prolonged-sound-marks")))
+                        .apply("ウェ―ブ"));
+    }
+}
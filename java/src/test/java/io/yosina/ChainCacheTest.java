@@ -0,0 +1,182 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.transliterators.HiraKataTransliterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+public class ChainCacheTest {
+    private static List<Yosina.TransliteratorConfig> configs(String name) {
+        return List.of(new Yosina.TransliteratorConfig(name));
+    }
+
+    /** Builds empty chains and counts how many it has built. */
+    private static final class CountingBuilder
+            implements Function<List<Yosina.TransliteratorConfig>, ChainedTransliterator> {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public ChainedTransliterator apply(List<Yosina.TransliteratorConfig> configs) {
+            count.incrementAndGet();
+            return new ChainedTransliterator(List.of());
+        }
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        final ChainCache cache = new ChainCache(4);
+        final CountingBuilder builder = new CountingBuilder();
+        final ChainedTransliterator chain = cache.get(configs("spaces"), builder);
+        assertSame(chain, cache.get(configs("spaces"), builder));
+        assertNotSame(chain, cache.get(configs("radicals"), builder));
+        assertEquals(2, builder.count.get());
+        assertEquals(1, cache.stats().getHitCount());
+        assertEquals(2, cache.stats().getMissCount());
+        assertEquals(0, cache.stats().getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testOptionsAreComparedByValue() {
+        final ChainCache cache = new ChainCache(4);
+        final CountingBuilder builder = new CountingBuilder();
+        for (int i = 0; i < 3; i++) {
+            cache.get(
+                    List.of(
+                            new Yosina.TransliteratorConfig(
+                                    "hira-kata",
+                                    new HiraKataTransliterator.Options(
+                                            HiraKataTransliterator.Options.Mode.KATA_TO_HIRA))),
+                    builder);
+        }
+        assertEquals(1, builder.count.get());
+        assertEquals(2, cache.stats().getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws InterruptedException {
+        final ChainCache cache = new ChainCache(2);
+        final CountingBuilder builder = new CountingBuilder();
+        cache.get(configs("a"), builder);
+        Thread.sleep(1);
+        cache.get(configs("b"), builder);
+        Thread.sleep(1);
+        cache.get(configs("a"), builder);
+        Thread.sleep(1);
+        cache.get(configs("c"), builder);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.stats().getEvictionCount());
+
+        // "b" was evicted, "a" was not
+        cache.get(configs("a"), builder);
+        assertEquals(3, builder.count.get());
+        cache.get(configs("b"), builder);
+        assertEquals(4, builder.count.get());
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() {
+        final ChainCache cache = new ChainCache(4);
+        final CountingBuilder builder = new CountingBuilder();
+        final IllegalArgumentException e =
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () ->
+                                cache.get(
+                                        configs("unknown"),
+                                        configs -> {
+                                            throw new IllegalArgumentException("unknown");
+                                        }));
+        assertEquals("unknown", e.getMessage());
+        assertEquals(0, cache.size());
+        cache.get(configs("unknown"), builder);
+        assertEquals(1, builder.count.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testBuildCanUseTheCache() {
+        // Chains are built outside the map, so a build may look up other chains
+        final ChainCache cache = new ChainCache(64);
+        final CountingBuilder builder = new CountingBuilder();
+        for (int i = 0; i < 32; i++) {
+            final int n = i;
+            cache.get(
+                    configs("outer" + n),
+                    configs -> {
+                        cache.get(configs("inner" + n), builder);
+                        return builder.apply(configs);
+                    });
+        }
+        assertEquals(64, builder.count.get());
+        assertEquals(64, cache.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        final ChainCache cache = new ChainCache(0);
+        final CountingBuilder builder = new CountingBuilder();
+        cache.get(configs("spaces"), builder);
+        cache.get(configs("spaces"), builder);
+        assertEquals(2, builder.count.get());
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.stats().getMissCount());
+        assertThrows(IllegalArgumentException.class, () -> new ChainCache(-1));
+        assertThrows(IllegalArgumentException.class, () -> ChainCache.maximumSizeOf("many"));
+        assertEquals(ChainCache.DEFAULT_MAXIMUM_SIZE, ChainCache.maximumSizeOf(null));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ChainCache cache = new ChainCache(3);
+        final CountingBuilder builder = new CountingBuilder();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < 2000; i++) {
+                                        cache.get(configs("k" + ((seed + i) % 5)), builder);
+                                    }
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final ChainCache.Stats stats = cache.stats();
+        assertEquals(8 * 2000, stats.getHitCount() + stats.getMissCount());
+        assertEquals(builder.count.get(), stats.getMissCount());
+        assertEquals(stats.getMissCount() - cache.size(), stats.getEvictionCount());
+        assertTrue(cache.size() <= 3);
+    }
+
+    @Test
+    public void testSharedCache() {
+        final TransliterationRecipe recipe =
+                new TransliterationRecipe().withReplaceSpaces(true).withKanjiOldNew(true);
+        Yosina.makeTransliteratorFromRecipe(recipe);
+        final long hits = Yosina.getChainCache().stats().getHitCount();
+        final Function<String, String> transliterator =
+                Yosina.makeTransliteratorFromRecipe(
+                        new TransliterationRecipe().withReplaceSpaces(true).withKanjiOldNew(true));
+        assertTrue(Yosina.getChainCache().stats().getHitCount() > hits);
+        assertEquals(" ", transliterator.apply("　"));
+    }
+}
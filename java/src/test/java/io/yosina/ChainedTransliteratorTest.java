@@ -0,0 +1,289 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.transliterators.HiraKataCompositionTransliterator;
+import io.yosina.transliterators.JapaneseIterationMarksTransliterator;
+import io.yosina.transliterators.Jisx0201AndAlikeTransliterator;
+import io.yosina.transliterators.ProlongedSoundMarksTransliterator;
+import io.yosina.transliterators.SpacesTransliterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Tests that skipping unaffected characters in a chain does not change its results. */
+public class ChainedTransliteratorTest {
+    private static final List<String> CORPUS =
+            List.of(
+                    "",
+                    "Ｈｅｌｌｏ　Ｗｏｒｌｄ！",
+                    "ｶﾞｷﾞﾊﾟｱｲｳﾞｰ",
+                    "がき゛ぱハ゜ゞヾ",
+                    "ゐゑヰヱヷヸヷヸヹヺヷ",
+                    "葛󠄀辻󠄁邉︀一",
+                    "①②㉑㊱Ⓐ🅰🄰㍿㈱ⅢⅫⅳⅿ",
+                    "‐‑‒–—―−ーｰ-〜～",
+                    "⼀⼆舊體㆒㆓𝐀𝟎ぁぃァィ",
+                    "¥\\~‾〜‖￣＼～",
+                    "カーキ-1-2ｶｰ漢ーABC―",
+                    "時々こゝろみすゞ学問のすゝめヽヾ〱〲々々");
+
+    // Runs of padding of various lengths around the minimum that is skipped
+    private static final List<String> PADDINGS =
+            List.of("", "x", "1234567", "12345678", "123456789", "漢字と仮名の交じった文章です。");
+
+    static Stream<Arguments> transliterators() {
+        return Stream.concat(
+                BufferTransliteratorTest.transliterators(),
+                Stream.of(
+                        Arguments.of(
+                                "prolonged-sound-marks",
+                                new ProlongedSoundMarksTransliterator(
+                                        new ProlongedSoundMarksTransliterator.Options())),
+                        Arguments.of(
+                                "prolonged-sound-marks (alnums, non-kanas)",
+                                new ProlongedSoundMarksTransliterator(
+                                        new ProlongedSoundMarksTransliterator.Options()
+                                                .withReplaceProlongedMarksFollowingAlnums(true)
+                                                .withReplaceProlongedMarksBetweenNonKanas(true))),
+                        Arguments.of(
+                                "japanese-iteration-marks",
+                                new JapaneseIterationMarksTransliterator()),
+                        Arguments.of(
+                                "chain without buffers",
+                                new ChainedTransliterator(
+                                        new HiraKataCompositionTransliterator(),
+                                        new JapaneseIterationMarksTransliterator(),
+                                        new ProlongedSoundMarksTransliterator(
+                                                new ProlongedSoundMarksTransliterator
+                                                        .Options())))));
+    }
+
+    private static List<String> inputs() {
+        final List<String> inputs = new ArrayList<>();
+        for (String text : CORPUS) {
+            for (String padding : PADDINGS) {
+                final StringBuilder sb = new StringBuilder(padding);
+                text.codePoints()
+                        .forEach(
+                                c -> {
+                                    sb.appendCodePoint(c);
+                                    // Pad every third code point, keeping some neighbours
+                                    if (sb.length() % 3 == 0) {
+                                        sb.append(padding);
+                                    }
+                                });
+                inputs.add(sb.append(padding).toString());
+            }
+        }
+        return inputs;
+    }
+
+    // The characters one by one; the stages differ in how they count offsets, so those are left out
+    private static List<String> chars(CharIterator iterator) {
+        final List<String> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next().get().toString());
+        }
+        return result;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("transliterators")
+    public void testSkippingMatchesFullRun(String name, Transliterator transliterator) {
+        final ChainedTransliterator skipping = new ChainedTransliterator(transliterator);
+        // A lambda does not declare its affected code points, so nothing gets skipped
+        final ChainedTransliterator full =
+                new ChainedTransliterator((Transliterator) transliterator::transliterate);
+        for (String input : inputs()) {
+            final List<String> expected = chars(full.transliterate(Chars.of(input).iterator()));
+            assertEquals(
+                    expected,
+                    chars(skipping.transliterate(Chars.of(input).iterator())),
+                    "input: " + input);
+            if (skipping.supportsBuffers()) {
+                final CodePointBuffer in = CodePointBuffer.of(input);
+                final CodePointBuffer out = new CodePointBuffer();
+                skipping.transliterate(in, 0, in.size(), out);
+                final CodePointBuffer fullOut = new CodePointBuffer();
+                ((BufferTransliterator) transliterator).transliterate(in, 0, in.size(), fullOut);
+                assertEquals(fullOut.toString(), out.toString(), "input: " + input);
+                for (int i = 0; i < out.size(); i++) {
+                    assertEquals(fullOut.offset(i), out.offset(i), "input: " + input);
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("transliterators")
+    public void testLeavesUnchangedMatchesTransliteration(
+            String name, Transliterator transliterator) {
+        final ChainedTransliterator chain = new ChainedTransliterator(transliterator);
+        for (String input : inputs()) {
+            final String output = chain.transliterate(Chars.of(input).iterator()).string();
+            assertEquals(output.equals(input), chain.leavesUnchanged(input), "input: " + input);
+            // The output is mostly left as it is, which has to be checked all the way through
+            final String again = chain.transliterate(Chars.of(output).iterator()).string();
+            assertEquals(again.equals(output), chain.leavesUnchanged(output), "input: " + output);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("transliterators")
+    public void testMismatchMatchesTransliteration(String name, Transliterator transliterator) {
+        final ChainedTransliterator chain = new ChainedTransliterator(transliterator);
+        for (String input : inputs()) {
+            final String output = chain.transliterate(Chars.of(input).iterator()).string();
+            final int mismatch = chain.mismatch(input, 0, input.length());
+            if (mismatch < 0) {
+                assertEquals(input, output, "input: " + input);
+                continue;
+            }
+            final String rest = input.substring(mismatch);
+            assertEquals(
+                    output,
+                    input.substring(0, mismatch)
+                            + chain.transliterate(Chars.of(rest).iterator()).string(),
+                    "input: " + input);
+        }
+    }
+
+    /** A text that can only be read char by char. */
+    private static final class Unsliceable implements CharSequence {
+        private final String text;
+
+        Unsliceable(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void testLeavesUnchangedReadsTextInPlace() {
+        final ChainedTransliterator chain =
+                new ChainedTransliterator(
+                        new SpacesTransliterator(),
+                        new HiraKataCompositionTransliterator(),
+                        new Jisx0201AndAlikeTransliterator(
+                                new Jisx0201AndAlikeTransliterator.Options()
+                                        .withFullwidthToHalfwidth(false)));
+        final String padding = "漢字と仮名の交じった文章です。";
+        assertTrue(chain.leavesUnchanged(new Unsliceable("カタカナ" + padding + "ガ")));
+        assertEquals(-1, chain.mismatch(new Unsliceable(padding + "ガ"), 0, padding.length() + 1));
+        // Changed without changing its length, which is told without looking any further
+        assertFalse(chain.leavesUnchanged(new Unsliceable("ｶﾀｶﾅ" + padding + "ガ")));
+        assertEquals(
+                padding.length() - 1,
+                chain.mismatch(new Unsliceable(padding + "　"), 0, padding.length() + 1));
+    }
+
+    /** Records what it is run over and declares that it only acts on exclamation marks. */
+    private static final class Recording implements Transliterator, BufferTransliterator {
+        private final StringBuilder seen = new StringBuilder();
+
+        @Override
+        public CharIterator transliterate(CharIterator input) {
+            return Chars.of(input.string()).iterator();
+        }
+
+        @Override
+        public void transliterate(
+                CodePointBuffer input, int start, int end, CodePointBuffer output) {
+            for (int i = start; i < end; i++) {
+                seen.appendCodePoint(input.first(i));
+            }
+            seen.append('|');
+            output.append(input, start, end);
+        }
+
+        @Override
+        public CodePointSet getAffectedCodePoints() {
+            return new CodePointSet.Builder().add('!').build();
+        }
+    }
+
+    @Test
+    public void testUnaffectedRunsAreSkipped() {
+        final String input = "aaaaaaaaaaaa!bbbbbbbbbbbb!c!dddddddddddd";
+        final Recording recording = new Recording();
+        final ChainedTransliterator chain = new ChainedTransliterator(recording);
+        final CodePointBuffer in = CodePointBuffer.of(input);
+        final CodePointBuffer out = new CodePointBuffer();
+        chain.transliterate(in, 0, in.size(), out);
+        assertEquals(input, out.toString());
+        assertEquals("a!b|b!c!d|", recording.seen.toString());
+        for (int i = 0; i < out.size(); i++) {
+            assertEquals(i, out.offset(i));
+        }
+
+        final List<Char> chars = new ArrayList<>();
+        chain.transliterate(Chars.of(input).iterator()).forEachRemaining(chars::add);
+        assertEquals(input.length() + 1, chars.size());
+        for (int i = 0; i < chars.size(); i++) {
+            assertEquals(i, chars.get(i).getOffset());
+        }
+        assertTrue(chars.get(chars.size() - 1).isSentinel());
+    }
+
+    @Test
+    public void testAffectedCodePoints() {
+        final ChainedTransliterator chain =
+                new ChainedTransliterator(
+                        new SpacesTransliterator(), new JapaneseIterationMarksTransliterator());
+        final CodePointSet affected = chain.getAffectedCodePoints();
+        assertTrue(affected.contains(0x3000));
+        assertTrue(affected.contains(0x3005));
+        assertFalse(affected.contains('a'));
+        assertFalse(affected.contains(0x6f22));
+        assertSame(
+                CodePointSet.ALL,
+                new ChainedTransliterator(chain, input -> input).getAffectedCodePoints());
+        assertTrue(new ChainedTransliterator().getAffectedCodePoints().isEmpty());
+    }
+
+    @Test
+    public void testProvenanceOfSkippedCharacters() {
+        final String input = "ｱｲｳ" + "abcdefghijklmnop" + "ｴｵ";
+        final MappedText result =
+                Yosina.makeMappingTransliterator(
+                                List.of(
+                                        new Yosina.TransliteratorConfig(
+                                                "jisx0201-and-alike",
+                                                new Jisx0201AndAlikeTransliterator.Options()
+                                                        .withFullwidthToHalfwidth(false)
+                                                        .withConvertGL(false)),
+                                        new Yosina.TransliteratorConfig("prolonged-sound-marks")))
+                        .apply(input);
+        assertEquals("アイウabcdefghijklmnopエオ", result.getText());
+        for (int i = 0; i < result.getText().length(); i++) {
+            assertEquals(i, result.getOffsetMap().correctOffset(i));
+        }
+    }
+}
@@ -3,9 +3,18 @@ package io.yosina;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -37,6 +46,29 @@ public class CharsTest {
         assertIterableEquals(expected, Chars.of(input).toList());
     }
 
+    @ParameterizedTest()
+    @MethodSource("casesForCharList")
+    public void testCharListFromCharSequence(List<Char> expected, String input) {
+        assertIterableEquals(expected, Chars.of(new StringBuilder(input)).toList());
+        assertIterableEquals(expected, Chars.of(CharBuffer.wrap(input)).toList());
+    }
+
+    @Test
+    public void testCharSequenceMatchesList() {
+        // Leading and repeated variation selectors, and a lone surrogate
+        final String input = "\ufe00a\ufe00\ufe01\ud842\udfb7\udb40\udd00\ud842x\u8fbb";
+        final CharBuffer buffer = CharBuffer.allocate(input.length() + 2);
+        buffer.put("--").put(input).flip().position(2);
+        final Chars chars = Chars.of(buffer);
+        assertIterableEquals(Chars.of(input).toList(), chars.toList());
+        assertEquals(input.codePointCount(0, input.length()), chars.codePointCount());
+        assertEquals(input.length(), chars.charCount());
+        assertEquals(input, chars.string());
+        assertEquals(input, chars.iterator().string());
+        assertIterableEquals(
+                input.codePoints().boxed().toList(), chars.codePointStream().boxed().toList());
+    }
+
     private static Stream<Arguments> casesForStringFromChars() {
         return Stream.of(
                 Arguments.of("H e l l o ", "Hello", Long.MAX_VALUE),
@@ -83,6 +115,42 @@ public class CharsTest {
         assertEquals(expected, iterator.string());
     }
 
+    @Test
+    public void testAppendTo() throws IOException {
+        final String input = "a\u8fbb\udb40\udd01\ud842\udfb7z";
+        final StringBuilder sb = new StringBuilder("> ");
+        assertSame(sb, Chars.of(input).appendTo(sb));
+        assertEquals("> " + input, sb.toString());
+        final StringWriter w = new StringWriter();
+        assertSame(w, Chars.of(input).iterator().appendTo(w));
+        assertEquals(input, w.toString());
+    }
+
+    @Test
+    public void testCodePoints() {
+        final String input = "a\u8fbb\udb40\udd01\ud842\udfb7z";
+        final int[] expected = input.codePoints().toArray();
+        final Chars chars = Chars.of(input);
+        assertEquals(5, chars.codePointCount());
+        assertEquals(input.length(), chars.charCount());
+
+        final Spliterator.OfInt spliterator = chars.codePointStream().spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(expected.length, spliterator.estimateSize());
+        assertIterableEquals(
+                List.of(expected[0], expected[1], expected[2], expected[3], expected[4]),
+                chars.codePointStream().boxed().toList());
+        assertEquals(expected.length, chars.codePointStream().toArray().length);
+
+        final PrimitiveIterator.OfInt i = chars.codePointIterator();
+        for (int cp : expected) {
+            assertTrue(i.hasNext());
+            assertEquals(cp, i.nextInt());
+        }
+        assertFalse(i.hasNext());
+        assertThrows(NoSuchElementException.class, i::nextInt);
+    }
+
     @Test
     public void testCharWithVariationSelector() {
         final int baseChar = 0x4E00; // 一
@@ -97,4 +165,43 @@ public class CharsTest {
         String str = c.get().toString();
         assertEquals(2, str.length()); // Should contain both base char and variation selector
     }
+
+    @Test
+    public void testDetachedChars() {
+        final List<Char> chars = Chars.of("a\u8fbb\udb40\udd01", false).toList();
+        assertEquals(3, chars.size());
+        assertEquals(CodePointTuple.of(0x8fbb, 0xe0101), chars.get(1).get());
+        assertEquals(1, chars.get(1).getOffset());
+        assertTrue(chars.get(2).isSentinel());
+        for (Char c : chars) {
+            assertFalse(c.tracksProvenance());
+            assertFalse(c.hasSource());
+            assertNull(c.getSource());
+            assertFalse(c.isTransliterated());
+        }
+
+        final Char root = chars.get(0);
+        final Char unchanged = root.withOffset(5).withOffset(6);
+        assertTrue(unchanged.hasSource());
+        assertNull(unchanged.getSource());
+        assertFalse(unchanged.isTransliterated());
+        assertEquals(6, unchanged.getOffset());
+
+        final Char changed = new Char(CodePointTuple.of('b'), 0, root);
+        final Char changedThenKept = changed.withOffset(1);
+        assertTrue(changed.isTransliterated());
+        assertTrue(changedThenKept.isTransliterated());
+        assertFalse(changedThenKept.tracksProvenance());
+    }
+
+    @Test
+    public void testAttachedChars() {
+        final Char root = Chars.of("a").toList().get(0);
+        final Char derived = new Char(CodePointTuple.of('b'), 0, root).withOffset(1);
+        assertTrue(root.tracksProvenance());
+        assertFalse(root.hasSource());
+        assertTrue(derived.hasSource());
+        assertSame(root, derived.getSource().getSource());
+        assertTrue(derived.isTransliterated());
+    }
 }
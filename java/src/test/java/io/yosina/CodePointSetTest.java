@@ -0,0 +1,100 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CodePointSetTest {
+    @Test
+    public void testContains() {
+        final CodePointSet set =
+                new CodePointSet.Builder()
+                        .add('a')
+                        .addRange(0x3041, 0x3096)
+                        .addRange(0xfff0, 0x10010)
+                        .add(0xe0100)
+                        .build();
+        assertTrue(set.contains('a'));
+        assertFalse(set.contains('b'));
+        assertTrue(set.contains(0x3041));
+        assertTrue(set.contains(0x3096));
+        assertFalse(set.contains(0x3097));
+        assertTrue(set.contains(0xffff));
+        assertTrue(set.contains(0x10000));
+        assertTrue(set.contains(0x10010));
+        assertFalse(set.contains(0x10011));
+        assertTrue(set.contains(0xe0100));
+        assertFalse(set.contains(0xe0101));
+        assertFalse(set.contains(-1));
+        assertFalse(set.contains(0x110000));
+        assertTrue(set.containsAny(0x4e00, 0xe0100));
+        assertFalse(set.containsAny(0x4e00, -1));
+        assertTrue(set.containsAny(CodePointTuple.of(0x4e00, 0xe0100)));
+        assertFalse(set.containsAny(CodePointTuple.SENTINEL));
+    }
+
+    @Test
+    public void testRangesAreMerged() {
+        final CodePointSet set =
+                new CodePointSet.Builder()
+                        .addRange(0x20000, 0x20010)
+                        .addRange(0x20005, 0x20020)
+                        .addRange(0x20021, 0x20030)
+                        .add(0x1f000)
+                        .build();
+        assertEquals("[U+1F000 U+20000-U+20030]", set.toString());
+        assertEquals(
+                set, new CodePointSet.Builder().add(0x1f000).addRange(0x20000, 0x20030).build());
+    }
+
+    @Test
+    public void testSize() {
+        final CodePointSet set =
+                new CodePointSet.Builder()
+                        .add('a')
+                        .addRange(0xfff0, 0x10010)
+                        .addRange(0x20000, 0x20003)
+                        .build();
+        assertEquals(1 + 0x21 + 4, set.size());
+        assertEquals(0, CodePointSet.EMPTY.size());
+        assertEquals(Character.MAX_CODE_POINT + 1, CodePointSet.ALL.size());
+    }
+
+    @Test
+    public void testAddKey() {
+        final CodePointSet set =
+                new CodePointSet.Builder().addKey(0x8fbb, 0xe0100).addKey('x', -1).build();
+        assertFalse(set.contains(0x8fbb));
+        assertTrue(set.contains(0xe0100));
+        assertTrue(set.contains('x'));
+    }
+
+    @Test
+    public void testUnion() {
+        final CodePointSet a = new CodePointSet.Builder().add('a').add(0x20000).build();
+        final CodePointSet b = new CodePointSet.Builder().add('b').build();
+        final CodePointSet union = a.union(b);
+        assertTrue(union.contains('a'));
+        assertTrue(union.contains('b'));
+        assertTrue(union.contains(0x20000));
+        assertSame(a, a.union(CodePointSet.EMPTY));
+        assertSame(b, CodePointSet.EMPTY.union(b));
+        assertSame(CodePointSet.ALL, a.union(CodePointSet.ALL));
+        assertTrue(CodePointSet.EMPTY.isEmpty());
+        assertTrue(new CodePointSet.Builder().build().isEmpty());
+        assertFalse(a.isEmpty());
+        assertTrue(CodePointSet.ALL.contains(Character.MAX_CODE_POINT));
+    }
+
+    @Test
+    public void testInvalidRanges() {
+        assertThrows(
+                IllegalArgumentException.class, () -> new CodePointSet.Builder().add(0x110000));
+        assertThrows(
+                IllegalArgumentException.class, () -> new CodePointSet.Builder().addRange(2, 1));
+    }
+}
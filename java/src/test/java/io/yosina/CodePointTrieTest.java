@@ -0,0 +1,93 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class CodePointTrieTest {
+    private static final CodePointTrie<String> TRIE =
+            new CodePointTrie.Builder<String>()
+                    .put(0x0000, "nul")
+                    .put(0x003f, "?")
+                    .put(0x0040, "@")
+                    .put(0x3000, "ideographic space")
+                    .put(0xffff, "bmp end")
+                    .put(0x1d400, "math bold A")
+                    .put(0x10ffff, "last")
+                    .put(0x845b, 0xe0100, "葛 + VS17")
+                    .put(CodePointTuple.of(0x8fbb, 0xe0101), "辻 + VS18")
+                    .put(0x4e00, -1, "一")
+                    .build();
+
+    private static Stream<Arguments> casesForGet() {
+        return Stream.of(
+                Arguments.of("nul", 0x0000, -1),
+                Arguments.of("?", 0x003f, -1),
+                Arguments.of("@", 0x0040, -1),
+                Arguments.of(null, 0x0041, -1),
+                Arguments.of("ideographic space", 0x3000, -1),
+                Arguments.of("bmp end", 0xffff, -1),
+                Arguments.of(null, 0x10000, -1),
+                Arguments.of("math bold A", 0x1d400, -1),
+                Arguments.of(null, 0x1d401, -1),
+                Arguments.of("last", 0x10ffff, -1),
+                Arguments.of("一", 0x4e00, -1),
+                Arguments.of("葛 + VS17", 0x845b, 0xe0100),
+                Arguments.of(null, 0x845b, -1),
+                Arguments.of(null, 0x845b, 0xe0101),
+                Arguments.of("辻 + VS18", 0x8fbb, 0xe0101),
+                Arguments.of(null, 0x4e00, 0xfe00));
+    }
+
+    @ParameterizedTest
+    @MethodSource("casesForGet")
+    public void testGet(String expected, int first, int second) {
+        assertEquals(expected, TRIE.get(first, second));
+        assertEquals(expected, TRIE.get(CodePointTuple.of(first, second)));
+    }
+
+    @Test
+    public void testOutOfRange() {
+        assertNull(TRIE.get(-1));
+        assertNull(TRIE.get(0x110000));
+        assertNull(TRIE.get(CodePointTuple.SENTINEL));
+        assertEquals(10, TRIE.size());
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new CodePointTrie.Builder<String>().put(0x110000, "x"));
+    }
+
+    @Test
+    public void testMatchesMap() {
+        final Random random = new Random(42);
+        final Map<CodePointTuple, Integer> map = new TreeMap<>();
+        for (int i = 0; i < 2000; i++) {
+            final int codePoint = random.nextInt(0x30000);
+            map.put(
+                    random.nextInt(4) == 0
+                            ? CodePointTuple.of(codePoint, 0xe0100 + random.nextInt(16))
+                            : CodePointTuple.of(codePoint),
+                    i);
+        }
+        final CodePointTrie<Integer> trie = CodePointTrie.of(map);
+        assertEquals(map.size(), trie.size());
+        for (int codePoint = 0; codePoint < 0x30000; codePoint++) {
+            assertEquals(map.get(CodePointTuple.of(codePoint)), trie.get(codePoint));
+        }
+        for (final Map.Entry<CodePointTuple, Integer> e : map.entrySet()) {
+            assertEquals(e.getValue(), trie.get(e.getKey()));
+        }
+        final Map<CodePointTuple, Integer> entries = new TreeMap<>();
+        trie.forEach((key, value) -> assertNull(entries.put(key, value)));
+        assertEquals(map, entries);
+    }
+}
@@ -2,6 +2,7 @@ package io.yosina;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
@@ -16,7 +17,12 @@ public class CodePointTupleTest {
                 Arguments.of(0x0041),
                 Arguments.of(0x3000),
                 Arguments.of(0x3040),
-                Arguments.of(0x3080));
+                Arguments.of(0x3080),
+                Arguments.of(0x30fc),
+                Arguments.of(0x4e00),
+                Arguments.of(0x9fff),
+                Arguments.of(0xff21),
+                Arguments.of(0xff76));
     }
 
     @ParameterizedTest
@@ -25,6 +31,18 @@ public class CodePointTupleTest {
         // Create a CodePointTuple with a single code point
         CodePointTuple tuple = CodePointTuple.of(expected); // 一
         assertEquals(expected, tuple.get(0));
+        assertSame(tuple, CodePointTuple.of(expected));
+        assertSame(tuple, CodePointTuple.of(expected, -1));
+    }
+
+    @Test
+    public void testFlyweightVariationSequence() {
+        final CodePointTuple ivs = CodePointTuple.of(0x845b, 0xe0100); // 葛 + VS17
+        assertSame(ivs, CodePointTuple.of(0x845b, 0xe0100));
+        assertEquals(0x845b, ivs.get(0));
+        assertEquals(0xe0100, ivs.get(1));
+        assertEquals(CodePointTuple.of(0x20bb7), CodePointTuple.of(0x20bb7));
+        assertEquals(CodePointTuple.of(0x41, 0x42), CodePointTuple.of(0x41, 0x42));
     }
 
     @Test
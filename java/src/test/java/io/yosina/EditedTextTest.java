@@ -0,0 +1,115 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.yosina.transliterators.HiraKataTransliterator;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class EditedTextTest {
+    private static final List<Yosina.TransliteratorConfig> COMBINED =
+            List.of(new Yosina.TransliteratorConfig("combined"));
+    // prolonged-sound-marks has no buffer implementation, so this runs over Chars
+    private static final List<Yosina.TransliteratorConfig> COMBINED_ON_CHARS =
+            List.of(
+                    new Yosina.TransliteratorConfig("combined"),
+                    new Yosina.TransliteratorConfig("prolonged-sound-marks"));
+    private static final List<Yosina.TransliteratorConfig> IVS_SVS_BASE =
+            List.of(
+                    new Yosina.TransliteratorConfig(
+                            "ivs-svs-base",
+                            new IvsSvsBaseTransliterator.Options()
+                                    .withMode(IvsSvsBaseTransliterator.Mode.BASE)
+                                    .withDropSelectorAltogether(true)));
+    // Every katakana is changed into hiragana and back
+    private static final List<Yosina.TransliteratorConfig> ROUND_TRIP =
+            List.of(
+                    new Yosina.TransliteratorConfig(
+                            "hira-kata",
+                            new HiraKataTransliterator.Options(
+                                    HiraKataTransliterator.Options.Mode.KATA_TO_HIRA)),
+                    new Yosina.TransliteratorConfig(
+                            "hira-kata",
+                            new HiraKataTransliterator.Options(
+                                    HiraKataTransliterator.Options.Mode.HIRA_TO_KATA)));
+
+    private static Stream<Arguments> casesForEditingTransliterator() {
+        return Stream.of(
+                Arguments.of(COMBINED, "abc", "abc", new int[] {}),
+                Arguments.of(COMBINED, "", "", new int[] {}),
+                Arguments.of(COMBINED, "a㍿b", "a株式会社b", new int[] {1, 2, 1, 5}),
+                Arguments.of(
+                        COMBINED, "㍿a㍿㍿", "株式会社a株式会社株式会社", new int[] {0, 1, 0, 4, 2, 4, 5, 13}),
+                Arguments.of(COMBINED_ON_CHARS, "a㍿b", "a株式会社b", new int[] {1, 2, 1, 5}),
+                Arguments.of(COMBINED_ON_CHARS, "abc", "abc", new int[] {}),
+                // Changed only well after the start, which is copied as it is on the buffer path
+                Arguments.of(
+                        COMBINED,
+                        "abcdefgh㍿i㍿",
+                        "abcdefgh株式会社i株式会社",
+                        new int[] {8, 9, 8, 12, 10, 11, 13, 17}),
+                Arguments.of(
+                        COMBINED_ON_CHARS,
+                        "abcdefgh㍿i㍿",
+                        "abcdefgh株式会社i株式会社",
+                        new int[] {8, 9, 8, 12, 10, 11, 13, 17}),
+                Arguments.of(ROUND_TRIP, "abcdefghカナ", "abcdefghカナ", new int[] {}),
+                Arguments.of(IVS_SVS_BASE, "葛󠄀x", "葛x", new int[] {0, 3, 0, 1}),
+                Arguments.of(IVS_SVS_BASE, "xa︀a︀y", "xaay", new int[] {1, 5, 1, 3}),
+                Arguments.of(ROUND_TRIP, "カナ", "カナ", new int[] {}));
+    }
+
+    @ParameterizedTest
+    @MethodSource("casesForEditingTransliterator")
+    public void testEditingTransliterator(
+            List<Yosina.TransliteratorConfig> configs,
+            String input,
+            String expected,
+            int[] expectedSpans) {
+        final Function<String, EditedText> transliterator =
+                Yosina.makeEditingTransliterator(configs);
+        final EditedText result = transliterator.apply(input);
+        assertEquals(expected, result.getText());
+        final List<EditedText.Span> spans = new ArrayList<>();
+        for (int i = 0; i < expectedSpans.length; i += 4) {
+            spans.add(
+                    new EditedText.Span(
+                            expectedSpans[i],
+                            expectedSpans[i + 1],
+                            expectedSpans[i + 2],
+                            expectedSpans[i + 3]));
+        }
+        assertEquals(spans, result.getSpans());
+        if (spans.isEmpty()) {
+            assertSame(input, result.getText());
+            assertFalse(result.isModified());
+        }
+        assertEquals(expected, Yosina.makeTransliterator(configs).apply(input));
+    }
+
+    @Test
+    public void testUnchangedTextIsReturnedAsIs() {
+        final String unaffected = "plain ASCII text";
+        final String roundTripped = "カタカナ";
+        final String changed = "ひらがな";
+        for (List<Yosina.TransliteratorConfig> configs :
+                List.of(COMBINED, COMBINED_ON_CHARS, ROUND_TRIP)) {
+            final Function<String, String> transliterator = Yosina.makeTransliterator(configs);
+            assertSame(unaffected, transliterator.apply(unaffected));
+        }
+        final Function<String, String> transliterator = Yosina.makeTransliterator(ROUND_TRIP);
+        assertSame(roundTripped, transliterator.apply(roundTripped));
+        assertEquals("ヒラガナ", transliterator.apply(changed));
+        assertNotSame(changed, transliterator.apply(changed));
+    }
+}
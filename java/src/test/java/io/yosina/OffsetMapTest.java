@@ -0,0 +1,177 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.transliterators.HistoricalHirakatasTransliterator;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class OffsetMapTest {
+    private static Stream<Arguments> casesForMappingTransliterator() {
+        final List<Yosina.TransliteratorConfig> combined =
+                List.of(new Yosina.TransliteratorConfig("combined"));
+        // prolonged-sound-marks has no buffer implementation, so this runs over Chars
+        final List<Yosina.TransliteratorConfig> combinedOnChars =
+                List.of(
+                        new Yosina.TransliteratorConfig("combined"),
+                        new Yosina.TransliteratorConfig("prolonged-sound-marks"));
+        final List<Yosina.TransliteratorConfig> ivsSvsBase =
+                List.of(
+                        new Yosina.TransliteratorConfig(
+                                "ivs-svs-base",
+                                new IvsSvsBaseTransliterator.Options()
+                                        .withMode(IvsSvsBaseTransliterator.Mode.BASE)
+                                        .withDropSelectorAltogether(true)));
+        final List<Yosina.TransliteratorConfig> ivsOrSvs =
+                List.of(
+                        new Yosina.TransliteratorConfig(
+                                "ivs-svs-base",
+                                new IvsSvsBaseTransliterator.Options()
+                                        .withMode(IvsSvsBaseTransliterator.Mode.IVS_OR_SVS)));
+        final List<Yosina.TransliteratorConfig> ivsOrSvsOnChars =
+                List.of(ivsOrSvs.get(0), new Yosina.TransliteratorConfig("prolonged-sound-marks"));
+        final HistoricalHirakatasTransliterator.ConversionMode decompose =
+                HistoricalHirakatasTransliterator.ConversionMode.DECOMPOSE;
+        final List<Yosina.TransliteratorConfig> decomposed =
+                List.of(
+                        new Yosina.TransliteratorConfig(
+                                "historical-hirakatas",
+                                new HistoricalHirakatasTransliterator.Options(
+                                        decompose, decompose, decompose)));
+        final List<Yosina.TransliteratorConfig> decomposedOnChars =
+                List.of(
+                        decomposed.get(0),
+                        new Yosina.TransliteratorConfig("prolonged-sound-marks"));
+        return Stream.of(
+                Arguments.of(combined, "abc", "abc", new int[] {0, 1, 2, 3}, 0),
+                Arguments.of(combined, "a㍿b", "a株式会社b", new int[] {0, 1, 1, 1, 1, 2, 3}, 3),
+                Arguments.of(combinedOnChars, "a㍿b", "a株式会社b", new int[] {0, 1, 1, 1, 1, 2, 3}, 3),
+                // Changed only well after the start, which is copied as it is on the buffer path
+                Arguments.of(
+                        combined,
+                        "abcdefgh㍿i",
+                        "abcdefgh株式会社i",
+                        new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 8, 8, 8, 9, 10},
+                        3),
+                Arguments.of(
+                        combinedOnChars,
+                        "abcdefgh㍿i",
+                        "abcdefgh株式会社i",
+                        new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 8, 8, 8, 9, 10},
+                        3),
+                Arguments.of(ivsSvsBase, "葛󠄀x", "葛x", new int[] {0, 3, 4}, 1),
+                // Each "一" gains a variation selector taking two chars
+                Arguments.of(
+                        ivsOrSvs,
+                        "一一一",
+                        "一\uDB40\uDD00一\uDB40\uDD00一\uDB40\uDD00",
+                        new int[] {0, 0, 0, 1, 1, 1, 2, 2, 2, 3},
+                        6),
+                Arguments.of(
+                        ivsOrSvsOnChars,
+                        "一一一",
+                        "一\uDB40\uDD00一\uDB40\uDD00一\uDB40\uDD00",
+                        new int[] {0, 0, 0, 1, 1, 1, 2, 2, 2, 3},
+                        6),
+                // The voiced sound mark after "ヰ" ends up between "ウ" and "ィ"
+                Arguments.of(
+                        decomposed,
+                        "\u30F0\u3099x",
+                        "\u30A6\u3099\u30A3x",
+                        new int[] {0, 1, 1, 2, 3},
+                        1),
+                Arguments.of(
+                        decomposedOnChars,
+                        "\u30F0\u3099x",
+                        "\u30A6\u3099\u30A3x",
+                        new int[] {0, 1, 1, 2, 3},
+                        1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("casesForMappingTransliterator")
+    public void testMappingTransliterator(
+            List<Yosina.TransliteratorConfig> configs,
+            String input,
+            String expected,
+            int[] expectedOffsets,
+            int expectedCheckpoints) {
+        final Function<String, MappedText> transliterator =
+                Yosina.makeMappingTransliterator(configs);
+        final MappedText result = transliterator.apply(input);
+        assertEquals(expected, result.getText());
+        for (int i = 0; i < expectedOffsets.length; i++) {
+            assertEquals(expectedOffsets[i], result.correctOffset(i), "offset " + i);
+        }
+        assertEquals(expectedCheckpoints, result.getOffsetMap().size());
+        assertNeverDecreases(result.getOffsetMap(), expected.length(), input.length());
+    }
+
+    private static void assertNeverDecreases(OffsetMap map, int outputLength, int inputLength) {
+        int previous = 0;
+        for (int i = 0; i <= outputLength; i++) {
+            final int offset = map.correctOffset(i);
+            assertTrue(offset >= previous && offset <= inputLength, "offset " + i + ": " + offset);
+            previous = offset;
+        }
+    }
+
+    @Test
+    public void testCharacters() {
+        // "a-b" with "-" turned into a character outside the BMP: "a\uD83D\uDE00b"
+        final OffsetMap expanded =
+                new OffsetMap.Builder().add(0, 1, 0, 1).add(1, 2, 1, 1).add(3, 1, 2, 1).build(4, 3);
+        final int[] expected = {0, 1, 1, 2, 3};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], expanded.correctOffset(i), "offset " + i);
+        }
+        assertNeverDecreases(expanded, 4, 3);
+
+        // A character outside the BMP left as it is needs no checkpoints
+        final OffsetMap unchanged = new OffsetMap.Builder().add(0, 2, 0, 2).build(2, 2);
+        assertEquals(0, unchanged.size());
+        assertEquals(1, unchanged.correctOffset(1));
+
+        // but once a second character comes from it, the inside of both maps to its start
+        final OffsetMap repeated =
+                new OffsetMap.Builder().add(0, 2, 0, 2).add(2, 2, 0, 2).build(4, 2);
+        final int[] expectedRepeated = {0, 0, 0, 0, 2};
+        for (int i = 0; i < expectedRepeated.length; i++) {
+            assertEquals(expectedRepeated[i], repeated.correctOffset(i), "offset " + i);
+        }
+        assertNeverDecreases(repeated, 4, 2);
+    }
+
+    @Test
+    public void testBuilder() {
+        // "abcdef" with "b" deleted and "e" expanded into two characters: "acdeef"
+        final OffsetMap map =
+                new OffsetMap.Builder()
+                        .add(0, 0)
+                        .add(1, 2)
+                        .add(2, 3)
+                        .add(3, 4)
+                        .add(4, 4)
+                        .add(5, 5)
+                        .build(6, 6);
+        assertEquals(2, map.size());
+        final int[] expected = {0, 2, 3, 4, 4, 5, 6};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], map.correctOffset(i), "offset " + i);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        final OffsetMap map = new OffsetMap.Builder().build(0, 0);
+        assertEquals(0, map.size());
+        assertEquals(0, map.correctOffset(0));
+    }
+}
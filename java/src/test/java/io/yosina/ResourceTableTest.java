@@ -0,0 +1,90 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.yosina.transliterators.SpacesTransliterator;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+public class ResourceTableTest {
+    private static ByteBuffer ints(int... values) {
+        final ByteBuffer b = ByteBuffer.allocate(values.length * 4);
+        for (final int v : values) {
+            b.putInt(v);
+        }
+        return b.flip();
+    }
+
+    @Test
+    public void testFixed() {
+        // Out of order on purpose: the table sorts its record positions
+        final ResourceTable table =
+                ResourceTable.ofFixed(
+                        ints(
+                                0x3000, -1, 0x20, -1, //
+                                0x845b, 0xe0100, 0x845b, -1, //
+                                0x00a0, -1, 0x20, -1, //
+                                0x845b, -1, 0x845b, 0xe0101),
+                        4);
+        assertEquals(4, table.size());
+        final CodePointLookup<CodePointTuple> lookup =
+                table.asLookup(r -> CodePointTuple.of(table.getInt(r, 0), table.getInt(r, 1)));
+        assertEquals(CodePointTuple.of(0x20), lookup.get(0x3000));
+        assertEquals(CodePointTuple.of(0x20), lookup.get(CodePointTuple.of(0xa0)));
+        assertEquals(CodePointTuple.of(0x845b), lookup.get(0x845b, 0xe0100));
+        assertEquals(CodePointTuple.of(0x845b, 0xe0101), lookup.get(0x845b));
+        assertNull(lookup.get(0x845b, 0xe0102));
+        assertNull(lookup.get(0x41));
+        assertNull(lookup.get(CodePointTuple.SENTINEL));
+        final Map<CodePointTuple, CodePointTuple> entries = new TreeMap<>();
+        lookup.forEach(entries::put);
+        assertEquals(
+                Map.of(
+                        CodePointTuple.of(0x3000), CodePointTuple.of(0x20),
+                        CodePointTuple.of(0xa0), CodePointTuple.of(0x20),
+                        CodePointTuple.of(0x845b, 0xe0100), CodePointTuple.of(0x845b),
+                        CodePointTuple.of(0x845b), CodePointTuple.of(0x845b, 0xe0101)),
+                entries);
+    }
+
+    @Test
+    public void testLengthPrefixed() {
+        final ResourceTable table =
+                ResourceTable.ofLengthPrefixed(
+                        ints(
+                                0x2474, -1, 3, '(', '1', ')', 0, 0, //
+                                0x2460, -1, 1, '1', 0, 1, //
+                                0x1f100, -1, 0, 1, 1),
+                        2);
+        assertEquals(3, table.size());
+        final int r = table.find(0x2474, -1);
+        assertEquals(3, table.getInt(r, 0));
+        assertArrayEquals(
+                new int[] {'(', '1', ')'},
+                new int[] {table.getInt(r, 1), table.getInt(r, 2), table.getInt(r, 3)});
+        assertEquals(1, table.getInt(table.find(0x2460, -1), 3));
+        assertEquals(0, table.getInt(table.find(0x1f100, -1), 0));
+        assertEquals(-1, table.find(0x2461, -1));
+    }
+
+    @Test
+    public void testLoad() {
+        final ResourceTable table =
+                ResourceTable.ofFixed(
+                        ResourceTable.load(SpacesTransliterator.class, "spaces.data"), 4);
+        assertEquals(0x20, table.getInt(table.find(0x3000, -1), 0));
+    }
+
+    @Test
+    public void testModeOf() {
+        assertEquals(ResourceTable.Mode.DECODED, ResourceTable.modeOf(null));
+        assertEquals(ResourceTable.Mode.HEAP, ResourceTable.modeOf("heap"));
+        assertEquals(ResourceTable.Mode.DIRECT, ResourceTable.modeOf("DIRECT"));
+        assertThrows(IllegalArgumentException.class, () -> ResourceTable.modeOf("mmap"));
+    }
+}
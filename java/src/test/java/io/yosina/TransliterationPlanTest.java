@@ -0,0 +1,270 @@
+package io.yosina;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.transliterators.HiraKataTransliterator;
+import io.yosina.transliterators.HyphensTransliterator;
+import io.yosina.transliterators.ProlongedSoundMarksTransliterator;
+import io.yosina.transliterators.SimpleCharIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TransliterationPlanTest {
+    private static final List<String> CORPUS =
+            List.of(
+                    "",
+                    "Ｈｅｌｌｏ　Ｗｏｒｌｄ！",
+                    "ｶﾞｷﾞﾊﾟｱｲｳﾞｰ",
+                    "がき゛ぱハ゜ゞヾ",
+                    "葛󠄀辻󠄁邉︀一舊體",
+                    "①②㉑㊱Ⓐ🅰🄰㍿㈱ⅢⅫⅳⅿ",
+                    "‐‑‒–—―−ーｰ-〜～",
+                    "カーキ-1-2ｶｰ漢ーABC―",
+                    "時々こゝろみすゞ学問のすゝめヽヾ〱〲々々");
+
+    private static final Yosina.TransliteratorConfig HIRA_TO_KATA =
+            new Yosina.TransliteratorConfig(
+                    "hira-kata",
+                    new HiraKataTransliterator.Options(
+                            HiraKataTransliterator.Options.Mode.HIRA_TO_KATA));
+
+    /** A table transliterator over a map, for tables that the bundled ones do not have. */
+    private static final class Table implements TableTransliterator {
+        private final CodePointTrie<CodePointTuple> table;
+
+        Table(Map<CodePointTuple, CodePointTuple> mappings) {
+            this.table = CodePointTrie.of(mappings);
+        }
+
+        @Override
+        public CodePointLookup<CodePointTuple> getTable() {
+            return table;
+        }
+
+        @Override
+        public CharIterator transliterate(CharIterator input) {
+            return new SimpleCharIterator(input, table);
+        }
+
+        @Override
+        public void transliterate(
+                CodePointBuffer input, int start, int end, CodePointBuffer output) {
+            SimpleCharIterator.transliterate(input, start, end, output, table);
+        }
+
+        @Override
+        public CodePointSet getAffectedCodePoints() {
+            return table.keyCodePoints();
+        }
+    }
+
+    // Leaves every character as it is, but gives each of them a source
+    private static final Yosina.TransliteratorConfig NO_HYPHENS =
+            new Yosina.TransliteratorConfig(
+                    "hyphens", new HyphensTransliterator.Options(List.of()));
+
+    // Skips runs of hyphens that an earlier stage has gone over
+    private static final Yosina.TransliteratorConfig SKIPPING_PROLONGED_SOUND_MARKS =
+            new Yosina.TransliteratorConfig(
+                    "prolonged-sound-marks",
+                    new ProlongedSoundMarksTransliterator.Options(true, true, false, true, false));
+
+    private static Stream<Arguments> configs() {
+        return Stream.of(
+                Arguments.of(
+                        "recipe",
+                        new TransliterationRecipe()
+                                .withKanjiOldNew(true)
+                                .withReplaceSuspiciousHyphensToProlongedSoundMarks(true)
+                                .withReplaceCircledOrSquaredCharacters(
+                                        TransliterationRecipe
+                                                .ReplaceCircledOrSquaredCharactersOptions.ENABLED)
+                                .withReplaceCombinedCharacters(true)
+                                .withReplaceSpaces(true)
+                                .withReplaceHyphens(
+                                        TransliterationRecipe.ReplaceHyphensOptions.ENABLED)
+                                .withToFullwidth(TransliterationRecipe.ToFullwidthOptions.ENABLED)
+                                .withRemoveIvsSvs(TransliterationRecipe.RemoveIvsSvsOptions.ENABLED)
+                                .buildTransliteratorConfigs()),
+                Arguments.of(
+                        "repeated",
+                        List.of(
+                                new Yosina.TransliteratorConfig("spaces"),
+                                new Yosina.TransliteratorConfig("spaces"),
+                                new Yosina.TransliteratorConfig("prolonged-sound-marks"),
+                                HIRA_TO_KATA,
+                                HIRA_TO_KATA,
+                                new Yosina.TransliteratorConfig("combined"),
+                                new Yosina.TransliteratorConfig("combined"),
+                                new Yosina.TransliteratorConfig("prolonged-sound-marks"))),
+                Arguments.of("no-op", List.of(NO_HYPHENS, SKIPPING_PROLONGED_SOUND_MARKS)),
+                Arguments.of(
+                        "no-op after combined",
+                        List.of(
+                                new Yosina.TransliteratorConfig("combined"),
+                                NO_HYPHENS,
+                                SKIPPING_PROLONGED_SOUND_MARKS)),
+                Arguments.of(
+                        "no-op after spaces",
+                        List.of(
+                                new Yosina.TransliteratorConfig("spaces"),
+                                NO_HYPHENS,
+                                SKIPPING_PROLONGED_SOUND_MARKS)));
+    }
+
+    private static List<String> describe(CharIterator iterator) {
+        final List<String> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            final Char c = iterator.next();
+            result.add(c.get() + (c.isTransliterated() ? "*" : "") + (c.hasSource() ? "^" : ""));
+        }
+        return result;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("configs")
+    public void testOutputIsUnchanged(String name, List<Yosina.TransliteratorConfig> configs) {
+        final List<Transliterator> stages = new ArrayList<>();
+        for (Yosina.TransliteratorConfig config : configs) {
+            stages.add(Yosina.createTransliterator(config.getName(), config.getOptions()));
+        }
+        final ChainedTransliterator unoptimized = new ChainedTransliterator(stages);
+        final ChainedTransliterator optimized = TransliterationPlan.of(configs).toTransliterator();
+        for (String input : CORPUS) {
+            assertEquals(
+                    unoptimized.transliterate(Chars.of(input).iterator()).string(),
+                    Yosina.makeTransliterator(configs).apply(input),
+                    "input: " + input);
+            assertEquals(
+                    describe(unoptimized.transliterate(Chars.of(input).iterator())),
+                    describe(optimized.transliterate(Chars.of(input).iterator())),
+                    "input: " + input);
+        }
+    }
+
+    @Test
+    public void testRepeatedStagesAreRemoved() {
+        final TransliterationPlan plan =
+                TransliterationPlan.of(
+                        List.of(
+                                new Yosina.TransliteratorConfig("spaces"),
+                                new Yosina.TransliteratorConfig("spaces"),
+                                HIRA_TO_KATA,
+                                HIRA_TO_KATA,
+                                new Yosina.TransliteratorConfig("prolonged-sound-marks"),
+                                new Yosina.TransliteratorConfig("prolonged-sound-marks")));
+        assertEquals(2, plan.getRemovedStages().size());
+        assertEquals(1, plan.getRemovedStages().get(0).getIndex());
+        assertEquals(3, plan.getRemovedStages().get(1).getIndex());
+        assertEquals(3, plan.getSteps().size());
+        final TransliterationPlan.Step compiled = plan.getSteps().get(0);
+        assertEquals(TransliterationPlan.Kind.COMPILED, compiled.getKind());
+        assertEquals(List.of("spaces", "hira-kata"), compiled.getNames());
+        assertEquals(1, compiled.getEstimatedCost());
+        // Stages that look at their neighbours are kept even when repeated
+        assertEquals(TransliterationPlan.Kind.CONTEXT_DEPENDENT, plan.getSteps().get(1).getKind());
+        assertEquals(TransliterationPlan.Kind.CONTEXT_DEPENDENT, plan.getSteps().get(2).getKind());
+        assertEquals(7, plan.getEstimatedCost());
+    }
+
+    @Test
+    public void testStageThatChangesNothingIsRemoved() {
+        final Table identity = new Table(Map.of(CodePointTuple.of('a'), CodePointTuple.of('a')));
+        final TransliterationPlan plan =
+                TransliterationPlan.of(
+                        List.of("identity", "spaces"),
+                        List.of(
+                                identity,
+                                new Table(Map.of(CodePointTuple.of('　'), CodePointTuple.of(' ')))));
+        assertEquals(1, plan.getRemovedStages().size());
+        assertEquals("identity", plan.getRemovedStages().get(0).getName());
+        assertEquals("changes nothing", plan.getRemovedStages().get(0).getReason());
+        assertEquals(List.of("spaces"), plan.getSteps().get(0).getNames());
+        assertEquals(TransliterationPlan.Kind.CONTEXT_FREE, plan.getSteps().get(0).getKind());
+    }
+
+    @Test
+    public void testStageThatChangesNothingIsKeptForLaterStages() {
+        // The hyphens stage gives "―" a source, so prolonged-sound-marks leaves it alone
+        assertEquals(
+                "ZZ―",
+                Yosina.makeTransliterator(List.of(NO_HYPHENS, SKIPPING_PROLONGED_SOUND_MARKS))
+                        .apply("ZZ―"));
+        assertTrue(
+                TransliterationPlan.of(List.of(NO_HYPHENS, SKIPPING_PROLONGED_SOUND_MARKS))
+                        .getRemovedStages()
+                        .isEmpty());
+        // combined does not give characters a source either
+        assertTrue(
+                TransliterationPlan.of(
+                                List.of(
+                                        new Yosina.TransliteratorConfig("combined"),
+                                        NO_HYPHENS,
+                                        SKIPPING_PROLONGED_SOUND_MARKS))
+                        .getRemovedStages()
+                        .isEmpty());
+
+        // Removed when spaces has already given every character a source
+        final TransliterationPlan afterSpaces =
+                TransliterationPlan.of(
+                        List.of(
+                                new Yosina.TransliteratorConfig("spaces"),
+                                NO_HYPHENS,
+                                SKIPPING_PROLONGED_SOUND_MARKS));
+        assertEquals(1, afterSpaces.getRemovedStages().get(0).getIndex());
+        // and when no later stage looks at the sources
+        final TransliterationPlan notRead =
+                TransliterationPlan.of(
+                        List.of(
+                                NO_HYPHENS,
+                                new Yosina.TransliteratorConfig("prolonged-sound-marks")));
+        assertEquals(0, notRead.getRemovedStages().get(0).getIndex());
+        assertFalse(notRead.toTransliterator().readsProvenance());
+    }
+
+    @Test
+    public void testRepeatThatChangesMoreIsKept() {
+        // Applied twice, "a" goes on to "c"
+        final Table shift =
+                new Table(
+                        Map.of(
+                                CodePointTuple.of('a'), CodePointTuple.of('b'),
+                                CodePointTuple.of('b'), CodePointTuple.of('c')));
+        final TransliterationPlan plan =
+                TransliterationPlan.of(List.of("shift", "shift"), List.of(shift, shift));
+        assertTrue(plan.getRemovedStages().isEmpty());
+        assertEquals("c", plan.toTransliterator().transliterate(Chars.of("a").iterator()).string());
+    }
+
+    @Test
+    public void testExplain() {
+        final TransliterationRecipe recipe =
+                new TransliterationRecipe()
+                        .withKanjiOldNew(true)
+                        .withReplaceSpaces(true)
+                        .withReplaceSuspiciousHyphensToProlongedSoundMarks(true);
+        final String explanation = recipe.explain();
+        assertEquals(TransliterationPlan.of(recipe).explain(), explanation);
+        final String[] lines = explanation.split("\n");
+        assertEquals(4, lines.length, explanation);
+        assertEquals("5 stages in 3 steps, estimated cost 5 lookups per character", lines[0]);
+        assertTrue(
+                lines[1].startsWith(
+                        "  1. [ivs-svs-base, ivs-svs-base, kanji-old-new]: compiled,"
+                                + " estimated cost 1, "),
+                lines[1]);
+        assertTrue(
+                lines[2].startsWith(
+                        "  2. prolonged-sound-marks: context-dependent, estimated cost 3, "),
+                lines[2]);
+        assertTrue(lines[3].startsWith("  3. spaces: context-free, estimated cost 1, "), lines[3]);
+    }
+}
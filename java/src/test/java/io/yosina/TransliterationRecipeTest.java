@@ -595,6 +595,47 @@ public class TransliterationRecipeTest {
         }
     }
 
+    @Nested
+    class Equality {
+        private TransliterationRecipe recipe() {
+            return new TransliterationRecipe()
+                    .withKanjiOldNew(true)
+                    .withHiraKata("kata-to-hira")
+                    .withReplaceHyphens(
+                            TransliterationRecipe.ReplaceHyphensOptions.withPrecedence(
+                                    List.of(HyphensTransliterator.Mapping.JISX0201)))
+                    .withToHalfwidth(TransliterationRecipe.ToHalfwidthOptions.HANKAKU_KANA);
+        }
+
+        @Test
+        void testEqualRecipes() {
+            assertEquals(new TransliterationRecipe(), new TransliterationRecipe());
+            assertEquals(recipe(), recipe());
+            assertEquals(recipe().hashCode(), recipe().hashCode());
+        }
+
+        @Test
+        void testDifferentRecipes() {
+            assertNotEquals(recipe(), recipe().withKanjiOldNew(false));
+            assertNotEquals(recipe(), recipe().withHiraKata("hira-to-kata"));
+            assertNotEquals(
+                    recipe(),
+                    recipe().withReplaceHyphens(
+                                    TransliterationRecipe.ReplaceHyphensOptions.ENABLED));
+            assertNotEquals(recipe(), recipe().withTrackProvenance(false));
+            assertNotEquals(new TransliterationRecipe(), null);
+        }
+
+        @Test
+        void testEqualConfigs() {
+            assertEquals(
+                    recipe().buildTransliteratorConfigs(), recipe().buildTransliteratorConfigs());
+            assertNotEquals(
+                    recipe().buildTransliteratorConfigs(),
+                    recipe().withKanjiOldNew(false).buildTransliteratorConfigs());
+        }
+    }
+
     // Helper methods
     private boolean containsConfig(List<Yosina.TransliteratorConfig> configs, String name) {
         return configs.stream().anyMatch(c -> c.getName().equals(name));
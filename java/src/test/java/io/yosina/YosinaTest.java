@@ -1,11 +1,15 @@
 package io.yosina;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.yosina.transliterators.HiraKataCompositionTransliterator;
+import io.yosina.transliterators.IvsSvsBaseTransliterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import org.junit.jupiter.api.Test;
@@ -52,6 +56,36 @@ public class YosinaTest {
                 });
     }
 
+    @Test
+    public void testRegisteredTransliterators() {
+        final Map<String, Class<Transliterator>> registered = Yosina.getRegisteredTransliterators();
+        assertEquals(
+                HiraKataCompositionTransliterator.class, registered.get("hira-kata-composition"));
+        for (Map.Entry<String, Class<Transliterator>> entry : registered.entrySet()) {
+            final String name = entry.getKey();
+            if (Arrays.stream(entry.getValue().getConstructors())
+                    .anyMatch(ctor -> ctor.getParameterCount() == 0)) {
+                assertEquals("abc", Yosina.makeTransliterator(name).apply("abc"), name);
+            } else {
+                assertThrows(IllegalArgumentException.class, () -> Yosina.makeTransliterator(name));
+            }
+        }
+    }
+
+    @Test
+    public void testOptionsOfAnotherTransliterator() {
+        final IllegalArgumentException e =
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () ->
+                                Yosina.makeTransliterator(
+                                        "hira-kata-composition",
+                                        new IvsSvsBaseTransliterator.Options()));
+        assertTrue(
+                e.getMessage().contains(HiraKataCompositionTransliterator.Options.class.getName()));
+        assertTrue(e.getMessage().contains(IvsSvsBaseTransliterator.Options.class.getName()));
+    }
+
     @Test
     public void testChainedTransliterator() {
         // Create a simple chained transliterator manually
@@ -66,4 +100,50 @@ public class YosinaTest {
 
         assertEquals("test", output);
     }
+
+    @Test
+    public void testMakeTransliteratorWithoutProvenance() {
+        final TransliterationRecipe recipe =
+                new TransliterationRecipe()
+                        .withReplaceSuspiciousHyphensToProlongedSoundMarks(true)
+                        .withReplaceHyphens(TransliterationRecipe.ReplaceHyphensOptions.ENABLED)
+                        .withToFullwidth(TransliterationRecipe.ToFullwidthOptions.ENABLED);
+        final String input = "ｳｪ-ﾌﾞ ABC-123 ウェ―ブ";
+        final String expected = Yosina.makeTransliteratorFromRecipe(recipe).apply(input);
+        assertEquals(
+                expected,
+                Yosina.makeTransliteratorFromRecipe(recipe.withTrackProvenance(false))
+                        .apply(input));
+        assertEquals(
+                expected,
+                Yosina.makeTransliterator(recipe.buildTransliteratorConfigs(), false).apply(input));
+    }
+
+    @Test
+    public void testIsNormalized() {
+        final TransliterationRecipe recipe =
+                new TransliterationRecipe()
+                        .withReplaceSpaces(true)
+                        .withReplaceHyphens(TransliterationRecipe.ReplaceHyphensOptions.ENABLED)
+                        .withReplaceSuspiciousHyphensToProlongedSoundMarks(true)
+                        .withReplaceJapaneseIterationMarks(true)
+                        .withToHalfwidth(TransliterationRecipe.ToHalfwidthOptions.ENABLED);
+        final Function<String, String> transliterator = Yosina.makeTransliteratorFromRecipe(recipe);
+        for (String input :
+                List.of(
+                        "",
+                        "plain text",
+                        "ＡＢＣ　ｄｅｆ",
+                        "カーキ-1-2ｶｰ漢ーABC―",
+                        "すでに正規化された日本語の文章です。1234567890",
+                        "すでに正規化された日本語の文章です。1234567890　")) {
+            assertEquals(
+                    transliterator.apply(input).equals(input),
+                    Yosina.isNormalized(recipe, input),
+                    "input: " + input);
+            assertTrue(Yosina.isNormalized(recipe, transliterator.apply(input)));
+        }
+        assertTrue(Yosina.makeNormalizationCheckFromRecipe(recipe).test("plain text"));
+        assertFalse(Yosina.makeNormalizationCheckFromRecipe(recipe).test("ＡＢＣ"));
+    }
 }
@@ -497,4 +497,38 @@ public class CircledOrSquaredTransliteratorTest {
         assertNotNull(result);
         assertTrue(result.hasNext());
     }
+
+    @Test
+    public void testInstancesWithDifferentTemplates() {
+        final CircledOrSquaredTransliterator.Options options =
+                new CircledOrSquaredTransliterator.Options(
+                        Optional.of("<?>"), Optional.of("{?}"), false);
+        assertEquals(
+                options,
+                new CircledOrSquaredTransliterator.Options(
+                        Optional.of("<?>"), Optional.of("{?}"), false));
+        assertEquals(options.hashCode(), options.withIncludeEmojis(false).hashCode());
+        assertNotEquals(options, options.withIncludeEmojis(true));
+        assertNotEquals(options, new CircledOrSquaredTransliterator.Options());
+
+        // The tables expanded for each set of options are kept apart
+        final String input = "①🆗";
+        for (int i = 0; i < 2; i++) {
+            assertEquals(
+                    "<1>🆗",
+                    new CircledOrSquaredTransliterator(options)
+                            .transliterate(Chars.of(input).iterator())
+                            .string());
+            assertEquals(
+                    "(1)🆗",
+                    new CircledOrSquaredTransliterator()
+                            .transliterate(Chars.of(input).iterator())
+                            .string());
+            assertEquals(
+                    "<1>{OK}",
+                    new CircledOrSquaredTransliterator(options.withIncludeEmojis(true))
+                            .transliterate(Chars.of(input).iterator())
+                            .string());
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package io.yosina.transliterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.ChainedTransliterator;
+import io.yosina.Char;
+import io.yosina.CharIterator;
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointLookup;
+import io.yosina.CodePointSet;
+import io.yosina.CodePointTrie;
+import io.yosina.CodePointTuple;
+import io.yosina.TableTransliterator;
+import io.yosina.Transliterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Tests that composing table transliterators does not change their results. */
+public class ComposedTableTransliteratorTest {
+    private static final List<String> INPUTS =
+            List.of(
+                    "",
+                    "Ｈｅｌｌｏ　Ｗｏｒｌｄ！",
+                    "がき゛ぱハ゜ゞヾ",
+                    "ゐゑヰヱヷヸヷヸヹヺヷ",
+                    "⼀⼆舊體㆒㆓𝐀𝟎ぁぃァィ",
+                    "𛄲𛅐𛅤ヲぉ亞惡",
+                    "葛󠄀辻󠄁邉︀一　 ");
+
+    /** A table transliterator over a map, for tables that the bundled ones do not have. */
+    private static final class Table implements TableTransliterator {
+        private final CodePointTrie<CodePointTuple> table;
+
+        Table(Map<CodePointTuple, CodePointTuple> mappings) {
+            this.table = CodePointTrie.of(mappings);
+        }
+
+        @Override
+        public CodePointLookup<CodePointTuple> getTable() {
+            return table;
+        }
+
+        @Override
+        public CharIterator transliterate(CharIterator input) {
+            return new SimpleCharIterator(input, table);
+        }
+
+        @Override
+        public void transliterate(
+                CodePointBuffer input, int start, int end, CodePointBuffer output) {
+            SimpleCharIterator.transliterate(input, start, end, output, table);
+        }
+
+        @Override
+        public CodePointSet getAffectedCodePoints() {
+            return table.keyCodePoints();
+        }
+    }
+
+    private static List<String> describe(CharIterator iterator) {
+        final List<String> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            final Char c = iterator.next();
+            result.add(
+                    c.get()
+                            + "@"
+                            + c.getOffset()
+                            + (c.isTransliterated() ? "*" : "")
+                            + (c.hasSource() ? "^" : ""));
+        }
+        return result;
+    }
+
+    private static void assertSameAsSequence(List<? extends TableTransliterator> stages) {
+        final ComposedTableTransliterator composed =
+                ComposedTableTransliterator.of(stages).orElseThrow();
+        for (String input : INPUTS) {
+            CharIterator expected = Chars.of(input).iterator();
+            CodePointBuffer expectedBuffer = CodePointBuffer.of(input);
+            for (TableTransliterator stage : stages) {
+                expected = stage.transliterate(expected);
+                final CodePointBuffer out = new CodePointBuffer();
+                stage.transliterate(expectedBuffer, 0, expectedBuffer.size(), out);
+                expectedBuffer = out;
+            }
+            assertEquals(
+                    describe(expected),
+                    describe(composed.transliterate(Chars.of(input).iterator())),
+                    "input: " + input);
+
+            final CodePointBuffer in = CodePointBuffer.of(input);
+            final CodePointBuffer out = new CodePointBuffer();
+            composed.transliterate(in, 0, in.size(), out);
+            assertEquals(expectedBuffer.toString(), out.toString(), "input: " + input);
+            assertEquals(expectedBuffer.size(), out.size());
+            for (int i = 0; i < out.size(); i++) {
+                assertEquals(expectedBuffer.offset(i), out.offset(i), "input: " + input);
+            }
+        }
+    }
+
+    @Test
+    public void testBundledTables() {
+        assertSameAsSequence(
+                List.of(
+                        new IdeographicAnnotationsTransliterator(),
+                        new RadicalsTransliterator(),
+                        new SpacesTransliterator(),
+                        new MathematicalAlphanumericsTransliterator(),
+                        new ArchaicHirakatasTransliterator(),
+                        new SmallHirakatasTransliterator(),
+                        new HiraKataTransliterator(),
+                        new KanjiOldNewTransliterator()));
+        assertSameAsSequence(
+                List.of(
+                        new HiraKataTransliterator(
+                                new HiraKataTransliterator.Options(
+                                        HiraKataTransliterator.Options.Mode.KATA_TO_HIRA)),
+                        new SmallHirakatasTransliterator()));
+        // Neither of them gives a source to the characters it leaves as they are
+        final HiraKataTransliterator toKatakana =
+                new HiraKataTransliterator(
+                        new HiraKataTransliterator.Options(
+                                HiraKataTransliterator.Options.Mode.HIRA_TO_KATA));
+        assertSameAsSequence(List.of(toKatakana, toKatakana));
+    }
+
+    @Test
+    public void testChainedMappingsAndDeletions() {
+        final Table first =
+                new Table(
+                        Map.of(
+                                CodePointTuple.of('a'), CodePointTuple.of('b'),
+                                CodePointTuple.of('x'), CodePointTuple.of(),
+                                CodePointTuple.of('y'), CodePointTuple.of(0x20bb7)));
+        final Table second =
+                new Table(
+                        Map.of(
+                                CodePointTuple.of('b'), CodePointTuple.of('c'),
+                                CodePointTuple.of(0x20bb7), CodePointTuple.of('z'),
+                                CodePointTuple.of('z'), CodePointTuple.of()));
+        final ComposedTableTransliterator composed =
+                ComposedTableTransliterator.of(List.of(first, second)).orElseThrow();
+        assertEquals("cc!z", composed.transliterate(Chars.of("abx!yz").iterator()).string());
+        assertTrue(composed.getAffectedCodePoints().contains('x'));
+        assertTrue(composed.getAffectedCodePoints().contains(0x20bb7));
+        assertFalse(composed.getAffectedCodePoints().contains('!'));
+    }
+
+    @Test
+    public void testRoundTripsAreNotComposed() {
+        final List<TableTransliterator> stages =
+                List.of(
+                        new HiraKataTransliterator(),
+                        new HiraKataTransliterator(
+                                new HiraKataTransliterator.Options(
+                                        HiraKataTransliterator.Options.Mode.KATA_TO_HIRA)));
+        assertFalse(ComposedTableTransliterator.of(stages).isPresent());
+
+        // A chain keeps running such stages one after another
+        final Transliterator chain = new ChainedTransliterator(List.copyOf(stages));
+        final List<Char> chars = new ArrayList<>();
+        chain.transliterate(Chars.of("あア").iterator()).forEachRemaining(chars::add);
+        assertEquals("あ", chars.get(0).get().toString());
+        assertTrue(chars.get(0).isTransliterated());
+        assertEquals("あ", chars.get(1).get().toString());
+        assertTrue(chars.get(1).isTransliterated());
+    }
+}
@@ -0,0 +1,71 @@
+package io.yosina.transliterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.Char;
+import io.yosina.CharIterator;
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the shared one-to-many expansion engine. */
+public class ExpansionTableTest {
+    private static ExpansionTable table() {
+        return new ExpansionTable.Builder()
+                .put('a', -1, "xyz")
+                .put('b', -1, "")
+                .put('c', 0xfe00, "𠮷!")
+                .build();
+    }
+
+    @Test
+    public void testCharIterator() {
+        final List<Char> chars = new ArrayList<>();
+        final CharIterator result = table().transliterate(Chars.of("1ab2c︀").iterator());
+        result.forEachRemaining(chars::add);
+        final StringBuilder sb = new StringBuilder();
+        for (Char c : chars) {
+            sb.append(c.get());
+        }
+        assertEquals("1xyzb2𠮷!", sb.toString());
+
+        // The expanded characters all come from the character they replace
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(1, chars.get(i).getSource().getOffset());
+        }
+        assertEquals(2, chars.get(4).getOffset());
+        assertFalse(chars.get(4).hasSource());
+        assertTrue(chars.get(chars.size() - 1).isSentinel());
+    }
+
+    @Test
+    public void testBuffers() {
+        final CodePointBuffer in = CodePointBuffer.of("1ab2c︀");
+        final CodePointBuffer out = new CodePointBuffer();
+        table().transliterate(in, 0, in.size(), out);
+        assertEquals("1xyzb2𠮷!", out.toString());
+        final int[] offsets = {0, 1, 1, 1, 2, 3, 4, 4};
+        assertEquals(offsets.length, out.size());
+        for (int i = 0; i < offsets.length; i++) {
+            assertEquals(offsets[i], out.offset(i));
+        }
+    }
+
+    @Test
+    public void testDecode() {
+        final ByteBuffer b = ByteBuffer.allocate(4 * 10);
+        b.putInt('a').putInt(-1).putInt(2).putInt('x').putInt('y');
+        b.putInt('c').putInt(0xfe00).putInt(2).putInt('z').putInt('w');
+        b.flip();
+        final ExpansionTable table = ExpansionTable.decode(b);
+        assertEquals("xyb-zw", table.transliterate(Chars.of("ab-c︀").iterator()).string());
+        assertTrue(table.keyCodePoints().contains('a'));
+        assertTrue(table.keyCodePoints().contains(0xfe00));
+        assertFalse(table.keyCodePoints().contains('b'));
+    }
+}
@@ -1,6 +1,8 @@
 package io.yosina.transliterators;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import io.yosina.Chars;
 import java.util.stream.Stream;
@@ -82,11 +84,8 @@ class HiraKataTransliteratorTest {
     }
 
     @Test
-    @DisplayName("Caching behavior")
+    @DisplayName("Shared tables")
     void testCaching() {
-        // Clear cache first
-        HiraKataTransliterator.mappingCache.clear();
-
         // Create two instances with the same mode
         var t1 =
                 new HiraKataTransliterator(
@@ -97,12 +96,8 @@ class HiraKataTransliteratorTest {
                         new HiraKataTransliterator.Options(
                                 HiraKataTransliterator.Options.Mode.HIRA_TO_KATA));
 
-        // Cache should have one entry
-        assertEquals(1, HiraKataTransliterator.mappingCache.size());
-        assertEquals(
-                true,
-                HiraKataTransliterator.mappingCache.containsKey(
-                        HiraKataTransliterator.Options.Mode.HIRA_TO_KATA));
+        // They should share one table
+        assertSame(t1.mappingTable, t2.mappingTable);
 
         // Create instance with different mode
         var t3 =
@@ -110,11 +105,28 @@ class HiraKataTransliteratorTest {
                         new HiraKataTransliterator.Options(
                                 HiraKataTransliterator.Options.Mode.KATA_TO_HIRA));
 
-        // Now cache should have both modes
-        assertEquals(2, HiraKataTransliterator.mappingCache.size());
+        // It should have a table of its own
+        assertNotSame(t1.mappingTable, t3.mappingTable);
+        assertEquals("\u30ab", t1.transliterate(Chars.of("\u304b").iterator()).string());
+        assertEquals("\u304b", t3.transliterate(Chars.of("\u30ab").iterator()).string());
+    }
+
+    @Test
+    @DisplayName("Small Kana Extension")
+    void testSmallKanaExtension() {
+        var hiraToKata =
+                new HiraKataTransliterator(
+                        new HiraKataTransliterator.Options(
+                                HiraKataTransliterator.Options.Mode.HIRA_TO_KATA));
+        var kataToHira =
+                new HiraKataTransliterator(
+                        new HiraKataTransliterator.Options(
+                                HiraKataTransliterator.Options.Mode.KATA_TO_HIRA));
+        assertEquals(
+                "\uD82C\uDD55\uD82C\uDD64",
+                hiraToKata.transliterate(Chars.of("\uD82C\uDD32\uD82C\uDD50").iterator()).string());
         assertEquals(
-                true,
-                HiraKataTransliterator.mappingCache.containsKey(
-                        HiraKataTransliterator.Options.Mode.KATA_TO_HIRA));
+                "\uD82C\uDD32\uD82C\uDD50",
+                kataToHira.transliterate(Chars.of("\uD82C\uDD55\uD82C\uDD64").iterator()).string());
     }
 }
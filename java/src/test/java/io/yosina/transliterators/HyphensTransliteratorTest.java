@@ -94,6 +94,25 @@ public class HyphensTransliteratorTest {
         assertEquals(input, output, "Unmapped characters should remain unchanged");
     }
 
+    @Test
+    public void testPrecedenceWithoutMapping() {
+        // "¢" has no ASCII replacement, so it is left as it is
+        HyphensTransliterator asciiOnly =
+                new HyphensTransliterator(
+                        new HyphensTransliterator.Options(
+                                List.of(HyphensTransliterator.Mapping.ASCII)));
+        assertEquals("a¢-", asciiOnly.transliterate(Chars.of("a¢―").iterator()).string());
+
+        // unless a later mapping in the precedence has one
+        HyphensTransliterator withFallback =
+                new HyphensTransliterator(
+                        new HyphensTransliterator.Options(
+                                List.of(
+                                        HyphensTransliterator.Mapping.ASCII,
+                                        HyphensTransliterator.Mapping.JISX0208_90_WINDOWS)));
+        assertEquals("a￠-", withFallback.transliterate(Chars.of("a¢―").iterator()).string());
+    }
+
     @Test
     public void testMixedHyphensContent() {
         HyphensTransliterator transliterator =
@@ -208,4 +227,44 @@ public class HyphensTransliteratorTest {
         assertEquals(options1.hashCode(), options2.hashCode());
         assertNotEquals(options1.hashCode(), options3.hashCode());
     }
+
+    @Test
+    public void testPrecedenceOrderMatters() {
+        final List<HyphensTransliterator.Mapping> asciiFirst =
+                new java.util.ArrayList<>(
+                        List.of(
+                                HyphensTransliterator.Mapping.ASCII,
+                                HyphensTransliterator.Mapping.JISX0208_90));
+        final HyphensTransliterator.Options options1 =
+                new HyphensTransliterator.Options(asciiFirst);
+        final HyphensTransliterator.Options options2 =
+                new HyphensTransliterator.Options(
+                        List.of(
+                                HyphensTransliterator.Mapping.JISX0208_90,
+                                HyphensTransliterator.Mapping.ASCII));
+        assertNotEquals(options1, options2);
+        // The options keep their own copy of the precedence
+        asciiFirst.clear();
+        assertEquals(2, options1.getPrecedence().size());
+
+        assertEquals(
+                "-",
+                new HyphensTransliterator(options1)
+                        .transliterate(Chars.of("-").iterator())
+                        .string());
+        assertEquals(
+                "\u2212",
+                new HyphensTransliterator(options2)
+                        .transliterate(Chars.of("-").iterator())
+                        .string());
+        assertEquals(
+                "-",
+                new HyphensTransliterator(
+                                new HyphensTransliterator.Options(
+                                        List.of(
+                                                HyphensTransliterator.Mapping.ASCII,
+                                                HyphensTransliterator.Mapping.JISX0208_90)))
+                        .transliterate(Chars.of("-").iterator())
+                        .string());
+    }
 }
@@ -0,0 +1,73 @@
+package io.yosina.transliterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.CodePointTuple;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the shared table of Japanese character classes. */
+public class JapaneseCharClassTest {
+    private static boolean has(int codePoint, int flags) {
+        return (JapaneseCharClass.of(codePoint) & flags) == flags;
+    }
+
+    @Test
+    public void testKanas() {
+        assertTrue(has('あ', JapaneseCharClass.HIRAGANA | JapaneseCharClass.LETTER));
+        assertTrue(has('ア', JapaneseCharClass.KATAKANA | JapaneseCharClass.LETTER));
+        assertTrue(
+                has(
+                        'ｱ',
+                        JapaneseCharClass.KATAKANA
+                                | JapaneseCharClass.LETTER
+                                | JapaneseCharClass.HALFWIDTH));
+        assertTrue(has('か', JapaneseCharClass.VOWEL_ENDED));
+        assertEquals(0, JapaneseCharClass.of('ん') & JapaneseCharClass.VOWEL_ENDED);
+        assertTrue(has('ん', JapaneseCharClass.HATSUON));
+        assertTrue(has('ッ', JapaneseCharClass.SOKUON));
+        assertTrue(has('ｯ', JapaneseCharClass.SOKUON | JapaneseCharClass.HALFWIDTH));
+        assertTrue(has('が', JapaneseCharClass.VOICED));
+        assertTrue(has('ヴ', JapaneseCharClass.VOICED));
+        assertTrue(has('ぱ', JapaneseCharClass.SEMI_VOICED));
+        assertEquals(0, JapaneseCharClass.of('か') & JapaneseCharClass.VOICED);
+    }
+
+    @Test
+    public void testMarks() {
+        assertTrue(
+                has(
+                        0x3099,
+                        JapaneseCharClass.VOICED
+                                | JapaneseCharClass.SOUND_MARK
+                                | JapaneseCharClass.COMBINING));
+        assertTrue(has(0x309c, JapaneseCharClass.SEMI_VOICED | JapaneseCharClass.SOUND_MARK));
+        assertEquals(0, JapaneseCharClass.of(0x309c) & JapaneseCharClass.COMBINING);
+        assertTrue(has(0xff9e, JapaneseCharClass.VOICED | JapaneseCharClass.HALFWIDTH));
+        assertTrue(has('ー', JapaneseCharClass.PROLONGED_SOUND_MARK));
+        assertTrue(has('ｰ', JapaneseCharClass.PROLONGED_SOUND_MARK | JapaneseCharClass.HALFWIDTH));
+        for (int c : new int[] {0x3005, 0x3031, 0x3034, 0x309d, 0x309e, 0x30fd, 0x30fe}) {
+            assertTrue(has(c, JapaneseCharClass.ITERATION_MARK), Integer.toHexString(c));
+        }
+    }
+
+    @Test
+    public void testAlphanumerics() {
+        assertTrue(has('7', JapaneseCharClass.DIGIT | JapaneseCharClass.HALFWIDTH));
+        assertTrue(has('z', JapaneseCharClass.ALPHABET | JapaneseCharClass.HALFWIDTH));
+        assertTrue(has('７', JapaneseCharClass.DIGIT));
+        assertEquals(0, JapaneseCharClass.of('７') & JapaneseCharClass.HALFWIDTH);
+        assertTrue(has('Ａ', JapaneseCharClass.ALPHABET));
+    }
+
+    @Test
+    public void testOthers() {
+        assertEquals(0, JapaneseCharClass.of('漢'));
+        assertEquals(0, JapaneseCharClass.of('-'));
+        assertEquals(0, JapaneseCharClass.of(0x1b132));
+        assertEquals(0, JapaneseCharClass.of(0x10ffff));
+        assertEquals(0, JapaneseCharClass.of(CodePointTuple.of()));
+        assertEquals(
+                JapaneseCharClass.of('が'), JapaneseCharClass.of(CodePointTuple.of('が', 0xfe00)));
+    }
+}
@@ -411,4 +411,14 @@ public class JapaneseIterationMarksTransliteratorTest {
         assertEquals("ざさざざ", transliterate("ざ〱ざ〲"));
         assertEquals("ザサザザ", transliterate("ザ〳ザ〴"));
     }
+
+    @Test
+    public void testCharactersWithVariationSelectors() {
+        // The kanji is repeated together with its variation selector
+        assertEquals("葛\uDB40\uDD00葛\uDB40\uDD00", transliterate("葛\uDB40\uDD00々"));
+        assertEquals("辻\uFE00辻\uFE00", transliterate("辻\uFE00々"));
+        // A kana followed by a selector is repeated as it is, but is not voiced
+        assertEquals("か\uFE00か\uFE00", transliterate("か\uFE00ゝ"));
+        assertEquals("か\uFE00ゞ", transliterate("か\uFE00ゞ"));
+    }
 }
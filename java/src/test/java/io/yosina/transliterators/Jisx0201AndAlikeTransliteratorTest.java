@@ -5,6 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import io.yosina.CharIterator;
 import io.yosina.Chars;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
 public class Jisx0201AndAlikeTransliteratorTest {
@@ -251,4 +256,68 @@ public class Jisx0201AndAlikeTransliteratorTest {
         assertEquals(options1.hashCode(), options2.hashCode());
         assertNotEquals(options1.hashCode(), options3.hashCode());
     }
+
+    @Test
+    public void testVoicedLettersBothWays() {
+        final String fullwidth = "ヴガギグゲゴザジズゼゾダヂヅデドバビブベボパピプペポヺ";
+        final String halfwidth = "ｳﾞｶﾞｷﾞｸﾞｹﾞｺﾞｻﾞｼﾞｽﾞｾﾞｿﾞﾀﾞﾁﾞﾂﾞﾃﾞﾄﾞﾊﾞﾋﾞﾌﾞﾍﾞﾎﾞﾊﾟﾋﾟﾌﾟﾍﾟﾎﾟｦﾞ";
+        final Jisx0201AndAlikeTransliterator forward =
+                new Jisx0201AndAlikeTransliterator(
+                        new Jisx0201AndAlikeTransliterator.Options(true));
+        final Jisx0201AndAlikeTransliterator reverse =
+                new Jisx0201AndAlikeTransliterator(
+                        new Jisx0201AndAlikeTransliterator.Options(false)
+                                .withCombineVoicedSoundMarks(true));
+        assertEquals(halfwidth, forward.transliterate(Chars.of(fullwidth).iterator()).string());
+        assertEquals(fullwidth, reverse.transliterate(Chars.of(halfwidth).iterator()).string());
+        // A semi-voiced sound mark only combines with the letters that take it
+        assertEquals("カ゜パ", reverse.transliterate(Chars.of("ｶﾟﾊﾟ").iterator()).string());
+    }
+
+    @Test
+    public void testTablesForDifferentOptionsAreKeptApart() {
+        final Jisx0201AndAlikeTransliterator.Options options =
+                new Jisx0201AndAlikeTransliterator.Options(true);
+        final String input = "ＡカＡ";
+        // Compile the tables for the first options before the others are asked for
+        assertEquals(
+                "AｶA",
+                new Jisx0201AndAlikeTransliterator(options)
+                        .transliterate(Chars.of(input).iterator())
+                        .string());
+        assertEquals(
+                "ＡｶＡ",
+                new Jisx0201AndAlikeTransliterator(options.withConvertGL(false))
+                        .transliterate(Chars.of(input).iterator())
+                        .string());
+        assertEquals(
+                "AカA",
+                new Jisx0201AndAlikeTransliterator(options.withConvertGR(false))
+                        .transliterate(Chars.of(input).iterator())
+                        .string());
+    }
+
+    @Test
+    public void testConcurrentInstances() throws Exception {
+        final String input = "ｶﾞｷﾞﾊﾟｱｲｳﾞｰ ABC123";
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(
+                        executor.submit(
+                                () ->
+                                        new Jisx0201AndAlikeTransliterator(
+                                                        new Jisx0201AndAlikeTransliterator.Options(
+                                                                false))
+                                                .transliterate(Chars.of(input).iterator())
+                                                .string()));
+            }
+            for (Future<String> result : results) {
+                assertEquals("ガギパアイヴー　ＡＢＣ１２３", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -2,7 +2,10 @@ package io.yosina.transliterators;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
+import io.yosina.CharIterator;
 import io.yosina.Chars;
 import io.yosina.Transliterator;
 import java.util.stream.Stream;
@@ -496,6 +499,98 @@ public class ProlongedSoundMarksTransliteratorTest {
         assertEquals(expected, transliterate(input, options));
     }
 
+    @ParameterizedTest
+    @MethodSource("longRunCases")
+    public void testLongRuns(
+            String before,
+            String mark,
+            String after,
+            String replacement,
+            ProlongedSoundMarksTransliterator.Options options) {
+        // Multi-megabyte runs used to be buffered and then copied one by one from the head of a
+        // list, which never finished at this size. A run that has to wait for what follows must
+        // not hold a Char for each of its characters either, even after an earlier stage has
+        // given every character a source, so it has to stay a single segment. The output is
+        // checked as it comes so that the test does not hold a copy of it.
+        final int length = 4 * 1024 * 1024;
+        final String input = before + mark.repeat(length) + after;
+        final String expected = before + replacement.repeat(length) + after;
+        final Transliterator spaces = new SpacesTransliterator();
+        for (boolean trackProvenance : new boolean[] {true, false}) {
+            for (boolean afterSpaces : new boolean[] {false, true}) {
+                final Transliterator transliterator =
+                        new ProlongedSoundMarksTransliterator(options);
+                CharIterator chars = new Chars.OfCharSequence(input, trackProvenance).iterator();
+                if (afterSpaces) {
+                    chars = spaces.transliterate(chars);
+                }
+                final ProlongedSoundMarksTransliterator.ProlongedSoundMarksCharIterator result =
+                        (ProlongedSoundMarksTransliterator.ProlongedSoundMarksCharIterator)
+                                transliterator.transliterate(chars);
+                int end = 0;
+                int maxSegments = 0;
+                while (result.hasNext()) {
+                    final String c = result.next().get().toString();
+                    if (!expected.startsWith(c, end)) {
+                        fail("unexpected " + c + " at " + end);
+                    }
+                    end += c.length();
+                    maxSegments = Math.max(maxSegments, result.bufferedSegments());
+                }
+                assertEquals(expected.length(), end);
+                assertTrue(
+                        maxSegments <= 1,
+                        "trackProvenance: "
+                                + trackProvenance
+                                + ", afterSpaces: "
+                                + afterSpaces
+                                + ", segments: "
+                                + maxSegments);
+            }
+        }
+    }
+
+    static Stream<Arguments> longRunCases() {
+        return Stream.of(
+                // Prolonged sound marks after a kana, replaced as they are read
+                Arguments.of(
+                        "カ",
+                        "\u002d",
+                        "",
+                        "\u30fc",
+                        new ProlongedSoundMarksTransliterator.Options()),
+                // After an alphanumeric, replaced as they are read
+                Arguments.of(
+                        "A",
+                        "\u30fc",
+                        "B",
+                        "\u002d",
+                        new ProlongedSoundMarksTransliterator.Options(
+                                false, false, false, true, false)),
+                // Between non-kanas, which depends on the character after the run
+                Arguments.of(
+                        "漢",
+                        "\u30fc",
+                        "字",
+                        "\uff0d",
+                        new ProlongedSoundMarksTransliterator.Options(
+                                false, false, false, false, true)),
+                Arguments.of(
+                        "漢",
+                        "\u30fc",
+                        "カ",
+                        "\u30fc",
+                        new ProlongedSoundMarksTransliterator.Options(
+                                false, false, false, false, true)),
+                Arguments.of(
+                        "Ａ",
+                        "\u30fc",
+                        "Ａ",
+                        "\uff0d",
+                        new ProlongedSoundMarksTransliterator.Options(
+                                false, false, false, true, true)));
+    }
+
     @Test
     public void testProlongedSoundMarksTransliteratorOptionsEquals() {
         ProlongedSoundMarksTransliterator.Options options1 =
@@ -0,0 +1,171 @@
+package io.yosina.transliterators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.yosina.Char;
+import io.yosina.CharIterator;
+import io.yosina.Chars;
+import io.yosina.CodePointBuffer;
+import io.yosina.CodePointTuple;
+import io.yosina.ContextFreeTransliterator;
+import io.yosina.Yosina;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Tests that a compiled transducer does what its transliterators do one after another. */
+public class TransducerTest {
+    private static final List<String> INPUTS =
+            List.of(
+                    "",
+                    "Ｈｅｌｌｏ　Ｗｏｒｌｄ！",
+                    "葛󠄀辻󠄁邉︀一　 神︀",
+                    "葛󠄃辻󠄅𠮷󠄁A︀",
+                    "①②㉑㊱Ⓐ🆗🄰㍿㈱ⅢⅫⅳⅿ",
+                    "‐‑‒–—―−ーｰ-〜～",
+                    "⼀⼆舊體㆒㆓𝐀𝟎ぁぃァィ",
+                    "㍻㋿⑴⒜ゐゑ");
+
+    private static final IvsSvsBaseTransliterator.Options IVS_OPTIONS =
+            new IvsSvsBaseTransliterator.Options()
+                    .withCharset(IvsSvsBaseTransliterator.Charset.UNIJIS_2004);
+
+    private static List<String> describe(CharIterator iterator) {
+        final List<String> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            final Char c = iterator.next();
+            // A later stage may tell a character passed through as is from one given a source
+            result.add(c.get() + (c.isTransliterated() ? "*" : "") + (c.hasSource() ? "^" : ""));
+        }
+        return result;
+    }
+
+    private static void assertSameAsSequence(List<? extends ContextFreeTransliterator> stages) {
+        final Transducer transducer = Transducer.compile(stages);
+        for (String input : INPUTS) {
+            CharIterator expected = Chars.of(input).iterator();
+            CodePointBuffer expectedBuffer = CodePointBuffer.of(input);
+            for (ContextFreeTransliterator stage : stages) {
+                expected = stage.transliterate(expected);
+                final CodePointBuffer out = new CodePointBuffer();
+                stage.transliterate(expectedBuffer, 0, expectedBuffer.size(), out);
+                expectedBuffer = out;
+            }
+            assertEquals(
+                    describe(expected),
+                    describe(transducer.transliterate(Chars.of(input).iterator())),
+                    "input: " + input);
+
+            final CodePointBuffer in = CodePointBuffer.of(input);
+            final CodePointBuffer out = new CodePointBuffer();
+            transducer.transliterate(in, 0, in.size(), out);
+            assertEquals(expectedBuffer.toString(), out.toString(), "input: " + input);
+            assertEquals(expectedBuffer.size(), out.size());
+            for (int i = 0; i < out.size(); i++) {
+                assertEquals(expectedBuffer.offset(i), out.offset(i), "input: " + input);
+            }
+        }
+    }
+
+    @Test
+    public void testRecipeSegment() {
+        assertSameAsSequence(
+                List.of(
+                        new IvsSvsBaseTransliterator(
+                                IVS_OPTIONS.withMode(IvsSvsBaseTransliterator.Mode.IVS_OR_SVS)),
+                        new IvsSvsBaseTransliterator(
+                                IVS_OPTIONS.withMode(IvsSvsBaseTransliterator.Mode.BASE)),
+                        new KanjiOldNewTransliterator(),
+                        new CircledOrSquaredTransliterator(),
+                        new CombinedTransliterator(),
+                        new IdeographicAnnotationsTransliterator(),
+                        new RadicalsTransliterator(),
+                        new SpacesTransliterator(),
+                        new HyphensTransliterator(new HyphensTransliterator.Options()),
+                        new MathematicalAlphanumericsTransliterator(),
+                        new RomanNumeralsTransliterator()));
+    }
+
+    @Test
+    public void testDroppedSelectors() {
+        final List<ContextFreeTransliterator> stages =
+                List.of(
+                        new IvsSvsBaseTransliterator(
+                                IVS_OPTIONS
+                                        .withMode(IvsSvsBaseTransliterator.Mode.BASE)
+                                        .withDropSelectorAltogether(true)),
+                        new KanjiOldNewTransliterator(),
+                        new CombinedTransliterator());
+        assertSameAsSequence(stages);
+
+        // A selector that no table knows of is dropped, and what is left still goes through the
+        // transliterators after the one that drops it
+        final Transducer transducer = Transducer.compile(stages);
+        final List<Char> chars = new ArrayList<>();
+        transducer.transliterate(Chars.of("漢︀㍻︀a︀").iterator()).forEachRemaining(chars::add);
+        final StringBuilder sb = new StringBuilder();
+        for (Char c : chars) {
+            sb.append(c.get());
+        }
+        assertEquals("漢平成a", sb.toString());
+        assertTrue(chars.get(0).isTransliterated());
+        assertEquals(CodePointTuple.of('a'), chars.get(3).get());
+        assertTrue(chars.get(3).isTransliterated());
+    }
+
+    @Test
+    public void testRoundTrips() {
+        final ContextFreeTransliterator forward =
+                new IvsSvsBaseTransliterator(
+                        IVS_OPTIONS.withMode(IvsSvsBaseTransliterator.Mode.IVS_OR_SVS));
+        final ContextFreeTransliterator backward =
+                new IvsSvsBaseTransliterator(
+                        IVS_OPTIONS.withMode(IvsSvsBaseTransliterator.Mode.BASE));
+        assertSameAsSequence(List.of(forward, backward));
+        assertSameAsSequence(List.of(backward, forward));
+
+        // A character changed and then changed back is still reported as transliterated
+        final Char c =
+                Transducer.compile(List.of(forward, backward))
+                        .transliterate(Chars.of("葛").iterator())
+                        .next();
+        assertEquals(CodePointTuple.of(0x845b), c.get());
+        assertTrue(c.isTransliterated());
+    }
+
+    @Test
+    public void testPassThroughWithoutSource() {
+        final List<ContextFreeTransliterator> stages =
+                List.of(
+                        new CombinedTransliterator(),
+                        new HiraKataTransliterator(
+                                new HiraKataTransliterator.Options(
+                                        HiraKataTransliterator.Options.Mode.HIRA_TO_KATA)));
+        assertSameAsSequence(stages);
+
+        // Neither stage touches "ZZ―", so prolonged-sound-marks still treats the run as its own
+        final ProlongedSoundMarksTransliterator.Options options =
+                new ProlongedSoundMarksTransliterator.Options(true, true, false, true, false);
+        assertEquals(
+                "ZZ-",
+                new ProlongedSoundMarksTransliterator(options)
+                        .transliterate(
+                                Transducer.compile(stages)
+                                        .transliterate(Chars.of("ZZ―").iterator()))
+                        .string());
+        assertEquals(
+                "ZZ-",
+                Yosina.makeTransliterator(
+                                List.of(
+                                        new Yosina.TransliteratorConfig("combined"),
+                                        new Yosina.TransliteratorConfig(
+                                                "hira-kata",
+                                                new HiraKataTransliterator.Options(
+                                                        HiraKataTransliterator.Options.Mode
+                                                                .HIRA_TO_KATA)),
+                                        new Yosina.TransliteratorConfig(
+                                                "prolonged-sound-marks", options)))
+                        .apply("ZZ―"));
+    }
+}